@@ -0,0 +1,55 @@
+#!/bin/sh
+# Startup benchmark: time-to-first-request and RSS for the plain jar vs the
+# AOT-processed jar with a CDS archive.
+#
+# Usage: scripts/startup-benchmark.sh [runs]
+# Requires a database reachable with the settings in application.properties
+# and a jar built with: ./mvnw -Paot package -DskipTests
+
+set -eu
+
+RUNS=${1:-5}
+PORT=${PORT:-8080}
+URL="http://localhost:${PORT}/login"
+JAR=$(ls target/*.jar | head -n 1)
+WORK=target/startup-benchmark
+
+rm -rf "$WORK"
+mkdir -p "$WORK"
+cp "$JAR" "$WORK/app.jar"
+(cd "$WORK" && java -Djarmode=tools -jar app.jar extract --destination extracted >/dev/null)
+
+echo "Training run for the CDS archive..."
+(cd "$WORK/extracted" && java -XX:ArchiveClassesAtExit=app.jsa -Dspring.aot.enabled=true \
+    -Dspring.context.exit=onRefresh -Dspring.flyway.enabled=false -jar app.jar >/dev/null 2>&1)
+
+now_ms() {
+    date +%s%3N
+}
+
+measure() {
+    label=$1
+    dir=$2
+    shift 2
+    total=0
+    i=1
+    while [ "$i" -le "$RUNS" ]; do
+        start=$(now_ms)
+        (cd "$dir" && exec java "$@" -Dserver.port="$PORT" -jar app.jar >/dev/null 2>&1) &
+        pid=$!
+        until curl -s -o /dev/null "$URL"; do
+            sleep 0.05
+        done
+        elapsed=$(( $(now_ms) - start ))
+        rss=$(awk '/VmRSS/ { print $2 }' "/proc/$(pgrep -P $pid java || echo $pid)/status" 2>/dev/null || echo "?")
+        kill "$pid" 2>/dev/null || true
+        wait "$pid" 2>/dev/null || true
+        echo "$label run $i: first request after ${elapsed} ms, RSS ${rss} KB"
+        total=$(( total + elapsed ))
+        i=$(( i + 1 ))
+    done
+    echo "$label average: $(( total / RUNS )) ms"
+}
+
+measure "java -jar" "$WORK"
+measure "AOT + CDS" "$WORK/extracted" -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true
@@ -2,10 +2,14 @@ package com.example.spring_tutorial;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @ComponentScan(basePackages = "com.example.spring_tutorial")
+@ConfigurationPropertiesScan
+@EnableScheduling
 public class SpringTutorialApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,112 @@
+package com.example.spring_tutorial.attendance;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer queue of attendance events, without locks.
+ *
+ * Events are held field by field in parallel primitive arrays, so queueing one allocates
+ * nothing. A producer reserves a run of slots with one CAS on the tail, fills them and
+ * publishes each slot by storing its sequence number; the consumer reads slots in order
+ * up to the first one not yet published, then moves the head on to hand them back.
+ * Every claimed sequence must be {@link #put}, or the consumer stops at it.
+ */
+public final class AttendanceRingBuffer {
+
+    /**
+     * Receives drained events, one call per event.
+     */
+    @FunctionalInterface
+    public interface Consumer {
+        void accept(long studentId, long sectionId, long recordedAtMillis, byte status);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final long[] studentIds;
+    private final long[] sectionIds;
+    private final long[] recordedAt;
+    private final byte[] statuses;
+    /** Sequence + 1 of the event last published in each slot; 0 while a slot has never been used. */
+    private final AtomicLongArray published;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @throws IllegalArgumentException if capacity is not a power of two
+     */
+    public AttendanceRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.studentIds = new long[capacity];
+        this.sectionIds = new long[capacity];
+        this.recordedAt = new long[capacity];
+        this.statuses = new byte[capacity];
+        this.published = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * Reserves count consecutive slots. Returns the first sequence, or -1 if they don't all fit.
+     */
+    public long claim(int count) {
+        if (count <= 0 || count > capacity) {
+            throw new IllegalArgumentException("Cannot claim " + count + " slots of " + capacity);
+        }
+        long start;
+        do {
+            start = tail.get();
+            if (start + count - head.get() > capacity) {
+                return -1;
+            }
+        } while (!tail.compareAndSet(start, start + count));
+        return start;
+    }
+
+    /**
+     * Fills a claimed slot and makes it visible to the consumer.
+     */
+    public void put(long sequence, long studentId, long sectionId, long recordedAtMillis, byte status) {
+        int slot = (int) (sequence & mask);
+        studentIds[slot] = studentId;
+        sectionIds[slot] = sectionId;
+        recordedAt[slot] = recordedAtMillis;
+        statuses[slot] = status;
+        published.setRelease(slot, sequence + 1);
+    }
+
+    /**
+     * Hands up to max published events to the consumer, oldest first, and frees their slots.
+     * Only one thread may drain.
+     */
+    public int drain(int max, Consumer consumer) {
+        long next = head.get();
+        int drained = 0;
+        while (drained < max) {
+            int slot = (int) (next & mask);
+            if (published.getAcquire(slot) != next + 1) {
+                break;
+            }
+            consumer.accept(studentIds[slot], sectionIds[slot], recordedAt[slot], statuses[slot]);
+            next++;
+            drained++;
+        }
+        head.set(next);
+        return drained;
+    }
+
+    /**
+     * Events claimed and not yet drained.
+     */
+    public int size() {
+        long consumed = head.get();
+        return (int) (tail.get() - consumed);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.spring_tutorial.attendance;
+
+/**
+ * What a classroom device recorded for a student. Queued as its one-byte code.
+ */
+public enum AttendanceStatus {
+
+    PRESENT,
+    LATE,
+    ABSENT,
+    EXCUSED;
+
+    private static final AttendanceStatus[] BY_CODE = values();
+
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    public static AttendanceStatus ofCode(byte code) {
+        return BY_CODE[code];
+    }
+}
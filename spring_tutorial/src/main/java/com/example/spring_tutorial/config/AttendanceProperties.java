@@ -0,0 +1,57 @@
+package com.example.spring_tutorial.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for attendance ingestion from classroom devices.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.attendance")
+public class AttendanceProperties {
+
+    /**
+     * Events held in memory between flushes, per school; a power of two. When full, devices are told to retry.
+     */
+    private int bufferCapacity = 65_536;
+
+    /**
+     * Events written per flush. A flush starts early once this many are waiting.
+     */
+    private int flushSize = 5_000;
+
+    /**
+     * Longest an event waits in memory when fewer than flush-size are waiting.
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    /**
+     * Wait before retrying a flush that failed.
+     */
+    private Duration retryBackoff = Duration.ofSeconds(1);
+
+    private int maxEventsPerRequest = 1_000;
+
+    /**
+     * Oldest scan accepted; devices that were offline longer have to be reconciled by hand.
+     */
+    private Duration maxEventAge = Duration.ofDays(7);
+
+    /**
+     * How far a device clock may run ahead of the server's.
+     */
+    private Duration maxClockSkew = Duration.ofMinutes(1);
+
+    /**
+     * How long shutdown waits for the buffer to be written before spilling the rest to disk.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Where events that could not be written at shutdown are kept until the next start.
+     */
+    private Path spillDirectory = Path.of("attendance-spill");
+}
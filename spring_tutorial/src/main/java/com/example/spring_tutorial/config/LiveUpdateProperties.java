@@ -0,0 +1,33 @@
+package com.example.spring_tutorial.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the Server-Sent Events stream behind the directory pages.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.live-updates")
+public class LiveUpdateProperties {
+
+    /**
+     * Distinct rows buffered per subscriber. Repeated changes to the same row
+     * replace each other; beyond this the subscriber is told to reload instead.
+     */
+    private int bufferSize = 256;
+
+    private int maxSubscribers = 1_000;
+
+    /**
+     * How often an idle stream gets a comment line, so proxies keep it open
+     * and dead connections are noticed.
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    /**
+     * Lifetime of one stream; EventSource reconnects on its own afterwards.
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+}
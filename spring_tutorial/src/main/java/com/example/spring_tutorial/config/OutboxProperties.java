@@ -0,0 +1,52 @@
+package com.example.spring_tutorial.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for delivering outbox events to their handlers.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.outbox")
+public class OutboxProperties {
+
+    /**
+     * Events claimed and delivered together.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Batches delivered back to back before waiting for the next poll, while a backlog lasts.
+     */
+    private int maxBatchesPerPoll = 20;
+
+    /**
+     * Longest one batch waits for its handlers; a handler still running is counted as failed.
+     */
+    private Duration handlerTimeout = Duration.ofSeconds(10);
+
+    /**
+     * How long claimed events stay hidden from other nodes while their batch is delivered.
+     * Must be longer than handler-timeout; after it, a node that died mid-batch is assumed gone.
+     */
+    private Duration lease = Duration.ofMinutes(1);
+
+    /**
+     * Backoff before the first retry; it doubles with each further attempt up to max-backoff.
+     */
+    private Duration initialBackoff = Duration.ofSeconds(1);
+
+    private Duration maxBackoff = Duration.ofMinutes(10);
+
+    /**
+     * Attempts after which an event is given up on and left in the table with failed_at set.
+     */
+    private int maxAttempts = 10;
+
+    /**
+     * How long an event no handler accepts is kept for a handler deployed later, before it is marked failed.
+     */
+    private Duration unhandledTimeout = Duration.ofDays(1);
+}
@@ -0,0 +1,50 @@
+package com.example.spring_tutorial.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rate limit settings for the authentication endpoints.
+ * Each named endpoint group gets its own per-IP and per-account token buckets.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Number of buckets per table. Memory is fixed at 8 bytes per bucket.
+     */
+    private int tableSize = 8192;
+
+    private Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+
+    @Data
+    public static class Endpoint {
+
+        private List<String> paths = new ArrayList<>();
+
+        private List<String> methods = new ArrayList<>(List.of("POST"));
+
+        private Bucket perIp = new Bucket();
+
+        private Bucket perAccount = new Bucket();
+    }
+
+    @Data
+    public static class Bucket {
+
+        /**
+         * Maximum burst size. Zero disables this bucket.
+         */
+        private int capacity;
+
+        private int refillPerMinute;
+    }
+}
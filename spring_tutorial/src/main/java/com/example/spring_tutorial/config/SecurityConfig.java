@@ -1,14 +1,21 @@
 package com.example.spring_tutorial.config;
 
 import com.example.spring_tutorial.repository.UserRepository;
+import com.example.spring_tutorial.security.AuthRateLimiter;
+import com.example.spring_tutorial.security.RateLimitFilter;
+import com.example.spring_tutorial.security.TokenAuthenticationFilter;
+import com.example.spring_tutorial.service.TokenService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
@@ -19,6 +26,10 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.access.AccessDeniedHandler;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 
 import java.io.IOException;
 import java.util.Collections;
@@ -33,13 +44,48 @@ import java.util.Collections;
 public class SecurityConfig {
     
     private final UserRepository userRepository;
+    private final AuthRateLimiter authRateLimiter;
+    
+    /**
+     * Stateless chain for /api/** when token mode is enabled.
+     * Requests are authenticated from a bearer token only; no session is read or created.
+     *
+     * Always registered and only matching while the flag is on: the AOT build (-Paot) settles
+     * bean conditions at build time, so a conditional chain would ignore the flag at runtime.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain apiFilterChain(HttpSecurity http, TokenService tokenService,
+                                              TokenProperties tokenProperties) throws Exception {
+        RequestMatcher api = PathPatternRequestMatcher.withDefaults().matcher("/api/**");
+        http
+            .securityMatcher(request -> tokenProperties.isEnabled() && api.matches(request))
+            .csrf(csrf -> csrf.disable())
+            .addFilterBefore(new RateLimitFilter(authRateLimiter), UsernamePasswordAuthenticationFilter.class)
+            .addFilterBefore(new TokenAuthenticationFilter(tokenService), UsernamePasswordAuthenticationFilter.class)
+            .authorizeHttpRequests(auth -> auth
+                .requestMatchers("/api/auth/**").permitAll()
+                .anyRequest().authenticated()
+            )
+            .sessionManagement(session -> session
+                .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+            )
+            .requestCache(cache -> cache.disable())
+            .exceptionHandling(exceptions -> exceptions
+                .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))
+            );
+        
+        return http.build();
+    }
     
     @Bean
+    @Order(2)
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
             .csrf(csrf -> csrf.disable()) // Disable CSRF for simplicity in development
+            .addFilterBefore(new RateLimitFilter(authRateLimiter), UsernamePasswordAuthenticationFilter.class)
             .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/", "/login", "/register", "/css/**", "/js/**", "/api/auth/**").permitAll()
+                .requestMatchers("/", "/login", "/register", "/api/auth/**").permitAll()
                 .anyRequest().authenticated()
             )
             .formLogin(form -> form
@@ -64,6 +110,15 @@ public class SecurityConfig {
         return http.build();
     }
     
+    /**
+     * Fingerprinted static assets bypass the security filter chain entirely;
+     * they are public and carry no session or user-specific content.
+     */
+    @Bean
+    public WebSecurityCustomizer staticAssetsCustomizer() {
+        return web -> web.ignoring().requestMatchers("/css/**", "/js/**");
+    }
+    
     @Bean
     public AccessDeniedHandler accessDeniedHandler() {
         return new CustomAccessDeniedHandler();
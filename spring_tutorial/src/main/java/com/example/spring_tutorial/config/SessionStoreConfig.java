@@ -0,0 +1,33 @@
+package com.example.spring_tutorial.config;
+
+import com.example.spring_tutorial.session.NearCachedSessionRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+
+/**
+ * Wraps the JDBC session repository created by Spring Session with a near-cache,
+ * so sessions live in the application database and any node can serve any request.
+ */
+@Configuration
+public class SessionStoreConfig {
+
+    @Bean
+    public static BeanPostProcessor nearCachedSessionRepositoryPostProcessor(
+            ObjectProvider<SessionStoreProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof JdbcIndexedSessionRepository repository) {
+                    SessionStoreProperties settings = properties.getObject();
+                    if (settings.isEnabled()) {
+                        return new NearCachedSessionRepository(repository, settings);
+                    }
+                }
+                return bean;
+            }
+        };
+    }
+}
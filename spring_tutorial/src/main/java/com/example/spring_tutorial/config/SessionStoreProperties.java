@@ -0,0 +1,33 @@
+package com.example.spring_tutorial.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the in-process near-cache in front of the JDBC session store.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.session.near-cache")
+public class SessionStoreProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * How long a cached session is served without re-reading it from the database.
+     * Changes made on another node (e.g. logout) become visible after at most this long.
+     */
+    private Duration ttl = Duration.ofSeconds(2);
+
+    /**
+     * Sessions cached per school.
+     */
+    private int maxEntries = 10_000;
+
+    /**
+     * Minimum gap between persisted last-access updates. Requests in between
+     * only touch the cached copy instead of issuing an UPDATE each time.
+     */
+    private Duration lastAccessWriteInterval = Duration.ofMinutes(1);
+}
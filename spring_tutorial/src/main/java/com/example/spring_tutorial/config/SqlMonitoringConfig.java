@@ -0,0 +1,60 @@
+package com.example.spring_tutorial.config;
+
+import com.example.spring_tutorial.monitoring.QueryBudgetFilter;
+import com.example.spring_tutorial.monitoring.SqlStatementStats;
+import com.example.spring_tutorial.monitoring.SqlTimingListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * Routes the application DataSource through datasource-proxy so that every statement
+ * is timed by {@link SqlTimingListener}. Replaces spring.jpa.show-sql, which printed
+ * every statement synchronously but said nothing about how long it took.
+ * A filter ahead of everything else (including the session store) gives each request
+ * its own {@link com.example.spring_tutorial.monitoring.QueryBudget}.
+ */
+@Configuration
+public class SqlMonitoringConfig {
+
+    @Bean
+    public static SqlStatementStats sqlStatementStats(ObjectProvider<SqlMonitoringProperties> properties) {
+        return new SqlStatementStats(properties.getObject().getMaxStatements());
+    }
+
+    @Bean
+    public static BeanPostProcessor sqlTimingDataSourcePostProcessor(
+            ObjectProvider<SqlMonitoringProperties> properties, ObjectProvider<SqlStatementStats> stats) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)
+                        && properties.getObject().isEnabled()) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                        .name(beanName)
+                        .listener(new SqlTimingListener(stats.getObject(), properties.getObject()))
+                        .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<QueryBudgetFilter> queryBudgetFilter(SqlMonitoringProperties properties,
+                                                                       ObjectProvider<MeterRegistry> meterRegistry) {
+        FilterRegistrationBean<QueryBudgetFilter> registration = new FilterRegistrationBean<>(
+            new QueryBudgetFilter(properties.getBudget(), meterRegistry.getIfAvailable()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        registration.setEnabled(properties.isEnabled());
+        return registration;
+    }
+}
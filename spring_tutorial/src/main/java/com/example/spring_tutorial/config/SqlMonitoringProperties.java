@@ -0,0 +1,66 @@
+package com.example.spring_tutorial.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for per-statement SQL timing (slow-query log, sampled log and top-N report).
+ */
+@Data
+@ConfigurationProperties(prefix = "app.sql.monitoring")
+public class SqlMonitoringProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Statements taking at least this long are logged to the sql.slow logger.
+     */
+    private Duration slowThreshold = Duration.ofMillis(200);
+
+    /**
+     * Fraction (0 to 1) of the remaining statements logged to the sql.sample logger.
+     */
+    private double sampleRate = 0.0;
+
+    /**
+     * Number of statements returned by the sqlstatements Actuator endpoint.
+     */
+    private int topN = 20;
+
+    /**
+     * Distinct statements tracked; further ones are counted together so the table stays bounded.
+     */
+    private int maxStatements = 1_000;
+
+    private Budget budget = new Budget();
+
+    /**
+     * Per-request limits checked by QueryBudgetFilter.
+     */
+    @Data
+    public static class Budget {
+
+        /**
+         * Add X-SQL-Statements and X-SQL-Time-Ms to responses. Meant for development;
+         * the same numbers are always recorded as metrics tagged by endpoint.
+         */
+        private boolean responseHeaders = false;
+
+        /**
+         * A request running more statements than this is reported.
+         */
+        private int maxStatements = 50;
+
+        /**
+         * A request running the same statement at least this many times is reported as a likely N+1.
+         */
+        private int repeatedStatementThreshold = 10;
+
+        /**
+         * Fail the request with an exception instead of logging a warning. For tests.
+         */
+        private boolean strict = false;
+    }
+}
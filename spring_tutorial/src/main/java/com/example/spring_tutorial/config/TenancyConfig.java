@@ -0,0 +1,125 @@
+package com.example.spring_tutorial.config;
+
+import com.example.spring_tutorial.tenancy.Tenant;
+import com.example.spring_tutorial.tenancy.TenantConnectionProvider;
+import com.example.spring_tutorial.tenancy.TenantDataSource;
+import com.example.spring_tutorial.tenancy.TenantFilter;
+import com.example.spring_tutorial.tenancy.TenantRegistry;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.MultiTenancySettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.flyway.autoconfigure.FlywayMigrationStrategy;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Schema-per-school multi-tenancy, switched on with app.tenancy.enabled.
+ *
+ * A filter ahead of the session store works out each request's school; the DataSource,
+ * and Hibernate through it, then connect to that school's schema within its connection
+ * quota. Flyway migrates every school's schema at startup. HTTP request metrics carry a
+ * tenant tag. With tenancy off, everything runs as the default school on public and the
+ * DataSource is left as it is.
+ */
+@Configuration
+@Slf4j
+public class TenancyConfig {
+
+    @Bean
+    public static BeanPostProcessor tenantDataSourcePostProcessor(
+            ObjectProvider<TenancyProperties> properties, ObjectProvider<TenantRegistry> tenants) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof TenantDataSource)
+                        && properties.getObject().isEnabled()) {
+                    return new TenantDataSource(dataSource, tenants.getObject(),
+                        properties.getObject().getConnectionTimeout());
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Between the request metrics filters and the session store, which already works on the school's schema.
+     */
+    @Bean
+    public FilterRegistrationBean<TenantFilter> tenantFilter(TenantRegistry tenants) {
+        FilterRegistrationBean<TenantFilter> registration = new FilterRegistrationBean<>(new TenantFilter(tenants));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+
+    @Bean
+    public MeterBinder tenantConnectionMetrics(DataSource dataSource) {
+        return registry -> {
+            try {
+                if (dataSource.isWrapperFor(TenantDataSource.class)) {
+                    dataSource.unwrap(TenantDataSource.class).bindTo(registry);
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Cannot bind school connection metrics", e);
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer tenantHibernateProperties(TenancyProperties properties, DataSource dataSource) {
+        return hibernateProperties -> {
+            if (properties.isEnabled()) {
+                TenantConnectionProvider provider = new TenantConnectionProvider(dataSource);
+                hibernateProperties.put(MultiTenancySettings.MULTI_TENANT_CONNECTION_PROVIDER, provider);
+                hibernateProperties.put(MultiTenancySettings.MULTI_TENANT_IDENTIFIER_RESOLVER, provider);
+            }
+        };
+    }
+
+    /**
+     * The default school's public schema as configured, then every other school's with the same migrations.
+     * A school added to the configuration gets its schema created on the next start.
+     */
+    @Bean
+    public FlywayMigrationStrategy tenantMigrations(TenantRegistry tenants) {
+        return flyway -> {
+            flyway.migrate();
+            for (Tenant tenant : tenants.all()) {
+                if (!TenantRegistry.PUBLIC_SCHEMA.equals(tenant.schema())) {
+                    log.info("Migrating schema of school {}", tenant.id());
+                    Flyway.configure()
+                        .configuration(flyway.getConfiguration())
+                        .schemas(tenant.schema())
+                        .defaultSchema(tenant.schema())
+                        .createSchemas(true)
+                        .load()
+                        .migrate();
+                }
+            }
+        };
+    }
+
+    @Bean
+    public ServerRequestObservationConvention tenantServerRequestObservationConvention() {
+        return new DefaultServerRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+                Object tenant = context.getCarrier().getAttribute(TenantFilter.TENANT_ATTRIBUTE);
+                return super.getLowCardinalityKeyValues(context)
+                    .and("tenant", tenant != null ? tenant.toString() : "none");
+            }
+        };
+    }
+}
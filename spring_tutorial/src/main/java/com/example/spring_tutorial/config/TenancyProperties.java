@@ -0,0 +1,61 @@
+package com.example.spring_tutorial.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings for serving several schools from one deployment, each in its own schema.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.tenancy")
+public class TenancyProperties {
+
+    /**
+     * When off, every request belongs to the default school and nothing is routed or capped.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Request header naming the school, for requests on a host no school is served on. Blank,
+     * the default, to ignore it. Clients can send any header, so only set this when every
+     * request comes through a gateway that sets or removes it.
+     */
+    private String header = "";
+
+    /**
+     * Connections one school may hold at once unless it sets its own; 0 for no limit.
+     */
+    private int maxConnections = 5;
+
+    /**
+     * How long a request waits for one of its school's connections before failing.
+     */
+    private Duration connectionTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Schools by id. The default school, whose data lives in public, is always present.
+     */
+    private Map<String, Tenant> tenants = new LinkedHashMap<>();
+
+    @Data
+    public static class Tenant {
+
+        /**
+         * Schema holding the school's tables; the id with dashes as underscores if not set.
+         */
+        private String schema;
+
+        /**
+         * Host names the school is served on.
+         */
+        private List<String> hosts = new ArrayList<>();
+
+        private Integer maxConnections;
+    }
+}
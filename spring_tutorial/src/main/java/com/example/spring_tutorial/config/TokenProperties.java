@@ -0,0 +1,37 @@
+package com.example.spring_tutorial.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for stateless signed access tokens on the /api/** surface.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.security.token")
+public class TokenProperties {
+
+    /**
+     * When enabled, /api/** is served by a stateless filter chain that only accepts bearer tokens.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Master secret that signing keys are derived from. All nodes must share it.
+     * A random secret is generated when empty, which only works for a single node.
+     */
+    private String secret;
+
+    private Duration ttl = Duration.ofMinutes(15);
+
+    /**
+     * How often the signing key rotates. Tokens signed with the previous key stay valid.
+     */
+    private Duration keyRotation = Duration.ofHours(1);
+
+    /**
+     * Maximum number of verified tokens kept in memory.
+     */
+    private int cacheSize = 10_000;
+}
@@ -0,0 +1,49 @@
+package com.example.spring_tutorial.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Static asset serving for /css/** and /js/**.
+ *
+ * Templates link assets with th:href/th:src, which the encoding filter rewrites
+ * to content-hashed names (app-&lt;md5&gt;.css). A changed file gets a new URL, so
+ * responses can be cached as immutable for a year. Pre-compressed .gz/.br
+ * variants produced at build time are served when the client accepts them.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS)
+        .cachePublic()
+        .immutable();
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        addAssetHandler(registry, "/css/**", "classpath:/static/css/");
+        addAssetHandler(registry, "/js/**", "classpath:/static/js/");
+    }
+
+    private static void addAssetHandler(ResourceHandlerRegistry registry, String pattern, String location) {
+        registry.addResourceHandler(pattern)
+            .addResourceLocations(location)
+            .setCacheControl(IMMUTABLE)
+            .setUseLastModified(false)
+            .resourceChain(true)
+            .addResolver(new EncodedResourceResolver())
+            .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+
+    @Bean
+    public ResourceUrlEncodingFilter resourceUrlEncodingFilter() {
+        return new ResourceUrlEncodingFilter();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.spring_tutorial.controller;
+
+import com.example.spring_tutorial.dto.AttendanceEventDTO;
+import com.example.spring_tutorial.dto.AttendanceRecordDTO;
+import com.example.spring_tutorial.service.AttendanceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST Controller for attendance scans from classroom devices.
+ */
+@RestController
+@RequestMapping("/api/attendance")
+@RequiredArgsConstructor
+public class AttendanceController {
+    
+    private final AttendanceService attendanceService;
+    
+    /**
+     * Queue a batch of scans. Answers 202 once they are queued, or 503 with Retry-After when
+     * the server is not keeping up, in which case the device should send the same batch again.
+     * POST /api/attendance
+     */
+    @PostMapping
+    @PreAuthorize("hasRole('TEACHER')")
+    public ResponseEntity<?> record(@RequestBody List<AttendanceEventDTO> events) {
+        try {
+            if (!attendanceService.record(events)) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", "Attendance is backed up, retry shortly"));
+            }
+            return ResponseEntity.accepted().body(Map.of("accepted", events.size()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Attendance recorded for a section on one day.
+     * GET /api/attendance/sections/{sectionId}?date=2026-03-02
+     */
+    @GetMapping("/sections/{sectionId}")
+    public ResponseEntity<List<AttendanceRecordDTO>> getSession(
+            @PathVariable Long sectionId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(attendanceService.getSession(sectionId, date));
+    }
+}
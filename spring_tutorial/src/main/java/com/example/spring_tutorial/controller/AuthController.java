@@ -1,25 +1,36 @@
 package com.example.spring_tutorial.controller;
 
 import com.example.spring_tutorial.dto.LoginDTO;
+import com.example.spring_tutorial.config.TokenProperties;
 import com.example.spring_tutorial.dto.UserRegistrationDTO;
+import com.example.spring_tutorial.security.AuthRateLimiter;
 import com.example.spring_tutorial.service.AuthService;
+import com.example.spring_tutorial.service.TokenService;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Controller for authentication operations.
  */
@@ -31,6 +42,10 @@ public class AuthController {
     
     private final AuthService authService;
     private final UserDetailsService userDetailsService;
+    private final AuthRateLimiter authRateLimiter;
+    private final TokenService tokenService;
+    private final TokenProperties tokenProperties;
+    private final SecurityContextRepository securityContextRepository = new HttpSessionSecurityContextRepository();
     
     /**
      * Show login page.
@@ -102,33 +117,50 @@ public class AuthController {
     
     /**
      * API endpoint for authentication (for REST clients).
+     * Issues a signed access token in token mode, otherwise stores the login in the session.
      */
     @PostMapping("/api/auth/login")
     @ResponseBody
-    public ResponseEntity<?> apiLogin(@Valid @RequestBody LoginDTO loginDTO) {
+    public ResponseEntity<?> apiLogin(@Valid @RequestBody LoginDTO loginDTO, HttpServletRequest request,
+                                      HttpServletResponse response) {
+        long retryAfter = authRateLimiter.checkAccount(request, loginDTO.getEmail());
+        if (retryAfter > 0) {
+            return tooManyRequests(retryAfter);
+        }
+        
         try {
             UserDetails userDetails = userDetailsService.loadUserByUsername(loginDTO.getEmail());
             
             // Verify password
             if (!authService.verifyPassword(loginDTO.getPassword(), userDetails.getPassword())) {
-                return ResponseEntity.status(401).body(java.util.Map.of("error", "Invalid credentials"));
+                return ResponseEntity.status(401).body(Map.of("error", "Invalid credentials"));
             }
             
-            Authentication authentication = new UsernamePasswordAuthenticationToken(
-                userDetails, null, userDetails.getAuthorities()
-            );
-            SecurityContextHolder.getContext().setAuthentication(authentication);
-            
             com.example.spring_tutorial.model.User user = authService.getUserByEmail(loginDTO.getEmail());
             
-            return ResponseEntity.ok().body(java.util.Map.of(
-                "message", "Login successful",
-                "email", user.getEmail(),
-                "role", user.getRole().name(),
-                "fullName", user.getFullName()
-            ));
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("message", "Login successful");
+            body.put("email", user.getEmail());
+            body.put("role", user.getRole().name());
+            body.put("fullName", user.getFullName());
+            
+            if (tokenProperties.isEnabled()) {
+                body.put("accessToken", tokenService.issue(user));
+                body.put("tokenType", "Bearer");
+                body.put("expiresIn", tokenService.getTtlSeconds());
+            } else {
+                Authentication authentication = UsernamePasswordAuthenticationToken.authenticated(
+                    userDetails, null, userDetails.getAuthorities()
+                );
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(authentication);
+                SecurityContextHolder.setContext(context);
+                securityContextRepository.saveContext(context, request, response);
+            }
+            
+            return ResponseEntity.ok().body(body);
         } catch (Exception e) {
-            return ResponseEntity.status(401).body(java.util.Map.of("error", "Invalid credentials"));
+            return ResponseEntity.status(401).body(Map.of("error", "Invalid credentials"));
         }
     }
     
@@ -137,7 +169,13 @@ public class AuthController {
      */
     @PostMapping("/api/auth/register")
     @ResponseBody
-    public ResponseEntity<?> apiRegister(@Valid @RequestBody UserRegistrationDTO registrationDTO) {
+    public ResponseEntity<?> apiRegister(@Valid @RequestBody UserRegistrationDTO registrationDTO,
+                                         HttpServletRequest request) {
+        long retryAfter = authRateLimiter.checkAccount(request, registrationDTO.getEmail());
+        if (retryAfter > 0) {
+            return tooManyRequests(retryAfter);
+        }
+        
         try {
             if (!registrationDTO.getPassword().equals(registrationDTO.getConfirmPassword())) {
                 return ResponseEntity.badRequest().body(java.util.Map.of("error", "Passwords do not match"));
@@ -154,5 +192,13 @@ public class AuthController {
             return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
         }
     }
+    
+    /**
+     * Build a 429 response for a client that exceeded its rate limit.
+     */
+    private ResponseEntity<?> tooManyRequests(long retryAfterMillis) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, AuthRateLimiter.retryAfterSeconds(retryAfterMillis))
+            .body(Map.of("error", "Too many requests"));
+    }
 }
-
@@ -0,0 +1,36 @@
+package com.example.spring_tutorial.controller;
+
+import com.example.spring_tutorial.dto.CatalogImportDTO;
+import com.example.spring_tutorial.service.CatalogImportService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST Controller for bulk loads of the course catalog.
+ */
+@RestController
+@RequestMapping("/api/catalog")
+@RequiredArgsConstructor
+public class CatalogController {
+    
+    private final CatalogImportService catalogImportService;
+    
+    /**
+     * Insert or update departments and courses by code in one request.
+     * PUT /api/catalog
+     */
+    @PutMapping
+    @PreAuthorize("hasRole('TEACHER')")
+    public ResponseEntity<?> importCatalog(@Valid @RequestBody CatalogImportDTO catalog) {
+        try {
+            return ResponseEntity.ok(catalogImportService.importCatalog(catalog));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
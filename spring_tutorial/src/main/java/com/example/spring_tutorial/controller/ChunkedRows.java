@@ -0,0 +1,93 @@
+package com.example.spring_tutorial.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+/**
+ * Rows for a th:each loop, fetched one keyset page at a time while the template renders.
+ *
+ * Before each page is queried, the response is flushed so the browser already
+ * has everything rendered so far (the page header first, then the earlier rows).
+ * Only one page is held in memory at a time.
+ */
+class ChunkedRows<T> implements Iterable<T> {
+
+    private final Function<Long, List<T>> pageAfter;
+    private final Function<T, Long> idOf;
+    private final int chunkSize;
+    private final HttpServletResponse response;
+    private List<T> firstPage;
+
+    /**
+     * @param pageAfter returns up to chunkSize rows with an id greater than the argument, ordered by id
+     */
+    ChunkedRows(Function<Long, List<T>> pageAfter, Function<T, Long> idOf, int chunkSize,
+                HttpServletResponse response) {
+        this.pageAfter = pageAfter;
+        this.idOf = idOf;
+        this.chunkSize = chunkSize;
+        this.response = response;
+    }
+
+    /**
+     * Whether there are no rows at all. Fetches the first page if the loop hasn't run yet.
+     */
+    public boolean isEmpty() {
+        if (firstPage == null) {
+            firstPage = pageAfter.apply(0L);
+        }
+        return firstPage.isEmpty();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private List<T> page = firstPage;
+            private int index;
+            private long lastId;
+            private boolean lastPage = firstPage != null && firstPage.size() < chunkSize;
+
+            @Override
+            public boolean hasNext() {
+                if (page != null && index < page.size()) {
+                    return true;
+                }
+                if (lastPage) {
+                    return false;
+                }
+                flush();
+                page = pageAfter.apply(lastId);
+                if (firstPage == null) {
+                    firstPage = page;
+                }
+                index = 0;
+                lastPage = page.size() < chunkSize;
+                return !page.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T row = page.get(index++);
+                lastId = idOf.apply(row);
+                return row;
+            }
+        };
+    }
+
+    private void flush() {
+        try {
+            response.flushBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package com.example.spring_tutorial.controller;
 
 import com.example.spring_tutorial.model.Course;
+import com.example.spring_tutorial.dto.CourseSummaryDTO;
+import com.example.spring_tutorial.service.CourseSearchIndex;
 import com.example.spring_tutorial.service.CourseService;
+import com.example.spring_tutorial.service.PrerequisiteService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * REST Controller for Course CRUD operations.
@@ -19,6 +24,8 @@ import java.util.List;
 public class CourseController {
     
     private final CourseService courseService;
+    private final PrerequisiteService prerequisiteService;
+    private final CourseSearchIndex courseSearchIndex;
     
     /**
      * Create a new course.
@@ -37,6 +44,32 @@ public class CourseController {
         return ResponseEntity.ok(courseService.getAllCourses());
     }
     
+    /**
+     * Get several courses by ID in one request.
+     * GET /api/courses?ids=1,2,3
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<?> getCoursesByIds(@RequestParam List<Long> ids) {
+        try {
+            return ResponseEntity.ok(courseService.getCoursesByIds(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Search courses by code and name. Changes take a moment to show up.
+     * GET /api/courses?q=linear algebra&limit=20
+     */
+    @GetMapping(params = "q")
+    public ResponseEntity<?> searchCourses(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(courseSearchIndex.search(q, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
     /**
      * Get course by ID.
      */
@@ -63,5 +96,37 @@ public class CourseController {
         courseService.deleteCourse(id);
         return ResponseEntity.noContent().build();
     }
+    
+    /**
+     * Get the direct prerequisites of a course.
+     */
+    @GetMapping("/{id}/prerequisites")
+    public ResponseEntity<List<CourseSummaryDTO>> getPrerequisites(@PathVariable Long id) {
+        return ResponseEntity.ok(prerequisiteService.getPrerequisites(id));
+    }
+    
+    /**
+     * Make another course a prerequisite of this one.
+     * PUT /api/courses/5/prerequisites/3
+     */
+    @PutMapping("/{id}/prerequisites/{prerequisiteId}")
+    @PreAuthorize("hasRole('TEACHER')")
+    public ResponseEntity<?> addPrerequisite(@PathVariable Long id, @PathVariable Long prerequisiteId) {
+        try {
+            prerequisiteService.addPrerequisite(id, prerequisiteId);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Remove a prerequisite from a course.
+     */
+    @DeleteMapping("/{id}/prerequisites/{prerequisiteId}")
+    @PreAuthorize("hasRole('TEACHER')")
+    public ResponseEntity<Void> removePrerequisite(@PathVariable Long id, @PathVariable Long prerequisiteId) {
+        prerequisiteService.removePrerequisite(id, prerequisiteId);
+        return ResponseEntity.noContent().build();
+    }
 }
-
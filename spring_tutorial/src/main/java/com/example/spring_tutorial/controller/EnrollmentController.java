@@ -0,0 +1,62 @@
+package com.example.spring_tutorial.controller;
+
+import com.example.spring_tutorial.dto.EligibilityDTO;
+import com.example.spring_tutorial.exception.UnauthorizedAccessException;
+import com.example.spring_tutorial.service.EnrollmentService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST Controller for enrolling students in courses.
+ */
+@RestController
+@RequestMapping("/api/students/{studentId}/courses")
+@RequiredArgsConstructor
+public class EnrollmentController {
+    
+    private final EnrollmentService enrollmentService;
+    
+    /**
+     * Whether the student may enroll in the course, and which prerequisites are missing.
+     */
+    @GetMapping("/{courseId}/eligibility")
+    public ResponseEntity<EligibilityDTO> checkEligibility(@PathVariable Long studentId, @PathVariable Long courseId) {
+        return ResponseEntity.ok(enrollmentService.checkEligibility(studentId, courseId));
+    }
+    
+    /**
+     * Enroll the student in the course, if every prerequisite is completed.
+     */
+    @PostMapping("/{courseId}")
+    public ResponseEntity<?> enroll(@PathVariable Long studentId, @PathVariable Long courseId) {
+        try {
+            String email = SecurityContextHolder.getContext().getAuthentication().getName();
+            enrollmentService.enroll(studentId, courseId, email);
+            return ResponseEntity.status(HttpStatus.CREATED).build();
+        } catch (UnauthorizedAccessException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Record that the student completed the course.
+     */
+    @PutMapping("/{courseId}/completion")
+    @PreAuthorize("hasRole('TEACHER')")
+    public ResponseEntity<?> complete(@PathVariable Long studentId, @PathVariable Long courseId) {
+        try {
+            enrollmentService.complete(studentId, courseId);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.spring_tutorial.controller;
+
+import com.example.spring_tutorial.dto.GradeStatsDTO;
+import com.example.spring_tutorial.dto.GradeSubmissionDTO;
+import com.example.spring_tutorial.exception.UnauthorizedAccessException;
+import com.example.spring_tutorial.service.GradeService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST Controller for recording grades and reading grade totals.
+ */
+@RestController
+@RequestMapping("/api/grades")
+@RequiredArgsConstructor
+public class GradeController {
+    
+    private final GradeService gradeService;
+    
+    /**
+     * Record grades for any number of enrolments at once.
+     * PUT /api/grades
+     */
+    @PutMapping
+    @PreAuthorize("hasRole('TEACHER')")
+    public ResponseEntity<?> submitGrades(@Valid @RequestBody GradeSubmissionDTO submission) {
+        try {
+            return ResponseEntity.ok(gradeService.submitGrades(submission.getGrades()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * GPA of a student.
+     * GET /api/grades/students/{id}
+     */
+    @GetMapping("/students/{id}")
+    public ResponseEntity<?> getStudentStats(@PathVariable Long id) {
+        try {
+            String email = SecurityContextHolder.getContext().getAuthentication().getName();
+            return ResponseEntity.ok(gradeService.getStudentStats(id, email));
+        } catch (UnauthorizedAccessException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Average and grade distribution of a course.
+     * GET /api/grades/courses/{id}
+     */
+    @GetMapping("/courses/{id}")
+    public ResponseEntity<GradeStatsDTO> getCourseStats(@PathVariable Long id) {
+        return ResponseEntity.ok(gradeService.getCourseStats(id));
+    }
+    
+    /**
+     * Averages over the courses of a department.
+     * GET /api/grades/departments/{id}
+     */
+    @GetMapping("/departments/{id}")
+    public ResponseEntity<GradeStatsDTO> getDepartmentStats(@PathVariable Long id) {
+        return ResponseEntity.ok(gradeService.getDepartmentStats(id));
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.spring_tutorial.controller;
+
+import com.example.spring_tutorial.event.DirectoryEventHub;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Server-Sent Events stream for the students, teachers and courses pages.
+ */
+@RestController
+@RequiredArgsConstructor
+public class LiveUpdateController {
+
+    private final DirectoryEventHub directoryEventHub;
+
+    /**
+     * Stream create/update/delete events for the requested row types. Event names are the
+     * row type ("student", "teacher", "course", "department"); "resync" asks the page to reload.
+     */
+    @GetMapping(value = "/events/directory", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> directoryEvents(@RequestParam Set<String> types) {
+        if (types.isEmpty() || !DirectoryEventHub.TYPES.containsAll(types)) {
+            return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", "types must be some of " + DirectoryEventHub.TYPES));
+        }
+        SseEmitter emitter = directoryEventHub.subscribe(types);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("error", "Too many live update subscribers"));
+        }
+        return ResponseEntity.ok(emitter);
+    }
+}
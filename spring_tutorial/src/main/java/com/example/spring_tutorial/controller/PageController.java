@@ -1,12 +1,17 @@
 package com.example.spring_tutorial.controller;
 
 import com.example.spring_tutorial.dto.UserRegistrationDTO;
+import com.example.spring_tutorial.dto.UserSummaryDTO;
 import com.example.spring_tutorial.model.User;
 import com.example.spring_tutorial.repository.UserRepository;
 import com.example.spring_tutorial.service.AuthService;
+import com.example.spring_tutorial.service.PeopleDirectory;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -15,11 +20,10 @@ import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 /**
  * Controller to serve static HTML pages with authentication awareness.
- * Uses the users table for both teachers and students (via role field).
+ * The teachers and students pages list users by role from the in-memory people directory,
+ * or from the users table in keyset pages while the directory hasn't been built yet.
  */
 @Controller
 @RequiredArgsConstructor
@@ -27,8 +31,12 @@ import java.util.List;
 public class PageController {
     
     private final AuthService authService;
+    private final PeopleDirectory peopleDirectory;
     private final UserRepository userRepository;
     
+    @Value("${app.pages.table-chunk-size:500}")
+    private int tableChunkSize;
+    
     /**
      * Home page.
      */
@@ -47,23 +55,21 @@ public class PageController {
     
     /**
      * Teachers page - requires authentication.
-     * Fetches all teachers from the users table where role = TEACHER.
+     * Streams users with role = TEACHER from the people directory.
      */
     @GetMapping("/teachers.html")
-    public String teachers(Model model) {
-        List<User> teachers = userRepository.findByRole(User.Role.TEACHER);
-        model.addAttribute("teachers", teachers);
+    public String teachers(Model model, HttpServletResponse response) {
+        model.addAttribute("teachers", usersByRole(User.Role.TEACHER, response));
         return "teachers";
     }
     
     /**
      * Students page - requires authentication.
-     * Fetches all students from the users table where role = STUDENT.
+     * Streams users with role = STUDENT from the people directory.
      */
     @GetMapping("/students.html")
-    public String students(Model model) {
-        List<User> students = userRepository.findByRole(User.Role.STUDENT);
-        model.addAttribute("students", students);
+    public String students(Model model, HttpServletResponse response) {
+        model.addAttribute("students", usersByRole(User.Role.STUDENT, response));
         return "students";
     }
     
@@ -123,6 +129,22 @@ public class PageController {
         }
     }
     
+    /**
+     * Rows for the users table, fetched page by page while the template renders,
+     * so only one page is held per request. Until the school's directory is built,
+     * the pages come from the users table rather than waiting for the full load.
+     */
+    private ChunkedRows<UserSummaryDTO> usersByRole(User.Role role, HttpServletResponse response) {
+        if (!peopleDirectory.isLoaded()) {
+            return new ChunkedRows<>(
+                afterId -> userRepository.findPageByRoleAfterId(role, afterId, Limit.of(tableChunkSize)),
+                UserSummaryDTO::getId, tableChunkSize, response);
+        }
+        return new ChunkedRows<>(
+            afterId -> peopleDirectory.page(role, afterId, tableChunkSize),
+            UserSummaryDTO::getId, tableChunkSize, response);
+    }
+    
     /**
      * Get current user email from security context.
      */
@@ -1,9 +1,11 @@
 package com.example.spring_tutorial.controller;
 
+import com.example.spring_tutorial.dto.ProfileDTO;
 import com.example.spring_tutorial.dto.UserRegistrationDTO;
+import com.example.spring_tutorial.mapper.UserMapper;
 import com.example.spring_tutorial.model.User;
 import com.example.spring_tutorial.service.AuthService;
-import jakarta.servlet.http.HttpServletRequest;
+import com.example.spring_tutorial.service.ProfileService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -26,34 +28,22 @@ import java.util.Map;
 public class ProfileController {
     
     private final AuthService authService;
+    private final UserMapper userMapper;
+    private final ProfileService profileService;
     
     /**
-     * Show user profile.
+     * Show user profile, including the student or teacher profile, department and courses.
      */
     @GetMapping
-    public String showProfile(Model model, HttpServletRequest request) {
+    public String showProfile(Model model) {
         String email = getCurrentUserEmail();
         if (email == null) {
             return "redirect:/login";
         }
         
-        User user = authService.getUserByEmail(email);
-        model.addAttribute("user", user);
-        
-        // Add department and student info if available
-        if (user.getRole() == User.Role.STUDENT) {
-            try {
-                com.example.spring_tutorial.model.Student student = 
-                    request.getServletContext().getAttribute("studentRepository") != null ?
-                    ((com.example.spring_tutorial.repository.StudentRepository) 
-                        request.getServletContext().getAttribute("studentRepository")).findByEmail(email).orElse(null) : null;
-                if (student != null) {
-                    model.addAttribute("student", student);
-                }
-            } catch (Exception e) {
-                // Student might not exist yet
-            }
-        }
+        ProfileDTO profile = profileService.loadProfile(email);
+        model.addAttribute("user", profile.getPerson());
+        model.addAttribute("profile", profile);
         
         return "profile";
     }
@@ -69,14 +59,8 @@ public class ProfileController {
         }
         
         User user = authService.getUserByEmail(email);
-        UserRegistrationDTO dto = new UserRegistrationDTO();
-        dto.setFirstName(user.getFirstName());
-        dto.setLastName(user.getLastName());
-        dto.setEmail(user.getEmail());
-        dto.setDateOfBirth(user.getDateOfBirth());
-        
         model.addAttribute("user", user);
-        model.addAttribute("registrationDTO", dto);
+        model.addAttribute("registrationDTO", userMapper.toRegistrationDto(user));
         
         return "edit-profile";
     }
@@ -98,14 +82,7 @@ public class ProfileController {
         }
         
         try {
-            User user = authService.getUserByEmail(currentEmail);
-            
-            // Update user fields
-            user.setFirstName(registrationDTO.getFirstName());
-            user.setLastName(registrationDTO.getLastName());
-            user.setDateOfBirth(registrationDTO.getDateOfBirth());
-            
-            authService.updateProfile(currentEmail, user);
+            authService.updateProfile(currentEmail, registrationDTO);
             
             log.info("Profile updated for user: {}", currentEmail);
             return "redirect:/profile";
@@ -1,9 +1,13 @@
 package com.example.spring_tutorial.controller;
 
+import com.example.spring_tutorial.dto.PersonDTO;
 import com.example.spring_tutorial.dto.StudentDTO;
 import com.example.spring_tutorial.dto.UserRegistrationDTO;
+import com.example.spring_tutorial.exception.ResourceNotFoundException;
+import com.example.spring_tutorial.mapper.UserMapper;
 import com.example.spring_tutorial.model.User;
 import com.example.spring_tutorial.service.AuthService;
+import com.example.spring_tutorial.service.PeopleDirectory;
 import com.example.spring_tutorial.service.StudentService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -32,19 +36,52 @@ public class StudentController {
     
     private final StudentService studentService;
     private final AuthService authService;
+    private final UserMapper userMapper;
+    private final PeopleDirectory peopleDirectory;
     
     /**
      * Get all students (teachers only).
+     * GET /api/students?fields=id,firstName,email returns only those fields.
      */
     @GetMapping
     @PreAuthorize("hasRole('TEACHER')")
-    public ResponseEntity<List<StudentDTO>> getAllStudents() {
+    public ResponseEntity<?> getAllStudents(@RequestParam(required = false) List<String> fields) {
         log.info("Fetching all students");
-        return ResponseEntity.ok(studentService.getAllStudents());
+        if (fields == null) {
+            return ResponseEntity.ok(studentService.getAllStudents());
+        }
+        try {
+            return ResponseEntity.ok(studentService.getAllStudents(fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
     /**
-     * Get student by ID.
+     * Get several students by ID in one request.
+     * GET /api/students?ids=1,2,3
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<?> getStudentsByIds(@RequestParam List<Long> ids) {
+        try {
+            return ResponseEntity.ok(studentService.getStudentsByIds(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get archived students of one enrollment year (teachers only).
+     * GET /api/students/archive?year=2015
+     */
+    @GetMapping("/archive")
+    @PreAuthorize("hasRole('TEACHER')")
+    public ResponseEntity<List<StudentDTO>> getArchivedCohort(@RequestParam int year) {
+        return ResponseEntity.ok(studentService.getArchivedCohort(year));
+    }
+    
+    /**
+     * Get student by ID. Students of archived cohorts are returned with archived set.
      */
     @GetMapping("/{id}")
     public ResponseEntity<StudentDTO> getStudentById(@PathVariable Long id) {
@@ -62,12 +99,13 @@ public class StudentController {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Not authenticated"));
             }
             
-            User user = authService.getUserByEmail(email);
-            if (user.getRole() != User.Role.STUDENT) {
+            PersonDTO person = peopleDirectory.findByEmail(email)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "email", email));
+            if (person.getRole() != User.Role.STUDENT) {
                 return ResponseEntity.badRequest().body(Map.of("error", "User is not a student"));
             }
             
-            return ResponseEntity.ok(user);
+            return ResponseEntity.ok(person);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -96,13 +134,7 @@ public class StudentController {
             
             return ResponseEntity.status(HttpStatus.CREATED).body(Map.of(
                 "message", "Student profile created successfully",
-                "student", Map.of(
-                    "id", student.getId(),
-                    "email", student.getEmail(),
-                    "firstName", student.getFirstName(),
-                    "lastName", student.getLastName(),
-                    "role", student.getRole().name()
-                )
+                "student", userMapper.toAccount(student)
             ));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -145,24 +177,13 @@ public class StudentController {
             }
             
             // Students can only update first name, last name, and date of birth
-            User updatedUser = new User();
-            updatedUser.setFirstName(studentDTO.getFirstName());
-            updatedUser.setLastName(studentDTO.getLastName());
-            updatedUser.setDateOfBirth(studentDTO.getDateOfBirth());
-            
-            User result = authService.updateProfile(email, updatedUser);
+            User result = authService.updateProfile(email, studentDTO);
             
             log.info("Student {} updated their profile", email);
             
             return ResponseEntity.ok(Map.of(
                 "message", "Profile updated successfully",
-                "student", Map.of(
-                    "id", result.getId(),
-                    "email", result.getEmail(),
-                    "firstName", result.getFirstName(),
-                    "lastName", result.getLastName(),
-                    "dateOfBirth", result.getDateOfBirth() != null ? result.getDateOfBirth().toString() : null
-                )
+                "student", userMapper.toAccount(result)
             ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
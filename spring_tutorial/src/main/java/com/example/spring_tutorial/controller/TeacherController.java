@@ -12,6 +12,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * REST Controller for Teacher CRUD operations.
@@ -36,10 +37,31 @@ public class TeacherController {
     
     /**
      * Get all teachers.
+     * GET /api/teachers?fields=id,firstName,email returns only those fields.
      */
     @GetMapping
-    public ResponseEntity<List<Teacher>> getAllTeachers() {
-        return ResponseEntity.ok(teacherService.getAllTeachers());
+    public ResponseEntity<?> getAllTeachers(@RequestParam(required = false) List<String> fields) {
+        if (fields == null) {
+            return ResponseEntity.ok(teacherService.getAllTeachers());
+        }
+        try {
+            return ResponseEntity.ok(teacherService.getAllTeachers(fields));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Get several teachers by ID in one request.
+     * GET /api/teachers?ids=1,2,3
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<?> getTeachersByIds(@RequestParam List<Long> ids) {
+        try {
+            return ResponseEntity.ok(teacherService.getTeachersByIds(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
     
     /**
@@ -0,0 +1,126 @@
+package com.example.spring_tutorial.controller;
+
+import com.example.spring_tutorial.dto.ClashDTO;
+import com.example.spring_tutorial.dto.RoomDTO;
+import com.example.spring_tutorial.dto.SectionDTO;
+import com.example.spring_tutorial.dto.TimetableReportDTO;
+import com.example.spring_tutorial.service.TimetableService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST Controller for rooms, course sections and timetable clashes.
+ */
+@RestController
+@RequestMapping("/api/timetable")
+@RequiredArgsConstructor
+public class TimetableController {
+    
+    private final TimetableService timetableService;
+    
+    /**
+     * Create a room.
+     */
+    @PostMapping("/rooms")
+    @PreAuthorize("hasRole('TEACHER')")
+    public ResponseEntity<?> createRoom(@Valid @RequestBody RoomDTO room) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(timetableService.createRoom(room));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Rooms free for the whole of a time range.
+     * GET /api/timetable/rooms/free?day=MONDAY&start=09:00&end=10:30&minCapacity=30
+     */
+    @GetMapping("/rooms/free")
+    public ResponseEntity<?> findFreeRooms(
+            @RequestParam DayOfWeek day,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime end,
+            @RequestParam(defaultValue = "0") int minCapacity) {
+        try {
+            return ResponseEntity.ok(timetableService.findFreeRooms(day, start, end, minCapacity));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Add a section with its weekly meetings to a course.
+     */
+    @PostMapping("/courses/{courseId}/sections")
+    @PreAuthorize("hasRole('TEACHER')")
+    public ResponseEntity<?> createSection(@PathVariable Long courseId, @Valid @RequestBody SectionDTO section) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(timetableService.createSection(courseId, section));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Put a student into a section of a course they are enrolled in.
+     */
+    @PutMapping("/students/{studentId}/sections/{sectionId}")
+    @PreAuthorize("hasRole('TEACHER')")
+    public ResponseEntity<?> assignStudentSection(@PathVariable Long studentId, @PathVariable Long sectionId) {
+        try {
+            timetableService.assignStudentSection(studentId, sectionId);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Have a teacher teach a section of one of their courses.
+     */
+    @PutMapping("/teachers/{teacherId}/sections/{sectionId}")
+    @PreAuthorize("hasRole('TEACHER')")
+    public ResponseEntity<?> assignTeacherSection(@PathVariable Long teacherId, @PathVariable Long sectionId) {
+        try {
+            timetableService.assignTeacherSection(teacherId, sectionId);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Sections of a student's timetable that meet at the same time.
+     */
+    @GetMapping("/students/{studentId}/clashes")
+    public ResponseEntity<List<ClashDTO>> getStudentClashes(@PathVariable Long studentId) {
+        return ResponseEntity.ok(timetableService.findStudentClashes(studentId));
+    }
+    
+    /**
+     * Sections of a teacher's timetable that meet at the same time.
+     */
+    @GetMapping("/teachers/{teacherId}/clashes")
+    public ResponseEntity<List<ClashDTO>> getTeacherClashes(@PathVariable Long teacherId) {
+        return ResponseEntity.ok(timetableService.findTeacherClashes(teacherId));
+    }
+    
+    /**
+     * Check the whole term's timetable.
+     */
+    @GetMapping("/report")
+    @PreAuthorize("hasRole('TEACHER')")
+    public ResponseEntity<TimetableReportDTO> getReport() {
+        return ResponseEntity.ok(timetableService.validateTerm());
+    }
+}
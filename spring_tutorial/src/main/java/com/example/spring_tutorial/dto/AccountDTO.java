@@ -0,0 +1,29 @@
+package com.example.spring_tutorial.dto;
+
+import com.example.spring_tutorial.model.User;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * DTO for a user account in API responses. Never carries the password.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AccountDTO {
+    
+    private Long id;
+    
+    private String firstName;
+    
+    private String lastName;
+    
+    private String email;
+    
+    private User.Role role;
+    
+    private LocalDate dateOfBirth;
+}
@@ -0,0 +1,26 @@
+package com.example.spring_tutorial.dto;
+
+import com.example.spring_tutorial.attendance.AttendanceStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for one scan sent by a classroom device. Ids are primitives so a missing id reads as 0
+ * and is rejected along with the other checks, without a validator pass over every event.
+ * Bound through setters, so fields a device leaves out keep their defaults.
+ */
+@Data
+@NoArgsConstructor
+public class AttendanceEventDTO {
+    
+    private long studentId;
+    
+    private long sectionId;
+    
+    private AttendanceStatus status;
+    
+    /**
+     * When the device recorded the scan, in epoch milliseconds; 0 means now.
+     */
+    private long scannedAt;
+}
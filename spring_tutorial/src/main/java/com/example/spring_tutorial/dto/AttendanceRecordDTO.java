@@ -0,0 +1,23 @@
+package com.example.spring_tutorial.dto;
+
+import com.example.spring_tutorial.attendance.AttendanceStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * DTO for a student's recorded attendance at one session of a section.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AttendanceRecordDTO {
+    
+    private Long studentId;
+    
+    private AttendanceStatus status;
+    
+    private Instant recordedAt;
+}
@@ -0,0 +1,43 @@
+package com.example.spring_tutorial.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * One entry of a multi-get response: the requested id, whether it exists,
+ * and the record itself (null when not found).
+ */
+@Data
+@AllArgsConstructor
+public class BatchItem<T> {
+
+    private Long id;
+
+    private boolean found;
+
+    private T data;
+
+    /**
+     * Lines the fetched rows up with the requested ids, keeping the request order
+     * (duplicates included) and marking ids that matched no row as not found.
+     */
+    public static <T> List<BatchItem<T>> inRequestOrder(List<Long> ids, Collection<T> rows, Function<T, Long> idOf) {
+        Map<Long, T> byId = new HashMap<>();
+        for (T row : rows) {
+            byId.put(idOf.apply(row), row);
+        }
+        List<BatchItem<T>> items = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            T row = byId.get(id);
+            items.add(new BatchItem<>(id, row != null, row));
+        }
+        return items;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.spring_tutorial.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for a bulk catalog load: departments and courses keyed by their codes.
+ * Courses refer to their department by code, either an existing one or one in the same load.
+ */
+@Data
+@NoArgsConstructor
+public class CatalogImportDTO {
+    
+    @Valid
+    private List<DepartmentRow> departments = new ArrayList<>();
+    
+    @Valid
+    private List<CourseRow> courses = new ArrayList<>();
+    
+    @Data
+    @NoArgsConstructor
+    public static class DepartmentRow {
+        
+        @NotBlank(message = "Department code is required")
+        @Size(max = 10)
+        private String code;
+        
+        @NotBlank(message = "Department name is required")
+        @Size(max = 100)
+        private String name;
+        
+        @Size(max = 500)
+        private String description;
+        
+        private LocalDate establishedDate;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    public static class CourseRow {
+        
+        @NotBlank(message = "Course code is required")
+        @Size(max = 20)
+        private String code;
+        
+        @NotBlank(message = "Course name is required")
+        @Size(max = 100)
+        private String name;
+        
+        private Integer credits;
+        
+        @Size(max = 1000)
+        private String description;
+        
+        private String departmentCode;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.spring_tutorial.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO reporting what a bulk catalog load changed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogImportResultDTO {
+    
+    private Counts departments;
+    
+    private Counts courses;
+    
+    private long elapsedMs;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Counts {
+        
+        private long inserted;
+        
+        private long updated;
+        
+        private long unchanged;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.spring_tutorial.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/**
+ * DTO for two sections that meet at the same time for the same student, teacher or room.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClashDTO {
+    
+    /**
+     * "student", "teacher" or "room".
+     */
+    private String type;
+    
+    /**
+     * ID of the student, teacher or room with the clash.
+     */
+    private Long ownerId;
+    
+    private String firstSection;
+    
+    private String secondSection;
+    
+    /**
+     * When the overlap starts, to the nearest 15 minutes.
+     */
+    private DayOfWeek day;
+    
+    private LocalTime time;
+}
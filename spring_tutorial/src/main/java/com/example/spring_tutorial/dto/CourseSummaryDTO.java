@@ -0,0 +1,22 @@
+package com.example.spring_tutorial.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for a course listed on a profile.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseSummaryDTO {
+
+    private Long id;
+
+    private String name;
+
+    private String code;
+
+    private Integer credits;
+}
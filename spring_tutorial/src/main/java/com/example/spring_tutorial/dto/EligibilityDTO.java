@@ -0,0 +1,28 @@
+package com.example.spring_tutorial.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for whether a student may enroll in a course, and which prerequisites they still lack.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EligibilityDTO {
+    
+    private Long studentId;
+    
+    private Long courseId;
+    
+    private boolean eligible;
+    
+    /**
+     * Direct and indirect prerequisites not completed yet, by code.
+     */
+    private List<CourseSummaryDTO> missingPrerequisites = new ArrayList<>();
+}
@@ -0,0 +1,39 @@
+package com.example.spring_tutorial.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * DTO for the grade totals of a student, course or department.
+ * Averages are null until something is graded.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GradeStatsDTO {
+    
+    private Long id;
+    
+    private int graded;
+    
+    private long gradedCredits;
+    
+    /**
+     * Mean grade points over graded courses.
+     */
+    private BigDecimal averagePoints;
+    
+    /**
+     * Grade points weighted by credits: the GPA, for a student.
+     */
+    private BigDecimal gpa;
+    
+    /**
+     * Students holding each grade, best grade first. Courses only.
+     */
+    private Map<String, Integer> distribution;
+}
@@ -0,0 +1,42 @@
+package com.example.spring_tutorial.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for grades submitted together, usually a whole course's marks at the end of term.
+ */
+@Data
+@NoArgsConstructor
+public class GradeSubmissionDTO {
+    
+    @Valid
+    @NotEmpty(message = "At least one grade is required")
+    private List<GradeRow> grades = new ArrayList<>();
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class GradeRow {
+        
+        @NotNull(message = "Student ID is required")
+        private Long studentId;
+        
+        @NotNull(message = "Course ID is required")
+        private Long courseId;
+        
+        /**
+         * Letter grade, A to D or F, with an optional + or -.
+         */
+        @NotBlank(message = "Grade is required")
+        private String grade;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.spring_tutorial.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO reporting what a grade submission changed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GradeSubmissionResultDTO {
+    
+    private long graded;
+    
+    /**
+     * Grades that were already recorded as submitted.
+     */
+    private long unchanged;
+    
+    private long elapsedMs;
+}
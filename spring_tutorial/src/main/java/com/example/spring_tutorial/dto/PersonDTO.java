@@ -0,0 +1,54 @@
+package com.example.spring_tutorial.dto;
+
+import com.example.spring_tutorial.model.User;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * DTO for one person in the people directory: the user account merged with
+ * the matching student or teacher profile and its department.
+ * Profile fields are null when the person has no such profile.
+ */
+@Data
+@NoArgsConstructor
+public class PersonDTO {
+
+    private Long id;
+
+    private String firstName;
+
+    private String lastName;
+
+    private String email;
+
+    private User.Role role;
+
+    private LocalDate dateOfBirth;
+
+    private LocalDate createdAt;
+
+    private Long profileId;
+
+    /**
+     * Student ID or teacher ID from the profile.
+     */
+    private String code;
+
+    private LocalDate enrollmentDate;
+
+    private LocalDate hireDate;
+
+    private String specialization;
+
+    private String createdBy;
+
+    private Long departmentId;
+
+    private String departmentName;
+
+    public String getFullName() {
+        return firstName + " " + lastName;
+    }
+}
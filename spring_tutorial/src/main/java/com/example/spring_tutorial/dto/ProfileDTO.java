@@ -0,0 +1,34 @@
+package com.example.spring_tutorial.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for a complete profile: the person with their department and courses.
+ * Parts that could not be loaded in time are left null and named in {@code unavailable}.
+ */
+@Data
+@NoArgsConstructor
+public class ProfileDTO {
+
+    private PersonDTO person;
+
+    private String departmentCode;
+
+    private String departmentDescription;
+
+    private List<CourseSummaryDTO> courses;
+
+    /**
+     * Names of the parts missing from this profile ("department", "courses");
+     * empty when the profile is complete.
+     */
+    private List<String> unavailable = new ArrayList<>();
+
+    public boolean isComplete() {
+        return unavailable.isEmpty();
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.spring_tutorial.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for a room sections can meet in.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomDTO {
+    
+    private Long id;
+    
+    @NotBlank(message = "Room code is required")
+    @Size(max = 20)
+    private String code;
+    
+    @PositiveOrZero
+    private Integer capacity;
+}
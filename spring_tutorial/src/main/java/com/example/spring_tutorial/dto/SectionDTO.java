@@ -0,0 +1,54 @@
+package com.example.spring_tutorial.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for a course section and its weekly meetings.
+ */
+@Data
+@NoArgsConstructor
+public class SectionDTO {
+    
+    private Long id;
+    
+    private Long courseId;
+    
+    private String courseCode;
+    
+    @NotBlank(message = "Section code is required")
+    @Size(max = 20)
+    private String code;
+    
+    private Long roomId;
+    
+    @Valid
+    @NotEmpty(message = "At least one meeting is required")
+    private List<Meeting> meetings = new ArrayList<>();
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Meeting {
+        
+        @NotNull(message = "Day is required")
+        private DayOfWeek day;
+        
+        @NotNull(message = "Start time is required")
+        private LocalTime start;
+        
+        @NotNull(message = "End time is required")
+        private LocalTime end;
+    }
+}
@@ -43,5 +43,7 @@ public class StudentDTO {
     private String departmentName;
     
     private String createdBy; // Email of teacher who created this profile
+    
+    private boolean archived; // Read from the archive of graduated cohorts; read-only
 }
 
@@ -0,0 +1,34 @@
+package com.example.spring_tutorial.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for a whole-term timetable check: how much was checked and the clashes found.
+ */
+@Data
+@NoArgsConstructor
+public class TimetableReportDTO {
+    
+    private int sections;
+    
+    private int studentEnrolments;
+    
+    private int teacherAssignments;
+    
+    private long studentClashes;
+    
+    private long teacherClashes;
+    
+    private long roomClashes;
+    
+    /**
+     * The first clashes found, up to the configured limit.
+     */
+    private List<ClashDTO> clashes = new ArrayList<>();
+    
+    private long elapsedMs;
+}
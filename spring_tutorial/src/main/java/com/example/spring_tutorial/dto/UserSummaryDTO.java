@@ -0,0 +1,23 @@
+package com.example.spring_tutorial.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for the rows of the students and teachers tables.
+ * Loaded as a projection, so rows are never managed by the persistence context.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummaryDTO {
+    
+    private Long id;
+    
+    private String firstName;
+    
+    private String lastName;
+    
+    private String email;
+}
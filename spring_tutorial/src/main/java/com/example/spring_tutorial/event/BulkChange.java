@@ -0,0 +1,17 @@
+package com.example.spring_tutorial.event;
+
+/**
+ * Many students, teachers or courses changed at once, outside the per-row events: a department
+ * purge or a cohort archive run. In-memory copies of those tables rebuild rather than refresh
+ * row by row.
+ *
+ * @param job           the job that made the change
+ * @param fromOtherNode whether the job ran on another node and the change was seen through
+ *                      {@link BulkChangeSignal}
+ */
+public record BulkChange(String job, boolean fromOtherNode) {
+
+    public static BulkChange local(String job) {
+        return new BulkChange(job, false);
+    }
+}
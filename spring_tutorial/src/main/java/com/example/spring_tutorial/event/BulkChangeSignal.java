@@ -0,0 +1,58 @@
+package com.example.spring_tutorial.event;
+
+import com.example.spring_tutorial.tenancy.TenantContext;
+import com.example.spring_tutorial.tenancy.TenantRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Carries {@link BulkChange}s to the other nodes, since the jobs behind them run on one node only.
+ *
+ * A local bulk change bumps the school's generation in bulk_changes. Every node polls the
+ * generations and publishes a BulkChange of its own when one has moved since it last looked.
+ */
+@Component
+@RequiredArgsConstructor
+public class BulkChangeSignal {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TenantRegistry tenants;
+    private final Map<String, Long> seen = new ConcurrentHashMap<>();
+
+    /**
+     * Ahead of the listeners that rebuild, so their rebuild also covers any change another
+     * node signalled before this one.
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onBulkChange(BulkChange change) {
+        if (!change.fromOtherNode()) {
+            seen.put(TenantContext.current(), jdbcTemplate.queryForObject(
+                "UPDATE bulk_changes SET generation = generation + 1 RETURNING generation", Long.class));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.bulk-changes.poll-interval:15s}")
+    public void pollOtherNodes() {
+        tenants.forEach(this::poll);
+    }
+
+    private void poll() {
+        Long generation = jdbcTemplate.queryForObject("SELECT generation FROM bulk_changes", Long.class);
+        Long previous = seen.put(TenantContext.current(), generation);
+        // Nothing to catch up on at startup: the in-memory copies load fresh
+        if (previous != null && !previous.equals(generation)) {
+            eventPublisher.publishEvent(new BulkChange("another node", true));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.spring_tutorial.event;
+
+import com.example.spring_tutorial.model.Course;
+import com.example.spring_tutorial.model.Department;
+import com.example.spring_tutorial.model.Student;
+import com.example.spring_tutorial.model.Teacher;
+import com.example.spring_tutorial.model.User;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A change to a student, teacher, course or department, published by the service layer.
+ * People are keyed by email so that changes to a users row and to the matching
+ * student/teacher profile update the same row on the directory pages.
+ *
+ * @param type    "student", "teacher", "course" or "department"; used as the SSE event name
+ * @param key     identity of the row within its type
+ * @param action  what happened to the row
+ * @param data    fields shown on the pages; empty for deletes
+ */
+public record DirectoryEvent(String type, String key, Action action, Map<String, Object> data) {
+
+    public enum Action {
+        CREATED,
+        UPDATED,
+        DELETED,
+        /**
+         * A student or teacher profile was deleted. The person's account, if there is one, stays.
+         */
+        PROFILE_DELETED
+    }
+
+    /**
+     * Key used to coalesce events for the same row.
+     */
+    public String coalesceKey() {
+        return type + ":" + key;
+    }
+
+    public static DirectoryEvent of(User user, Action action) {
+        String type = user.getRole() == User.Role.TEACHER ? "teacher" : "student";
+        return person(type, action, user.getId(), user.getEmail(), user.getFirstName(), user.getLastName());
+    }
+
+    public static DirectoryEvent of(Student student, Action action) {
+        return person("student", action, null, student.getEmail(), student.getFirstName(), student.getLastName());
+    }
+
+    public static DirectoryEvent of(Teacher teacher, Action action) {
+        return person("teacher", action, null, teacher.getEmail(), teacher.getFirstName(), teacher.getLastName());
+    }
+
+    public static DirectoryEvent of(Course course, Action action) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        if (action != Action.DELETED) {
+            data.put("id", course.getId());
+            data.put("name", course.getName());
+            data.put("code", course.getCode());
+            data.put("credits", course.getCredits());
+            data.put("department", course.getDepartment() != null ? course.getDepartment().getName() : null);
+        }
+        return new DirectoryEvent("course", String.valueOf(course.getId()), action, data);
+    }
+
+    public static DirectoryEvent of(Department department, Action action) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        if (action != Action.DELETED) {
+            data.put("id", department.getId());
+            data.put("name", department.getName());
+            data.put("code", department.getCode());
+        }
+        return new DirectoryEvent("department", String.valueOf(department.getId()), action, data);
+    }
+
+    private static DirectoryEvent person(String type, Action action, Long userId, String email,
+                                         String firstName, String lastName) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        if (action != Action.DELETED && action != Action.PROFILE_DELETED) {
+            // Only users rows carry the id shown on the pages; profile changes leave it as is
+            if (userId != null) {
+                data.put("id", userId);
+            }
+            data.put("firstName", firstName);
+            data.put("lastName", lastName);
+            data.put("email", email);
+        }
+        return new DirectoryEvent(type, email, action, data);
+    }
+}
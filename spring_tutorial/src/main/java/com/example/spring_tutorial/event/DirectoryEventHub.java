@@ -0,0 +1,200 @@
+package com.example.spring_tutorial.event;
+
+import com.example.spring_tutorial.config.LiveUpdateProperties;
+import com.example.spring_tutorial.tenancy.TenantContext;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Fans committed {@link DirectoryEvent}s out to the open SSE streams.
+ *
+ * Each subscriber has its own bounded buffer keyed by row, drained on a virtual
+ * thread, so a slow client never holds up the publishing transaction or other
+ * clients. While a send is in progress, further changes to the same row
+ * replace the pending one. If more distinct rows pile up than the buffer
+ * holds, the buffer is dropped and the client is told to reload once.
+ * A stream only carries the row types it asked for, and only changes made at the
+ * school it was opened for.
+ */
+@Component
+@Slf4j
+public class DirectoryEventHub {
+
+    /**
+     * Row types a stream can ask for.
+     */
+    public static final Set<String> TYPES = Set.of("student", "teacher", "course", "department");
+
+    private final LiveUpdateProperties properties;
+    private final Function<Long, SseEmitter> emitters;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Autowired
+    public DirectoryEventHub(LiveUpdateProperties properties) {
+        this(properties, SseEmitter::new);
+    }
+
+    DirectoryEventHub(LiveUpdateProperties properties, Function<Long, SseEmitter> emitters) {
+        this.properties = properties;
+        this.emitters = emitters;
+    }
+
+    /**
+     * Open a new stream for changes to the given row types. Returns null when the subscriber limit is reached.
+     */
+    public SseEmitter subscribe(Set<String> types) {
+        if (subscribers.size() >= properties.getMaxSubscribers()) {
+            return null;
+        }
+        SseEmitter emitter = emitters.apply(properties.getTimeout().toMillis());
+        Subscriber subscriber = new Subscriber(emitter, TenantContext.current(), Set.copyOf(types));
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    /**
+     * Only changes that were actually committed reach the clients.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDirectoryEvent(DirectoryEvent event) {
+        String tenant = TenantContext.current();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.tenant.equals(tenant) && subscriber.types.contains(event.type())) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    @Scheduled(fixedRateString = "${app.live-updates.heartbeat-interval:15s}")
+    public void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeat();
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(s -> s.emitter.complete());
+        subscribers.clear();
+        senders.shutdownNow();
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final String tenant;
+        private final Set<String> types;
+        private final Map<String, DirectoryEvent> pending = new LinkedHashMap<>();
+        private boolean resync;
+        private boolean heartbeat;
+        private boolean draining;
+
+        Subscriber(SseEmitter emitter, String tenant, Set<String> types) {
+            this.emitter = emitter;
+            this.tenant = tenant;
+            this.types = types;
+        }
+
+        void offer(DirectoryEvent event) {
+            synchronized (this) {
+                if (resync) {
+                    return;
+                }
+                // Re-insert so the row moves to the end and keeps its latest state
+                pending.remove(event.coalesceKey());
+                pending.put(event.coalesceKey(), event);
+                if (pending.size() > properties.getBufferSize()) {
+                    pending.clear();
+                    resync = true;
+                }
+            }
+            scheduleDrain();
+        }
+
+        void heartbeat() {
+            synchronized (this) {
+                heartbeat = true;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            synchronized (this) {
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            senders.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                List<DirectoryEvent> batch;
+                boolean sendResync;
+                boolean sendHeartbeat;
+                synchronized (this) {
+                    if (pending.isEmpty() && !resync && !heartbeat) {
+                        draining = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(pending.values());
+                    pending.clear();
+                    sendResync = resync;
+                    sendHeartbeat = heartbeat && batch.isEmpty() && !sendResync;
+                    resync = false;
+                    heartbeat = false;
+                }
+                try {
+                    if (sendResync) {
+                        emitter.send(SseEmitter.event().name("resync").data("{}", MediaType.APPLICATION_JSON));
+                    }
+                    for (DirectoryEvent event : batch) {
+                        Map<String, Object> payload = new LinkedHashMap<>(event.data());
+                        payload.put("action", event.action().name());
+                        payload.put("key", event.key());
+                        emitter.send(SseEmitter.event().name(event.type()).data(payload, MediaType.APPLICATION_JSON));
+                    }
+                    if (sendHeartbeat) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Dropping live update subscriber: {}", e.getMessage());
+                    subscribers.remove(this);
+                    emitter.completeWithError(e);
+                    synchronized (this) {
+                        pending.clear();
+                        draining = false;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+}
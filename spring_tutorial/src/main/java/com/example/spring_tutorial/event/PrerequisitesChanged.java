@@ -0,0 +1,9 @@
+package com.example.spring_tutorial.event;
+
+/**
+ * The prerequisites of a course were changed, published by the service layer.
+ *
+ * @param courseId the course whose prerequisites were added or removed
+ */
+public record PrerequisitesChanged(long courseId) {
+}
@@ -0,0 +1,62 @@
+package com.example.spring_tutorial.grades;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Letter grades on a 4.0 scale. Points are kept in hundredths of a grade point so that
+ * running totals stay exact integers. D and above is a pass.
+ */
+public enum Grade {
+
+    A("A", 400),
+    A_MINUS("A-", 370),
+    B_PLUS("B+", 330),
+    B("B", 300),
+    B_MINUS("B-", 270),
+    C_PLUS("C+", 230),
+    C("C", 200),
+    C_MINUS("C-", 170),
+    D_PLUS("D+", 130),
+    D("D", 100),
+    F("F", 0);
+
+    private static final Map<String, Grade> BY_LETTER = Arrays.stream(values())
+        .collect(Collectors.toUnmodifiableMap(Grade::letter, Function.identity()));
+
+    private final String letter;
+    private final int points;
+
+    Grade(String letter, int points) {
+        this.letter = letter;
+        this.points = points;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the letter is not a grade
+     */
+    public static Grade ofLetter(String letter) {
+        Grade grade = letter == null ? null : BY_LETTER.get(letter.trim().toUpperCase());
+        if (grade == null) {
+            throw new IllegalArgumentException("Unknown grade: " + letter + ". Grades run from A to D, or F");
+        }
+        return grade;
+    }
+
+    public String letter() {
+        return letter;
+    }
+
+    /**
+     * Grade points in hundredths: 400 for an A.
+     */
+    public int points() {
+        return points;
+    }
+
+    public boolean isPassing() {
+        return this != F;
+    }
+}
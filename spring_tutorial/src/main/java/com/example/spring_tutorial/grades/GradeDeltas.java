@@ -0,0 +1,103 @@
+package com.example.spring_tutorial.grades;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * What a batch of grade changes adds to, or takes from, the running totals.
+ *
+ * Each change takes the previous grade out and puts the new one in, so a regrade from
+ * B to A moves the totals by the difference and leaves the counts alone. Changes to the
+ * same student, course or department are folded together, and the maps iterate in id
+ * order, so every writer updates the totals rows in the same order.
+ */
+public final class GradeDeltas {
+
+    private final Map<Long, Totals> students = new TreeMap<>();
+    private final Map<Long, Totals> courses = new TreeMap<>();
+    private final Map<Long, Totals> departments = new TreeMap<>();
+    private final Map<Long, int[]> distributions = new TreeMap<>();
+
+    /**
+     * Records one enrolment's grade changing from previous to grade.
+     *
+     * @param departmentId the course's department, or null if it has none
+     * @param previous the grade held until now, or null if it was ungraded
+     */
+    public void record(long studentId, long courseId, Long departmentId,
+                       Grade previous, int previousCredits, Grade grade, int credits) {
+        if (previous != null) {
+            apply(studentId, courseId, departmentId, previous, previousCredits, -1);
+        }
+        if (grade != null) {
+            apply(studentId, courseId, departmentId, grade, credits, 1);
+        }
+    }
+
+    private void apply(long studentId, long courseId, Long departmentId, Grade grade, int credits, int sign) {
+        students.computeIfAbsent(studentId, id -> new Totals()).add(grade, credits, sign);
+        courses.computeIfAbsent(courseId, id -> new Totals()).add(grade, credits, sign);
+        if (departmentId != null) {
+            departments.computeIfAbsent(departmentId, id -> new Totals()).add(grade, credits, sign);
+        }
+        distributions.computeIfAbsent(courseId, id -> new int[Grade.values().length])[grade.ordinal()] += sign;
+    }
+
+    public Map<Long, Totals> students() {
+        return Collections.unmodifiableMap(students);
+    }
+
+    public Map<Long, Totals> courses() {
+        return Collections.unmodifiableMap(courses);
+    }
+
+    public Map<Long, Totals> departments() {
+        return Collections.unmodifiableMap(departments);
+    }
+
+    /**
+     * Per course, the change in the number of students holding each grade, indexed by ordinal.
+     */
+    public Map<Long, int[]> distributions() {
+        return Collections.unmodifiableMap(distributions);
+    }
+
+    /**
+     * Running totals of grades, or the change to them. Weighted points are points times credits.
+     */
+    public static final class Totals {
+
+        private int count;
+        private long credits;
+        private long points;
+        private long weightedPoints;
+
+        void add(Grade grade, int gradeCredits, int sign) {
+            count += sign;
+            credits += (long) sign * gradeCredits;
+            points += (long) sign * grade.points();
+            weightedPoints += (long) sign * grade.points() * gradeCredits;
+        }
+
+        public int count() {
+            return count;
+        }
+
+        public long credits() {
+            return credits;
+        }
+
+        public long points() {
+            return points;
+        }
+
+        public long weightedPoints() {
+            return weightedPoints;
+        }
+
+        public boolean isZero() {
+            return count == 0 && credits == 0 && points == 0 && weightedPoints == 0;
+        }
+    }
+}
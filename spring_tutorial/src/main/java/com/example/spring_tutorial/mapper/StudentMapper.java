@@ -0,0 +1,44 @@
+package com.example.spring_tutorial.mapper;
+
+import com.example.spring_tutorial.dto.StudentDTO;
+import com.example.spring_tutorial.dto.TeacherStudentDTO;
+import com.example.spring_tutorial.model.Department;
+import com.example.spring_tutorial.model.Student;
+import org.mapstruct.BeanMapping;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.NullValuePropertyMappingStrategy;
+
+/**
+ * Maps students to and from StudentDTO.
+ * The implementation is generated at compile time as plain getter and setter calls.
+ */
+@Mapper
+public interface StudentMapper {
+
+    @Mapping(target = "departmentId", source = "department.id")
+    @Mapping(target = "departmentName", source = "department.name")
+    @Mapping(target = "archived", ignore = true)
+    StudentDTO toDto(Student student);
+
+    /**
+     * New student created by a teacher, enrolled today in the given department.
+     */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "enrollmentDate", expression = "java(java.time.LocalDate.now())")
+    @Mapping(target = "createdBy", source = "teacherEmail")
+    @Mapping(target = "department", source = "department")
+    @Mapping(target = "courses", ignore = true)
+    Student toStudent(TeacherStudentDTO dto, Department department, String teacherEmail);
+
+    /**
+     * Partial update: copies the fields a student may change, skipping those left null.
+     * The department is resolved by the caller.
+     */
+    @BeanMapping(ignoreByDefault = true, nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "firstName")
+    @Mapping(target = "lastName")
+    @Mapping(target = "dateOfBirth")
+    void updateStudent(StudentDTO dto, @MappingTarget Student student);
+}
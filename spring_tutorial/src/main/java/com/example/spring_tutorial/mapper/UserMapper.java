@@ -0,0 +1,42 @@
+package com.example.spring_tutorial.mapper;
+
+import com.example.spring_tutorial.dto.AccountDTO;
+import com.example.spring_tutorial.dto.UserRegistrationDTO;
+import com.example.spring_tutorial.model.User;
+import org.mapstruct.BeanMapping;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+
+/**
+ * Maps user accounts to and from the registration form and the account responses.
+ * The implementation is generated at compile time as plain getter and setter calls.
+ * Passwords are never copied: they are encoded by the caller and never sent back.
+ */
+@Mapper
+public interface UserMapper {
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "password", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
+    User toUser(UserRegistrationDTO dto, User.Role role);
+
+    /**
+     * Prefills the edit profile form.
+     */
+    @Mapping(target = "password", ignore = true)
+    @Mapping(target = "confirmPassword", ignore = true)
+    UserRegistrationDTO toRegistrationDto(User user);
+
+    AccountDTO toAccount(User user);
+
+    /**
+     * Copies the profile fields a user may edit; an empty date of birth clears it.
+     */
+    @BeanMapping(ignoreByDefault = true)
+    @Mapping(target = "firstName")
+    @Mapping(target = "lastName")
+    @Mapping(target = "dateOfBirth")
+    void updateProfile(UserRegistrationDTO dto, @MappingTarget User user);
+}
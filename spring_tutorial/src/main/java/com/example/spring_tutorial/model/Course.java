@@ -2,11 +2,13 @@ package com.example.spring_tutorial.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.SQLRestriction;
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * Course entity representing academic courses.
+ * Hidden once their department is deleted, until the purge removes them.
  */
 @Entity
 @Getter
@@ -14,6 +16,7 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "courses")
+@SQLRestriction(Department.IN_LIVE_DEPARTMENT)
 public class Course {
     
     @Id
@@ -2,12 +2,17 @@ package com.example.spring_tutorial.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.SQLRestriction;
+
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Department entity representing academic departments.
+ * Deleted departments keep their row (with deleted_at set) until purged,
+ * and are filtered out of every query.
  */
 @Entity
 @Getter
@@ -15,16 +20,25 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "departments")
+@SQLRestriction("deleted_at IS NULL")
 public class Department {
     
+    /**
+     * Restriction for students, teachers and courses: hidden as soon as their department is deleted,
+     * rather than shown without one until the purge removes them.
+     */
+    public static final String IN_LIVE_DEPARTMENT = "department_id IS NULL OR department_id NOT IN "
+        + "(SELECT d.id FROM departments d WHERE d.deleted_at IS NOT NULL)";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    @Column(nullable = false, unique = true, length = 100)
+    // Unique among live departments (partial unique indexes, see V4 migration)
+    @Column(nullable = false, length = 100)
     private String name;
     
-    @Column(nullable = false, unique = true, length = 10)
+    @Column(nullable = false, length = 10)
     private String code;
     
     @Column(name = "established_date")
@@ -33,6 +47,9 @@ public class Department {
     @Column(length = 500)
     private String description;
     
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+    
     // One-to-Many: Department to Teachers
     @OneToMany(mappedBy = "department", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Teacher> teachers = new ArrayList<>();
@@ -2,6 +2,7 @@ package com.example.spring_tutorial.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.SQLRestriction;
 import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.Set;
@@ -10,6 +11,7 @@ import java.util.Set;
  * Student entity representing students in the system.
  * Note: Students cannot create their own profiles, only update them.
  * Teachers can create student profiles.
+ * Hidden once their department is deleted, until the purge removes them.
  */
 @Entity
 @Getter
@@ -17,6 +19,7 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "students")
+@SQLRestriction(Department.IN_LIVE_DEPARTMENT)
 public class Student {
     
     @Id
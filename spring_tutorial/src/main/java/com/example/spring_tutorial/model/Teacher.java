@@ -2,6 +2,7 @@ package com.example.spring_tutorial.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.SQLRestriction;
 import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.Set;
@@ -9,6 +10,7 @@ import java.util.Set;
 /**
  * Teacher entity representing teachers in the system.
  * Teachers can create student profiles.
+ * Hidden once their department is deleted, until the purge removes them.
  */
 @Entity
 @Getter
@@ -16,6 +18,7 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "teachers")
+@SQLRestriction(Department.IN_LIVE_DEPARTMENT)
 public class Teacher {
     
     @Id
@@ -0,0 +1,74 @@
+package com.example.spring_tutorial.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SQL run on behalf of one HTTP request: how many statements, how long they spent in JDBC,
+ * and how often each distinct statement ran.
+ *
+ * {@link QueryBudgetFilter} opens one per request. It is inherited by threads started while
+ * handling the request (such as the virtual threads of ProfileService), so their statements
+ * count too. Statements recorded after the request has finished are ignored.
+ */
+public final class QueryBudget {
+
+    private static final InheritableThreadLocal<QueryBudget> CURRENT = new InheritableThreadLocal<>();
+
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder jdbcNanos = new LongAdder();
+    private final Map<String, LongAdder> executions = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    private QueryBudget() {
+    }
+
+    /**
+     * Start tracking statements on the current thread.
+     */
+    static QueryBudget open() {
+        QueryBudget budget = new QueryBudget();
+        CURRENT.set(budget);
+        return budget;
+    }
+
+    void close() {
+        closed = true;
+        CURRENT.remove();
+    }
+
+    /**
+     * Add a statement to the budget of the request running on this thread, if any.
+     */
+    static void record(String sql, long elapsedNanos) {
+        QueryBudget budget = CURRENT.get();
+        if (budget != null && !budget.closed) {
+            budget.statements.increment();
+            budget.jdbcNanos.add(elapsedNanos);
+            budget.executions.computeIfAbsent(sql, s -> new LongAdder()).increment();
+        }
+    }
+
+    public long statementCount() {
+        return statements.sum();
+    }
+
+    public long jdbcNanos() {
+        return jdbcNanos.sum();
+    }
+
+    /**
+     * Statements that ran at least threshold times, most repeated first.
+     * The same statement shape running over and over in one request is the mark of an N+1.
+     */
+    public Map<String, Long> repeatedStatements(int threshold) {
+        Map<String, Long> repeated = new LinkedHashMap<>();
+        executions.entrySet().stream()
+            .filter(e -> e.getValue().sum() >= threshold)
+            .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+            .forEach(e -> repeated.put(e.getKey(), e.getValue().sum()));
+        return repeated;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.spring_tutorial.monitoring;
+
+import com.example.spring_tutorial.config.SqlMonitoringProperties;
+import com.example.spring_tutorial.tenancy.TenantFilter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the SQL each request runs and checks it against the per-request budget.
+ *
+ * Statement count and JDBC time are recorded as sql.request.statements and sql.request.time,
+ * tagged with the method, the matched endpoint pattern and the school. With response-headers
+ * enabled they are also sent as X-SQL-Statements and X-SQL-Time-Ms. Requests that exceed the
+ * statement budget or repeat one statement enough times to look like an N+1 are logged,
+ * or fail in strict mode.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    private final SqlMonitoringProperties.Budget settings;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        QueryBudget budget = QueryBudget.open();
+        HttpServletResponse target = settings.isResponseHeaders()
+            ? new QueryBudgetHeaderResponse(response, budget)
+            : response;
+        try {
+            filterChain.doFilter(request, target);
+            if (target instanceof QueryBudgetHeaderResponse headers) {
+                // Responses without a body never triggered the headers
+                headers.addBudgetHeaders();
+            }
+        } finally {
+            budget.close();
+            record(request, budget);
+        }
+        check(request, budget);
+    }
+
+    private void record(HttpServletRequest request, QueryBudget budget) {
+        if (meterRegistry == null) {
+            return;
+        }
+        String method = request.getMethod();
+        String endpoint = endpoint(request);
+        Object tenant = request.getAttribute(TenantFilter.TENANT_ATTRIBUTE);
+        String school = tenant != null ? tenant.toString() : "none";
+        DistributionSummary.builder("sql.request.statements")
+            .description("SQL statements run per request")
+            .tags("method", method, "uri", endpoint, "tenant", school)
+            .register(meterRegistry)
+            .record(budget.statementCount());
+        Timer.builder("sql.request.time")
+            .description("Time spent in JDBC per request")
+            .tags("method", method, "uri", endpoint, "tenant", school)
+            .register(meterRegistry)
+            .record(budget.jdbcNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private void check(HttpServletRequest request, QueryBudget budget) {
+        String where = request.getMethod() + " " + endpoint(request);
+        if (budget.statementCount() > settings.getMaxStatements()) {
+            violation("Query budget exceeded on " + where + ": " + budget.statementCount()
+                + " statements (budget " + settings.getMaxStatements() + ")");
+        }
+        Map<String, Long> repeated = budget.repeatedStatements(settings.getRepeatedStatementThreshold());
+        for (Map.Entry<String, Long> statement : repeated.entrySet()) {
+            violation("Likely N+1 on " + where + ": statement ran " + statement.getValue()
+                + " times: " + statement.getKey());
+        }
+    }
+
+    private void violation(String message) {
+        if (settings.isStrict()) {
+            throw new IllegalStateException(message);
+        }
+        log.warn(message);
+    }
+
+    private static String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
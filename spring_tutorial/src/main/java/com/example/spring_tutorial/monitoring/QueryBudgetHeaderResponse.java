@@ -0,0 +1,113 @@
+package com.example.spring_tutorial.monitoring;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Adds the query budget headers just before the response body starts, while headers
+ * can still be set. Statements run after that (for example by a streamed page fetching
+ * its later chunks) are not included in the headers; the metrics always have the full count.
+ */
+class QueryBudgetHeaderResponse extends HttpServletResponseWrapper {
+
+    private final QueryBudget budget;
+    private boolean headersAdded;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    QueryBudgetHeaderResponse(HttpServletResponse response, QueryBudget budget) {
+        super(response);
+        this.budget = budget;
+    }
+
+    void addBudgetHeaders() {
+        if (headersAdded || isCommitted()) {
+            return;
+        }
+        headersAdded = true;
+        setHeader("X-SQL-Statements", String.valueOf(budget.statementCount()));
+        setHeader("X-SQL-Time-Ms", String.format("%.2f", budget.jdbcNanos() / 1e6));
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            ServletOutputStream delegate = super.getOutputStream();
+            outputStream = new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    addBudgetHeaders();
+                    delegate.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    addBudgetHeaders();
+                    delegate.write(b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    addBudgetHeaders();
+                    delegate.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    addBudgetHeaders();
+                    delegate.close();
+                }
+
+                @Override
+                public boolean isReady() {
+                    return delegate.isReady();
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    delegate.setWriteListener(writeListener);
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            PrintWriter delegate = super.getWriter();
+            writer = new PrintWriter(new Writer() {
+                @Override
+                public void write(char[] cbuf, int off, int len) {
+                    addBudgetHeaders();
+                    delegate.write(cbuf, off, len);
+                }
+
+                @Override
+                public void flush() {
+                    addBudgetHeaders();
+                    delegate.flush();
+                }
+
+                @Override
+                public void close() {
+                    addBudgetHeaders();
+                    delegate.close();
+                }
+            });
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        addBudgetHeaders();
+        super.flushBuffer();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.spring_tutorial.monitoring;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals per distinct SQL statement, ranked by total time spent in the database.
+ *
+ * Statements are keyed by their text with whitespace collapsed. Bind values are not part
+ * of the key, so one prepared statement is one entry however it is called.
+ */
+public class SqlStatementStats {
+
+    /**
+     * Key for statements beyond maxStatements.
+     */
+    static final String OTHER = "(other statements)";
+
+    private final ConcurrentHashMap<String, Totals> statements = new ConcurrentHashMap<>();
+    private final int maxStatements;
+
+    public SqlStatementStats(int maxStatements) {
+        this.maxStatements = maxStatements;
+    }
+
+    public void record(String sql, long elapsedNanos, boolean success) {
+        Totals totals = statements.get(sql);
+        if (totals == null) {
+            String key = statements.size() < maxStatements ? sql : OTHER;
+            totals = statements.computeIfAbsent(key, k -> new Totals());
+        }
+        totals.calls.increment();
+        totals.totalNanos.add(elapsedNanos);
+        totals.maxNanos.accumulate(elapsedNanos);
+        if (!success) {
+            totals.errors.increment();
+        }
+    }
+
+    /**
+     * The n statements with the highest total time, highest first.
+     */
+    public List<StatementSummary> top(int n) {
+        return statements.entrySet().stream()
+            .map(e -> e.getValue().summary(e.getKey()))
+            .sorted(Comparator.comparingDouble(StatementSummary::totalMs).reversed())
+            .limit(n)
+            .toList();
+    }
+
+    public void reset() {
+        statements.clear();
+    }
+
+    /**
+     * One row of the report. Times are in milliseconds.
+     */
+    public record StatementSummary(String sql, long calls, double totalMs, double meanMs, double maxMs,
+                                   long errors) {
+    }
+
+    private static final class Totals {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder errors = new LongAdder();
+
+        private StatementSummary summary(String sql) {
+            long count = calls.sum();
+            double total = totalNanos.sum() / 1e6;
+            return new StatementSummary(sql, count, total, count == 0 ? 0 : total / count,
+                maxNanos.get() / 1e6, errors.sum());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.spring_tutorial.monitoring;
+
+import com.example.spring_tutorial.config.SqlMonitoringProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint listing the SQL statements with the most total time since start-up
+ * or the last reset. GET /actuator/sqlstatements reads it, DELETE resets it.
+ */
+@Component
+@Endpoint(id = "sqlstatements")
+@RequiredArgsConstructor
+public class SqlStatementsEndpoint {
+
+    private final SqlStatementStats stats;
+    private final SqlMonitoringProperties properties;
+
+    @ReadOperation
+    public List<SqlStatementStats.StatementSummary> topStatements() {
+        return stats.top(properties.getTopN());
+    }
+
+    @DeleteOperation
+    public void reset() {
+        stats.reset();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.spring_tutorial.monitoring;
+
+import com.example.spring_tutorial.config.SqlMonitoringProperties;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Times every statement that goes through the proxied DataSource.
+ *
+ * Each execution is added to {@link SqlStatementStats} and to the {@link QueryBudget} of the
+ * request being handled. Executions at or above the slow
+ * threshold are logged to sql.slow, and a sample of the rest to sql.sample, as one
+ * key=value line each. Bind parameters are logged by type only ("params=[String, Long]"),
+ * never by value.
+ */
+public class SqlTimingListener implements QueryExecutionListener {
+
+    private static final Logger SLOW_LOG = LoggerFactory.getLogger("sql.slow");
+    private static final Logger SAMPLE_LOG = LoggerFactory.getLogger("sql.sample");
+    private static final String START = SqlTimingListener.class.getName() + ".start";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final SqlStatementStats stats;
+    private final long slowThresholdNanos;
+    private final double sampleRate;
+
+    public SqlTimingListener(SqlStatementStats stats, SqlMonitoringProperties properties) {
+        this.stats = stats;
+        this.slowThresholdNanos = properties.getSlowThreshold().toNanos();
+        this.sampleRate = properties.getSampleRate();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(START, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Long start = execInfo.getCustomValue(START, Long.class);
+        if (start == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        String sql = queryInfoList.stream()
+            .map(query -> WHITESPACE.matcher(query.getQuery()).replaceAll(" ").trim())
+            .collect(Collectors.joining("; "));
+        stats.record(sql, elapsed, execInfo.isSuccess());
+        QueryBudget.record(sql, elapsed);
+
+        if (elapsed >= slowThresholdNanos) {
+            SLOW_LOG.warn(line(execInfo, queryInfoList, sql, elapsed));
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            SAMPLE_LOG.info(line(execInfo, queryInfoList, sql, elapsed));
+        }
+    }
+
+    private static String line(ExecutionInfo execInfo, List<QueryInfo> queryInfoList, String sql, long elapsed) {
+        StringBuilder line = new StringBuilder()
+            .append("durationMs=").append(String.format("%.2f", elapsed / 1e6))
+            .append(" success=").append(execInfo.isSuccess())
+            .append(" type=").append(execInfo.getStatementType());
+        if (execInfo.isBatch()) {
+            line.append(" batchSize=").append(execInfo.getBatchSize());
+        }
+        line.append(" connection=").append(execInfo.getConnectionId())
+            .append(" params=").append(parameterShape(queryInfoList))
+            .append(" sql=\"").append(sql.replace("\"", "\\\"")).append('"');
+        return line.toString();
+    }
+
+    /**
+     * Types of the first parameter set, in parameter order.
+     */
+    private static List<String> parameterShape(List<QueryInfo> queryInfoList) {
+        if (queryInfoList.isEmpty() || queryInfoList.get(0).getParametersList().isEmpty()) {
+            return List.of();
+        }
+        List<ParameterSetOperation> operations = new ArrayList<>(queryInfoList.get(0).getParametersList().get(0));
+        operations.sort(Comparator.comparing(op -> op.getArgs()[0] instanceof Integer index ? index : 0));
+        List<String> shape = new ArrayList<>(operations.size());
+        for (ParameterSetOperation operation : operations) {
+            Object[] args = operation.getArgs();
+            boolean isNull = ParameterSetOperation.isSetNullParameterOperation(operation)
+                || args.length < 2 || args[1] == null;
+            shape.add(isNull ? "null" : args[1].getClass().getSimpleName());
+        }
+        return shape;
+    }
+}
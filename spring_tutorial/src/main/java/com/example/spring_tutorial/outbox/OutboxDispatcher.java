@@ -0,0 +1,374 @@
+package com.example.spring_tutorial.outbox;
+
+import com.example.spring_tutorial.config.OutboxProperties;
+import com.example.spring_tutorial.tenancy.Tenant;
+import com.example.spring_tutorial.tenancy.TenantContext;
+import com.example.spring_tutorial.tenancy.TenantRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.sql.Array;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers committed outbox events to the {@link OutboxHandler}s.
+ *
+ * Each poll claims a batch of due events with FOR UPDATE SKIP LOCKED, so nodes polling
+ * at the same time take different events, and leases them by moving available_at past
+ * the lease. The claim commits at once; no transaction or connection is held while every
+ * event goes to every interested handler, each delivery on its own virtual thread. If the
+ * node dies mid-batch, the lease runs out and another node delivers the events again.
+ *
+ * The batch is then settled in a short transaction of its own: events every handler took
+ * are deleted, the rest are rescheduled with exponential backoff for just the handlers that
+ * failed them, and after max-attempts they are marked failed and left for inspection. An
+ * event no handler accepts is not counted as delivered: it is looked at again after
+ * max-backoff, in case a handler for it is deployed meanwhile, and marked failed once it
+ * is older than unhandled-timeout. Such events don't count towards the backlog gauges.
+ * While a backlog lasts, batches follow each other without waiting for the next poll. Each poll visits every school's outbox
+ * in turn; metrics are tagged with the school.
+ */
+@Component
+@Slf4j
+public class OutboxDispatcher {
+
+    /**
+     * Takes (batch size, lease in seconds).
+     */
+    private static final String CLAIM = """
+        WITH due AS (
+            SELECT id FROM outbox_events
+            WHERE available_at <= now() AND failed_at IS NULL
+            ORDER BY available_at, id
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+        )
+        UPDATE outbox_events e SET available_at = now() + make_interval(secs => ?)
+        FROM due WHERE e.id = due.id
+        RETURNING e.id, e.event_type, e.aggregate_id, e.payload::text AS payload, e.created_at, e.attempts,
+                  e.pending_handlers
+        """;
+
+    /**
+     * Takes (handlers still owed the event, error, backoff in seconds, max attempts, id).
+     */
+    private static final String RESCHEDULE = """
+        UPDATE outbox_events
+        SET attempts = attempts + 1, pending_handlers = ?, last_error = ?,
+            available_at = now() + make_interval(secs => ?),
+            failed_at = CASE WHEN attempts + 1 >= ? THEN now() END
+        WHERE id = ?
+        """;
+
+    /**
+     * Takes (wait in seconds, reason, unhandled timeout in seconds, ids). Returns whether each event was given up on.
+     */
+    private static final String PARK = """
+        UPDATE outbox_events SET available_at = now() + make_interval(secs => ?), last_error = ?,
+            failed_at = CASE WHEN created_at <= now() - make_interval(secs => ?) THEN now() END
+        WHERE id = ANY(?::bigint[])
+        RETURNING failed_at IS NOT NULL AS given_up
+        """;
+
+    /**
+     * Takes (reason for unhandled events).
+     */
+    private static final String BACKLOG = """
+        SELECT count(*) AS pending, COALESCE(EXTRACT(EPOCH FROM now() - min(created_at)), 0) AS oldest_age
+        FROM outbox_events WHERE failed_at IS NULL AND last_error IS DISTINCT FROM ?
+        """;
+
+    static final String UNHANDLED = "no handler accepts this event";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private record Claimed(long id, String type, String aggregateId, String payload, Instant createdAt,
+                           int attempts, Set<String> pendingHandlers) {
+    }
+
+    private record Delivery(Claimed event, OutboxHandler handler, Future<?> result) {
+    }
+
+    private record Failure(String handler, String error) {
+    }
+
+    private record Meters(AtomicLong backlog, AtomicLong backlogAgeSeconds, Timer lag, Timer batch) {
+    }
+
+    private static final RowMapper<Claimed> CLAIMED = (rs, row) -> {
+        Array pending = rs.getArray("pending_handlers");
+        return new Claimed(rs.getLong("id"), rs.getString("event_type"), rs.getString("aggregate_id"),
+            rs.getString("payload"), rs.getTimestamp("created_at").toInstant(), rs.getInt("attempts"),
+            pending == null ? null : Set.of((String[]) pending.getArray()));
+    };
+
+    private final OutboxProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JsonMapper jsonMapper;
+    private final List<OutboxHandler> handlers;
+    private final MeterRegistry meterRegistry;
+    private final TenantRegistry tenants;
+    private final Map<String, Meters> meters = new HashMap<>();
+
+    public OutboxDispatcher(OutboxProperties properties, JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager, JsonMapper jsonMapper,
+                            ObjectProvider<OutboxHandler> handlers, MeterRegistry meterRegistry,
+                            TenantRegistry tenants) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jsonMapper = jsonMapper;
+        this.handlers = handlers.orderedStream().toList();
+        this.meterRegistry = meterRegistry;
+        this.tenants = tenants;
+
+        Set<String> names = new HashSet<>();
+        for (OutboxHandler handler : this.handlers) {
+            if (handler.name().length() > 64 || !names.add(handler.name())) {
+                throw new IllegalStateException("Outbox handler names must be unique and at most 64 characters: "
+                    + handler.name());
+            }
+        }
+        if (properties.getLease().compareTo(properties.getHandlerTimeout()) <= 0) {
+            throw new IllegalStateException("app.outbox.lease must be longer than app.outbox.handler-timeout");
+        }
+
+        for (Tenant tenant : tenants.all()) {
+            AtomicLong backlog = new AtomicLong();
+            AtomicLong backlogAgeSeconds = new AtomicLong();
+            Gauge.builder("outbox.backlog", backlog, AtomicLong::get)
+                .description("Outbox events waiting for delivery")
+                .tag("tenant", tenant.id())
+                .register(meterRegistry);
+            Gauge.builder("outbox.backlog.age", backlogAgeSeconds, AtomicLong::get)
+                .description("Age of the oldest outbox event waiting for delivery")
+                .baseUnit("seconds")
+                .tag("tenant", tenant.id())
+                .register(meterRegistry);
+            Timer lag = Timer.builder("outbox.lag")
+                .description("Time from an event being written to its delivery to every handler")
+                .tag("tenant", tenant.id())
+                .register(meterRegistry);
+            Timer batch = Timer.builder("outbox.batch")
+                .description("Time to claim, deliver and settle one batch")
+                .tag("tenant", tenant.id())
+                .register(meterRegistry);
+            meters.put(tenant.id(), new Meters(backlog, backlogAgeSeconds, lag, batch));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval:500ms}")
+    public void dispatch() {
+        tenants.forEach(() -> {
+            for (int i = 0; i < properties.getMaxBatchesPerPoll(); i++) {
+                if (dispatchBatch() < properties.getBatchSize()) {
+                    break;
+                }
+            }
+            Meters current = meters.get(TenantContext.current());
+            jdbcTemplate.query(BACKLOG, rs -> {
+                current.backlog().set(rs.getLong("pending"));
+                current.backlogAgeSeconds().set(rs.getLong("oldest_age"));
+            }, UNHANDLED);
+        });
+    }
+
+    /**
+     * Claim, deliver and settle one batch of the current school's outbox. Returns the number of events claimed.
+     */
+    int dispatchBatch() {
+        Meters current = meters.get(TenantContext.current());
+        long start = System.nanoTime();
+        // One statement, committed before any handler runs
+        List<Claimed> events = jdbcTemplate.query(CLAIM, CLAIMED, properties.getBatchSize(),
+            properties.getLease().toMillis() / 1000.0);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        Map<Claimed, List<Failure>> failures = deliver(events);
+
+        List<Long> delivered = new ArrayList<>();
+        List<Long> unhandled = new ArrayList<>();
+        Instant now = Instant.now();
+        for (Claimed event : events) {
+            if (handlersFor(event).isEmpty()) {
+                unhandled.add(event.id());
+            } else if (!failures.containsKey(event)) {
+                delivered.add(event.id());
+                current.lag().record(Duration.between(event.createdAt(), now));
+            }
+        }
+        long givenUp = transactionTemplate.execute(status -> {
+            if (!delivered.isEmpty()) {
+                jdbcTemplate.update("DELETE FROM outbox_events WHERE id = ANY(?::bigint[])",
+                    (Object) delivered.toArray(Long[]::new));
+            }
+            reschedule(failures);
+            if (unhandled.isEmpty()) {
+                return 0L;
+            }
+            return jdbcTemplate.queryForList(PARK, Boolean.class, properties.getMaxBackoff().toMillis() / 1000.0,
+                UNHANDLED, properties.getUnhandledTimeout().toMillis() / 1000.0, unhandled.toArray(Long[]::new))
+                .stream().filter(Boolean::booleanValue).count();
+        });
+        if (!delivered.isEmpty()) {
+            count("delivered", delivered.size());
+        }
+        if (unhandled.size() > givenUp) {
+            count("unhandled", unhandled.size() - givenUp);
+            log.warn("No handler accepts {} outbox events of school {}; kept for up to {} in case one is deployed",
+                unhandled.size() - givenUp, TenantContext.current(), properties.getUnhandledTimeout());
+        }
+        if (givenUp > 0) {
+            count("failed", givenUp);
+            log.error("Gave up on {} outbox events of school {} that no handler accepted within {}", givenUp,
+                TenantContext.current(), properties.getUnhandledTimeout());
+        }
+        current.batch().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return events.size();
+    }
+
+    /**
+     * The handlers still owed the event that want events of its type.
+     */
+    private List<OutboxHandler> handlersFor(Claimed event) {
+        return handlers.stream()
+            .filter(handler -> event.pendingHandlers() == null || event.pendingHandlers().contains(handler.name()))
+            .filter(handler -> handler.handles(event.type()))
+            .toList();
+    }
+
+    /**
+     * Runs every delivery of the batch at once and waits for all of them up to the handler timeout.
+     * Returns the failed deliveries of each event that had any.
+     */
+    private Map<Claimed, List<Failure>> deliver(List<Claimed> events) {
+        Map<Claimed, List<Failure>> failures = new LinkedHashMap<>();
+        String tenant = TenantContext.current();
+        // Delivery threads inherit the school, so handlers work on its schema
+        ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            List<Delivery> deliveries = new ArrayList<>();
+            for (Claimed claimed : events) {
+                OutboxEvent event = new OutboxEvent(tenant, claimed.id(), claimed.type(), claimed.aggregateId(),
+                    jsonMapper.readTree(claimed.payload()), claimed.createdAt(), claimed.attempts() + 1);
+                for (OutboxHandler handler : handlersFor(claimed)) {
+                    deliveries.add(new Delivery(claimed, handler, scope.submit(() -> {
+                        handler.handle(event);
+                        return null;
+                    })));
+                }
+            }
+
+            long deadline = System.nanoTime() + properties.getHandlerTimeout().toNanos();
+            for (Delivery delivery : deliveries) {
+                String error = await(delivery, deadline);
+                Counter.builder("outbox.deliveries")
+                    .description("Deliveries of outbox events to handlers")
+                    .tags("handler", delivery.handler().name(), "result", error == null ? "success" : "failure",
+                        "tenant", tenant)
+                    .register(meterRegistry)
+                    .increment();
+                if (error != null) {
+                    failures.computeIfAbsent(delivery.event(), e -> new ArrayList<>())
+                        .add(new Failure(delivery.handler().name(), error));
+                }
+            }
+        } finally {
+            scope.shutdownNow();
+        }
+        return failures;
+    }
+
+    /**
+     * Returns why the delivery failed, or null if it succeeded.
+     */
+    private String await(Delivery delivery, long deadline) {
+        String failure;
+        try {
+            delivery.result().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return null;
+        } catch (TimeoutException e) {
+            delivery.result().cancel(true);
+            failure = "timed out after " + properties.getHandlerTimeout();
+        } catch (ExecutionException e) {
+            failure = String.valueOf(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = "interrupted";
+        }
+        log.warn("Outbox event {} ({}) of school {} not delivered to {}: {}", delivery.event().id(),
+            delivery.event().type(), TenantContext.current(), delivery.handler().name(), failure);
+        return failure;
+    }
+
+    private void reschedule(Map<Claimed, List<Failure>> failures) {
+        if (failures.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Claimed, List<Failure>>> failed = new ArrayList<>(failures.entrySet());
+        jdbcTemplate.batchUpdate(RESCHEDULE, failed, failed.size(), (ps, entry) -> {
+            Claimed event = entry.getKey();
+            String[] owed = entry.getValue().stream().map(Failure::handler).toArray(String[]::new);
+            String error = entry.getValue().stream().map(f -> f.handler() + ": " + f.error())
+                .collect(Collectors.joining("; "));
+            ps.setArray(1, ps.getConnection().createArrayOf("varchar", owed));
+            ps.setString(2, error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+            ps.setDouble(3, backoff(event.attempts() + 1, properties.getInitialBackoff(), properties.getMaxBackoff())
+                .toMillis() / 1000.0);
+            ps.setInt(4, properties.getMaxAttempts());
+            ps.setLong(5, event.id());
+        });
+        long givenUp = failures.keySet().stream().filter(e -> e.attempts() + 1 >= properties.getMaxAttempts()).count();
+        count("retried", failures.size() - givenUp);
+        if (givenUp > 0) {
+            count("failed", givenUp);
+            log.error("Gave up on {} outbox events of school {} after {} attempts", givenUp, TenantContext.current(),
+                properties.getMaxAttempts());
+        }
+    }
+
+    private void count(String result, long events) {
+        Counter.builder("outbox.events")
+            .description("Outbox events settled by the dispatcher")
+            .tags("result", result, "tenant", TenantContext.current())
+            .register(meterRegistry)
+            .increment(events);
+    }
+
+    /**
+     * Wait after the given failed attempt: initial after the first, doubling after each further one, at most max.
+     */
+    static Duration backoff(int attempt, Duration initial, Duration max) {
+        Duration wait = initial.multipliedBy(1L << Math.min(Math.max(attempt - 1, 0), 30));
+        return wait.compareTo(max) > 0 ? max : wait;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.spring_tutorial.outbox;
+
+import tools.jackson.databind.JsonNode;
+
+import java.time.Instant;
+
+/**
+ * A domain event as delivered to an {@link OutboxHandler}.
+ *
+ * Delivery is at least once and not necessarily in order: a handler may see an event
+ * again after a failure, or see a later event for the same aggregate first. Changes to
+ * one aggregate are serialized by its row lock, so their events get increasing ids and
+ * a handler can drop an event older than one it has already applied.
+ *
+ * Each school has an outbox of its own, so ids are only unique within a school. Handlers
+ * run bound to the event's school and so read and write that school's schema.
+ *
+ * @param tenant      id of the school the event happened at
+ * @param type        what happened, such as "course.updated"
+ * @param aggregateId id of the course, student, ... the event is about
+ * @param attempt     1 on first delivery, higher on retries
+ */
+public record OutboxEvent(String tenant, long id, String type, String aggregateId, JsonNode payload,
+                          Instant createdAt, int attempt) {
+
+    public static final String COURSE_CREATED = "course.created";
+    public static final String COURSE_UPDATED = "course.updated";
+    public static final String COURSE_DELETED = "course.deleted";
+    public static final String STUDENT_CREATED = "student.created";
+}
@@ -0,0 +1,26 @@
+package com.example.spring_tutorial.outbox;
+
+/**
+ * Receives committed domain events from the outbox. Every bean implementing this is a handler.
+ *
+ * Handlers run on virtual threads, several at once, and each event is retried only for
+ * the handlers that failed it, so one failing consumer doesn't make the others see it twice.
+ * A handler that throws, or runs past app.outbox.handler-timeout, gets the event again
+ * after a backoff. See {@link OutboxEvent} for the delivery guarantees.
+ */
+public interface OutboxHandler {
+
+    /**
+     * Stable name, recorded with events still owed to this handler. At most 64 characters.
+     */
+    String name();
+
+    /**
+     * Whether this handler wants events of the given type.
+     */
+    default boolean handles(String eventType) {
+        return true;
+    }
+
+    void handle(OutboxEvent event) throws Exception;
+}
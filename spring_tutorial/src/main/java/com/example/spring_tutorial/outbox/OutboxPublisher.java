@@ -0,0 +1,30 @@
+package com.example.spring_tutorial.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Records domain events in the outbox table as part of the caller's transaction,
+ * so an event exists if and only if the change it describes was committed.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxPublisher {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonMapper jsonMapper;
+
+    /**
+     * @param payload serialized to JSON as the event's payload
+     * @throws org.springframework.transaction.IllegalTransactionStateException if called outside a transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String type, Object aggregateId, Object payload) {
+        jdbcTemplate.update("INSERT INTO outbox_events (event_type, aggregate_id, payload) VALUES (?, ?, ?::jsonb)",
+            type, String.valueOf(aggregateId), jsonMapper.writeValueAsString(payload));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.spring_tutorial.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Reads only the requested fields of an entity, for the ?fields= parameter on list endpoints.
+ *
+ * Each allowed field maps to an attribute path such as "email" or "department.name".
+ * The query selects just those columns as a tuple (joining an association only when
+ * one of its non-id attributes is requested), so unrequested columns are never read.
+ * A plain component rather than a @Repository so that field validation errors reach
+ * the controllers as IllegalArgumentException instead of being translated.
+ */
+@Component
+@RequiredArgsConstructor
+public class SparseFieldQuery {
+
+    private final EntityManager entityManager;
+
+    /**
+     * Returns one map per entity, ordered by id, holding the requested fields in request order.
+     *
+     * @param allowed field name exposed to clients mapped to its attribute path
+     * @throws IllegalArgumentException if a field is not in the allowed set
+     */
+    public List<Map<String, Object>> findAll(Class<?> entityType, Map<String, String> allowed, List<String> fields) {
+        Set<String> requested = new LinkedHashSet<>();
+        for (String field : fields) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!allowed.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name + ". Allowed fields: "
+                    + String.join(", ", new TreeSet<>(allowed.keySet())));
+            }
+            requested.add(name);
+        }
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("At least one field is required");
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<?> root = query.from(entityType);
+        Map<String, Join<?, ?>> joins = new HashMap<>();
+
+        List<Selection<?>> selections = new ArrayList<>(requested.size());
+        for (String name : requested) {
+            selections.add(path(root, joins, allowed.get(name)).alias(name));
+        }
+        query.select(cb.tuple(selections)).orderBy(cb.asc(root.get("id")));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String name : requested) {
+                row.put(name, tuple.get(name));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static Path<?> path(Root<?> root, Map<String, Join<?, ?>> joins, String attributePath) {
+        int dot = attributePath.indexOf('.');
+        if (dot < 0) {
+            return root.get(attributePath);
+        }
+        String association = attributePath.substring(0, dot);
+        String attribute = attributePath.substring(dot + 1);
+        if ("id".equals(attribute)) {
+            // The foreign key column already holds it; no join needed
+            return root.get(association).get(attribute);
+        }
+        From<?, ?> join = joins.computeIfAbsent(association, a -> root.join(a, JoinType.LEFT));
+        return join.get(attribute);
+    }
+}
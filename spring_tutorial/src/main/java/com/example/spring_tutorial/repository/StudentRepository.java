@@ -1,9 +1,12 @@
 package com.example.spring_tutorial.repository;
 
 import com.example.spring_tutorial.model.Student;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -19,5 +22,11 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
     boolean existsByEmail(String email);
     
     boolean existsByStudentId(String studentId);
+    
+    /**
+     * Multi-get by id, loading each student's department in the same query.
+     */
+    @EntityGraph(attributePaths = "department")
+    List<Student> findAllWithDepartmentByIdIn(Collection<Long> ids);
 }
 
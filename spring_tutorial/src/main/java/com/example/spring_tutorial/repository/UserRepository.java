@@ -1,7 +1,11 @@
 package com.example.spring_tutorial.repository;
 
+import com.example.spring_tutorial.dto.UserSummaryDTO;
 import com.example.spring_tutorial.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -26,4 +30,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * Count users with a specific role.
      */
     long countByRole(User.Role role);
+    
+    /**
+     * Next page of users with a role after the given id (keyset pagination).
+     */
+    @Query("SELECT new com.example.spring_tutorial.dto.UserSummaryDTO(u.id, u.firstName, u.lastName, u.email) "
+        + "FROM User u WHERE u.role = :role AND u.id > :id ORDER BY u.id")
+    List<UserSummaryDTO> findPageByRoleAfterId(@Param("role") User.Role role, @Param("id") Long id, Limit limit);
 }
@@ -0,0 +1,101 @@
+package com.example.spring_tutorial.security;
+
+import com.example.spring_tutorial.config.RateLimitProperties;
+import com.example.spring_tutorial.tenancy.TenantContext;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Token-bucket rate limiter for the authentication endpoints.
+ * Limits are applied per client IP and per account (email) for each configured endpoint group.
+ * The client IP is the remote address as resolved by the server, which behind a trusted proxy
+ * comes from X-Forwarded-For (server.forward-headers-strategy).
+ */
+@Component
+@Slf4j
+public class AuthRateLimiter {
+
+    private final boolean enabled;
+    private final List<Rule> rules = new ArrayList<>();
+
+    public AuthRateLimiter(RateLimitProperties properties) {
+        this.enabled = properties.isEnabled();
+        properties.getEndpoints().forEach((name, endpoint) -> {
+            rules.add(new Rule(name, endpoint.getPaths(), endpoint.getMethods(),
+                createTable(properties.getTableSize(), endpoint.getPerIp()),
+                createTable(properties.getTableSize(), endpoint.getPerAccount())));
+            log.info("Rate limiting {} on {}", name, endpoint.getPaths());
+        });
+    }
+
+    /**
+     * Check the per-IP limit for the request.
+     *
+     * @return 0 if allowed, otherwise milliseconds until the client may retry
+     */
+    public long checkIp(HttpServletRequest request) {
+        Rule rule = ruleFor(request);
+        if (rule == null || rule.perIp() == null) {
+            return 0;
+        }
+        return rule.perIp().tryAcquire(request.getRemoteAddr());
+    }
+
+    /**
+     * Check the per-account limit for the request.
+     *
+     * @return 0 if allowed, otherwise milliseconds until the client may retry
+     */
+    public long checkAccount(HttpServletRequest request, String email) {
+        Rule rule = ruleFor(request);
+        if (rule == null || rule.perAccount() == null || email == null || email.isBlank()) {
+            return 0;
+        }
+        // Accounts belong to a school, and so do their limits
+        return rule.perAccount().tryAcquire(TenantContext.current() + "/" + email.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Whether the request targets a rate limited endpoint.
+     */
+    public boolean isLimited(HttpServletRequest request) {
+        return ruleFor(request) != null;
+    }
+
+    /**
+     * Convert a retry delay to a Retry-After header value in whole seconds.
+     */
+    public static String retryAfterSeconds(long retryAfterMillis) {
+        return String.valueOf(Math.max(1, (retryAfterMillis + 999) / 1000));
+    }
+
+    private Rule ruleFor(HttpServletRequest request) {
+        if (!enabled) {
+            return null;
+        }
+        String path = request.getServletPath();
+        String method = request.getMethod();
+        for (Rule rule : rules) {
+            if (rule.paths().contains(path) && rule.methods().contains(method)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private static TokenBucketTable createTable(int size, RateLimitProperties.Bucket bucket) {
+        if (bucket == null || bucket.getCapacity() <= 0) {
+            return null;
+        }
+        return new TokenBucketTable(size, bucket.getCapacity(), bucket.getRefillPerMinute());
+    }
+
+    private record Rule(String name, List<String> paths, List<String> methods,
+                        TokenBucketTable perIp, TokenBucketTable perAccount) {
+    }
+}
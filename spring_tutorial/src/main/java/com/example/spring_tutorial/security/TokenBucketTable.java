@@ -0,0 +1,88 @@
+package com.example.spring_tutorial.security;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size table of token buckets updated with CAS only (no locks).
+ * Keys are hashed onto a bucket, so memory stays bounded no matter how many
+ * clients show up. An idle bucket simply refills to capacity, which makes it
+ * indistinguishable from a fresh one - idle keys are evicted implicitly.
+ * Two keys that hash to the same bucket share it (approximate by design).
+ *
+ * Each bucket is a single long: the upper 44 bits hold the last update time in
+ * milliseconds since the table was created, the lower 20 bits hold the
+ * remaining tokens in thousandths of a token.
+ */
+public class TokenBucketTable {
+
+    private static final int TOKEN_BITS = 20;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long MILLI = 1000;
+
+    /** Largest capacity that fits in the token field. */
+    public static final int MAX_CAPACITY = (int) (TOKEN_MASK / MILLI);
+
+    private final AtomicLongArray buckets;
+    private final int mask;
+    private final int seed = ThreadLocalRandom.current().nextInt();
+    private final long originNanos = System.nanoTime();
+    private final long capacity;
+    private final double refillPerMilli;
+
+    public TokenBucketTable(int size, int capacity, int refillPerMinute) {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        if (refillPerMinute <= 0) {
+            throw new IllegalArgumentException("Refill rate must be positive");
+        }
+        int tableSize = Integer.highestOneBit(Math.max(16, size - 1) << 1);
+        this.buckets = new AtomicLongArray(tableSize);
+        this.mask = tableSize - 1;
+        this.capacity = capacity * MILLI;
+        this.refillPerMilli = refillPerMinute * MILLI / 60_000d;
+    }
+
+    /**
+     * Take one token for the given key.
+     *
+     * @return 0 if a token was taken, otherwise milliseconds until one is available
+     */
+    public long tryAcquire(String key) {
+        int index = indexFor(key);
+        long now = now();
+        while (true) {
+            long current = buckets.get(index);
+            long tokens = available(current, now);
+            if (tokens < MILLI) {
+                // Denials never write, so a client hammering a full bucket
+                // cannot stall its refill.
+                return Math.max(1, (long) Math.ceil((MILLI - tokens) / refillPerMilli));
+            }
+            long next = (now << TOKEN_BITS) | (tokens - MILLI);
+            if (buckets.compareAndSet(index, current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private long available(long state, long now) {
+        if (state == 0) {
+            return capacity;
+        }
+        long elapsed = now - (state >>> TOKEN_BITS);
+        long tokens = (state & TOKEN_MASK) + (long) (elapsed * refillPerMilli);
+        return Math.min(capacity, tokens);
+    }
+
+    private long now() {
+        // +1 keeps a real timestamp from ever encoding as the empty state
+        return (System.nanoTime() - originNanos) / 1_000_000 + 1;
+    }
+
+    private int indexFor(String key) {
+        int h = (key.hashCode() ^ seed) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.spring_tutorial.security;
+
+import com.example.spring_tutorial.model.User;
+
+/**
+ * Claims carried by a verified access token. A token is only good at the school it was issued by.
+ */
+public record TokenClaims(Long userId, String email, User.Role role, String tenant, long expiresAt) {
+
+    public boolean isExpired(long nowEpochSecond) {
+        return nowEpochSecond >= expiresAt;
+    }
+}
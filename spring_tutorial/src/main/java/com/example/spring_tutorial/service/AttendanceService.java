@@ -0,0 +1,447 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.attendance.AttendanceRingBuffer;
+import com.example.spring_tutorial.attendance.AttendanceStatus;
+import com.example.spring_tutorial.config.AttendanceProperties;
+import com.example.spring_tutorial.dto.AttendanceEventDTO;
+import com.example.spring_tutorial.dto.AttendanceRecordDTO;
+import com.example.spring_tutorial.exception.ResourceNotFoundException;
+import com.example.spring_tutorial.tenancy.Tenant;
+import com.example.spring_tutorial.tenancy.TenantContext;
+import com.example.spring_tutorial.tenancy.TenantRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Ingests attendance scans from classroom devices, the highest-rate write in the application.
+ *
+ * A request is checked field by field and its events are queued in an
+ * {@link AttendanceRingBuffer} without touching the database. One flusher thread drains
+ * the buffer when flush-size events are waiting or flush-interval has passed, streams them
+ * with COPY into a staging table and merges them into attendance in one statement. Scans
+ * for unknown students or sections are dropped there and counted. When the buffer is full
+ * (the database is down or falling behind) requests are refused with a retry hint instead
+ * of queueing without bound.
+ *
+ * Events are acknowledged once queued. On shutdown, which comes after the web server has
+ * stopped taking requests, the flusher writes everything still queued; whatever it can't
+ * write before shutdown-timeout goes to a spill file that the next start loads first.
+ *
+ * Each school has a buffer of its own, so one school's backlog never turns away another
+ * school's devices. The flusher visits them in turn and writes each to its own schema.
+ */
+@Service
+@Slf4j
+public class AttendanceService implements SmartLifecycle {
+
+    private static final String STAGE = """
+        CREATE TEMP TABLE attendance_import (
+            student_id BIGINT, section_id BIGINT, recorded_at_ms BIGINT, status VARCHAR(8)
+        ) ON COMMIT DROP
+        """;
+
+    private static final String COUNT_UNKNOWN = """
+        SELECT count(*) FROM attendance_import i
+        WHERE NOT EXISTS (SELECT 1 FROM students s WHERE s.id = i.student_id)
+           OR NOT EXISTS (SELECT 1 FROM course_sections cs WHERE cs.id = i.section_id)
+        """;
+
+    /**
+     * The latest scan per student and session wins, within the batch and against earlier batches.
+     */
+    private static final String MERGE = """
+        INSERT INTO attendance AS a (section_id, session_date, student_id, status, recorded_at)
+        SELECT DISTINCT ON (i.section_id, i.recorded_at::date, i.student_id)
+               i.section_id, i.recorded_at::date, i.student_id, i.status, i.recorded_at
+        FROM (SELECT student_id, section_id, status, to_timestamp(recorded_at_ms / 1000.0) AS recorded_at
+              FROM attendance_import) i
+        JOIN students s ON s.id = i.student_id
+        JOIN course_sections cs ON cs.id = i.section_id
+        ORDER BY i.section_id, i.recorded_at::date, i.student_id, i.recorded_at DESC
+        ON CONFLICT (section_id, session_date, student_id) DO UPDATE
+        SET status = EXCLUDED.status, recorded_at = EXCLUDED.recorded_at
+        WHERE EXCLUDED.recorded_at > a.recorded_at
+        """;
+
+    private static final String SELECT_SESSION = """
+        SELECT student_id, status, recorded_at FROM attendance
+        WHERE section_id = ? AND session_date = ? ORDER BY student_id
+        """;
+
+    /**
+     * Two ids, a timestamp and a status, with room to spare.
+     */
+    private static final int CSV_CHARS_PER_EVENT = 48;
+
+    private final AttendanceProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<String, Lane> lanes = new LinkedHashMap<>();
+
+    /** Requests between their check of accepting and their last put, so shutdown waits for them. */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private volatile long shutdownDeadline;
+    private Thread flusher;
+
+    public AttendanceService(AttendanceProperties properties, JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                             TenantRegistry tenants) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        for (Tenant tenant : tenants.all()) {
+            lanes.put(tenant.id(), new Lane(tenant.id(), meterRegistry));
+        }
+    }
+
+    /**
+     * Queue a device's events for writing. All or none of them are queued.
+     *
+     * @return false if there is no room for them now; the device should retry shortly
+     * @throws IllegalArgumentException if there are too many events or one of them is invalid
+     */
+    public boolean record(List<AttendanceEventDTO> events) {
+        if (events.size() > properties.getMaxEventsPerRequest()) {
+            throw new IllegalArgumentException("At most " + properties.getMaxEventsPerRequest()
+                + " events can be sent at once");
+        }
+        long now = System.currentTimeMillis();
+        long oldest = now - properties.getMaxEventAge().toMillis();
+        long newest = now + properties.getMaxClockSkew().toMillis();
+        for (int i = 0; i < events.size(); i++) {
+            AttendanceEventDTO event = events.get(i);
+            if (event == null || event.getStudentId() <= 0 || event.getSectionId() <= 0) {
+                throw new IllegalArgumentException("Event " + i + ": student and section ids are required");
+            }
+            if (event.getStatus() == null) {
+                throw new IllegalArgumentException("Event " + i + ": status is required");
+            }
+            long scannedAt = event.getScannedAt();
+            if (scannedAt != 0 && (scannedAt < oldest || scannedAt > newest)) {
+                throw new IllegalArgumentException("Event " + i + ": scan time is outside the last "
+                    + properties.getMaxEventAge().toDays() + " days");
+            }
+        }
+        if (events.isEmpty()) {
+            return true;
+        }
+
+        Lane lane = lanes.get(TenantContext.current());
+        inFlight.incrementAndGet();
+        try {
+            long sequence = accepting ? lane.buffer.claim(events.size()) : -1;
+            if (sequence < 0) {
+                lane.rejectedEvents.increment(events.size());
+                return false;
+            }
+            for (AttendanceEventDTO event : events) {
+                long scannedAt = event.getScannedAt() == 0 ? now : event.getScannedAt();
+                lane.buffer.put(sequence++, event.getStudentId(), event.getSectionId(), scannedAt,
+                    event.getStatus().code());
+            }
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        lane.acceptedEvents.increment(events.size());
+        if (lane.buffer.size() >= properties.getFlushSize()) {
+            LockSupport.unpark(flusher);
+        }
+        return true;
+    }
+
+    /**
+     * Attendance recorded for one session of a section, by student.
+     */
+    public List<AttendanceRecordDTO> getSession(Long sectionId, LocalDate date) {
+        if (jdbcTemplate.queryForList("SELECT id FROM course_sections WHERE id = ?", Long.class, sectionId).isEmpty()) {
+            throw new ResourceNotFoundException("Section", "id", sectionId);
+        }
+        return jdbcTemplate.query(SELECT_SESSION, (rs, row) -> new AttendanceRecordDTO(
+            rs.getLong("student_id"),
+            AttendanceStatus.valueOf(rs.getString("status")),
+            rs.getTimestamp("recorded_at").toInstant()), sectionId, date);
+    }
+
+    @Override
+    public void start() {
+        replaySpilled();
+        accepting = true;
+        running = true;
+        flusher = Thread.ofPlatform().name("attendance-flusher").daemon().start(this::runFlusher);
+    }
+
+    @Override
+    public void stop() {
+        shutdownDeadline = System.nanoTime() + properties.getShutdownTimeout().toNanos();
+        accepting = false;
+        LockSupport.unpark(flusher);
+        try {
+            // A write already under way may take up to the connection timeout on top
+            flusher.join(properties.getShutdownTimeout().plusSeconds(30));
+            if (flusher.isAlive()) {
+                log.error("Attendance flusher did not finish; {} queued events may be lost", queued());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before and stops after the web server, so every request it accepts is flushed.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void runFlusher() {
+        long intervalNanos = properties.getFlushInterval().toNanos();
+        while (accepting || inFlight.get() > 0 || queued() > 0 || writing()) {
+            if (accepting && !writing() && !flushDue()) {
+                LockSupport.parkNanos(this, intervalNanos);
+            }
+            boolean drained = false;
+            boolean failed = false;
+            for (Lane lane : lanes.values()) {
+                if (lane.pending == 0) {
+                    lane.pending = lane.buffer.drain(properties.getFlushSize(), lane.appendToCsv);
+                    if (lane.pending == 0) {
+                        continue;
+                    }
+                }
+                drained = true;
+                try {
+                    TenantContext.run(lane.tenant, () -> write(lane, lane.csv, lane.pending));
+                    lane.csv.setLength(0);
+                    lane.pending = 0;
+                } catch (RuntimeException e) {
+                    log.warn("Could not write {} attendance events of school {}: {}", lane.pending, lane.tenant,
+                        e.getMessage());
+                    failed = true;
+                }
+            }
+            if (failed) {
+                if (!accepting && System.nanoTime() - shutdownDeadline > 0) {
+                    spillRemaining();
+                    return;
+                }
+                LockSupport.parkNanos(this, properties.getRetryBackoff().toNanos());
+            } else if (!drained && !accepting) {
+                // A request is still between claiming and publishing its slots
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private int queued() {
+        int queued = 0;
+        for (Lane lane : lanes.values()) {
+            queued += lane.buffer.size();
+        }
+        return queued;
+    }
+
+    /**
+     * Whether a drained batch is still waiting to be written, after a failed attempt.
+     */
+    private boolean writing() {
+        for (Lane lane : lanes.values()) {
+            if (lane.pending > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean flushDue() {
+        for (Lane lane : lanes.values()) {
+            if (lane.buffer.size() >= properties.getFlushSize()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write one batch of the current school's events in its own transaction.
+     */
+    private void write(Lane lane, CharSequence rows, int events) {
+        long start = System.nanoTime();
+        long unknown = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(STAGE);
+            copyIn(rows);
+            Long dropped = jdbcTemplate.queryForObject(COUNT_UNKNOWN, Long.class);
+            jdbcTemplate.update(MERGE);
+            return dropped;
+        });
+        lane.flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        lane.writtenEvents.increment(events - unknown);
+        if (unknown > 0) {
+            lane.unknownEvents.increment(unknown);
+            log.warn("Dropped {} attendance events of school {} for unknown students or sections", unknown, lane.tenant);
+        }
+    }
+
+    private void copyIn(CharSequence rows) {
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                "COPY attendance_import (student_id, section_id, recorded_at_ms, status) FROM STDIN (FORMAT csv)");
+            try {
+                byte[] bytes = rows.toString().getBytes(StandardCharsets.US_ASCII);
+                copy.writeToCopy(bytes, 0, bytes.length);
+                return copy.endCopy();
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+        });
+    }
+
+    /**
+     * Shutdown ran out of time: everything still queued goes to a spill file per school.
+     */
+    private void spillRemaining() {
+        for (Lane lane : lanes.values()) {
+            while (lane.buffer.drain(Integer.MAX_VALUE, lane.appendToCsv) > 0) {
+                // Keep going until every published event is in the batch
+            }
+            if (lane.csv.isEmpty()) {
+                continue;
+            }
+            int events = (int) lane.csv.chars().filter(c -> c == '\n').count();
+            Path file = properties.getSpillDirectory()
+                .resolve("attendance-" + lane.tenant + "-" + System.currentTimeMillis() + ".csv");
+            try {
+                Files.createDirectories(properties.getSpillDirectory());
+                Files.writeString(file, lane.csv, StandardCharsets.US_ASCII, StandardOpenOption.CREATE_NEW);
+                log.warn("Spilled {} unwritten attendance events to {}", events, file);
+            } catch (IOException e) {
+                log.error("Lost {} attendance events: could not spill them to {}", events, file, e);
+            }
+            lane.csv.setLength(0);
+            lane.pending = 0;
+        }
+    }
+
+    /**
+     * Load whatever an earlier shutdown spilled. Files that fail to load stay for the next start.
+     */
+    private void replaySpilled() {
+        Path directory = properties.getSpillDirectory();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(".csv")).sorted().toList()) {
+                Lane lane = lanes.get(spilledBy(file));
+                if (lane == null) {
+                    log.error("Spilled attendance events in {} are for a school this node doesn't serve", file);
+                    continue;
+                }
+                String rows = Files.readString(file, StandardCharsets.US_ASCII);
+                int events = (int) rows.chars().filter(c -> c == '\n').count();
+                try {
+                    TenantContext.run(lane.tenant, () -> write(lane, rows, events));
+                    Files.delete(file);
+                    log.info("Loaded {} spilled attendance events from {}", events, file);
+                } catch (RuntimeException e) {
+                    log.error("Could not load spilled attendance events from {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.error("Could not read spilled attendance events from {}", directory, e);
+        }
+    }
+
+    /**
+     * School of a spill file named attendance-school-millis.csv; attendance-millis.csv is the default school's.
+     */
+    private static String spilledBy(Path file) {
+        String name = file.getFileName().toString();
+        name = name.substring(0, name.length() - ".csv".length());
+        int start = name.indexOf('-') + 1;
+        int end = name.lastIndexOf('-');
+        return end < start ? TenantContext.DEFAULT : name.substring(start, end);
+    }
+
+    /**
+     * One school's queue, the batch the flusher is writing for it, and its metrics.
+     */
+    private final class Lane {
+
+        private final String tenant;
+        private final AttendanceRingBuffer buffer;
+        /** Owned by the flusher thread: the batch being written, as COPY input, and its size. */
+        private final StringBuilder csv;
+        private final AttendanceRingBuffer.Consumer appendToCsv = this::appendCsv;
+        private int pending;
+
+        private final Counter acceptedEvents;
+        private final Counter rejectedEvents;
+        private final Counter writtenEvents;
+        private final Counter unknownEvents;
+        private final Timer flushTimer;
+
+        Lane(String tenant, MeterRegistry meterRegistry) {
+            this.tenant = tenant;
+            this.buffer = new AttendanceRingBuffer(properties.getBufferCapacity());
+            this.csv = new StringBuilder(properties.getFlushSize() * CSV_CHARS_PER_EVENT);
+
+            Gauge.builder("attendance.buffer.size", buffer, AttendanceRingBuffer::size)
+                .description("Attendance events queued and not yet written")
+                .tag("tenant", tenant)
+                .register(meterRegistry);
+            acceptedEvents = Counter.builder("attendance.events").tags("result", "accepted", "tenant", tenant)
+                .description("Attendance events received from devices").register(meterRegistry);
+            rejectedEvents = Counter.builder("attendance.events").tags("result", "rejected", "tenant", tenant)
+                .description("Attendance events received from devices").register(meterRegistry);
+            writtenEvents = Counter.builder("attendance.events.written").tag("tenant", tenant)
+                .description("Attendance events written to the database").register(meterRegistry);
+            unknownEvents = Counter.builder("attendance.events.unknown").tag("tenant", tenant)
+                .description("Attendance events dropped for an unknown student or section").register(meterRegistry);
+            flushTimer = Timer.builder("attendance.flush").tag("tenant", tenant)
+                .description("Time to write one batch of attendance events").register(meterRegistry);
+        }
+
+        private void appendCsv(long studentId, long sectionId, long recordedAtMillis, byte status) {
+            csv.append(studentId).append(',')
+                .append(sectionId).append(',')
+                .append(recordedAtMillis).append(',')
+                .append(AttendanceStatus.ofCode(status).name()).append('\n');
+        }
+    }
+}
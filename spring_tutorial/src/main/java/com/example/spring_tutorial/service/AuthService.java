@@ -1,10 +1,13 @@
 package com.example.spring_tutorial.service;
 
 import com.example.spring_tutorial.dto.UserRegistrationDTO;
+import com.example.spring_tutorial.event.DirectoryEvent;
 import com.example.spring_tutorial.exception.ResourceNotFoundException;
+import com.example.spring_tutorial.mapper.UserMapper;
 import com.example.spring_tutorial.model.User;
 import com.example.spring_tutorial.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,6 +23,8 @@ public class AuthService {
     
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserMapper userMapper;
     
     /**
      * Register a new user as a teacher.
@@ -37,15 +42,12 @@ public class AuthService {
         }
         
         // Create new user
-        User user = new User();
-        user.setFirstName(registrationDTO.getFirstName());
-        user.setLastName(registrationDTO.getLastName());
-        user.setEmail(registrationDTO.getEmail());
+        User user = userMapper.toUser(registrationDTO, User.Role.TEACHER);
         user.setPassword(passwordEncoder.encode(registrationDTO.getPassword()));
-        user.setRole(User.Role.TEACHER);
-        user.setDateOfBirth(registrationDTO.getDateOfBirth());
         
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(DirectoryEvent.of(savedUser, DirectoryEvent.Action.CREATED));
+        return savedUser;
     }
     
     /**
@@ -59,15 +61,12 @@ public class AuthService {
         }
         
         // Create new user
-        User user = new User();
-        user.setFirstName(registrationDTO.getFirstName());
-        user.setLastName(registrationDTO.getLastName());
-        user.setEmail(registrationDTO.getEmail());
+        User user = userMapper.toUser(registrationDTO, User.Role.STUDENT);
         user.setPassword(passwordEncoder.encode(registrationDTO.getPassword()));
-        user.setRole(User.Role.STUDENT);
-        user.setDateOfBirth(registrationDTO.getDateOfBirth());
         
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(DirectoryEvent.of(savedUser, DirectoryEvent.Action.CREATED));
+        return savedUser;
     }
     
     /**
@@ -96,14 +95,13 @@ public class AuthService {
      * Update user profile.
      */
     @Transactional
-    public User updateProfile(String email, User userDetails) {
+    public User updateProfile(String email, UserRegistrationDTO profile) {
         User user = getUserByEmail(email);
+        userMapper.updateProfile(profile, user);
         
-        user.setFirstName(userDetails.getFirstName());
-        user.setLastName(userDetails.getLastName());
-        user.setDateOfBirth(userDetails.getDateOfBirth());
-        
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        eventPublisher.publishEvent(DirectoryEvent.of(savedUser, DirectoryEvent.Action.UPDATED));
+        return savedUser;
     }
     
     /**
@@ -0,0 +1,29 @@
+package com.example.spring_tutorial.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Upper bound on the number of ids one multi-get request may ask for (app.api.max-batch-size),
+ * shared by the student, teacher and course lookups.
+ */
+@Component
+public class BatchSizeLimit {
+
+    private final int maxBatchSize;
+
+    public BatchSizeLimit(@Value("${app.api.max-batch-size:100}") int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * @throws IllegalArgumentException if there are more ids than one request may ask for
+     */
+    public void check(Collection<?> ids) {
+        if (ids.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " ids can be requested at once");
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.dto.CatalogImportDTO;
+import com.example.spring_tutorial.dto.CatalogImportResultDTO;
+import com.example.spring_tutorial.event.DirectoryEvent;
+import com.example.spring_tutorial.model.Department;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Bulk upsert of the course catalog, as reloaded from the registrar each term.
+ *
+ * Rows are streamed with COPY into temporary staging tables and then merged into
+ * departments and courses with one INSERT ... ON CONFLICT per table, keyed by code.
+ * A row whose values already match is left untouched, so it costs no write and is
+ * reported as unchanged. The whole load is one transaction: it applies completely or not at all.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogImportService {
+
+    private static final int COPY_BUFFER_CHARS = 64 * 1024;
+
+    private static final String STAGE_DEPARTMENTS = """
+        CREATE TEMP TABLE department_import (
+            code VARCHAR(10), name VARCHAR(100), description VARCHAR(500), established_date DATE
+        ) ON COMMIT DROP
+        """;
+
+    private static final String STAGE_COURSES = """
+        CREATE TEMP TABLE course_import (
+            code VARCHAR(20), name VARCHAR(100), credits INTEGER, description VARCHAR(1000),
+            department_code VARCHAR(10)
+        ) ON COMMIT DROP
+        """;
+
+    /**
+     * xmax is 0 only for a freshly inserted row, which tells inserts and updates apart.
+     */
+    private static final String MERGE_DEPARTMENTS = """
+        INSERT INTO departments AS d (code, name, description, established_date)
+        SELECT code, name, description, established_date FROM department_import
+        ON CONFLICT (code) WHERE deleted_at IS NULL DO UPDATE
+        SET name = EXCLUDED.name, description = EXCLUDED.description,
+            established_date = EXCLUDED.established_date
+        WHERE (d.name, d.description, d.established_date)
+            IS DISTINCT FROM (EXCLUDED.name, EXCLUDED.description, EXCLUDED.established_date)
+        RETURNING d.id, d.name, d.code, d.xmax = 0 AS inserted
+        """;
+
+    private static final String UNKNOWN_DEPARTMENTS = """
+        SELECT DISTINCT i.department_code FROM course_import i
+        WHERE i.department_code IS NOT NULL AND NOT EXISTS (
+            SELECT 1 FROM departments d WHERE d.code = i.department_code AND d.deleted_at IS NULL)
+        ORDER BY 1 LIMIT 10
+        """;
+
+    private static final String MERGE_COURSES = """
+        WITH merged AS (
+            INSERT INTO courses AS c (code, name, credits, description, department_id)
+            SELECT i.code, i.name, i.credits, i.description, d.id
+            FROM course_import i
+            LEFT JOIN departments d ON d.code = i.department_code AND d.deleted_at IS NULL
+            ON CONFLICT (code) DO UPDATE
+            SET name = EXCLUDED.name, credits = EXCLUDED.credits, description = EXCLUDED.description,
+                department_id = EXCLUDED.department_id
+            WHERE (c.name, c.credits, c.description, c.department_id)
+                IS DISTINCT FROM (EXCLUDED.name, EXCLUDED.credits, EXCLUDED.description, EXCLUDED.department_id)
+            RETURNING c.id, c.code, c.name, c.credits, c.department_id, c.xmax = 0 AS inserted
+        ), outbox AS (
+            INSERT INTO outbox_events (event_type, aggregate_id, payload)
+            SELECT CASE WHEN inserted THEN 'course.created' ELSE 'course.updated' END, id::text,
+                   jsonb_build_object('id', id, 'code', code, 'name', name, 'credits', credits,
+                                      'departmentId', department_id)
+            FROM merged
+        )
+        SELECT count(*) FILTER (WHERE inserted) AS inserted, count(*) FILTER (WHERE NOT inserted) AS updated
+        FROM merged
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.catalog.max-import-rows:50000}")
+    private int maxImportRows;
+
+    /**
+     * Insert or update the given departments and then the given courses.
+     *
+     * @throws IllegalArgumentException if the load is too large, repeats a code, refers to
+     *         an unknown department or clashes with an existing department name
+     */
+    @Transactional
+    public CatalogImportResultDTO importCatalog(CatalogImportDTO catalog) {
+        List<CatalogImportDTO.DepartmentRow> departments = catalog.getDepartments();
+        List<CatalogImportDTO.CourseRow> courses = catalog.getCourses();
+        if (departments.size() + courses.size() > maxImportRows) {
+            throw new IllegalArgumentException("At most " + maxImportRows + " rows can be imported at once");
+        }
+        requireUniqueCodes(departments, CatalogImportDTO.DepartmentRow::getCode, "department");
+        requireUniqueCodes(courses, CatalogImportDTO.CourseRow::getCode, "course");
+
+        long start = System.currentTimeMillis();
+        try {
+            CatalogImportResultDTO.Counts departmentCounts = importDepartments(departments);
+            CatalogImportResultDTO.Counts courseCounts = importCourses(courses);
+            long elapsed = System.currentTimeMillis() - start;
+            log.info("Catalog import: departments {}, courses {} in {} ms", departmentCounts, courseCounts, elapsed);
+            return new CatalogImportResultDTO(departmentCounts, courseCounts, elapsed);
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("Catalog conflicts with existing data: "
+                + e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private CatalogImportResultDTO.Counts importDepartments(List<CatalogImportDTO.DepartmentRow> departments) {
+        if (departments.isEmpty()) {
+            return new CatalogImportResultDTO.Counts();
+        }
+        jdbcTemplate.execute(STAGE_DEPARTMENTS);
+        copyIn("department_import (code, name, description, established_date)", departments,
+            row -> new Object[] {row.getCode(), row.getName(), row.getDescription(), row.getEstablishedDate()});
+
+        long inserted = 0;
+        List<Map<String, Object>> changed = jdbcTemplate.queryForList(MERGE_DEPARTMENTS);
+        for (Map<String, Object> row : changed) {
+            boolean isNew = (Boolean) row.get("inserted");
+            inserted += isNew ? 1 : 0;
+            // Keeps department names in the people directory and on the live pages current
+            Department department = new Department();
+            department.setId(((Number) row.get("id")).longValue());
+            department.setName((String) row.get("name"));
+            department.setCode((String) row.get("code"));
+            eventPublisher.publishEvent(DirectoryEvent.of(department,
+                isNew ? DirectoryEvent.Action.CREATED : DirectoryEvent.Action.UPDATED));
+        }
+        long updated = changed.size() - inserted;
+        return new CatalogImportResultDTO.Counts(inserted, updated, departments.size() - inserted - updated);
+    }
+
+    /**
+     * Course changes are not published as directory events: a term's load touches thousands
+     * of courses, too many to push to the live pages one by one. They show on the next page load.
+     * Each inserted or changed course is recorded in the outbox by the merge statement itself,
+     * with the same payload as CourseService uses.
+     */
+    private CatalogImportResultDTO.Counts importCourses(List<CatalogImportDTO.CourseRow> courses) {
+        if (courses.isEmpty()) {
+            return new CatalogImportResultDTO.Counts();
+        }
+        jdbcTemplate.execute(STAGE_COURSES);
+        copyIn("course_import (code, name, credits, description, department_code)", courses,
+            row -> new Object[] {row.getCode(), row.getName(), row.getCredits(), row.getDescription(),
+                row.getDepartmentCode() == null || row.getDepartmentCode().isBlank() ? null : row.getDepartmentCode()});
+
+        List<String> unknown = jdbcTemplate.queryForList(UNKNOWN_DEPARTMENTS, String.class);
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown department codes: " + String.join(", ", unknown));
+        }
+
+        Map<String, Object> merged = jdbcTemplate.queryForMap(MERGE_COURSES);
+        long inserted = ((Number) merged.get("inserted")).longValue();
+        long updated = ((Number) merged.get("updated")).longValue();
+        return new CatalogImportResultDTO.Counts(inserted, updated, courses.size() - inserted - updated);
+    }
+
+    /**
+     * Stream rows into a staging table as CSV, a buffer at a time.
+     */
+    private <T> void copyIn(String target, List<T> rows, Function<T, Object[]> columns) {
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("COPY " + target + " FROM STDIN (FORMAT csv)");
+            try {
+                StringBuilder buffer = new StringBuilder(COPY_BUFFER_CHARS + 1024);
+                for (T row : rows) {
+                    appendCsvLine(buffer, columns.apply(row));
+                    if (buffer.length() >= COPY_BUFFER_CHARS) {
+                        write(copy, buffer);
+                    }
+                }
+                write(copy, buffer);
+                return copy.endCopy();
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+        });
+    }
+
+    private static void write(CopyIn copy, StringBuilder buffer) throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    /**
+     * Null becomes an empty unquoted field, which COPY reads as NULL; every value is quoted.
+     */
+    static void appendCsvLine(StringBuilder line, Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            if (values[i] != null) {
+                String value = values[i].toString();
+                line.append('"');
+                for (int c = 0; c < value.length(); c++) {
+                    char ch = value.charAt(c);
+                    if (ch == '"') {
+                        line.append('"');
+                    }
+                    line.append(ch);
+                }
+                line.append('"');
+            }
+        }
+        line.append('\n');
+    }
+
+    static <T> void requireUniqueCodes(List<T> rows, Function<T, String> code, String kind) {
+        Set<String> seen = new HashSet<>(rows.size() * 2);
+        for (T row : rows) {
+            if (!seen.add(code.apply(row))) {
+                throw new IllegalArgumentException("Duplicate " + kind + " code in import: " + code.apply(row));
+            }
+        }
+    }
+}
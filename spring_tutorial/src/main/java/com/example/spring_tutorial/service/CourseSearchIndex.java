@@ -0,0 +1,91 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.dto.CourseSummaryDTO;
+import com.example.spring_tutorial.outbox.OutboxEvent;
+import com.example.spring_tutorial.outbox.OutboxHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * Full-text search over course codes and names, in the course_search table.
+ *
+ * Fed by the course.* outbox events, whether the change came from CourseService or a
+ * catalogue import, so a course shows up in search shortly after it is committed rather
+ * than at once. Each row remembers the last event applied to it and older events are
+ * dropped, which makes late and repeated deliveries harmless.
+ */
+@Service
+@RequiredArgsConstructor
+public class CourseSearchIndex implements OutboxHandler {
+
+    /**
+     * Takes (course id, code, name, credits, department id, deleted, event id).
+     */
+    private static final String APPLY = """
+        INSERT INTO course_search (course_id, code, name, credits, department_id, deleted, event_id)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+        ON CONFLICT (course_id) DO UPDATE
+        SET code = EXCLUDED.code, name = EXCLUDED.name, credits = EXCLUDED.credits,
+            department_id = EXCLUDED.department_id, deleted = EXCLUDED.deleted, event_id = EXCLUDED.event_id
+        WHERE course_search.event_id < EXCLUDED.event_id
+        """;
+
+    /**
+     * Takes (query, query, limit). Courses of deleted departments are left out, as they are everywhere else.
+     */
+    private static final String SEARCH = """
+        SELECT s.course_id AS id, s.name, s.code, s.credits
+        FROM course_search s, websearch_to_tsquery('simple', ?) q
+        WHERE NOT s.deleted AND s.document @@ q
+          AND (s.department_id IS NULL
+               OR s.department_id NOT IN (SELECT d.id FROM departments d WHERE d.deleted_at IS NOT NULL))
+        ORDER BY ts_rank(s.document, q) DESC, s.code
+        LIMIT ?
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Courses whose code or name match the words of the query, best matches first.
+     */
+    public List<CourseSummaryDTO> search(String query, int limit) {
+        if (limit < 1 || limit > 100) {
+            throw new IllegalArgumentException("limit must be between 1 and 100");
+        }
+        return jdbcTemplate.query(SEARCH, PrerequisiteService.COURSE_SUMMARY, query, limit);
+    }
+
+    @Override
+    public String name() {
+        return "course-search";
+    }
+
+    @Override
+    public boolean handles(String eventType) {
+        return eventType.equals(OutboxEvent.COURSE_CREATED) || eventType.equals(OutboxEvent.COURSE_UPDATED)
+            || eventType.equals(OutboxEvent.COURSE_DELETED);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        JsonNode course = event.payload();
+        boolean deleted = event.type().equals(OutboxEvent.COURSE_DELETED);
+        jdbcTemplate.update(APPLY, Long.parseLong(event.aggregateId()), text(course, "code"),
+            deleted ? null : text(course, "name"), deleted ? null : number(course, "credits"),
+            deleted ? null : number(course, "departmentId"), deleted, event.id());
+    }
+
+    private static String text(JsonNode course, String field) {
+        JsonNode value = course.get(field);
+        return value == null || value.isNull() ? null : value.asString();
+    }
+
+    private static Long number(JsonNode course, String field) {
+        JsonNode value = course.get(field);
+        return value == null || value.isNull() ? null : value.asLong();
+    }
+}
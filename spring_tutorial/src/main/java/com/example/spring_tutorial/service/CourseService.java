@@ -1,15 +1,23 @@
 package com.example.spring_tutorial.service;
 
+import com.example.spring_tutorial.dto.BatchItem;
+import com.example.spring_tutorial.event.DirectoryEvent;
 import com.example.spring_tutorial.exception.ResourceNotFoundException;
 import com.example.spring_tutorial.model.Course;
 import com.example.spring_tutorial.model.Department;
+import com.example.spring_tutorial.outbox.OutboxEvent;
+import com.example.spring_tutorial.outbox.OutboxPublisher;
 import com.example.spring_tutorial.repository.CourseRepository;
 import com.example.spring_tutorial.repository.DepartmentRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service for Course CRUD operations.
@@ -20,6 +28,9 @@ public class CourseService {
     
     private final CourseRepository courseRepository;
     private final DepartmentRepository departmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OutboxPublisher outboxPublisher;
+    private final BatchSizeLimit batchSizeLimit;
     
     /**
      * Create a new course.
@@ -36,7 +47,10 @@ public class CourseService {
             course.setDepartment(department);
         }
         
-        return courseRepository.save(course);
+        Course savedCourse = courseRepository.save(course);
+        eventPublisher.publishEvent(DirectoryEvent.of(savedCourse, DirectoryEvent.Action.CREATED));
+        outboxPublisher.publish(OutboxEvent.COURSE_CREATED, savedCourse.getId(), outboxPayload(savedCourse));
+        return savedCourse;
     }
     
     /**
@@ -54,6 +68,16 @@ public class CourseService {
             .orElseThrow(() -> new ResourceNotFoundException("Course", "id", id));
     }
     
+    /**
+     * Get courses by a list of IDs in one query, in request order.
+     * IDs with no matching course come back as not-found entries.
+     */
+    public List<BatchItem<Course>> getCoursesByIds(List<Long> ids) {
+        batchSizeLimit.check(ids);
+        List<Course> courses = courseRepository.findAllById(new LinkedHashSet<>(ids));
+        return BatchItem.inRequestOrder(ids, courses, Course::getId);
+    }
+    
     /**
      * Update course by ID.
      */
@@ -72,7 +96,10 @@ public class CourseService {
             course.setDepartment(department);
         }
         
-        return courseRepository.save(course);
+        Course savedCourse = courseRepository.save(course);
+        eventPublisher.publishEvent(DirectoryEvent.of(savedCourse, DirectoryEvent.Action.UPDATED));
+        outboxPublisher.publish(OutboxEvent.COURSE_UPDATED, savedCourse.getId(), outboxPayload(savedCourse));
+        return savedCourse;
     }
     
     /**
@@ -82,6 +109,22 @@ public class CourseService {
     public void deleteCourse(Long id) {
         Course course = getCourseById(id);
         courseRepository.delete(course);
+        eventPublisher.publishEvent(DirectoryEvent.of(course, DirectoryEvent.Action.DELETED));
+        outboxPublisher.publish(OutboxEvent.COURSE_DELETED, course.getId(),
+            Map.of("id", course.getId(), "code", course.getCode()));
+    }
+    
+    /**
+     * Course fields sent to outbox handlers. CatalogImportService builds the same shape in SQL.
+     */
+    private static Map<String, Object> outboxPayload(Course course) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", course.getId());
+        payload.put("code", course.getCode());
+        payload.put("name", course.getName());
+        payload.put("credits", course.getCredits());
+        payload.put("departmentId", course.getDepartment() != null ? course.getDepartment().getId() : null);
+        return payload;
     }
 }
 
@@ -0,0 +1,102 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.event.BulkChange;
+import com.example.spring_tutorial.tenancy.TenantRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Background removal of soft-deleted departments and everything that belongs to them.
+ *
+ * Rows are deleted with set-based statements, at most chunkSize rows per statement,
+ * and each statement commits on its own. Locks are therefore held only briefly, and an
+ * interrupted purge carries on where it stopped the next time the job runs.
+ * Only one node purges a school at a time; the others skip the run.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DepartmentPurgeService {
+
+    /**
+     * Children first, so no statement trips a foreign key. Each takes (department id, chunk size).
+     */
+    private static final List<String> CHUNK_DELETES = List.of(
+        """
+        DELETE FROM student_courses WHERE (student_id, course_id) IN (
+            SELECT sc.student_id, sc.course_id FROM student_courses sc
+            JOIN students s ON s.id = sc.student_id WHERE s.department_id = ? LIMIT ?)
+        """,
+        """
+        DELETE FROM student_courses WHERE (student_id, course_id) IN (
+            SELECT sc.student_id, sc.course_id FROM student_courses sc
+            JOIN courses c ON c.id = sc.course_id WHERE c.department_id = ? LIMIT ?)
+        """,
+        """
+        DELETE FROM teacher_courses WHERE (teacher_id, course_id) IN (
+            SELECT tc.teacher_id, tc.course_id FROM teacher_courses tc
+            JOIN teachers t ON t.id = tc.teacher_id WHERE t.department_id = ? LIMIT ?)
+        """,
+        """
+        DELETE FROM teacher_courses WHERE (teacher_id, course_id) IN (
+            SELECT tc.teacher_id, tc.course_id FROM teacher_courses tc
+            JOIN courses c ON c.id = tc.course_id WHERE c.department_id = ? LIMIT ?)
+        """,
+        "DELETE FROM students WHERE id IN (SELECT id FROM students WHERE department_id = ? LIMIT ?)",
+        "DELETE FROM teachers WHERE id IN (SELECT id FROM teachers WHERE department_id = ? LIMIT ?)",
+        "DELETE FROM courses WHERE id IN (SELECT id FROM courses WHERE department_id = ? LIMIT ?)"
+    );
+
+    private final ScheduledJobLock jobLock;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TenantRegistry tenants;
+
+    @Value("${app.departments.purge-chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Purge every department that has been marked as deleted, school by school.
+     */
+    @Scheduled(fixedDelayString = "${app.departments.purge-interval:1m}")
+    public void purgeDeletedDepartments() {
+        tenants.forEach(this::purgeDeleted);
+    }
+
+    private void purgeDeleted() {
+        List<Long> purged = new ArrayList<>();
+        jobLock.runIfFree("department-purge", jdbcTemplate -> {
+            for (Long id : jdbcTemplate.queryForList(
+                    "SELECT id FROM departments WHERE deleted_at IS NOT NULL ORDER BY deleted_at", Long.class)) {
+                purge(jdbcTemplate, id);
+                purged.add(id);
+            }
+        });
+        if (!purged.isEmpty()) {
+            // Courses (with their prerequisites) are gone from the database now
+            eventPublisher.publishEvent(BulkChange.local("department-purge"));
+        }
+    }
+
+    private void purge(JdbcTemplate jdbcTemplate, long departmentId) {
+        long start = System.currentTimeMillis();
+        long rows = 0;
+        for (String sql : CHUNK_DELETES) {
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(sql, departmentId, chunkSize);
+                rows += deleted;
+            } while (deleted == chunkSize);
+        }
+        jdbcTemplate.update("DELETE FROM departments WHERE id = ? AND deleted_at IS NOT NULL", departmentId);
+        log.info("Purged department {} ({} dependent rows) in {} ms",
+            departmentId, rows, System.currentTimeMillis() - start);
+    }
+}
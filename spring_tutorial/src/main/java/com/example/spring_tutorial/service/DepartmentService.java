@@ -1,12 +1,15 @@
 package com.example.spring_tutorial.service;
 
+import com.example.spring_tutorial.event.DirectoryEvent;
 import com.example.spring_tutorial.exception.ResourceNotFoundException;
 import com.example.spring_tutorial.model.Department;
 import com.example.spring_tutorial.repository.DepartmentRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -17,6 +20,7 @@ import java.util.List;
 public class DepartmentService {
     
     private final DepartmentRepository departmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
     /**
      * Create a new department.
@@ -29,7 +33,9 @@ public class DepartmentService {
         if (departmentRepository.existsByName(department.getName())) {
             throw new IllegalArgumentException("Department with name already exists: " + department.getName());
         }
-        return departmentRepository.save(department);
+        Department savedDepartment = departmentRepository.save(department);
+        eventPublisher.publishEvent(DirectoryEvent.of(savedDepartment, DirectoryEvent.Action.CREATED));
+        return savedDepartment;
     }
     
     /**
@@ -59,16 +65,23 @@ public class DepartmentService {
         department.setEstablishedDate(departmentDetails.getEstablishedDate());
         department.setDescription(departmentDetails.getDescription());
         
-        return departmentRepository.save(department);
+        Department savedDepartment = departmentRepository.save(department);
+        eventPublisher.publishEvent(DirectoryEvent.of(savedDepartment, DirectoryEvent.Action.UPDATED));
+        return savedDepartment;
     }
     
     /**
      * Delete department by ID.
+     * The department is only marked as deleted here, which hides it and its teachers and
+     * students at once; they and its courses are removed shortly afterwards by
+     * {@link DepartmentPurgeService}.
      */
     @Transactional
     public void deleteDepartment(Long id) {
         Department department = getDepartmentById(id);
-        departmentRepository.delete(department);
+        department.setDeletedAt(LocalDateTime.now());
+        departmentRepository.save(department);
+        eventPublisher.publishEvent(DirectoryEvent.of(department, DirectoryEvent.Action.DELETED));
     }
 }
 
@@ -0,0 +1,91 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.dto.CourseSummaryDTO;
+import com.example.spring_tutorial.dto.EligibilityDTO;
+import com.example.spring_tutorial.exception.ResourceNotFoundException;
+import com.example.spring_tutorial.exception.UnauthorizedAccessException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Service for enrolling students in courses and recording completions.
+ * A student may enroll once every prerequisite in the course's chain, direct or
+ * indirect, is completed; the check runs against {@link PrerequisiteIndex}.
+ */
+@Service
+@RequiredArgsConstructor
+public class EnrollmentService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PrerequisiteIndex prerequisiteIndex;
+    private final PrerequisiteService prerequisiteService;
+
+    /**
+     * Whether a student may enroll in a course.
+     */
+    public EligibilityDTO checkEligibility(Long studentId, Long courseId) {
+        requireStudent(studentId);
+        prerequisiteService.requireCourse(courseId);
+        List<Long> completed = jdbcTemplate.queryForList(
+            "SELECT course_id FROM student_courses WHERE student_id = ? AND completed_on IS NOT NULL",
+            Long.class, studentId);
+        List<CourseSummaryDTO> missing = prerequisiteService.getCourseSummaries(
+            prerequisiteIndex.missingPrerequisites(courseId, completed));
+        return new EligibilityDTO(studentId, courseId, missing.isEmpty(), missing);
+    }
+
+    /**
+     * Enroll a student in a course. Students enroll themselves; teachers may enroll anyone.
+     *
+     * @throws IllegalArgumentException if prerequisites are missing or the student is already enrolled
+     */
+    @Transactional
+    public void enroll(Long studentId, Long courseId, String requesterEmail) {
+        if (!requesterEmail.equals(requireStudent(studentId)) && !isTeacher(requesterEmail)) {
+            throw new UnauthorizedAccessException("Students can only enroll themselves");
+        }
+        EligibilityDTO eligibility = checkEligibility(studentId, courseId);
+        if (!eligibility.isEligible()) {
+            throw new IllegalArgumentException("Missing prerequisites: " + eligibility.getMissingPrerequisites()
+                .stream().map(CourseSummaryDTO::getCode).collect(Collectors.joining(", ")));
+        }
+        int inserted = jdbcTemplate.update("INSERT INTO student_courses (student_id, course_id) VALUES (?, ?) "
+            + "ON CONFLICT DO NOTHING", studentId, courseId);
+        if (inserted == 0) {
+            throw new IllegalArgumentException("Student " + studentId + " is already enrolled in course " + courseId);
+        }
+    }
+
+    /**
+     * Mark a student's enrollment in a course as completed today.
+     *
+     * @throws IllegalArgumentException if the student is not enrolled in the course
+     */
+    @Transactional
+    public void complete(Long studentId, Long courseId) {
+        int updated = jdbcTemplate.update("UPDATE student_courses SET completed_on = COALESCE(completed_on, CURRENT_DATE) "
+            + "WHERE student_id = ? AND course_id = ?", studentId, courseId);
+        if (updated == 0) {
+            throw new IllegalArgumentException("Student " + studentId + " is not enrolled in course " + courseId);
+        }
+    }
+
+    /**
+     * Email of the student.
+     */
+    private String requireStudent(Long studentId) {
+        return jdbcTemplate.queryForList("SELECT email FROM students WHERE id = ?", String.class, studentId).stream()
+            .findFirst()
+            .orElseThrow(() -> new ResourceNotFoundException("Student", "id", studentId));
+    }
+
+    private boolean isTeacher(String email) {
+        return !jdbcTemplate.queryForList("SELECT id FROM users WHERE email = ? AND role = 'TEACHER'",
+            Long.class, email).isEmpty();
+    }
+}
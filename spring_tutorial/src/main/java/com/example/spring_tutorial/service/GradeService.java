@@ -0,0 +1,375 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.dto.GradeStatsDTO;
+import com.example.spring_tutorial.dto.GradeSubmissionDTO;
+import com.example.spring_tutorial.dto.GradeSubmissionResultDTO;
+import com.example.spring_tutorial.exception.ResourceNotFoundException;
+import com.example.spring_tutorial.exception.UnauthorizedAccessException;
+import com.example.spring_tutorial.grades.Grade;
+import com.example.spring_tutorial.grades.GradeDeltas;
+import com.example.spring_tutorial.tenancy.TenantContext;
+import com.example.spring_tutorial.tenancy.TenantRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Records grades on enrolments and serves the running totals built from them.
+ *
+ * A submission locks its enrolments, works out how each grade change moves the totals
+ * of the student, the course and the course's department, and applies those differences
+ * with batched upserts in the same transaction. Reading a GPA or a course's average and
+ * distribution is then one primary key lookup, however many grades lie behind it.
+ * Enrolments removed by other means (purged departments, deleted students) are taken out
+ * of the course and department totals by the nightly reconcile, which recomputes every
+ * total from the recorded grades. An archived cohort keeps its grades in
+ * student_courses_archive, where they still count towards their courses and departments.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GradeService {
+
+    /**
+     * Locks the submitted enrolments in key order, so concurrent submissions can't deadlock,
+     * and reads their current grade and their course's credits and department.
+     * Takes (student ids, course ids) as matching arrays.
+     */
+    private static final String LOCK_ENROLMENTS = """
+        SELECT sc.student_id, sc.course_id, sc.grade, sc.graded_credits, c.credits, c.department_id
+        FROM student_courses sc
+        JOIN unnest(?::bigint[], ?::bigint[]) AS k (student_id, course_id)
+            ON k.student_id = sc.student_id AND k.course_id = sc.course_id
+        JOIN courses c ON c.id = sc.course_id
+        ORDER BY sc.student_id, sc.course_id
+        FOR UPDATE OF sc
+        """;
+
+    /**
+     * A passing grade completes the course; a failing one withdraws any completion.
+     */
+    private static final String UPDATE_GRADE = """
+        UPDATE student_courses
+        SET grade = ?, grade_points = ?, graded_credits = ?,
+            completed_on = CASE WHEN ? THEN COALESCE(completed_on, CURRENT_DATE) END
+        WHERE student_id = ? AND course_id = ?
+        """;
+
+    /**
+     * Adds a difference to one totals row. Takes the table and its key column.
+     */
+    private static final String ADD_TOTALS = """
+        INSERT INTO %1$s AS t (%2$s, graded_count, graded_credits, points_sum, weighted_points)
+        VALUES (?, ?, ?, ?, ?)
+        ON CONFLICT (%2$s) DO UPDATE
+        SET graded_count = t.graded_count + EXCLUDED.graded_count,
+            graded_credits = t.graded_credits + EXCLUDED.graded_credits,
+            points_sum = t.points_sum + EXCLUDED.points_sum,
+            weighted_points = t.weighted_points + EXCLUDED.weighted_points
+        """;
+
+    private static final String ADD_DISTRIBUTION = """
+        INSERT INTO course_grade_distribution AS g (course_id, grade, students) VALUES (?, ?, ?)
+        ON CONFLICT (course_id, grade) DO UPDATE SET students = g.students + EXCLUDED.students
+        """;
+
+    /**
+     * Takes the owning table, the totals table, its key column and an extra owner condition.
+     */
+    private static final String SELECT_TOTALS = """
+        SELECT g.graded_count, g.graded_credits, g.points_sum, g.weighted_points
+        FROM %1$s o LEFT JOIN %2$s g ON g.%3$s = o.id
+        WHERE o.id = ?%4$s
+        """;
+
+    /**
+     * Live and archived enrolments, for the totals archived grades still count towards.
+     */
+    private static final String ALL_ENROLMENTS = """
+        (SELECT student_id, course_id, grade, grade_points, graded_credits FROM student_courses
+         UNION ALL
+         SELECT student_id, course_id, grade, grade_points, graded_credits FROM student_courses_archive)""";
+
+    /**
+     * Takes the totals table, its key column, the expression it groups enrolments by and the enrolments.
+     */
+    private static final String RECOMPUTE_TOTALS = """
+        INSERT INTO %1$s (%2$s, graded_count, graded_credits, points_sum, weighted_points)
+        SELECT %3$s, count(*), sum(sc.graded_credits), sum(sc.grade_points),
+               sum(sc.grade_points * sc.graded_credits)
+        FROM %4$s sc JOIN courses c ON c.id = sc.course_id
+        WHERE sc.grade IS NOT NULL AND %3$s IS NOT NULL
+        GROUP BY %3$s
+        """;
+
+    private static final String RECOMPUTE_DISTRIBUTION = """
+        INSERT INTO course_grade_distribution (course_id, grade, students)
+        SELECT sc.course_id, sc.grade, count(*)
+        FROM %s sc JOIN courses c ON c.id = sc.course_id
+        WHERE sc.grade IS NOT NULL
+        GROUP BY sc.course_id, sc.grade
+        """.formatted(ALL_ENROLMENTS);
+
+    private static final int MAX_REPORTED_ROWS = 10;
+
+    /**
+     * The levels grades are totalled at, in the order their totals are written.
+     */
+    private enum Scope {
+        // An archived student has no totals of their own any more
+        STUDENT("Student", "students", "student_grade_stats", "student_id", "sc.student_id", "",
+            "student_courses"),
+        COURSE("Course", "courses", "course_grade_stats", "course_id", "sc.course_id", "", ALL_ENROLMENTS),
+        DEPARTMENT("Department", "departments", "department_grade_stats", "department_id", "c.department_id",
+            " AND o.deleted_at IS NULL", ALL_ENROLMENTS);
+
+        private final String resource;
+        private final String ownerTable;
+        private final String table;
+        private final String keyColumn;
+        private final String groupBy;
+        private final String ownerCondition;
+        private final String enrolments;
+
+        Scope(String resource, String ownerTable, String table, String keyColumn, String groupBy,
+              String ownerCondition, String enrolments) {
+            this.resource = resource;
+            this.ownerTable = ownerTable;
+            this.table = table;
+            this.keyColumn = keyColumn;
+            this.groupBy = groupBy;
+            this.ownerCondition = ownerCondition;
+            this.enrolments = enrolments;
+        }
+    }
+
+    private record Enrolment(long studentId, long courseId) {
+        @Override
+        public String toString() {
+            return "student " + studentId + " in course " + courseId;
+        }
+    }
+
+    private record GradeChange(Enrolment enrolment, Grade grade, int credits) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TenantRegistry tenants;
+
+    @Value("${app.grades.max-submission-rows:10000}")
+    private int maxSubmissionRows;
+
+    @Value("${app.grades.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Record the given grades, replacing any already held. The submission applies completely or not at all.
+     *
+     * @throws IllegalArgumentException if the submission is too large, has an unknown grade,
+     *         grades an enrolment twice or grades a student in a course they don't take
+     */
+    @Transactional
+    public GradeSubmissionResultDTO submitGrades(List<GradeSubmissionDTO.GradeRow> rows) {
+        if (rows.size() > maxSubmissionRows) {
+            throw new IllegalArgumentException("At most " + maxSubmissionRows + " grades can be submitted at once");
+        }
+        Map<Enrolment, Grade> submitted = new LinkedHashMap<>();
+        for (GradeSubmissionDTO.GradeRow row : rows) {
+            Enrolment enrolment = new Enrolment(row.getStudentId(), row.getCourseId());
+            if (submitted.put(enrolment, Grade.ofLetter(row.getGrade())) != null) {
+                throw new IllegalArgumentException("Grade submitted twice for " + enrolment);
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        Long[] studentIds = submitted.keySet().stream().map(Enrolment::studentId).toArray(Long[]::new);
+        Long[] courseIds = submitted.keySet().stream().map(Enrolment::courseId).toArray(Long[]::new);
+        Set<Enrolment> found = new HashSet<>();
+        List<GradeChange> changes = new ArrayList<>();
+        GradeDeltas deltas = new GradeDeltas();
+        jdbcTemplate.query(LOCK_ENROLMENTS, rs -> {
+            Enrolment enrolment = new Enrolment(rs.getLong("student_id"), rs.getLong("course_id"));
+            found.add(enrolment);
+            String previousLetter = rs.getString("grade");
+            Grade previous = previousLetter == null ? null : Grade.ofLetter(previousLetter);
+            int previousCredits = rs.getInt("graded_credits");
+            Grade grade = submitted.get(enrolment);
+            int credits = rs.getInt("credits");
+            if (grade == previous && credits == previousCredits) {
+                return;
+            }
+            deltas.record(enrolment.studentId(), enrolment.courseId(), rs.getObject("department_id", Long.class),
+                previous, previousCredits, grade, credits);
+            changes.add(new GradeChange(enrolment, grade, credits));
+        }, studentIds, courseIds);
+
+        if (found.size() < submitted.size()) {
+            throw new IllegalArgumentException("Not enrolled: " + submitted.keySet().stream()
+                .filter(enrolment -> !found.contains(enrolment))
+                .limit(MAX_REPORTED_ROWS)
+                .map(Enrolment::toString)
+                .collect(Collectors.joining(", ")));
+        }
+
+        jdbcTemplate.batchUpdate(UPDATE_GRADE, changes, batchSize, (ps, change) -> {
+            ps.setString(1, change.grade().letter());
+            ps.setInt(2, change.grade().points());
+            ps.setInt(3, change.credits());
+            ps.setBoolean(4, change.grade().isPassing());
+            ps.setLong(5, change.enrolment().studentId());
+            ps.setLong(6, change.enrolment().courseId());
+        });
+        addTotals(Scope.STUDENT, deltas.students());
+        addTotals(Scope.COURSE, deltas.courses());
+        addTotals(Scope.DEPARTMENT, deltas.departments());
+        addDistributions(deltas.distributions());
+
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("Recorded {} grades ({} unchanged) in {} ms", changes.size(), submitted.size() - changes.size(), elapsed);
+        return new GradeSubmissionResultDTO(changes.size(), submitted.size() - changes.size(), elapsed);
+    }
+
+    /**
+     * GPA and average of a student. Students see their own; teachers see anyone's.
+     */
+    public GradeStatsDTO getStudentStats(Long studentId, String requesterEmail) {
+        List<String> email = jdbcTemplate.queryForList("SELECT email FROM students WHERE id = ?", String.class, studentId);
+        if (email.isEmpty()) {
+            throw new ResourceNotFoundException("Student", "id", studentId);
+        }
+        if (!requesterEmail.equals(email.get(0)) && !isTeacher(requesterEmail)) {
+            throw new UnauthorizedAccessException("Students can only see their own grades");
+        }
+        return getStats(Scope.STUDENT, studentId);
+    }
+
+    /**
+     * Average of a course and how many students hold each grade.
+     */
+    public GradeStatsDTO getCourseStats(Long courseId) {
+        GradeStatsDTO stats = getStats(Scope.COURSE, courseId);
+        Map<String, Integer> distribution = new LinkedHashMap<>();
+        for (Grade grade : Grade.values()) {
+            distribution.put(grade.letter(), 0);
+        }
+        jdbcTemplate.query("SELECT grade, students FROM course_grade_distribution WHERE course_id = ?",
+            rs -> {
+                distribution.put(rs.getString("grade"), rs.getInt("students"));
+            }, courseId);
+        stats.setDistribution(distribution);
+        return stats;
+    }
+
+    /**
+     * Average and credit-weighted average over every grade given in a department's courses.
+     */
+    public GradeStatsDTO getDepartmentStats(Long departmentId) {
+        return getStats(Scope.DEPARTMENT, departmentId);
+    }
+
+    /**
+     * Recompute every total from the recorded grades, each school in its own transaction.
+     * Submissions wait while this runs; reads carry on and see the old totals until it commits.
+     */
+    @Scheduled(cron = "${app.grades.reconcile-cron:0 0 4 * * *}")
+    public void reconcile() {
+        tenants.forEach(() -> transactionTemplate.executeWithoutResult(status -> reconcileTotals()));
+    }
+
+    private void reconcileTotals() {
+        long start = System.currentTimeMillis();
+        // Same order as a submission writes them
+        jdbcTemplate.execute("LOCK TABLE student_grade_stats, course_grade_stats, department_grade_stats, "
+            + "course_grade_distribution IN EXCLUSIVE MODE");
+        for (Scope scope : Scope.values()) {
+            jdbcTemplate.update("DELETE FROM " + scope.table);
+            jdbcTemplate.update(RECOMPUTE_TOTALS.formatted(scope.table, scope.keyColumn, scope.groupBy, scope.enrolments));
+        }
+        jdbcTemplate.update("DELETE FROM course_grade_distribution");
+        jdbcTemplate.update(RECOMPUTE_DISTRIBUTION);
+        log.info("Reconciled grade totals of school {} in {} ms", TenantContext.current(),
+            System.currentTimeMillis() - start);
+    }
+
+    private GradeStatsDTO getStats(Scope scope, Long id) {
+        List<GradeStatsDTO> found = jdbcTemplate.query(
+            SELECT_TOTALS.formatted(scope.ownerTable, scope.table, scope.keyColumn, scope.ownerCondition),
+            (rs, row) -> {
+                GradeStatsDTO stats = new GradeStatsDTO();
+                stats.setId(id);
+                int count = rs.getInt("graded_count");
+                long credits = rs.getLong("graded_credits");
+                stats.setGraded(count);
+                stats.setGradedCredits(credits);
+                stats.setAveragePoints(toGradePoints(rs.getLong("points_sum"), count));
+                stats.setGpa(toGradePoints(rs.getLong("weighted_points"), credits));
+                return stats;
+            }, id);
+        if (found.isEmpty()) {
+            throw new ResourceNotFoundException(scope.resource, "id", id);
+        }
+        return found.get(0);
+    }
+
+    /**
+     * Hundredths of a point over a count, as grade points to two places; null for nothing graded.
+     */
+    private static BigDecimal toGradePoints(long hundredths, long over) {
+        if (over == 0) {
+            return null;
+        }
+        return BigDecimal.valueOf(hundredths).divide(BigDecimal.valueOf(over * 100), 2, RoundingMode.HALF_UP);
+    }
+
+    private void addTotals(Scope scope, Map<Long, GradeDeltas.Totals> totals) {
+        List<Map.Entry<Long, GradeDeltas.Totals>> changed = totals.entrySet().stream()
+            .filter(entry -> !entry.getValue().isZero())
+            .toList();
+        jdbcTemplate.batchUpdate(ADD_TOTALS.formatted(scope.table, scope.keyColumn), changed, batchSize,
+            (ps, entry) -> {
+                ps.setLong(1, entry.getKey());
+                ps.setInt(2, entry.getValue().count());
+                ps.setLong(3, entry.getValue().credits());
+                ps.setLong(4, entry.getValue().points());
+                ps.setLong(5, entry.getValue().weightedPoints());
+            });
+    }
+
+    private void addDistributions(Map<Long, int[]> distributions) {
+        Grade[] grades = Grade.values();
+        List<Object[]> changed = new ArrayList<>();
+        distributions.forEach((courseId, counts) -> {
+            for (Grade grade : grades) {
+                if (counts[grade.ordinal()] != 0) {
+                    changed.add(new Object[] {courseId, grade.letter(), counts[grade.ordinal()]});
+                }
+            }
+        });
+        jdbcTemplate.batchUpdate(ADD_DISTRIBUTION, changed, batchSize, (ps, row) -> {
+            ps.setLong(1, (Long) row[0]);
+            ps.setString(2, (String) row[1]);
+            ps.setInt(3, (Integer) row[2]);
+        });
+    }
+
+    private boolean isTeacher(String email) {
+        return !jdbcTemplate.queryForList("SELECT id FROM users WHERE email = ? AND role = 'TEACHER'",
+            Long.class, email).isEmpty();
+    }
+}
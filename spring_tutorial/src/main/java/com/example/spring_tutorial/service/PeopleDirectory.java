@@ -0,0 +1,607 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.dto.PersonDTO;
+import com.example.spring_tutorial.dto.UserSummaryDTO;
+import com.example.spring_tutorial.event.BulkChange;
+import com.example.spring_tutorial.event.DirectoryEvent;
+import com.example.spring_tutorial.model.Department;
+import com.example.spring_tutorial.model.User;
+import com.example.spring_tutorial.tenancy.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Read-optimized, in-memory directory of all people: the users row merged with
+ * the student or teacher profile of the same email and its department name.
+ *
+ * Built once from the database, then kept current from the service layer's
+ * {@link DirectoryEvent}s, re-reading only the person that changed. Reads never
+ * touch the database. A periodic rebuild picks up writes made on other nodes.
+ *
+ * Storage is one slot per email across parallel arrays, plus per-role slot
+ * lists ordered by user id for the paged directory tables. Each school has a directory
+ * of its own, built the first time that school uses it.
+ */
+@Service
+@Slf4j
+public class PeopleDirectory {
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final byte NONE = 0;
+    private static final byte TEACHER = 1;
+    private static final byte STUDENT = 2;
+
+    private static final String USER_COLUMNS =
+        "SELECT id, email, first_name, last_name, role, date_of_birth, created_at FROM users";
+    private static final String STUDENT_COLUMNS = "SELECT id, email, first_name, last_name, student_id, "
+        + "date_of_birth, enrollment_date, created_by, department_id FROM students";
+    private static final String TEACHER_COLUMNS = "SELECT id, email, first_name, last_name, teacher_id, "
+        + "date_of_birth, hire_date, specialization, department_id FROM teachers";
+    // Profiles of a deleted department are left out while it waits to be purged
+    private static final String IN_LIVE_DEPARTMENT = " WHERE (" + Department.IN_LIVE_DEPARTMENT + ")";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Shard> shards = new ConcurrentHashMap<>();
+
+    public PeopleDirectory(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Find a person by email. Someone the directory doesn't know yet, such as a person
+     * added on another node since the last rebuild, is read from the database and added.
+     */
+    public Optional<PersonDTO> findByEmail(String email) {
+        Shard shard = shard();
+        shard.loaded();
+        Optional<PersonDTO> person = shard.find(email);
+        if (person.isEmpty()) {
+            shard.refresh(email);
+            person = shard.find(email);
+        }
+        return person;
+    }
+
+    /**
+     * Up to limit users with a role and an id greater than afterId, ordered by id.
+     */
+    public List<UserSummaryDTO> page(User.Role role, long afterId, int limit) {
+        Shard shard = shard();
+        Table current = shard.loaded();
+        shard.lock.readLock().lock();
+        try {
+            RoleIndex index = current.index(code(role));
+            List<UserSummaryDTO> rows = new ArrayList<>(Math.min(limit, index.size));
+            for (int i = index.firstAfter(current.userIds, afterId); i < index.size && rows.size() < limit; i++) {
+                int slot = index.slots[i];
+                rows.add(new UserSummaryDTO(current.userIds[slot], current.firstNames[slot],
+                    current.lastNames[slot], current.emails[slot]));
+            }
+            return rows;
+        } finally {
+            shard.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of users with a role.
+     */
+    public int count(User.Role role) {
+        Shard shard = shard();
+        Table current = shard.loaded();
+        shard.lock.readLock().lock();
+        try {
+            return current.index(code(role)).size;
+        } finally {
+            shard.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the current school's directory has been built, so reads won't wait for a load.
+     */
+    public boolean isLoaded() {
+        Shard shard = shards.get(TenantContext.current());
+        return shard != null && shard.table != null;
+    }
+
+    /**
+     * Other schools load on first use.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        shard().loaded();
+    }
+
+    /**
+     * Re-read the people touched by a committed change.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDirectoryEvent(DirectoryEvent event) {
+        Shard shard = shards.get(TenantContext.current());
+        if (shard == null) {
+            return;
+        }
+        switch (event.type()) {
+            case "student", "teacher" -> shard.refresh(event.key());
+            case "department" -> {
+                // A deleted department's students and teachers go at once, not when it is purged
+                shard.lock.writeLock().lock();
+                try {
+                    if (shard.rebuilding) {
+                        shard.departmentsChangedDuringRebuild = true;
+                    }
+                    if (shard.table == null) {
+                        return;
+                    }
+                    if (event.action() == DirectoryEvent.Action.DELETED) {
+                        shard.table.departmentNames.remove(Long.valueOf(event.key()));
+                        long departmentId = Long.parseLong(event.key());
+                        shard.table.removeProfiles(id -> id == departmentId);
+                    } else {
+                        shard.table.departmentNames.put(Long.valueOf(event.key()), (String) event.data().get("name"));
+                    }
+                } finally {
+                    shard.lock.writeLock().unlock();
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Rebuild the current school's directory from the database.
+     */
+    public void rebuild() {
+        shard().rebuild();
+    }
+
+    /**
+     * Rebuild after a purge or archive run, here or on another node, if this school's directory is loaded.
+     */
+    @EventListener
+    public void onBulkChange(BulkChange change) {
+        if (shards.containsKey(TenantContext.current())) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuild every school loaded so far, so writes made by other nodes show up.
+     */
+    @Scheduled(fixedDelayString = "${app.directory.rebuild-interval:10m}",
+               initialDelayString = "${app.directory.rebuild-interval:10m}")
+    public void rebuildLoaded() {
+        TenantContext.forEach(shards.keySet(), this::rebuild);
+    }
+
+    private Shard shard() {
+        return shards.computeIfAbsent(TenantContext.current(), tenant -> new Shard());
+    }
+
+    /**
+     * One school's directory.
+     *
+     * Changes that arrive while it is being built, including the first build, are
+     * re-read once the new table is in place, as the build may have read them before
+     * they committed. Refreshes run one at a time, so a refresh that read the database
+     * earlier can't overwrite one that read it later.
+     */
+    private final class Shard {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Object refreshLock = new Object();
+        private final Set<String> changedDuringRebuild = new HashSet<>();
+        private volatile Table table;
+        private boolean rebuilding;
+        private boolean departmentsChangedDuringRebuild;
+
+        synchronized void rebuild() {
+            lock.writeLock().lock();
+            try {
+                rebuilding = true;
+                changedDuringRebuild.clear();
+                departmentsChangedDuringRebuild = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Table fresh;
+            try {
+                fresh = load();
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    rebuilding = false;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+
+            List<String> replay;
+            boolean reloadDepartments;
+            lock.writeLock().lock();
+            try {
+                table = fresh;
+                rebuilding = false;
+                replay = new ArrayList<>(changedDuringRebuild);
+                changedDuringRebuild.clear();
+                reloadDepartments = departmentsChangedDuringRebuild;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            // These may have been read before their change committed
+            replay.forEach(this::refresh);
+            if (reloadDepartments) {
+                Map<Long, String> names = departmentNames();
+                lock.writeLock().lock();
+                try {
+                    table.departmentNames.clear();
+                    table.departmentNames.putAll(names);
+                    table.removeProfiles(id -> !names.containsKey(id));
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+
+        Table loaded() {
+            Table current = table;
+            if (current != null) {
+                return current;
+            }
+            synchronized (this) {
+                if (table == null) {
+                    rebuild();
+                }
+                return table;
+            }
+        }
+
+        Optional<PersonDTO> find(String email) {
+            lock.readLock().lock();
+            try {
+                Table current = table;
+                Integer slot = current.slotByEmail.get(email);
+                return slot == null ? Optional.empty() : Optional.of(current.toPerson(slot));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void refresh(String email) {
+            synchronized (refreshLock) {
+                lock.writeLock().lock();
+                try {
+                    if (rebuilding) {
+                        changedDuringRebuild.add(email);
+                    }
+                    if (table == null) {
+                        return;
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+
+                List<Object[]> users = jdbcTemplate.query(
+                    USER_COLUMNS + " WHERE email = ?", PeopleDirectory::userRow, email);
+                List<Object[]> students = jdbcTemplate.query(
+                    STUDENT_COLUMNS + IN_LIVE_DEPARTMENT + " AND email = ?", PeopleDirectory::profileRow, email);
+                List<Object[]> teachers = jdbcTemplate.query(
+                    TEACHER_COLUMNS + IN_LIVE_DEPARTMENT + " AND email = ?", PeopleDirectory::profileRow, email);
+
+                lock.writeLock().lock();
+                try {
+                    if (rebuilding) {
+                        changedDuringRebuild.add(email);
+                    }
+                    Table current = table;
+                    current.remove(email);
+                    users.forEach(row -> current.putUser(row));
+                    students.forEach(row -> current.putProfile(row, STUDENT));
+                    teachers.forEach(row -> current.putProfile(row, TEACHER));
+                    Integer slot = current.slotByEmail.get(email);
+                    if (slot != null && current.userIds[slot] != 0) {
+                        current.index(current.roles[slot]).insert(current.userIds, slot);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private Map<Long, String> departmentNames() {
+        Map<Long, String> names = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM departments WHERE deleted_at IS NULL",
+            rs -> { names.put(rs.getLong(1), rs.getString(2)); });
+        return names;
+    }
+
+    private Table load() {
+        long start = System.nanoTime();
+        Table fresh = new Table();
+        fresh.departmentNames.putAll(departmentNames());
+        jdbcTemplate.query(USER_COLUMNS + " ORDER BY id", rs -> { fresh.putUser(userRow(rs, 0)); });
+        jdbcTemplate.query(STUDENT_COLUMNS + IN_LIVE_DEPARTMENT, rs -> { fresh.putProfile(profileRow(rs, 0), STUDENT); });
+        jdbcTemplate.query(TEACHER_COLUMNS + IN_LIVE_DEPARTMENT, rs -> { fresh.putProfile(profileRow(rs, 0), TEACHER); });
+        // Users were added in id order, so appending keeps each role list sorted
+        for (int slot = 0; slot < fresh.size; slot++) {
+            if (fresh.userIds[slot] != 0) {
+                fresh.index(fresh.roles[slot]).append(slot);
+            }
+        }
+        log.info("People directory of school {} loaded: {} people in {} ms", TenantContext.current(),
+            fresh.slotByEmail.size(), (System.nanoTime() - start) / 1_000_000);
+        return fresh;
+    }
+
+    private static Object[] userRow(ResultSet rs, int rowNum) throws SQLException {
+        return new Object[] {rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+            "TEACHER".equals(rs.getString(5)) ? TEACHER : STUDENT, days(rs.getDate(6)), days(rs.getDate(7))};
+    }
+
+    private static Object[] profileRow(ResultSet rs, int rowNum) throws SQLException {
+        long departmentId = rs.getLong(9);
+        if (rs.wasNull()) {
+            departmentId = 0;
+        }
+        return new Object[] {rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5),
+            days(rs.getDate(6)), days(rs.getDate(7)), rs.getString(8), departmentId};
+    }
+
+    private static int days(Date date) {
+        return date == null ? NO_DATE : (int) date.toLocalDate().toEpochDay();
+    }
+
+    private static LocalDate date(int days) {
+        return days == NO_DATE ? null : LocalDate.ofEpochDay(days);
+    }
+
+    private static byte code(User.Role role) {
+        return role == User.Role.TEACHER ? TEACHER : STUDENT;
+    }
+
+    /**
+     * Slot ids of one role's users, ordered by user id.
+     */
+    private static final class RoleIndex {
+
+        private int[] slots = new int[64];
+        private int size;
+
+        void append(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        void insert(long[] userIds, int slot) {
+            int at = firstAfter(userIds, userIds[slot]);
+            append(slot);
+            System.arraycopy(slots, at, slots, at + 1, size - 1 - at);
+            slots[at] = slot;
+        }
+
+        void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    System.arraycopy(slots, i + 1, slots, i, size - 1 - i);
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        int firstAfter(long[] userIds, long afterId) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (userIds[slots[mid]] <= afterId) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Parallel-array storage. Only accessed under the directory lock once published.
+     */
+    private static final class Table {
+
+        private final Map<String, Integer> slotByEmail = new HashMap<>();
+        private final Map<Long, String> departmentNames = new HashMap<>();
+        private final RoleIndex teachers = new RoleIndex();
+        private final RoleIndex students = new RoleIndex();
+        private int size;
+
+        // users row; userId 0 means the person has a profile but no account
+        private long[] userIds = new long[0];
+        private byte[] roles = new byte[0];
+        private String[] emails = new String[0];
+        private String[] firstNames = new String[0];
+        private String[] lastNames = new String[0];
+        private int[] birthDays = new int[0];
+        private int[] createdDays = new int[0];
+
+        // student or teacher profile
+        private byte[] profileKinds = new byte[0];
+        private long[] profileIds = new long[0];
+        private String[] codes = new String[0];
+        private int[] profileDays = new int[0];
+        private String[] details = new String[0];
+        private long[] departmentIds = new long[0];
+
+        RoleIndex index(byte role) {
+            return role == TEACHER ? teachers : students;
+        }
+
+        void putUser(Object[] row) {
+            int slot = slot((String) row[1]);
+            userIds[slot] = (Long) row[0];
+            firstNames[slot] = (String) row[2];
+            lastNames[slot] = (String) row[3];
+            roles[slot] = (Byte) row[4];
+            birthDays[slot] = (Integer) row[5];
+            createdDays[slot] = (Integer) row[6];
+        }
+
+        void putProfile(Object[] row, byte kind) {
+            int slot = slot((String) row[1]);
+            boolean hasUser = userIds[slot] != 0;
+            // Keep the profile that matches the account's role if there are two
+            if (profileKinds[slot] != NONE && (!hasUser || roles[slot] != kind)) {
+                return;
+            }
+            profileKinds[slot] = kind;
+            profileIds[slot] = (Long) row[0];
+            codes[slot] = (String) row[4];
+            profileDays[slot] = (Integer) row[6];
+            details[slot] = (String) row[7];
+            departmentIds[slot] = (Long) row[8];
+            if (!hasUser) {
+                firstNames[slot] = (String) row[2];
+                lastNames[slot] = (String) row[3];
+                birthDays[slot] = (Integer) row[5];
+            }
+        }
+
+        /**
+         * Drop the student and teacher profiles of the matching departments. People with an account keep it.
+         */
+        void removeProfiles(LongPredicate department) {
+            for (int slot = 0; slot < size; slot++) {
+                if (emails[slot] == null || departmentIds[slot] == 0 || !department.test(departmentIds[slot])) {
+                    continue;
+                }
+                if (userIds[slot] == 0) {
+                    remove(emails[slot]);
+                } else {
+                    profileKinds[slot] = NONE;
+                    profileIds[slot] = 0;
+                    codes[slot] = null;
+                    profileDays[slot] = NO_DATE;
+                    details[slot] = null;
+                    departmentIds[slot] = 0;
+                }
+            }
+        }
+
+        void remove(String email) {
+            Integer slot = slotByEmail.remove(email);
+            if (slot == null) {
+                return;
+            }
+            if (userIds[slot] != 0) {
+                index(roles[slot]).remove(slot);
+            }
+            // The slot stays empty until the next rebuild compacts the arrays
+            clear(slot);
+        }
+
+        PersonDTO toPerson(int slot) {
+            PersonDTO person = new PersonDTO();
+            if (userIds[slot] != 0) {
+                person.setId(userIds[slot]);
+                person.setRole(roles[slot] == TEACHER ? User.Role.TEACHER : User.Role.STUDENT);
+                person.setCreatedAt(date(createdDays[slot]));
+            }
+            person.setEmail(emails[slot]);
+            person.setFirstName(firstNames[slot]);
+            person.setLastName(lastNames[slot]);
+            person.setDateOfBirth(date(birthDays[slot]));
+            if (profileKinds[slot] != NONE) {
+                person.setProfileId(profileIds[slot]);
+                person.setCode(codes[slot]);
+                if (profileKinds[slot] == STUDENT) {
+                    person.setEnrollmentDate(date(profileDays[slot]));
+                    person.setCreatedBy(details[slot]);
+                } else {
+                    person.setHireDate(date(profileDays[slot]));
+                    person.setSpecialization(details[slot]);
+                }
+                if (departmentIds[slot] != 0) {
+                    person.setDepartmentId(departmentIds[slot]);
+                    person.setDepartmentName(departmentNames.get(departmentIds[slot]));
+                }
+            }
+            return person;
+        }
+
+        private int slot(String email) {
+            Integer existing = slotByEmail.get(email);
+            if (existing != null) {
+                return existing;
+            }
+            if (size == userIds.length) {
+                grow(Math.max(1024, size * 2));
+            }
+            int slot = size++;
+            clear(slot);
+            emails[slot] = email;
+            slotByEmail.put(email, slot);
+            return slot;
+        }
+
+        private void clear(int slot) {
+            userIds[slot] = 0;
+            roles[slot] = NONE;
+            emails[slot] = null;
+            firstNames[slot] = null;
+            lastNames[slot] = null;
+            birthDays[slot] = NO_DATE;
+            createdDays[slot] = NO_DATE;
+            profileKinds[slot] = NONE;
+            profileIds[slot] = 0;
+            codes[slot] = null;
+            profileDays[slot] = NO_DATE;
+            details[slot] = null;
+            departmentIds[slot] = 0;
+        }
+
+        private void grow(int capacity) {
+            userIds = Arrays.copyOf(userIds, capacity);
+            roles = Arrays.copyOf(roles, capacity);
+            emails = Arrays.copyOf(emails, capacity);
+            firstNames = Arrays.copyOf(firstNames, capacity);
+            lastNames = Arrays.copyOf(lastNames, capacity);
+            birthDays = Arrays.copyOf(birthDays, capacity);
+            createdDays = Arrays.copyOf(createdDays, capacity);
+            profileKinds = Arrays.copyOf(profileKinds, capacity);
+            profileIds = Arrays.copyOf(profileIds, capacity);
+            codes = Arrays.copyOf(codes, capacity);
+            profileDays = Arrays.copyOf(profileDays, capacity);
+            details = Arrays.copyOf(details, capacity);
+            departmentIds = Arrays.copyOf(departmentIds, capacity);
+        }
+    }
+}
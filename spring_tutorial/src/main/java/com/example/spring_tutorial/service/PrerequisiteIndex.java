@@ -0,0 +1,363 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.event.BulkChange;
+import com.example.spring_tutorial.event.DirectoryEvent;
+import com.example.spring_tutorial.event.PrerequisitesChanged;
+import com.example.spring_tutorial.tenancy.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory transitive closure of the course prerequisite graph, for eligibility checks.
+ *
+ * Every course gets a dense index, and each course with prerequisites a bitset row of
+ * everything it requires directly or indirectly. Checking a student against a course
+ * is then one row copy with the completed courses' bits cleared; no recursive query.
+ *
+ * Kept current from {@link PrerequisitesChanged} events: the changed course's direct
+ * prerequisites are re-read, and only the rows of that course and the courses that
+ * depend on it are recomputed. A periodic rebuild picks up writes made on other nodes.
+ * Each school has an index of its own, built the first time that school uses it.
+ */
+@Service
+@Slf4j
+public class PrerequisiteIndex {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Shard> shards = new ConcurrentHashMap<>();
+
+    public PrerequisiteIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * The courses, direct or indirect prerequisites of courseId, that are not among the
+     * completed ones. Empty when the course can be taken.
+     */
+    public List<Long> missingPrerequisites(long courseId, Collection<Long> completedCourseIds) {
+        Shard shard = shard();
+        Graph current = shard.loaded();
+        shard.lock.readLock().lock();
+        try {
+            Integer course = current.indexById.get(courseId);
+            BitSet required = course == null ? null : current.closure.get(course);
+            if (required == null) {
+                return List.of();
+            }
+            BitSet missing = (BitSet) required.clone();
+            for (Long completed : completedCourseIds) {
+                Integer index = current.indexById.get(completed);
+                if (index != null) {
+                    missing.clear(index);
+                }
+            }
+            List<Long> ids = new ArrayList<>(missing.cardinality());
+            for (int i = missing.nextSetBit(0); i >= 0; i = missing.nextSetBit(i + 1)) {
+                ids.add(current.ids.get(i));
+            }
+            return ids;
+        } finally {
+            shard.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Other schools load on first use.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        shard().loaded();
+    }
+
+    /**
+     * Re-read the prerequisites of a course after a committed change.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPrerequisitesChanged(PrerequisitesChanged event) {
+        Shard shard = shards.get(TenantContext.current());
+        if (shard != null) {
+            shard.refresh(event.courseId());
+        }
+    }
+
+    /**
+     * A deleted course's edges went with it (ON DELETE CASCADE).
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDirectoryEvent(DirectoryEvent event) {
+        Shard shard = shards.get(TenantContext.current());
+        if (shard != null && "course".equals(event.type()) && event.action() == DirectoryEvent.Action.DELETED) {
+            shard.refresh(Long.parseLong(event.key()));
+        }
+    }
+
+    /**
+     * Rebuild the current school's index from the database.
+     */
+    public void rebuild() {
+        shard().rebuild();
+    }
+
+    /**
+     * Rebuild after a purge or archive run, here or on another node, if this school's index is loaded.
+     */
+    @EventListener
+    public void onBulkChange(BulkChange change) {
+        if (shards.containsKey(TenantContext.current())) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuild every school loaded so far, so writes made by other nodes show up.
+     */
+    @Scheduled(fixedDelayString = "${app.prerequisites.rebuild-interval:10m}",
+               initialDelayString = "${app.prerequisites.rebuild-interval:10m}")
+    public void rebuildLoaded() {
+        TenantContext.forEach(shards.keySet(), this::rebuild);
+    }
+
+    private Shard shard() {
+        return shards.computeIfAbsent(TenantContext.current(), tenant -> new Shard());
+    }
+
+    /**
+     * One school's index.
+     */
+    private final class Shard {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        // Refreshes take turns, so one that read earlier can't apply its rows after a later one
+        private final Object refreshLock = new Object();
+        private final Set<Long> changedDuringRebuild = new HashSet<>();
+        private volatile Graph graph;
+        private boolean rebuilding;
+
+        synchronized void rebuild() {
+            lock.writeLock().lock();
+            try {
+                rebuilding = true;
+                changedDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Graph fresh;
+            try {
+                fresh = load();
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    rebuilding = false;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+
+            List<Long> replay;
+            lock.writeLock().lock();
+            try {
+                graph = fresh;
+                rebuilding = false;
+                replay = new ArrayList<>(changedDuringRebuild);
+                changedDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            // These may have been read before their change committed
+            replay.forEach(this::refresh);
+        }
+
+        Graph loaded() {
+            Graph current = graph;
+            if (current != null) {
+                return current;
+            }
+            synchronized (this) {
+                if (graph == null) {
+                    rebuild();
+                }
+                return graph;
+            }
+        }
+
+        /**
+         * While the first load runs there is no graph yet: the course is only noted,
+         * and re-read once the load is done.
+         */
+        void refresh(long courseId) {
+            synchronized (refreshLock) {
+                lock.writeLock().lock();
+                try {
+                    if (rebuilding) {
+                        changedDuringRebuild.add(courseId);
+                    }
+                    if (graph == null) {
+                        return;
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+
+                List<Long> prerequisites = jdbcTemplate.queryForList(
+                    "SELECT prerequisite_id FROM course_prerequisites WHERE course_id = ?", Long.class, courseId);
+                // Edges from other courses to a deleted one are gone too
+                List<Long> dependents = jdbcTemplate.queryForList(
+                    "SELECT course_id FROM course_prerequisites WHERE prerequisite_id = ?", Long.class, courseId);
+
+                lock.writeLock().lock();
+                try {
+                    if (rebuilding) {
+                        changedDuringRebuild.add(courseId);
+                    }
+                    graph.replaceEdges(courseId, prerequisites, dependents);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private Graph load() {
+        long start = System.nanoTime();
+        Graph fresh = new Graph();
+        jdbcTemplate.query("SELECT course_id, prerequisite_id FROM course_prerequisites", rs -> {
+            fresh.direct(fresh.indexOf(rs.getLong(1))).set(fresh.indexOf(rs.getLong(2)));
+        });
+        BitSet all = new BitSet();
+        all.set(0, fresh.ids.size());
+        fresh.recompute(all);
+        log.info("Prerequisite index of school {} loaded: {} courses in {} ms", TenantContext.current(),
+            fresh.ids.size(), (System.nanoTime() - start) / 1_000_000);
+        return fresh;
+    }
+
+    /**
+     * Direct and transitive prerequisite rows by dense course index. A null row has no bits set.
+     * The graph is acyclic, since PrerequisiteService refuses edges that would close a cycle.
+     */
+    private static final class Graph {
+
+        final Map<Long, Integer> indexById = new HashMap<>();
+        final List<Long> ids = new ArrayList<>();
+        final List<BitSet> direct = new ArrayList<>();
+        final List<BitSet> closure = new ArrayList<>();
+
+        int indexOf(long id) {
+            Integer index = indexById.get(id);
+            if (index == null) {
+                index = ids.size();
+                indexById.put(id, index);
+                ids.add(id);
+                direct.add(null);
+                closure.add(null);
+            }
+            return index;
+        }
+
+        BitSet direct(int course) {
+            BitSet row = direct.get(course);
+            if (row == null) {
+                row = new BitSet();
+                direct.set(course, row);
+            }
+            return row;
+        }
+
+        /**
+         * Set a course's prerequisites and the courses that require it, as read from the
+         * database, and recompute the rows that can have changed.
+         */
+        void replaceEdges(long courseId, List<Long> prerequisites, List<Long> dependentIds) {
+            int course = indexOf(courseId);
+            // Everything that required the course before the change, plus the course itself
+            BitSet affected = new BitSet();
+            affected.set(course);
+            for (int i = 0; i < closure.size(); i++) {
+                BitSet row = closure.get(i);
+                if (row != null && row.get(course)) {
+                    affected.set(i);
+                }
+            }
+
+            direct.set(course, null);
+            for (Long prerequisite : prerequisites) {
+                direct(course).set(indexOf(prerequisite));
+            }
+            Set<Integer> dependents = new HashSet<>();
+            for (Long dependent : dependentIds) {
+                dependents.add(indexOf(dependent));
+            }
+            for (int i = 0; i < direct.size(); i++) {
+                BitSet row = direct.get(i);
+                if (row != null && row.get(course) && !dependents.contains(i)) {
+                    row.clear(course);
+                }
+            }
+            for (int dependent : dependents) {
+                direct(dependent).set(course);
+                affected.set(dependent);
+            }
+            // A new dependent's own dependents are affected too
+            for (int i = 0; i < closure.size(); i++) {
+                BitSet row = closure.get(i);
+                if (row != null && row.intersects(affected)) {
+                    affected.set(i);
+                }
+            }
+            recompute(affected);
+        }
+
+        /**
+         * Recompute the closure rows of the given courses from their direct prerequisites,
+         * reusing the rows of every course not in the set.
+         */
+        void recompute(BitSet pending) {
+            for (int i = pending.nextSetBit(0); i >= 0; i = pending.nextSetBit(i + 1)) {
+                closureOf(i, pending);
+            }
+        }
+
+        private BitSet closureOf(int course, BitSet pending) {
+            if (!pending.get(course)) {
+                return closure.get(course);
+            }
+            // Cleared first, so stale edges from a missed remote change can't recurse forever
+            pending.clear(course);
+            BitSet result = null;
+            BitSet prerequisites = direct.get(course);
+            if (prerequisites != null) {
+                for (int p = prerequisites.nextSetBit(0); p >= 0; p = prerequisites.nextSetBit(p + 1)) {
+                    if (result == null) {
+                        result = new BitSet();
+                    }
+                    result.set(p);
+                    BitSet inherited = closureOf(p, pending);
+                    if (inherited != null) {
+                        result.or(inherited);
+                    }
+                }
+            }
+            closure.set(course, result);
+            return result;
+        }
+    }
+}
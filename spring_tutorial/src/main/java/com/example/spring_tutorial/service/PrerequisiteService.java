@@ -0,0 +1,117 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.dto.CourseSummaryDTO;
+import com.example.spring_tutorial.event.PrerequisitesChanged;
+import com.example.spring_tutorial.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Service for course prerequisites. The prerequisite graph must stay acyclic,
+ * so every new edge is checked against the edges already committed.
+ */
+@Service
+@RequiredArgsConstructor
+public class PrerequisiteService {
+
+    /**
+     * Whether the first course already requires the second, directly or indirectly.
+     */
+    private static final String REQUIRES_SQL = """
+        WITH RECURSIVE required (id) AS (
+            SELECT prerequisite_id FROM course_prerequisites WHERE course_id = ?
+            UNION
+            SELECT cp.prerequisite_id FROM course_prerequisites cp JOIN required r ON cp.course_id = r.id
+        )
+        SELECT EXISTS (SELECT 1 FROM required WHERE id = ?)
+        """;
+
+    /**
+     * Advisory lock taken by every prerequisite write, so two edges added at once
+     * can't each pass the cycle check and close a cycle together.
+     */
+    private static final long WRITE_LOCK = 0x70726572657173L;
+
+    static final RowMapper<CourseSummaryDTO> COURSE_SUMMARY = (rs, row) -> new CourseSummaryDTO(
+        rs.getLong("id"), rs.getString("name"), rs.getString("code"), (Integer) rs.getObject("credits"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Direct prerequisites of a course.
+     */
+    public List<CourseSummaryDTO> getPrerequisites(Long courseId) {
+        requireCourse(courseId);
+        return jdbcTemplate.query("""
+            SELECT c.id, c.name, c.code, c.credits FROM course_prerequisites p
+            JOIN courses c ON c.id = p.prerequisite_id WHERE p.course_id = ? ORDER BY c.code
+            """, COURSE_SUMMARY, courseId);
+    }
+
+    /**
+     * Make prerequisiteId a prerequisite of courseId.
+     *
+     * @throws IllegalArgumentException if the edge would make the graph cyclic
+     */
+    @Transactional
+    public void addPrerequisite(Long courseId, Long prerequisiteId) {
+        String course = requireCourse(courseId);
+        String prerequisite = requireCourse(prerequisiteId);
+        if (courseId.equals(prerequisiteId)) {
+            throw new IllegalArgumentException("A course cannot be its own prerequisite");
+        }
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", WRITE_LOCK);
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(REQUIRES_SQL, Boolean.class, prerequisiteId, courseId))) {
+            throw new IllegalArgumentException(prerequisite + " already requires " + course
+                + ", so " + course + " cannot require " + prerequisite);
+        }
+        jdbcTemplate.update("INSERT INTO course_prerequisites (course_id, prerequisite_id) VALUES (?, ?) "
+            + "ON CONFLICT DO NOTHING", courseId, prerequisiteId);
+        eventPublisher.publishEvent(new PrerequisitesChanged(courseId));
+    }
+
+    /**
+     * Remove a prerequisite from a course.
+     */
+    @Transactional
+    public void removePrerequisite(Long courseId, Long prerequisiteId) {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", WRITE_LOCK);
+        int deleted = jdbcTemplate.update(
+            "DELETE FROM course_prerequisites WHERE course_id = ? AND prerequisite_id = ?", courseId, prerequisiteId);
+        if (deleted == 0) {
+            throw new ResourceNotFoundException("Prerequisite", "id", prerequisiteId);
+        }
+        eventPublisher.publishEvent(new PrerequisitesChanged(courseId));
+    }
+
+    /**
+     * Summaries of the given courses, ordered by code.
+     */
+    List<CourseSummaryDTO> getCourseSummaries(List<Long> courseIds) {
+        if (courseIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query("SELECT id, name, code, credits FROM courses WHERE id IN ("
+            + String.join(", ", Collections.nCopies(courseIds.size(), "?")) + ") ORDER BY code",
+            COURSE_SUMMARY, courseIds.toArray());
+    }
+
+    /**
+     * Code of the course.
+     *
+     * @throws ResourceNotFoundException if there is no such course
+     */
+    String requireCourse(Long courseId) {
+        return jdbcTemplate.queryForList("SELECT code FROM courses WHERE id = ?", String.class, courseId).stream()
+            .findFirst()
+            .orElseThrow(() -> new ResourceNotFoundException("Course", "id", courseId));
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.dto.CourseSummaryDTO;
+import com.example.spring_tutorial.dto.PersonDTO;
+import com.example.spring_tutorial.dto.ProfileDTO;
+import com.example.spring_tutorial.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Service that assembles a complete profile: the person, their department and their courses.
+ *
+ * The pieces don't depend on each other, so each is fetched on its own virtual thread
+ * and the caller waits for all of them up to a shared deadline. The person is required;
+ * if the department or courses aren't back in time the profile is returned without them.
+ * Nothing outlives the call: unfinished fetches are cancelled before it returns.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProfileService {
+
+    private static final String COURSES_SQL = """
+        SELECT c.id, c.name, c.code, c.credits
+        FROM courses c
+        JOIN student_courses sc ON sc.course_id = c.id
+        JOIN students s ON s.id = sc.student_id
+        WHERE s.email = ?
+        UNION ALL
+        SELECT c.id, c.name, c.code, c.credits
+        FROM courses c
+        JOIN teacher_courses tc ON tc.course_id = c.id
+        JOIN teachers t ON t.id = tc.teacher_id
+        WHERE t.email = ?
+        ORDER BY code
+        """;
+
+    private static final String DEPARTMENT_SQL = """
+        SELECT d.code, d.description FROM departments d JOIN students s ON s.department_id = d.id
+        WHERE s.email = ? AND d.deleted_at IS NULL
+        UNION ALL
+        SELECT d.code, d.description FROM departments d JOIN teachers t ON t.department_id = d.id
+        WHERE t.email = ? AND d.deleted_at IS NULL
+        """;
+
+    private final PeopleDirectory peopleDirectory;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.profile.deadline:1s}")
+    private Duration deadline;
+
+    /**
+     * Load the profile of the given user.
+     *
+     * @throws ResourceNotFoundException if there is no such user
+     * @throws IllegalStateException if the user could not be loaded before the deadline
+     */
+    public ProfileDTO loadProfile(String email) {
+        ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            Future<Optional<PersonDTO>> person = scope.submit(() -> peopleDirectory.findByEmail(email));
+            Future<List<Map<String, Object>>> department = scope.submit(
+                () -> jdbcTemplate.queryForList(DEPARTMENT_SQL, email, email));
+            Future<List<CourseSummaryDTO>> courses = scope.submit(() -> jdbcTemplate.query(COURSES_SQL,
+                (rs, row) -> new CourseSummaryDTO(rs.getLong("id"), rs.getString("name"), rs.getString("code"),
+                    (Integer) rs.getObject("credits")), email, email));
+            long deadlineNanos = System.nanoTime() + deadline.toNanos();
+
+            ProfileDTO profile = new ProfileDTO();
+            profile.setPerson(required(person, deadlineNanos)
+                .orElseThrow(() -> new ResourceNotFoundException("User", "email", email)));
+
+            List<Map<String, Object>> departmentRows = optional(department, deadlineNanos, "department", profile);
+            if (departmentRows != null && !departmentRows.isEmpty()) {
+                profile.setDepartmentCode((String) departmentRows.get(0).get("code"));
+                profile.setDepartmentDescription((String) departmentRows.get(0).get("description"));
+            }
+            profile.setCourses(optional(courses, deadlineNanos, "courses", profile));
+            return profile;
+        } finally {
+            scope.shutdownNow();
+        }
+    }
+
+    private <T> T required(Future<T> piece, long deadlineNanos) {
+        try {
+            return piece.get(remaining(deadlineNanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Profile could not be loaded in time");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Profile could not be loaded", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading profile");
+        }
+    }
+
+    /**
+     * Waits for a piece the profile can do without; on timeout or failure records it as unavailable.
+     */
+    private <T> T optional(Future<T> piece, long deadlineNanos, String name, ProfileDTO profile) {
+        try {
+            return piece.get(remaining(deadlineNanos), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Profile {} not loaded within {}", name, deadline);
+        } catch (ExecutionException e) {
+            log.warn("Profile {} failed to load: {}", name, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        piece.cancel(true);
+        profile.getUnavailable().add(name);
+        return null;
+    }
+
+    private static long remaining(long deadlineNanos) {
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+}
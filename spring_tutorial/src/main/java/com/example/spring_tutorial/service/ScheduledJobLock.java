@@ -0,0 +1,49 @@
+package com.example.spring_tutorial.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * Keeps a scheduled job to one node at a time for each school, with a PostgreSQL advisory lock.
+ *
+ * The lock is a session lock on one connection, and the job runs its statements on that same
+ * connection in auto-commit mode: each statement still commits on its own, and the job needs
+ * no second connection. The lock is released when the job ends, or by the server when the
+ * connection drops because the node died.
+ */
+@Component
+@RequiredArgsConstructor
+public class ScheduledJobLock {
+
+    // Advisory locks are database-wide, so the key includes the school's schema
+    private static final String KEY = "hashtext(? || '@' || current_schema())";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Run a job for the current school unless another node is running it already.
+     *
+     * @param job given a JdbcTemplate on the locked connection
+     * @return whether the job ran
+     */
+    public boolean runIfFree(String name, Consumer<JdbcTemplate> job) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            JdbcTemplate locked = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            if (!Boolean.TRUE.equals(locked.queryForObject(
+                    "SELECT pg_try_advisory_lock(" + KEY + ")", Boolean.class, name))) {
+                return false;
+            }
+            try {
+                job.accept(locked);
+            } finally {
+                locked.queryForObject("SELECT pg_advisory_unlock(" + KEY + ")", Boolean.class, name);
+            }
+            return true;
+        }));
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.dto.StudentDTO;
+import com.example.spring_tutorial.event.BulkChange;
+import com.example.spring_tutorial.tenancy.TenantRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Moves graduated cohorts out of the live students tables and reads them back on demand.
+ *
+ * A cohort is every student enrolled in one calendar year. Once a cohort is older than
+ * the retention period, its students and their course enrolments are moved, a chunk at a
+ * time, into students_archive and student_courses_archive. Those tables are partitioned
+ * by enrollment year, so reading a cohort back only touches its own partition. Enrolments
+ * keep their completion dates and grades, which still count towards their courses' totals.
+ * The users accounts are left alone. Only one node archives a school at a time.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StudentArchiveService {
+
+    /**
+     * Moves one chunk of a cohort in a single statement: the enrolments and the student
+     * rows are deleted and inserted into the archive together, so a chunk is either
+     * fully archived or not at all. Takes (from, to, chunk size).
+     */
+    private static final String MOVE_CHUNK_SQL = """
+        WITH batch AS (
+            SELECT id FROM students
+            WHERE enrollment_date >= ? AND enrollment_date < ?
+            ORDER BY id LIMIT ?
+        ), moved AS (
+            DELETE FROM students s USING batch b WHERE s.id = b.id
+            RETURNING s.*
+        ), moved_courses AS (
+            DELETE FROM student_courses sc USING batch b WHERE sc.student_id = b.id
+            RETURNING sc.student_id, sc.course_id, sc.completed_on, sc.grade, sc.grade_points, sc.graded_credits
+        ), archived_courses AS (
+            INSERT INTO student_courses_archive (student_id, course_id, enrollment_date, completed_on,
+                                                 grade, grade_points, graded_credits)
+            SELECT c.student_id, c.course_id, m.enrollment_date, c.completed_on,
+                   c.grade, c.grade_points, c.graded_credits
+            FROM moved_courses c JOIN moved m ON m.id = c.student_id
+        )
+        INSERT INTO students_archive (id, created_by, date_of_birth, email, enrollment_date,
+                                      first_name, last_name, student_id, department_id)
+        SELECT id, created_by, date_of_birth, email, enrollment_date,
+               first_name, last_name, student_id, department_id
+        FROM moved
+        """;
+
+    private static final String SELECT_ARCHIVED = """
+        SELECT a.id, a.first_name, a.last_name, a.email, a.student_id, a.date_of_birth,
+               a.enrollment_date, a.department_id, d.name AS department_name, a.created_by
+        FROM students_archive a
+        LEFT JOIN departments d ON d.id = a.department_id AND d.deleted_at IS NULL
+        """;
+
+    private static final RowMapper<StudentDTO> ARCHIVED_STUDENT = (rs, row) -> {
+        StudentDTO dto = new StudentDTO();
+        dto.setId(rs.getLong("id"));
+        dto.setFirstName(rs.getString("first_name"));
+        dto.setLastName(rs.getString("last_name"));
+        dto.setEmail(rs.getString("email"));
+        dto.setStudentId(rs.getString("student_id"));
+        dto.setDateOfBirth(rs.getObject("date_of_birth", LocalDate.class));
+        dto.setEnrollmentDate(rs.getObject("enrollment_date", LocalDate.class));
+        dto.setDepartmentId(rs.getObject("department_id", Long.class));
+        dto.setDepartmentName(rs.getString("department_name"));
+        dto.setCreatedBy(rs.getString("created_by"));
+        dto.setArchived(true);
+        return dto;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ScheduledJobLock jobLock;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TenantRegistry tenants;
+
+    @Value("${app.archive.retention-years:6}")
+    private int retentionYears;
+
+    @Value("${app.archive.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Archive every cohort that enrolled more than retention-years calendar years ago, school by school.
+     */
+    @Scheduled(cron = "${app.archive.cron:0 30 3 * * *}")
+    public void archiveGraduatedCohorts() {
+        tenants.forEach(this::archiveGraduated);
+    }
+
+    private void archiveGraduated() {
+        int lastArchivedYear = LocalDate.now().getYear() - retentionYears - 1;
+        List<Integer> archived = new ArrayList<>();
+        jobLock.runIfFree("student-archive", locked -> {
+            for (Integer year : locked.queryForList(
+                    "SELECT DISTINCT EXTRACT(YEAR FROM enrollment_date)::int FROM students "
+                        + "WHERE enrollment_date < ? ORDER BY 1",
+                    Integer.class, LocalDate.of(lastArchivedYear + 1, 1, 1))) {
+                archiveCohort(locked, year);
+                archived.add(year);
+            }
+        });
+        if (!archived.isEmpty()) {
+            // Archived students no longer have a student profile
+            eventPublisher.publishEvent(BulkChange.local("student-archive"));
+        }
+    }
+
+    /**
+     * Archived student by ID. Looks in every year's partition, so only for occasional lookups.
+     */
+    public Optional<StudentDTO> findArchivedById(Long id) {
+        return jdbcTemplate.query(SELECT_ARCHIVED + " WHERE a.id = ?", ARCHIVED_STUDENT, id).stream().findFirst();
+    }
+
+    /**
+     * All archived students of one enrollment year, read from that year's partition only.
+     */
+    public List<StudentDTO> findArchivedCohort(int year) {
+        return jdbcTemplate.query(
+            SELECT_ARCHIVED + " WHERE a.enrollment_date >= ? AND a.enrollment_date < ? ORDER BY a.id",
+            ARCHIVED_STUDENT, LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1));
+    }
+
+    /**
+     * Archive one cohort of the current school now, unless another node is archiving it.
+     *
+     * @return whether the cohort was archived
+     */
+    boolean archiveCohort(int year) {
+        return jobLock.runIfFree("student-archive", locked -> archiveCohort(locked, year));
+    }
+
+    /**
+     * Runs on the connection holding the job lock.
+     */
+    private void archiveCohort(JdbcTemplate locked, int year) {
+        LocalDate from = LocalDate.of(year, 1, 1);
+        LocalDate to = from.plusYears(1);
+        createPartition(locked, "students_archive", year, from, to);
+        createPartition(locked, "student_courses_archive", year, from, to);
+        long start = System.currentTimeMillis();
+        long moved = 0;
+        int chunk;
+        do {
+            chunk = locked.update(MOVE_CHUNK_SQL, from, to, chunkSize);
+            moved += chunk;
+        } while (chunk == chunkSize);
+        log.info("Archived {} students of the {} cohort in {} ms", moved, year, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Archived cohorts are written once and only read afterwards, so pages are packed full.
+     * DDL takes no bind parameters, so PostgreSQL's format() quotes the names and bounds.
+     */
+    private static void createPartition(JdbcTemplate locked, String table, int year, LocalDate from, LocalDate to) {
+        locked.execute(locked.queryForObject(
+            "SELECT format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L) "
+                + "WITH (fillfactor = 100)', ?, ?, ?::date, ?::date)",
+            String.class, table + "_" + year, table, from, to));
+    }
+}
@@ -1,17 +1,24 @@
 package com.example.spring_tutorial.service;
 
+import com.example.spring_tutorial.dto.BatchItem;
 import com.example.spring_tutorial.dto.StudentDTO;
+import com.example.spring_tutorial.event.DirectoryEvent;
 import com.example.spring_tutorial.exception.ResourceNotFoundException;
 import com.example.spring_tutorial.exception.UnauthorizedAccessException;
+import com.example.spring_tutorial.mapper.StudentMapper;
 import com.example.spring_tutorial.model.Department;
 import com.example.spring_tutorial.model.Student;
 import com.example.spring_tutorial.repository.DepartmentRepository;
+import com.example.spring_tutorial.repository.SparseFieldQuery;
 import com.example.spring_tutorial.repository.StudentRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -25,23 +32,71 @@ public class StudentService {
     
     private final StudentRepository studentRepository;
     private final DepartmentRepository departmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SparseFieldQuery sparseFieldQuery;
+    private final StudentArchiveService studentArchiveService;
+    private final StudentMapper studentMapper;
+    private final BatchSizeLimit batchSizeLimit;
+    
+    /**
+     * Fields clients may pick with ?fields=, mapped to their entity attribute paths.
+     */
+    private static final Map<String, String> SPARSE_FIELDS = Map.ofEntries(
+        Map.entry("id", "id"),
+        Map.entry("firstName", "firstName"),
+        Map.entry("lastName", "lastName"),
+        Map.entry("email", "email"),
+        Map.entry("studentId", "studentId"),
+        Map.entry("dateOfBirth", "dateOfBirth"),
+        Map.entry("enrollmentDate", "enrollmentDate"),
+        Map.entry("departmentId", "department.id"),
+        Map.entry("departmentName", "department.name"),
+        Map.entry("createdBy", "createdBy")
+    );
     
     /**
      * Get all students.
      */
     public List<StudentDTO> getAllStudents() {
         return studentRepository.findAll().stream()
-            .map(this::convertToDTO)
+            .map(studentMapper::toDto)
             .collect(Collectors.toList());
     }
     
     /**
-     * Get student by ID.
+     * Get all students with only the given fields, read straight from the matching columns.
+     */
+    public List<Map<String, Object>> getAllStudents(List<String> fields) {
+        return sparseFieldQuery.findAll(Student.class, SPARSE_FIELDS, fields);
+    }
+    
+    /**
+     * Get student by ID, falling back to the archive of graduated cohorts.
      */
     public StudentDTO getStudentById(Long id) {
-        Student student = studentRepository.findById(id)
+        return studentRepository.findById(id)
+            .map(studentMapper::toDto)
+            .or(() -> studentArchiveService.findArchivedById(id))
             .orElseThrow(() -> new ResourceNotFoundException("Student", "id", id));
-        return convertToDTO(student);
+    }
+    
+    /**
+     * Get the archived students who enrolled in the given year.
+     */
+    public List<StudentDTO> getArchivedCohort(int year) {
+        return studentArchiveService.findArchivedCohort(year);
+    }
+    
+    /**
+     * Get students by a list of IDs in one query, in request order.
+     * IDs with no matching student come back as not-found entries.
+     */
+    public List<BatchItem<StudentDTO>> getStudentsByIds(List<Long> ids) {
+        batchSizeLimit.check(ids);
+        List<StudentDTO> students = studentRepository.findAllWithDepartmentByIdIn(new LinkedHashSet<>(ids)).stream()
+            .map(studentMapper::toDto)
+            .toList();
+        return BatchItem.inRequestOrder(ids, students, StudentDTO::getId);
     }
     
     /**
@@ -64,15 +119,7 @@ public class StudentService {
         }
         
         // Update allowed fields (limited update permissions)
-        if (dto.getFirstName() != null) {
-            student.setFirstName(dto.getFirstName());
-        }
-        if (dto.getLastName() != null) {
-            student.setLastName(dto.getLastName());
-        }
-        if (dto.getDateOfBirth() != null) {
-            student.setDateOfBirth(dto.getDateOfBirth());
-        }
+        studentMapper.updateStudent(dto, student);
         if (dto.getDepartmentId() != null && 
             !dto.getDepartmentId().equals(student.getDepartment().getId())) {
             Department department = departmentRepository.findById(dto.getDepartmentId())
@@ -81,7 +128,8 @@ public class StudentService {
         }
         
         Student updatedStudent = studentRepository.save(student);
-        return convertToDTO(updatedStudent);
+        eventPublisher.publishEvent(DirectoryEvent.of(updatedStudent, DirectoryEvent.Action.UPDATED));
+        return studentMapper.toDto(updatedStudent);
     }
     
     /**
@@ -100,6 +148,8 @@ public class StudentService {
         }
         
         studentRepository.delete(student);
+        // Only the profile goes; the account and its row on the directory pages stay
+        eventPublisher.publishEvent(DirectoryEvent.of(student, DirectoryEvent.Action.PROFILE_DELETED));
     }
     
     /**
@@ -108,27 +158,7 @@ public class StudentService {
     public StudentDTO getStudentByEmail(String email) {
         Student student = studentRepository.findByEmail(email)
             .orElseThrow(() -> new ResourceNotFoundException("Student", "email", email));
-        return convertToDTO(student);
-    }
-    
-    /**
-     * Convert Student entity to StudentDTO.
-     */
-    private StudentDTO convertToDTO(Student student) {
-        StudentDTO dto = new StudentDTO();
-        dto.setId(student.getId());
-        dto.setFirstName(student.getFirstName());
-        dto.setLastName(student.getLastName());
-        dto.setEmail(student.getEmail());
-        dto.setStudentId(student.getStudentId());
-        dto.setDateOfBirth(student.getDateOfBirth());
-        dto.setEnrollmentDate(student.getEnrollmentDate());
-        if (student.getDepartment() != null) {
-            dto.setDepartmentId(student.getDepartment().getId());
-            dto.setDepartmentName(student.getDepartment().getName());
-        }
-        dto.setCreatedBy(student.getCreatedBy());
-        return dto;
+        return studentMapper.toDto(student);
     }
 }
 
@@ -1,20 +1,28 @@
 package com.example.spring_tutorial.service;
 
+import com.example.spring_tutorial.dto.BatchItem;
 import com.example.spring_tutorial.dto.StudentDTO;
 import com.example.spring_tutorial.dto.TeacherStudentDTO;
+import com.example.spring_tutorial.event.DirectoryEvent;
 import com.example.spring_tutorial.exception.ResourceNotFoundException;
+import com.example.spring_tutorial.mapper.StudentMapper;
 import com.example.spring_tutorial.model.Department;
 import com.example.spring_tutorial.model.Student;
 import com.example.spring_tutorial.model.Teacher;
+import com.example.spring_tutorial.outbox.OutboxEvent;
+import com.example.spring_tutorial.outbox.OutboxPublisher;
 import com.example.spring_tutorial.repository.DepartmentRepository;
+import com.example.spring_tutorial.repository.SparseFieldQuery;
 import com.example.spring_tutorial.repository.StudentRepository;
 import com.example.spring_tutorial.repository.TeacherRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDate;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service for Teacher CRUD operations.
@@ -27,6 +35,27 @@ public class TeacherService {
     private final TeacherRepository teacherRepository;
     private final DepartmentRepository departmentRepository;
     private final StudentRepository studentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SparseFieldQuery sparseFieldQuery;
+    private final StudentMapper studentMapper;
+    private final OutboxPublisher outboxPublisher;
+    private final BatchSizeLimit batchSizeLimit;
+    
+    /**
+     * Fields clients may pick with ?fields=, mapped to their entity attribute paths.
+     */
+    private static final Map<String, String> SPARSE_FIELDS = Map.ofEntries(
+        Map.entry("id", "id"),
+        Map.entry("firstName", "firstName"),
+        Map.entry("lastName", "lastName"),
+        Map.entry("email", "email"),
+        Map.entry("teacherId", "teacherId"),
+        Map.entry("dateOfBirth", "dateOfBirth"),
+        Map.entry("hireDate", "hireDate"),
+        Map.entry("specialization", "specialization"),
+        Map.entry("departmentId", "department.id"),
+        Map.entry("departmentName", "department.name")
+    );
     
     /**
      * Create a new teacher.
@@ -41,7 +70,9 @@ public class TeacherService {
                 .orElseThrow(() -> new ResourceNotFoundException("Department", "id", teacher.getDepartment().getId()));
             teacher.setDepartment(department);
         }
-        return teacherRepository.save(teacher);
+        Teacher savedTeacher = teacherRepository.save(teacher);
+        eventPublisher.publishEvent(DirectoryEvent.of(savedTeacher, DirectoryEvent.Action.CREATED));
+        return savedTeacher;
     }
     
     /**
@@ -51,6 +82,13 @@ public class TeacherService {
         return teacherRepository.findAll();
     }
     
+    /**
+     * Get all teachers with only the given fields, read straight from the matching columns.
+     */
+    public List<Map<String, Object>> getAllTeachers(List<String> fields) {
+        return sparseFieldQuery.findAll(Teacher.class, SPARSE_FIELDS, fields);
+    }
+    
     /**
      * Get teacher by ID.
      */
@@ -59,6 +97,16 @@ public class TeacherService {
             .orElseThrow(() -> new ResourceNotFoundException("Teacher", "id", id));
     }
     
+    /**
+     * Get teachers by a list of IDs in one query, in request order.
+     * IDs with no matching teacher come back as not-found entries.
+     */
+    public List<BatchItem<Teacher>> getTeachersByIds(List<Long> ids) {
+        batchSizeLimit.check(ids);
+        List<Teacher> teachers = teacherRepository.findAllById(new LinkedHashSet<>(ids));
+        return BatchItem.inRequestOrder(ids, teachers, Teacher::getId);
+    }
+    
     /**
      * Get teacher by email.
      */
@@ -86,7 +134,9 @@ public class TeacherService {
             teacher.setDepartment(department);
         }
         
-        return teacherRepository.save(teacher);
+        Teacher savedTeacher = teacherRepository.save(teacher);
+        eventPublisher.publishEvent(DirectoryEvent.of(savedTeacher, DirectoryEvent.Action.UPDATED));
+        return savedTeacher;
     }
     
     /**
@@ -96,6 +146,8 @@ public class TeacherService {
     public void deleteTeacher(Long id) {
         Teacher teacher = getTeacherById(id);
         teacherRepository.delete(teacher);
+        // Only the profile goes; the account and its row on the directory pages stay
+        eventPublisher.publishEvent(DirectoryEvent.of(teacher, DirectoryEvent.Action.PROFILE_DELETED));
     }
     
     /**
@@ -121,39 +173,11 @@ public class TeacherService {
         Department department = departmentRepository.findById(dto.getDepartmentId())
             .orElseThrow(() -> new ResourceNotFoundException("Department", "id", dto.getDepartmentId()));
         
-        // Create student
-        Student student = new Student();
-        student.setFirstName(dto.getFirstName());
-        student.setLastName(dto.getLastName());
-        student.setEmail(dto.getEmail());
-        student.setStudentId(dto.getStudentId());
-        student.setDateOfBirth(dto.getDateOfBirth());
-        student.setEnrollmentDate(LocalDate.now());
-        student.setDepartment(department);
-        student.setCreatedBy(teacherEmail);
-        
-        Student savedStudent = studentRepository.save(student);
-        return convertToDTO(savedStudent);
-    }
-    
-    /**
-     * Convert Student entity to StudentDTO.
-     */
-    private StudentDTO convertToDTO(Student student) {
-        StudentDTO dto = new StudentDTO();
-        dto.setId(student.getId());
-        dto.setFirstName(student.getFirstName());
-        dto.setLastName(student.getLastName());
-        dto.setEmail(student.getEmail());
-        dto.setStudentId(student.getStudentId());
-        dto.setDateOfBirth(student.getDateOfBirth());
-        dto.setEnrollmentDate(student.getEnrollmentDate());
-        if (student.getDepartment() != null) {
-            dto.setDepartmentId(student.getDepartment().getId());
-            dto.setDepartmentName(student.getDepartment().getName());
-        }
-        dto.setCreatedBy(student.getCreatedBy());
-        return dto;
+        Student savedStudent = studentRepository.save(studentMapper.toStudent(dto, department, teacherEmail));
+        eventPublisher.publishEvent(DirectoryEvent.of(savedStudent, DirectoryEvent.Action.CREATED));
+        StudentDTO created = studentMapper.toDto(savedStudent);
+        outboxPublisher.publish(OutboxEvent.STUDENT_CREATED, savedStudent.getId(), created);
+        return created;
     }
 }
 
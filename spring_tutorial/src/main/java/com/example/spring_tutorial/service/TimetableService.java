@@ -0,0 +1,401 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.dto.ClashDTO;
+import com.example.spring_tutorial.dto.RoomDTO;
+import com.example.spring_tutorial.dto.SectionDTO;
+import com.example.spring_tutorial.dto.TimetableReportDTO;
+import com.example.spring_tutorial.exception.ResourceNotFoundException;
+import com.example.spring_tutorial.timetable.WeekMask;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Service for course sections, their weekly meetings and clashes between them.
+ *
+ * Each section's meetings are folded into a {@link WeekMask}, so whether two sections
+ * overlap is a handful of word-level ANDs. A schedule is checked by adding its sections
+ * to one mask in turn and testing each against what came before. The whole-term report
+ * checks every student, teacher and room that way, in parallel.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TimetableService {
+
+    private static final String SECTIONS_SQL = """
+        SELECT cs.id, cs.course_id, c.code || '/' || cs.code AS label, cs.room_id,
+               m.day_of_week, m.start_time, m.end_time
+        FROM course_sections cs
+        JOIN courses c ON c.id = cs.course_id
+        LEFT JOIN section_meetings m ON m.section_id = cs.id
+        """;
+
+    /**
+     * Whose schedule a set of sections is, and where their section assignments are kept.
+     */
+    private enum Owner {
+        STUDENT("student", "Student", "students", "student_courses", "student_id"),
+        TEACHER("teacher", "Teacher", "teachers", "teacher_courses", "teacher_id");
+
+        final String type;
+        final String resource;
+        final String table;
+        final String assignments;
+        final String column;
+
+        Owner(String type, String resource, String table, String assignments, String column) {
+            this.type = type;
+            this.resource = resource;
+            this.table = table;
+            this.assignments = assignments;
+            this.column = column;
+        }
+    }
+
+    private record Section(long id, long courseId, String label, Long roomId, WeekMask mask) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.timetable.max-reported-clashes:100}")
+    private int maxReportedClashes;
+
+    /**
+     * Create a room.
+     */
+    @Transactional
+    public RoomDTO createRoom(RoomDTO room) {
+        try {
+            Long id = jdbcTemplate.queryForObject("INSERT INTO rooms (code, capacity) VALUES (?, ?) RETURNING id",
+                Long.class, room.getCode(), room.getCapacity());
+            return new RoomDTO(id, room.getCode(), room.getCapacity());
+        } catch (DuplicateKeyException e) {
+            throw new IllegalArgumentException("Room with code already exists: " + room.getCode());
+        }
+    }
+
+    /**
+     * Add a section to a course. A section with a room may not overlap the room's other sections.
+     *
+     * @throws IllegalArgumentException if a meeting is invalid, the code is taken or the room is busy
+     */
+    @Transactional
+    public SectionDTO createSection(Long courseId, SectionDTO dto) {
+        List<String> courseCodes = jdbcTemplate.queryForList("SELECT code FROM courses WHERE id = ?", String.class, courseId);
+        if (courseCodes.isEmpty()) {
+            throw new ResourceNotFoundException("Course", "id", courseId);
+        }
+        WeekMask mask = WeekMask.empty();
+        for (SectionDTO.Meeting meeting : dto.getMeetings()) {
+            mask.addMeeting(meeting.getDay(), meeting.getStart(), meeting.getEnd());
+        }
+
+        if (dto.getRoomId() != null) {
+            // Locking the room makes concurrent bookings of it take turns
+            List<String> room = jdbcTemplate.queryForList("SELECT code FROM rooms WHERE id = ? FOR UPDATE",
+                String.class, dto.getRoomId());
+            if (room.isEmpty()) {
+                throw new ResourceNotFoundException("Room", "id", dto.getRoomId());
+            }
+            for (Section booked : loadSections("WHERE cs.room_id = ?", dto.getRoomId()).values()) {
+                int slot = booked.mask().firstCommonSlot(mask);
+                if (slot >= 0) {
+                    throw new IllegalArgumentException("Room " + room.get(0) + " is taken by " + booked.label()
+                        + " on " + WeekMask.dayOf(slot) + " at " + WeekMask.timeOf(slot));
+                }
+            }
+        }
+
+        Long id;
+        try {
+            id = jdbcTemplate.queryForObject(
+                "INSERT INTO course_sections (course_id, code, room_id) VALUES (?, ?, ?) RETURNING id",
+                Long.class, courseId, dto.getCode(), dto.getRoomId());
+        } catch (DuplicateKeyException e) {
+            throw new IllegalArgumentException("Section " + dto.getCode() + " already exists for this course");
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO section_meetings (section_id, day_of_week, start_time, end_time) VALUES (?, ?, ?, ?)",
+            dto.getMeetings(), dto.getMeetings().size(), (ps, meeting) -> {
+                ps.setLong(1, id);
+                ps.setInt(2, meeting.getDay().getValue());
+                ps.setObject(3, meeting.getStart());
+                ps.setObject(4, meeting.getEnd());
+            });
+
+        dto.setId(id);
+        dto.setCourseId(courseId);
+        dto.setCourseCode(courseCodes.get(0));
+        return dto;
+    }
+
+    /**
+     * Put a student into one section of a course they are enrolled in.
+     *
+     * @throws IllegalArgumentException if they aren't enrolled or the section clashes with their others
+     */
+    @Transactional
+    public void assignStudentSection(Long studentId, Long sectionId) {
+        assignSection(Owner.STUDENT, studentId, sectionId);
+    }
+
+    /**
+     * Have a teacher teach one section of a course assigned to them.
+     *
+     * @throws IllegalArgumentException if the course isn't theirs or the section clashes with their others
+     */
+    @Transactional
+    public void assignTeacherSection(Long teacherId, Long sectionId) {
+        assignSection(Owner.TEACHER, teacherId, sectionId);
+    }
+
+    /**
+     * Pairs of a student's sections that meet at the same time.
+     */
+    public List<ClashDTO> findStudentClashes(Long studentId) {
+        return findClashes(Owner.STUDENT, studentId);
+    }
+
+    /**
+     * Pairs of a teacher's sections that meet at the same time.
+     */
+    public List<ClashDTO> findTeacherClashes(Long teacherId) {
+        return findClashes(Owner.TEACHER, teacherId);
+    }
+
+    /**
+     * Rooms with no section meeting at any time between start and end on the given day,
+     * smallest first.
+     */
+    public List<RoomDTO> findFreeRooms(DayOfWeek day, LocalTime start, LocalTime end, int minCapacity) {
+        WeekMask wanted = WeekMask.of(day, start, end);
+        Map<Long, WeekMask> booked = new HashMap<>();
+        jdbcTemplate.query("""
+            SELECT cs.room_id, m.day_of_week, m.start_time, m.end_time
+            FROM course_sections cs JOIN section_meetings m ON m.section_id = cs.id
+            WHERE cs.room_id IS NOT NULL AND m.day_of_week = ?
+            """, rs -> {
+                booked.computeIfAbsent(rs.getLong("room_id"), id -> WeekMask.empty())
+                    .addMeeting(DayOfWeek.of(rs.getInt("day_of_week")),
+                        rs.getObject("start_time", LocalTime.class), rs.getObject("end_time", LocalTime.class));
+            }, day.getValue());
+
+        return jdbcTemplate.query(
+                "SELECT id, code, capacity FROM rooms WHERE COALESCE(capacity, 0) >= ? ORDER BY capacity, code",
+                (rs, row) -> new RoomDTO(rs.getLong("id"), rs.getString("code"), (Integer) rs.getObject("capacity")),
+                minCapacity)
+            .stream()
+            .filter(room -> !booked.getOrDefault(room.getId(), WeekMask.empty()).intersects(wanted))
+            .toList();
+    }
+
+    /**
+     * Check every student's, teacher's and room's timetable for the term.
+     */
+    public TimetableReportDTO validateTerm() {
+        long start = System.currentTimeMillis();
+        Section[] sections = loadSections("").values().toArray(new Section[0]);
+        Map<Long, Integer> index = new HashMap<>(sections.length * 2);
+        for (int i = 0; i < sections.length; i++) {
+            index.put(sections[i].id(), i);
+        }
+
+        Assignments students = loadAssignments(Owner.STUDENT, index);
+        Assignments teachers = loadAssignments(Owner.TEACHER, index);
+        Assignments rooms = new Assignments();
+        Integer[] byRoom = IntStream.range(0, sections.length).boxed()
+            .filter(i -> sections[i].roomId() != null)
+            .sorted(Comparator.comparing(i -> sections[i].roomId()))
+            .toArray(Integer[]::new);
+        for (int i : byRoom) {
+            rooms.add(sections[i].roomId(), i);
+        }
+
+        TimetableReportDTO report = new TimetableReportDTO();
+        Queue<ClashDTO> reported = new ConcurrentLinkedQueue<>();
+        AtomicInteger reportSlots = new AtomicInteger(maxReportedClashes);
+        report.setSections(sections.length);
+        report.setStudentEnrolments(students.size);
+        report.setTeacherAssignments(teachers.size);
+        report.setStudentClashes(check("student", students, sections, reported, reportSlots));
+        report.setTeacherClashes(check("teacher", teachers, sections, reported, reportSlots));
+        report.setRoomClashes(check("room", rooms, sections, reported, reportSlots));
+        report.getClashes().addAll(reported);
+        report.getClashes().sort(Comparator.comparing(ClashDTO::getType).thenComparing(ClashDTO::getOwnerId));
+        report.setElapsedMs(System.currentTimeMillis() - start);
+        log.info("Timetable check: {} sections, {} enrolments, {} clashes in {} ms", sections.length,
+            students.size + teachers.size,
+            report.getStudentClashes() + report.getTeacherClashes() + report.getRoomClashes(), report.getElapsedMs());
+        return report;
+    }
+
+    private void assignSection(Owner owner, Long ownerId, Long sectionId) {
+        // Locking the person makes concurrent changes to their timetable take turns
+        if (jdbcTemplate.queryForList("SELECT id FROM " + owner.table + " WHERE id = ? FOR UPDATE",
+                Long.class, ownerId).isEmpty()) {
+            throw new ResourceNotFoundException(owner.resource, "id", ownerId);
+        }
+        Section section = loadSections("WHERE cs.id = ?", sectionId).get(sectionId);
+        if (section == null) {
+            throw new ResourceNotFoundException("Section", "id", sectionId);
+        }
+        Map<Long, Section> others = loadSections("WHERE cs.id IN (SELECT section_id FROM " + owner.assignments
+            + " WHERE " + owner.column + " = ? AND course_id <> ?)", ownerId, section.courseId());
+        for (Section other : others.values()) {
+            int slot = other.mask().firstCommonSlot(section.mask());
+            if (slot >= 0) {
+                throw new IllegalArgumentException(section.label() + " clashes with " + other.label()
+                    + " on " + WeekMask.dayOf(slot) + " at " + WeekMask.timeOf(slot));
+            }
+        }
+
+        int updated = jdbcTemplate.update("UPDATE " + owner.assignments + " SET section_id = ? WHERE "
+            + owner.column + " = ? AND course_id = ?", sectionId, ownerId, section.courseId());
+        if (updated == 0) {
+            throw new IllegalArgumentException(owner.resource + " " + ownerId + " does not take the course of "
+                + section.label());
+        }
+    }
+
+    private List<ClashDTO> findClashes(Owner owner, Long ownerId) {
+        if (jdbcTemplate.queryForList("SELECT id FROM " + owner.table + " WHERE id = ?", Long.class, ownerId).isEmpty()) {
+            throw new ResourceNotFoundException(owner.resource, "id", ownerId);
+        }
+        List<Section> sections = new ArrayList<>(loadSections("WHERE cs.id IN (SELECT section_id FROM "
+            + owner.assignments + " WHERE " + owner.column + " = ?)", ownerId).values());
+        List<ClashDTO> clashes = new ArrayList<>();
+        for (int i = 0; i < sections.size(); i++) {
+            for (int j = i + 1; j < sections.size(); j++) {
+                int slot = sections.get(i).mask().firstCommonSlot(sections.get(j).mask());
+                if (slot >= 0) {
+                    clashes.add(clash(owner.type, ownerId, sections.get(i), sections.get(j), slot));
+                }
+            }
+        }
+        return clashes;
+    }
+
+    /**
+     * Sections matching the filter, with their meetings folded into masks, by ID.
+     */
+    private Map<Long, Section> loadSections(String filter, Object... args) {
+        Map<Long, Section> sections = new LinkedHashMap<>();
+        jdbcTemplate.query(SECTIONS_SQL + filter, rs -> {
+            Section section = sections.get(rs.getLong("id"));
+            if (section == null) {
+                section = new Section(rs.getLong("id"), rs.getLong("course_id"), rs.getString("label"),
+                    (Long) rs.getObject("room_id"), WeekMask.empty());
+                sections.put(section.id(), section);
+            }
+            if (rs.getObject("day_of_week") != null) {
+                section.mask().addMeeting(DayOfWeek.of(rs.getInt("day_of_week")),
+                    rs.getObject("start_time", LocalTime.class), rs.getObject("end_time", LocalTime.class));
+            }
+        }, args);
+        return sections;
+    }
+
+    private Assignments loadAssignments(Owner owner, Map<Long, Integer> index) {
+        Assignments assignments = new Assignments();
+        jdbcTemplate.query("SELECT " + owner.column + ", section_id FROM " + owner.assignments
+            + " WHERE section_id IS NOT NULL ORDER BY " + owner.column, rs -> {
+                Integer section = index.get(rs.getLong(2));
+                if (section != null) {
+                    assignments.add(rs.getLong(1), section);
+                }
+            });
+        return assignments;
+    }
+
+    /**
+     * Checks each owner's sections in parallel and returns how many clashing pairs there are.
+     * Assignments must be grouped by owner.
+     */
+    private static long check(String type, Assignments assignments, Section[] sections,
+                              Queue<ClashDTO> reported, AtomicInteger reportSlots) {
+        int[] groupStarts = assignments.groupStarts();
+        LongAdder clashes = new LongAdder();
+        IntStream.range(0, groupStarts.length - 1).parallel().forEach(group -> {
+            int from = groupStarts[group];
+            int to = groupStarts[group + 1];
+            WeekMask busy = WeekMask.empty();
+            for (int i = from; i < to; i++) {
+                Section section = sections[assignments.sections[i]];
+                if (busy.intersects(section.mask())) {
+                    // Rare, so only now find which of the earlier sections it overlaps
+                    for (int j = from; j < i; j++) {
+                        Section earlier = sections[assignments.sections[j]];
+                        int slot = earlier.mask().firstCommonSlot(section.mask());
+                        if (slot >= 0) {
+                            clashes.increment();
+                            if (reportSlots.getAndDecrement() > 0) {
+                                reported.add(clash(type, assignments.owners[i], earlier, section, slot));
+                            }
+                        }
+                    }
+                }
+                busy.add(section.mask());
+            }
+        });
+        return clashes.sum();
+    }
+
+    private static ClashDTO clash(String type, long ownerId, Section first, Section second, int slot) {
+        return new ClashDTO(type, ownerId, first.label(), second.label(), WeekMask.dayOf(slot), WeekMask.timeOf(slot));
+    }
+
+    /**
+     * (owner, section index) pairs in two growable arrays, to keep a term's worth compact.
+     */
+    private static final class Assignments {
+
+        long[] owners = new long[1024];
+        int[] sections = new int[1024];
+        int size;
+
+        void add(long owner, int section) {
+            if (size == owners.length) {
+                owners = Arrays.copyOf(owners, size * 2);
+                sections = Arrays.copyOf(sections, size * 2);
+            }
+            owners[size] = owner;
+            sections[size] = section;
+            size++;
+        }
+
+        /**
+         * Start of each run of equal owners, followed by size.
+         */
+        int[] groupStarts() {
+            int[] starts = new int[size + 1];
+            int groups = 0;
+            for (int i = 0; i < size; i++) {
+                if (i == 0 || owners[i] != owners[i - 1]) {
+                    starts[groups++] = i;
+                }
+            }
+            starts[groups++] = size;
+            return Arrays.copyOf(starts, groups);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.config.TokenProperties;
+import com.example.spring_tutorial.model.User;
+import com.example.spring_tutorial.security.TokenClaims;
+import com.example.spring_tutorial.tenancy.TenantContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues and verifies HMAC-SHA256 signed access tokens (JWT format).
+ * Signing keys are derived from a shared master secret per rotation window,
+ * so every node computes the same key without coordination. Tokens signed
+ * with the current or previous window's key are accepted.
+ */
+@Service
+@Slf4j
+public class TokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final TokenProperties properties;
+    private final JsonMapper jsonMapper;
+    private final byte[] masterSecret;
+    private final long rotationSeconds;
+    private final Map<String, TokenClaims> verified = new ConcurrentHashMap<>();
+    private final Map<Long, SecretKeySpec> keys = new ConcurrentHashMap<>();
+
+    public TokenService(TokenProperties properties, JsonMapper jsonMapper) {
+        this.properties = properties;
+        this.jsonMapper = jsonMapper;
+        this.rotationSeconds = properties.getKeyRotation().toSeconds();
+        if (properties.getTtl().toSeconds() > rotationSeconds) {
+            throw new IllegalStateException("Token TTL must not exceed the key rotation period");
+        }
+        if (properties.getSecret() == null || properties.getSecret().isBlank()) {
+            if (properties.isEnabled()) {
+                log.warn("No app.security.token.secret configured; tokens will only be valid on this node");
+            }
+            this.masterSecret = new byte[32];
+            new SecureRandom().nextBytes(masterSecret);
+        } else {
+            this.masterSecret = properties.getSecret().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Issue a signed access token for the user, at the school the current thread works for.
+     */
+    public String issue(User user) {
+        long now = Instant.now().getEpochSecond();
+        long window = now / rotationSeconds;
+
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("alg", "HS256");
+        header.put("typ", "JWT");
+        header.put("kid", Long.toString(window));
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("sub", user.getId().toString());
+        payload.put("email", user.getEmail());
+        payload.put("role", user.getRole().name());
+        payload.put("tenant", TenantContext.current());
+        payload.put("iat", now);
+        payload.put("exp", now + properties.getTtl().toSeconds());
+
+        String signingInput = ENCODER.encodeToString(jsonMapper.writeValueAsBytes(header))
+            + "." + ENCODER.encodeToString(jsonMapper.writeValueAsBytes(payload));
+        return signingInput + "." + ENCODER.encodeToString(sign(window, signingInput));
+    }
+
+    /**
+     * Verify a token and return its claims. Results are cached, so repeat
+     * requests with the same token skip signature checking and JSON parsing.
+     */
+    public Optional<TokenClaims> verify(String token) {
+        long now = Instant.now().getEpochSecond();
+        TokenClaims cached = verified.get(token);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                return Optional.of(cached);
+            }
+            verified.remove(token);
+            return Optional.empty();
+        }
+
+        TokenClaims claims = parseAndVerify(token, now);
+        if (claims == null) {
+            return Optional.empty();
+        }
+        if (verified.size() >= properties.getCacheSize()) {
+            verified.values().removeIf(c -> c.isExpired(now));
+            if (verified.size() >= properties.getCacheSize()) {
+                verified.clear();
+            }
+        }
+        verified.put(token, claims);
+        return Optional.of(claims);
+    }
+
+    /**
+     * Lifetime of issued tokens in seconds.
+     */
+    public long getTtlSeconds() {
+        return properties.getTtl().toSeconds();
+    }
+
+    private TokenClaims parseAndVerify(String token, long now) {
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot <= firstDot) {
+            return null;
+        }
+        try {
+            Map<?, ?> header = jsonMapper.readValue(DECODER.decode(token.substring(0, firstDot)), Map.class);
+            long window = Long.parseLong(String.valueOf(header.get("kid")));
+            long currentWindow = now / rotationSeconds;
+            if (!"HS256".equals(header.get("alg")) || window > currentWindow || window < currentWindow - 1) {
+                return null;
+            }
+
+            byte[] expected = sign(window, token.substring(0, lastDot));
+            byte[] actual = DECODER.decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(expected, actual)) {
+                return null;
+            }
+
+            Map<?, ?> payload = jsonMapper.readValue(DECODER.decode(token.substring(firstDot + 1, lastDot)), Map.class);
+            // Tokens issued before multi-tenancy are the default school's
+            Object tenant = payload.get("tenant");
+            TokenClaims claims = new TokenClaims(
+                Long.valueOf(String.valueOf(payload.get("sub"))),
+                String.valueOf(payload.get("email")),
+                User.Role.valueOf(String.valueOf(payload.get("role"))),
+                tenant != null ? tenant.toString() : TenantContext.DEFAULT,
+                ((Number) payload.get("exp")).longValue()
+            );
+            return claims.isExpired(now) ? null : claims;
+        } catch (RuntimeException e) {
+            log.debug("Rejected malformed token: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private byte[] sign(long window, String signingInput) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(keys.computeIfAbsent(window, this::deriveKey));
+            if (keys.size() > 4) {
+                keys.keySet().removeIf(w -> w < window - 1);
+            }
+            return mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to sign token", e);
+        }
+    }
+
+    private SecretKeySpec deriveKey(long window) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(masterSecret, ALGORITHM));
+            byte[] key = mac.doFinal(("token-key:" + window).getBytes(StandardCharsets.US_ASCII));
+            return new SecretKeySpec(key, ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to derive signing key", e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.spring_tutorial.session;
+
+import com.example.spring_tutorial.tenancy.TenantRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deletes expired sessions from every school's session table. Stands in for Spring Session's
+ * own cleanup job (switched off with spring.session.jdbc.cleanup-cron), which would only
+ * ever see the default school's table. Attributes go with their session (ON DELETE CASCADE).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExpiredSessionCleaner {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TenantRegistry tenants;
+
+    @Scheduled(cron = "${app.session.cleanup-cron:0 * * * * *}")
+    public void deleteExpiredSessions() {
+        tenants.forEach(() -> {
+            int deleted = jdbcTemplate.update("DELETE FROM spring_session WHERE expiry_time < ?",
+                System.currentTimeMillis());
+            if (deleted > 0) {
+                log.debug("Deleted {} expired sessions", deleted);
+            }
+        });
+    }
+}
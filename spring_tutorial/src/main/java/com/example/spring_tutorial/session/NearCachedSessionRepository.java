@@ -0,0 +1,288 @@
+package com.example.spring_tutorial.session;
+
+import com.example.spring_tutorial.config.SessionStoreProperties;
+import com.example.spring_tutorial.tenancy.TenantContext;
+import org.springframework.session.FindByIndexNameSessionRepository;
+import org.springframework.session.Session;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Session repository that keeps recently used sessions in memory in front of
+ * the JDBC store. A cached session is served without a database read until its
+ * TTL runs out, then it is reloaded so changes from other nodes are picked up.
+ *
+ * Writes still go through the JDBC repository, which only persists attributes
+ * that changed during the request. Last-access updates are throttled so that
+ * read-only requests don't cause an UPDATE each time.
+ *
+ * Every request gets a {@link CachedSession} of its own over the cached stored session:
+ * its changes stay with it until it is saved, so concurrent requests for the same
+ * session neither see nor persist each other's unsaved changes.
+ *
+ * Each school has a cache of its own, as it has a session table of its own: a session id
+ * is only ever looked up among the sessions of the school the request is for.
+ */
+public class NearCachedSessionRepository
+        implements FindByIndexNameSessionRepository<NearCachedSessionRepository.CachedSession> {
+
+    private final FindByIndexNameSessionRepository<Session> delegate;
+    private final Map<String, Map<String, Entry>> caches = new ConcurrentHashMap<>();
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final Duration lastAccessWriteInterval;
+
+    @SuppressWarnings("unchecked")
+    public NearCachedSessionRepository(FindByIndexNameSessionRepository<? extends Session> delegate,
+                                       SessionStoreProperties properties) {
+        this.delegate = (FindByIndexNameSessionRepository<Session>) delegate;
+        this.ttlNanos = properties.getTtl().toNanos();
+        this.maxEntries = properties.getMaxEntries();
+        this.lastAccessWriteInterval = properties.getLastAccessWriteInterval();
+    }
+
+    @Override
+    public CachedSession createSession() {
+        return new CachedSession(new Entry(delegate.createSession(), System.nanoTime()));
+    }
+
+    @Override
+    public void save(CachedSession session) {
+        Map<String, Entry> cache = cache();
+        Entry entry = session.entry;
+        String id;
+        synchronized (entry) {
+            session.applyTo(entry);
+            delegate.save(entry.target);
+            entry.persistedLastAccessedTime = entry.target.getLastAccessedTime();
+            id = entry.target.getId();
+        }
+        if (!session.originalId.equals(id)) {
+            cache.remove(session.originalId, entry);
+            session.originalId = id;
+        }
+        // Keep the original load time so the entry still gets revalidated on schedule
+        if (cache.get(id) != entry) {
+            put(cache, id, entry);
+        }
+    }
+
+    @Override
+    public CachedSession findById(String id) {
+        Map<String, Entry> cache = cache();
+        Entry entry = cache.get(id);
+        if (entry != null && System.nanoTime() - entry.loadedAt < ttlNanos) {
+            if (!entry.isExpired()) {
+                return new CachedSession(entry);
+            }
+            cache.remove(id, entry);
+        }
+        Session loaded = delegate.findById(id);
+        if (loaded == null) {
+            cache.remove(id);
+            return null;
+        }
+        Entry fresh = new Entry(loaded, System.nanoTime());
+        put(cache, id, fresh);
+        return new CachedSession(fresh);
+    }
+
+    @Override
+    public void deleteById(String id) {
+        cache().remove(id);
+        delegate.deleteById(id);
+    }
+
+    @Override
+    public Map<String, CachedSession> findByIndexNameAndIndexValue(String indexName, String indexValue) {
+        Map<String, CachedSession> sessions = new LinkedHashMap<>();
+        delegate.findByIndexNameAndIndexValue(indexName, indexValue)
+            .forEach((id, session) -> sessions.put(id, new CachedSession(new Entry(session, System.nanoTime()))));
+        return sessions;
+    }
+
+    private Map<String, Entry> cache() {
+        return caches.computeIfAbsent(TenantContext.current(), tenant -> new ConcurrentHashMap<>());
+    }
+
+    private void put(Map<String, Entry> cache, String id, Entry entry) {
+        if (cache.size() >= maxEntries) {
+            long now = System.nanoTime();
+            cache.values().removeIf(e -> now - e.loadedAt >= ttlNanos || e.isExpired());
+            if (cache.size() >= maxEntries) {
+                return;
+            }
+        }
+        cache.put(id, entry);
+    }
+
+    /**
+     * A stored session as last loaded or saved on this node, shared by the requests for it.
+     * Only accessed while holding its monitor.
+     */
+    private static final class Entry {
+
+        private final Session target;
+        private final long loadedAt;
+        // The stored last-access time trails behind by up to last-access-write-interval
+        private Instant lastAccessedTime;
+        private Instant persistedLastAccessedTime;
+
+        Entry(Session target, long loadedAt) {
+            this.target = target;
+            this.loadedAt = loadedAt;
+            this.lastAccessedTime = target.getLastAccessedTime();
+            this.persistedLastAccessedTime = lastAccessedTime;
+        }
+
+        synchronized boolean isExpired() {
+            return expired(target.getMaxInactiveInterval(), lastAccessedTime);
+        }
+    }
+
+    private static boolean expired(Duration maxInactive, Instant lastAccessedTime) {
+        return !maxInactive.isNegative() && Instant.now().minus(maxInactive).compareTo(lastAccessedTime) >= 0;
+    }
+
+    /**
+     * One request's view of a session. Reads see the session as last saved on this node
+     * plus this request's own changes; the changes are applied to the stored session when
+     * it is saved. Attribute values themselves are not copied, so a value must be replaced
+     * with setAttribute rather than changed in place (as Spring Security does with its context).
+     * Not thread-safe, like the request it belongs to.
+     */
+    public final class CachedSession implements Session {
+
+        private final Entry entry;
+        private final Map<String, Object> changedAttributes = new HashMap<>();
+        private String originalId;
+        private String id;
+        private Duration maxInactiveInterval;
+        private Instant lastAccessedTime;
+
+        CachedSession(Entry entry) {
+            this.entry = entry;
+            synchronized (entry) {
+                this.originalId = entry.target.getId();
+                this.lastAccessedTime = entry.lastAccessedTime;
+            }
+            this.id = originalId;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Takes effect for every request for the session at once, as the old id must stop working.
+         */
+        @Override
+        public String changeSessionId() {
+            synchronized (entry) {
+                id = entry.target.changeSessionId();
+            }
+            return id;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T getAttribute(String attributeName) {
+            if (changedAttributes.containsKey(attributeName)) {
+                return (T) changedAttributes.get(attributeName);
+            }
+            synchronized (entry) {
+                return entry.target.getAttribute(attributeName);
+            }
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            Set<String> names;
+            synchronized (entry) {
+                names = new LinkedHashSet<>(entry.target.getAttributeNames());
+            }
+            changedAttributes.forEach((name, value) -> {
+                if (value == null) {
+                    names.remove(name);
+                } else {
+                    names.add(name);
+                }
+            });
+            return names;
+        }
+
+        @Override
+        public void setAttribute(String attributeName, Object attributeValue) {
+            changedAttributes.put(attributeName, attributeValue);
+        }
+
+        @Override
+        public void removeAttribute(String attributeName) {
+            changedAttributes.put(attributeName, null);
+        }
+
+        @Override
+        public Instant getCreationTime() {
+            synchronized (entry) {
+                return entry.target.getCreationTime();
+            }
+        }
+
+        @Override
+        public void setLastAccessedTime(Instant lastAccessedTime) {
+            this.lastAccessedTime = lastAccessedTime;
+        }
+
+        @Override
+        public Instant getLastAccessedTime() {
+            return lastAccessedTime;
+        }
+
+        @Override
+        public void setMaxInactiveInterval(Duration interval) {
+            this.maxInactiveInterval = interval;
+        }
+
+        @Override
+        public Duration getMaxInactiveInterval() {
+            if (maxInactiveInterval != null) {
+                return maxInactiveInterval;
+            }
+            synchronized (entry) {
+                return entry.target.getMaxInactiveInterval();
+            }
+        }
+
+        @Override
+        public boolean isExpired() {
+            return expired(getMaxInactiveInterval(), lastAccessedTime);
+        }
+
+        /**
+         * Called with the entry's monitor held.
+         */
+        private void applyTo(Entry entry) {
+            changedAttributes.forEach(entry.target::setAttribute);
+            changedAttributes.clear();
+            if (maxInactiveInterval != null) {
+                entry.target.setMaxInactiveInterval(maxInactiveInterval);
+                maxInactiveInterval = null;
+            }
+            if (lastAccessedTime.isAfter(entry.lastAccessedTime)) {
+                entry.lastAccessedTime = lastAccessedTime;
+            }
+            if (Duration.between(entry.persistedLastAccessedTime, entry.lastAccessedTime)
+                    .compareTo(lastAccessWriteInterval) >= 0) {
+                entry.target.setLastAccessedTime(entry.lastAccessedTime);
+            }
+        }
+    }
+}
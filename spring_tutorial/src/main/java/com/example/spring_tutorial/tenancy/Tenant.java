@@ -0,0 +1,10 @@
+package com.example.spring_tutorial.tenancy;
+
+import java.util.Set;
+
+/**
+ * One school: its id, the schema its tables live in, the hosts it is served on
+ * and how many connections it may hold at once (0 for no limit).
+ */
+public record Tenant(String id, String schema, Set<String> hosts, int maxConnections) {
+}
@@ -0,0 +1,88 @@
+package com.example.spring_tutorial.tenancy;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+import org.hibernate.engine.jdbc.connections.spi.MultiTenantConnectionProvider;
+import org.hibernate.service.UnknownUnwrapTypeException;
+
+import javax.sql.DataSource;
+import java.io.Serial;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Hibernate's side of schema-per-school: each session is opened for the school bound when it
+ * starts and always connects as that school, even if the session is used from another thread.
+ * Schema and connection quota are applied by {@link TenantDataSource}.
+ */
+@RequiredArgsConstructor
+public class TenantConnectionProvider implements MultiTenantConnectionProvider<String>,
+        CurrentTenantIdentifierResolver<String> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    // Hibernate's services are Serializable, but this one is never serialized
+    private final transient DataSource dataSource;
+
+    @Override
+    public String resolveCurrentTenantIdentifier() {
+        return TenantContext.current();
+    }
+
+    @Override
+    public boolean validateExistingCurrentSessions() {
+        return true;
+    }
+
+    /**
+     * Used for schema validation at startup, which checks the default school's tables.
+     */
+    @Override
+    public Connection getAnyConnection() throws SQLException {
+        return getConnection(TenantContext.DEFAULT);
+    }
+
+    @Override
+    public void releaseAnyConnection(Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public Connection getConnection(String tenant) throws SQLException {
+        TenantContext.Binding binding = TenantContext.bind(tenant);
+        try {
+            return dataSource.getConnection();
+        } finally {
+            binding.close();
+        }
+    }
+
+    @Override
+    public void releaseConnection(String tenant, Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    @Override
+    public boolean handlesConnectionSchema() {
+        return true;
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> type) {
+        return type.isInstance(this);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) {
+        if (type.isInstance(this)) {
+            return type.cast(this);
+        }
+        throw new UnknownUnwrapTypeException(type);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.spring_tutorial.tenancy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The school the current thread works for.
+ *
+ * {@link TenantFilter} binds it for each request; scheduled work binds each school in turn.
+ * Like the query budget it is inherited by threads started while it is bound (such as the
+ * virtual threads of ProfileService). Unbound threads work for the default school.
+ */
+@Slf4j
+public final class TenantContext {
+
+    public static final String DEFAULT = "default";
+
+    private static final InheritableThreadLocal<String> CURRENT = new InheritableThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    /**
+     * Restores the school bound before, when closed.
+     */
+    public interface Binding extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Id of the school the current thread works for.
+     */
+    public static String current() {
+        String tenant = CURRENT.get();
+        return tenant != null ? tenant : DEFAULT;
+    }
+
+    /**
+     * Work for a school until the returned binding is closed.
+     */
+    public static Binding bind(String tenant) {
+        String previous = CURRENT.get();
+        CURRENT.set(tenant);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    public static void run(String tenant, Runnable task) {
+        Binding binding = bind(tenant);
+        try {
+            task.run();
+        } finally {
+            binding.close();
+        }
+    }
+
+    /**
+     * Run a task once for each school. A school whose run fails is logged and the rest still run.
+     */
+    public static void forEach(Collection<String> tenants, Runnable task) {
+        for (String tenant : List.copyOf(tenants)) {
+            try {
+                run(tenant, task);
+            } catch (RuntimeException e) {
+                log.error("Scheduled work failed for school {}", tenant, e);
+            }
+        }
+    }
+}
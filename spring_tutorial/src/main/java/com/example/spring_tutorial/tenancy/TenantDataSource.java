@@ -0,0 +1,281 @@
+package com.example.spring_tutorial.tenancy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The application DataSource as seen by the current school: every connection handed out
+ * has its search_path set to the school's schema, so JdbcTemplate, Hibernate, Spring Session
+ * and Flyway all work on that school's tables without knowing about tenancy.
+ *
+ * All schools share one pool, but each may only hold max-connections of it at once. Past
+ * that, a request waits up to connection-timeout for one of its own school's connections to
+ * come back, so a busy school queues behind itself instead of starving the others. The quotas
+ * together must fit in the pool, which is checked at startup.
+ *
+ * Work that already holds one of its school's connections never waits for another: a request
+ * kept on its connection by open-session-in-view while ProfileService loads in parallel would
+ * otherwise wait on itself, and with a few such requests the school's quota is held entirely by
+ * requests waiting on each other. Such nested connections are taken over the limit when the quota
+ * is used up (counted as tenant.connections.borrowed), which is what the pool's room beyond the
+ * quotas is for. Threads started while a connection is held count as the same work.
+ *
+ * The pool does not put search_path back when a connection is returned, so each physical
+ * connection remembers the schema it was last switched to and is only switched when handed to
+ * another school.
+ */
+public class TenantDataSource extends DelegatingDataSource implements MeterBinder {
+
+    private final TenantRegistry tenants;
+    private final long timeoutNanos;
+    private final Map<String, Quota> quotas = new LinkedHashMap<>();
+    private final InheritableThreadLocal<Holding> holdings = new InheritableThreadLocal<>();
+    // Keyed by the driver's connection, which outlives the pool's wrapper around it
+    private final Map<Object, String> schemas = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * @throws IllegalStateException if the schools' max-connections add up to more than the pool holds
+     */
+    public TenantDataSource(DataSource target, TenantRegistry tenants, Duration connectionTimeout) {
+        super(target);
+        this.tenants = tenants;
+        this.timeoutNanos = connectionTimeout.toNanos();
+        for (Tenant tenant : tenants.all()) {
+            quotas.put(tenant.id(), new Quota(tenant));
+        }
+        requireRoomInPool(target, tenants);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return open(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return open(username, password);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        quotas.values().forEach(quota -> quota.bindTo(registry));
+    }
+
+    private Connection open(String username, String password) throws SQLException {
+        Tenant tenant = tenants.current();
+        Quota quota = quotas.get(tenant.id());
+        Holding holding = holdings.get();
+        boolean nested = holding != null && holding.holds(tenant.id());
+        if (!nested) {
+            holding = new Holding(tenant.id());
+            holdings.set(holding);
+        }
+        boolean permit = quota.acquire(nested);
+        holding.connections.incrementAndGet();
+        try {
+            Connection connection = username == null
+                ? getTargetDataSource().getConnection()
+                : getTargetDataSource().getConnection(username, password);
+            try {
+                switchSchema(connection, tenant.schema());
+            } catch (SQLException | RuntimeException e) {
+                connection.close();
+                throw e;
+            }
+            return quota.track(connection, holding, permit);
+        } catch (SQLException | RuntimeException e) {
+            quota.release(holding, permit);
+            throw e;
+        }
+    }
+
+    /**
+     * Switched on the driver's connection, so the pool neither notices nor undoes it.
+     */
+    private void switchSchema(Connection connection, String schema) throws SQLException {
+        if (!connection.isWrapperFor(PGConnection.class)) {
+            connection.setSchema(schema);
+            return;
+        }
+        Connection physical = (Connection) connection.unwrap(PGConnection.class);
+        if (!schema.equals(schemas.get(physical))) {
+            physical.setSchema(schema);
+            schemas.put(physical, schema);
+        }
+    }
+
+    private static void requireRoomInPool(DataSource target, TenantRegistry tenants) {
+        int limits = tenants.all().stream().mapToInt(Tenant::maxConnections).sum();
+        try {
+            if (limits > 0 && target.isWrapperFor(HikariDataSource.class)) {
+                int poolSize = target.unwrap(HikariDataSource.class).getMaximumPoolSize();
+                if (limits > poolSize) {
+                    throw new IllegalStateException("The schools' max-connections add up to " + limits
+                        + ", more than the pool's maximum-pool-size of " + poolSize);
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot find the pool size", e);
+        }
+    }
+
+    /**
+     * Connections of one school held by a thread and the threads it started.
+     */
+    private static final class Holding {
+
+        private final String tenant;
+        private final AtomicInteger connections = new AtomicInteger();
+
+        Holding(String tenant) {
+            this.tenant = tenant;
+        }
+
+        boolean holds(String tenant) {
+            return this.tenant.equals(tenant) && connections.get() > 0;
+        }
+    }
+
+    /**
+     * Connections one school holds, and the permits that cap them.
+     */
+    private final class Quota {
+
+        private final Tenant tenant;
+        private final Semaphore permits;
+        private final AtomicInteger active = new AtomicInteger();
+        private volatile Timer waits;
+        private volatile Counter rejections;
+        private volatile Counter borrowed;
+
+        Quota(Tenant tenant) {
+            this.tenant = tenant;
+            this.permits = tenant.maxConnections() > 0 ? new Semaphore(tenant.maxConnections(), true) : null;
+        }
+
+        /**
+         * Returns whether a permit was taken: a nested connection goes over the limit rather than wait.
+         */
+        boolean acquire(boolean nested) throws SQLException {
+            boolean permit = permits != null;
+            if (permit && !permits.tryAcquire()) {
+                if (nested) {
+                    permit = false;
+                    if (borrowed != null) {
+                        borrowed.increment();
+                    }
+                } else {
+                    waitForPermit();
+                }
+            }
+            active.incrementAndGet();
+            return permit;
+        }
+
+        private void waitForPermit() throws SQLException {
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("Interrupted waiting for a connection", e);
+            } finally {
+                if (waits != null) {
+                    waits.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+            if (!acquired) {
+                if (rejections != null) {
+                    rejections.increment();
+                }
+                throw new SQLTransientConnectionException("School " + tenant.id() + " already holds its "
+                    + tenant.maxConnections() + " connections");
+            }
+        }
+
+        void release(Holding holding, boolean permit) {
+            holding.connections.decrementAndGet();
+            active.decrementAndGet();
+            if (permit) {
+                permits.release();
+            }
+        }
+
+        /**
+         * Gives the permit back once the connection is closed, exactly once.
+         */
+        Connection track(Connection connection, Holding holding, boolean permit) {
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "close" -> {
+                        try {
+                            connection.close();
+                        } finally {
+                            if (closed.compareAndSet(false, true)) {
+                                release(holding, permit);
+                            }
+                        }
+                        yield null;
+                    }
+                    default -> {
+                        try {
+                            yield method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                });
+        }
+
+        void bindTo(MeterRegistry registry) {
+            Gauge.builder("tenant.connections.active", active, AtomicInteger::get)
+                .description("Connections a school holds")
+                .tag("tenant", tenant.id())
+                .register(registry);
+            if (permits != null) {
+                Gauge.builder("tenant.connections.max", tenant, Tenant::maxConnections)
+                    .description("Connections a school may hold at once")
+                    .tag("tenant", tenant.id())
+                    .register(registry);
+                waits = Timer.builder("tenant.connections.wait")
+                    .description("Time spent waiting for a connection because the school was at its limit")
+                    .tag("tenant", tenant.id())
+                    .register(registry);
+                rejections = Counter.builder("tenant.connections.rejected")
+                    .description("Connection requests that timed out at the school's limit")
+                    .tag("tenant", tenant.id())
+                    .register(registry);
+                borrowed = Counter.builder("tenant.connections.borrowed")
+                    .description("Connections taken over the school's limit by work already holding one of its connections")
+                    .tag("tenant", tenant.id())
+                    .register(registry);
+            }
+        }
+    }
+}
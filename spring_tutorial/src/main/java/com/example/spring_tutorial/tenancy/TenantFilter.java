@@ -0,0 +1,47 @@
+package com.example.spring_tutorial.tenancy;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Works out which school a request is for and binds it for the rest of the chain,
+ * so sessions, security and every repository see that school's schema.
+ * Requests for no known school are answered 404 without going further.
+ */
+@RequiredArgsConstructor
+public class TenantFilter extends OncePerRequestFilter {
+
+    /**
+     * Request attribute holding the school's id, for metrics recorded after the chain has returned.
+     */
+    public static final String TENANT_ATTRIBUTE = TenantFilter.class.getName() + ".tenant";
+
+    private final TenantRegistry tenants;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Tenant tenant = tenants.resolve(request);
+        if (tenant == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"Unknown school\"}");
+            return;
+        }
+        request.setAttribute(TENANT_ATTRIBUTE, tenant.id());
+        TenantContext.Binding binding = TenantContext.bind(tenant.id());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            binding.close();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.spring_tutorial.tenancy;
+
+import com.example.spring_tutorial.config.TenancyProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * The schools this deployment serves, from app.tenancy.
+ *
+ * The default school always exists and keeps its tables in public, so a single-school
+ * database becomes the default tenant as it is. Every other school has a schema of its own
+ * with the same tables, migrated by Flyway at startup.
+ */
+@Component
+public class TenantRegistry {
+
+    public static final String PUBLIC_SCHEMA = "public";
+
+    // Ids end up in metric tags, file names and headers; schemas in SQL
+    private static final Pattern ID = Pattern.compile("[a-z0-9][a-z0-9-]{0,62}");
+    private static final Pattern SCHEMA = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
+    private final boolean enabled;
+    private final String header;
+    private final Map<String, Tenant> byId = new LinkedHashMap<>();
+    private final Map<String, Tenant> byHost = new HashMap<>();
+
+    public TenantRegistry(TenancyProperties properties) {
+        this.enabled = properties.isEnabled();
+        this.header = properties.getHeader() == null || properties.getHeader().isBlank()
+            ? null : properties.getHeader();
+
+        Map<String, TenancyProperties.Tenant> configured = new LinkedHashMap<>();
+        configured.put(TenantContext.DEFAULT, new TenancyProperties.Tenant());
+        if (enabled) {
+            configured.putAll(properties.getTenants());
+        }
+        for (Map.Entry<String, TenancyProperties.Tenant> entry : configured.entrySet()) {
+            String id = entry.getKey();
+            TenancyProperties.Tenant settings = entry.getValue();
+            String schema = TenantContext.DEFAULT.equals(id) ? PUBLIC_SCHEMA
+                : settings.getSchema() != null ? settings.getSchema() : id.replace('-', '_');
+            if (!ID.matcher(id).matches() || !SCHEMA.matcher(schema).matches()) {
+                throw new IllegalStateException("Invalid school id or schema: " + id + " (" + schema + ")");
+            }
+            if (TenantContext.DEFAULT.equals(id) && settings.getSchema() != null
+                    && !PUBLIC_SCHEMA.equals(settings.getSchema())) {
+                throw new IllegalStateException("The default school's tables are in public");
+            }
+            if (byId.values().stream().anyMatch(t -> t.schema().equals(schema))) {
+                throw new IllegalStateException("Two schools share the schema " + schema);
+            }
+            int maxConnections = !enabled ? 0
+                : settings.getMaxConnections() != null ? settings.getMaxConnections() : properties.getMaxConnections();
+            Set<String> hosts = settings.getHosts().stream()
+                .map(h -> h.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+            Tenant tenant = new Tenant(id, schema, hosts, Math.max(maxConnections, 0));
+            byId.put(id, tenant);
+            for (String host : hosts) {
+                if (byHost.putIfAbsent(host, tenant) != null) {
+                    throw new IllegalStateException("Host " + host + " is listed for two schools");
+                }
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Collection<Tenant> all() {
+        return byId.values();
+    }
+
+    /**
+     * The school with this id, or null.
+     */
+    public Tenant get(String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * The school the current thread works for.
+     *
+     * @throws IllegalStateException if it is not one of ours
+     */
+    public Tenant current() {
+        String id = TenantContext.current();
+        Tenant tenant = byId.get(id);
+        if (tenant == null) {
+            throw new IllegalStateException("Unknown school: " + id);
+        }
+        return tenant;
+    }
+
+    /**
+     * The school a request is for: the one served on its host, otherwise the one named by the
+     * header, if a header is configured. The header can't move a request away from its host's
+     * school. Null if neither matches one. Without tenancy every request is for the default school.
+     */
+    public Tenant resolve(HttpServletRequest request) {
+        if (!enabled) {
+            return byId.get(TenantContext.DEFAULT);
+        }
+        String host = request.getServerName();
+        Tenant byHostName = host == null ? null : byHost.get(host.toLowerCase(Locale.ROOT));
+        if (byHostName != null) {
+            return byHostName;
+        }
+        String named = header != null ? request.getHeader(header) : null;
+        return named == null ? null : byId.get(named.trim());
+    }
+
+    /**
+     * Run a task once for each school, bound to it.
+     */
+    public void forEach(Runnable task) {
+        TenantContext.forEach(byId.keySet(), task);
+    }
+}
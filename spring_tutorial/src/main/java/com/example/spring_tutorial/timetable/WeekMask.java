@@ -0,0 +1,129 @@
+package com.example.spring_tutorial.timetable;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+/**
+ * The occupied time of one week as a bitset of 15-minute slots, Monday 00:00 first.
+ *
+ * 672 slots fit in eleven longs, so comparing two schedules is eleven ANDs no matter how
+ * many meetings they hold. Times are rounded outwards to whole slots: a meeting from
+ * 9:05 to 9:50 occupies 9:00 to 10:00. Like BitSet, masks are mutable; {@link #add}
+ * changes this mask in place.
+ */
+public final class WeekMask {
+
+    public static final int SLOT_MINUTES = 15;
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    public static final int SLOTS = 7 * SLOTS_PER_DAY;
+
+    private static final int WORDS = (SLOTS + 63) / 64;
+
+    private final long[] words = new long[WORDS];
+
+    public static WeekMask empty() {
+        return new WeekMask();
+    }
+
+    /**
+     * The slots covered by a weekly meeting from start to end on the given day.
+     *
+     * @throws IllegalArgumentException if end is not after start
+     */
+    public static WeekMask of(DayOfWeek day, LocalTime start, LocalTime end) {
+        return empty().addMeeting(day, start, end);
+    }
+
+    /**
+     * Marks the slots of another weekly meeting as occupied.
+     */
+    public WeekMask addMeeting(DayOfWeek day, LocalTime start, LocalTime end) {
+        if (!end.isAfter(start)) {
+            throw new IllegalArgumentException("Meeting must end after it starts: " + start + "-" + end);
+        }
+        int dayStart = (day.getValue() - 1) * SLOTS_PER_DAY;
+        int from = dayStart + start.toSecondOfDay() / 60 / SLOT_MINUTES;
+        int to = dayStart + (end.toSecondOfDay() / 60 + SLOT_MINUTES - 1) / SLOT_MINUTES;
+        setRange(from, to);
+        return this;
+    }
+
+    /**
+     * Marks every slot of the other mask as occupied in this one.
+     */
+    public WeekMask add(WeekMask other) {
+        for (int i = 0; i < WORDS; i++) {
+            words[i] |= other.words[i];
+        }
+        return this;
+    }
+
+    public boolean intersects(WeekMask other) {
+        for (int i = 0; i < WORDS; i++) {
+            if ((words[i] & other.words[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The first slot occupied in both masks, or -1 if they don't overlap.
+     */
+    public int firstCommonSlot(WeekMask other) {
+        for (int i = 0; i < WORDS; i++) {
+            long common = words[i] & other.words[i];
+            if (common != 0) {
+                return i * 64 + Long.numberOfTrailingZeros(common);
+            }
+        }
+        return -1;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static DayOfWeek dayOf(int slot) {
+        return DayOfWeek.of(slot / SLOTS_PER_DAY + 1);
+    }
+
+    public static LocalTime timeOf(int slot) {
+        return LocalTime.ofSecondOfDay((long) (slot % SLOTS_PER_DAY) * SLOT_MINUTES * 60);
+    }
+
+    /**
+     * Sets slots from (inclusive) to (exclusive), a word at a time.
+     */
+    private void setRange(int from, int to) {
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            words[first] |= firstMask & lastMask;
+            return;
+        }
+        words[first] |= firstMask;
+        for (int i = first + 1; i < last; i++) {
+            words[i] = -1L;
+        }
+        words[last] |= lastMask;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof WeekMask other && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+}
@@ -0,0 +1,22 @@
+-- Domain events for consumers outside the request (emailer, caches, search index).
+-- Written in the same transaction as the change they describe and delivered after
+-- commit by OutboxDispatcher, which claims rows with FOR UPDATE SKIP LOCKED so any
+-- number of nodes can dispatch. Delivered rows are deleted.
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id               BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    event_type       VARCHAR(64)  NOT NULL,
+    aggregate_id     VARCHAR(100) NOT NULL,
+    payload          JSONB        NOT NULL,
+    created_at       TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    -- Retry state: handlers still owed the event (NULL for all of them), when it may
+    -- next be tried, and when delivery was given up on
+    attempts         INTEGER      NOT NULL DEFAULT 0,
+    pending_handlers VARCHAR(64)[],
+    available_at     TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    last_error       VARCHAR(1000),
+    failed_at        TIMESTAMPTZ
+);
+
+-- The dispatcher's claim: events due now, oldest first. Given-up events stay out of it.
+CREATE INDEX IF NOT EXISTS idx_outbox_events_due ON outbox_events (available_at, id) WHERE failed_at IS NULL;
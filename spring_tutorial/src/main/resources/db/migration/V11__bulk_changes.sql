@@ -0,0 +1,10 @@
+-- A counter per school, bumped by jobs that change many rows at once on one node
+-- (department purges, cohort archiving). Every node polls it and rebuilds its
+-- in-memory people directory and prerequisite index when it moves.
+
+CREATE TABLE IF NOT EXISTS bulk_changes (
+    id         SMALLINT PRIMARY KEY DEFAULT 1 CHECK (id = 1),
+    generation BIGINT   NOT NULL DEFAULT 0
+);
+
+INSERT INTO bulk_changes (id, generation) VALUES (1, 0) ON CONFLICT DO NOTHING;
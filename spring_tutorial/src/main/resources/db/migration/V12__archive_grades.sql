@@ -0,0 +1,9 @@
+-- Archived enrolments keep their completion date (V7) and grade (V8), so archiving a
+-- cohort no longer loses them. Added on the partitioned parent, so every year's
+-- partition gets them; all nullable, so no table rewrite.
+
+ALTER TABLE student_courses_archive
+    ADD COLUMN IF NOT EXISTS completed_on   DATE,
+    ADD COLUMN IF NOT EXISTS grade          VARCHAR(2),
+    ADD COLUMN IF NOT EXISTS grade_points   SMALLINT,
+    ADD COLUMN IF NOT EXISTS graded_credits SMALLINT;
@@ -0,0 +1,23 @@
+-- Full-text search over the catalogue, kept by CourseSearchIndex from the course.* outbox
+-- events rather than in the transaction that changes the course. event_id is the latest
+-- event applied, so an event delivered late or twice can't undo a newer one; a deleted
+-- course keeps its row, marked deleted, for the same reason.
+
+CREATE TABLE IF NOT EXISTS course_search (
+    course_id     BIGINT       PRIMARY KEY,
+    code          VARCHAR(20),
+    name          VARCHAR(100),
+    credits       INTEGER,
+    department_id BIGINT,
+    deleted       BOOLEAN      NOT NULL DEFAULT false,
+    event_id      BIGINT       NOT NULL,
+    document      TSVECTOR     GENERATED ALWAYS AS
+        (to_tsvector('simple', coalesce(code, '') || ' ' || coalesce(name, ''))) STORED
+);
+
+CREATE INDEX IF NOT EXISTS idx_course_search_document ON course_search USING GIN (document) WHERE NOT deleted;
+
+-- Courses that exist already; events still in the outbox are newer and apply on top
+INSERT INTO course_search (course_id, code, name, credits, department_id, event_id)
+SELECT id, code, name, credits, department_id, 0 FROM courses
+ON CONFLICT (course_id) DO NOTHING;
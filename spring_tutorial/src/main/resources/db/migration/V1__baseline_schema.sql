@@ -0,0 +1,92 @@
+-- Baseline schema, matching what ddl-auto=update used to create.
+-- IF NOT EXISTS lets this run against databases that were created by Hibernate.
+
+CREATE TABLE IF NOT EXISTS departments (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    code             VARCHAR(10)  NOT NULL UNIQUE,
+    description      VARCHAR(500),
+    established_date DATE,
+    name             VARCHAR(100) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_at    DATE,
+    date_of_birth DATE,
+    email         VARCHAR(100) NOT NULL UNIQUE,
+    first_name    VARCHAR(50)  NOT NULL,
+    last_name     VARCHAR(50)  NOT NULL,
+    password      VARCHAR(255) NOT NULL,
+    role          VARCHAR(20)  NOT NULL CHECK (role IN ('TEACHER', 'STUDENT')),
+    updated_at    DATE
+);
+
+CREATE TABLE IF NOT EXISTS teachers (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    date_of_birth  DATE,
+    email          VARCHAR(100) NOT NULL UNIQUE,
+    first_name     VARCHAR(50)  NOT NULL,
+    hire_date      DATE,
+    last_name      VARCHAR(50)  NOT NULL,
+    specialization VARCHAR(500),
+    teacher_id     VARCHAR(20)  NOT NULL UNIQUE,
+    department_id  BIGINT REFERENCES departments (id)
+);
+
+CREATE TABLE IF NOT EXISTS students (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    created_by      VARCHAR(100),
+    date_of_birth   DATE,
+    email           VARCHAR(100) NOT NULL UNIQUE,
+    enrollment_date DATE,
+    first_name      VARCHAR(50)  NOT NULL,
+    last_name       VARCHAR(50)  NOT NULL,
+    student_id      VARCHAR(20)  NOT NULL UNIQUE,
+    department_id   BIGINT REFERENCES departments (id)
+);
+
+CREATE TABLE IF NOT EXISTS courses (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    code          VARCHAR(20)  NOT NULL UNIQUE,
+    credits       INTEGER,
+    description   VARCHAR(1000),
+    name          VARCHAR(100) NOT NULL,
+    department_id BIGINT REFERENCES departments (id)
+);
+
+CREATE TABLE IF NOT EXISTS student_courses (
+    student_id BIGINT NOT NULL REFERENCES students (id),
+    course_id  BIGINT NOT NULL REFERENCES courses (id),
+    PRIMARY KEY (student_id, course_id)
+);
+
+CREATE TABLE IF NOT EXISTS teacher_courses (
+    teacher_id BIGINT NOT NULL REFERENCES teachers (id),
+    course_id  BIGINT NOT NULL REFERENCES courses (id),
+    PRIMARY KEY (teacher_id, course_id)
+);
+
+-- Spring Session JDBC store
+CREATE TABLE IF NOT EXISTS spring_session (
+    primary_id            CHAR(36) NOT NULL,
+    session_id            CHAR(36) NOT NULL,
+    creation_time         BIGINT   NOT NULL,
+    last_access_time      BIGINT   NOT NULL,
+    max_inactive_interval INT      NOT NULL,
+    expiry_time           BIGINT   NOT NULL,
+    principal_name        VARCHAR(100),
+    CONSTRAINT spring_session_pk PRIMARY KEY (primary_id)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS spring_session_ix1 ON spring_session (session_id);
+CREATE INDEX IF NOT EXISTS spring_session_ix2 ON spring_session (expiry_time);
+CREATE INDEX IF NOT EXISTS spring_session_ix3 ON spring_session (principal_name);
+
+CREATE TABLE IF NOT EXISTS spring_session_attributes (
+    session_primary_id CHAR(36)     NOT NULL,
+    attribute_name     VARCHAR(200) NOT NULL,
+    attribute_bytes    BYTEA        NOT NULL,
+    CONSTRAINT spring_session_attributes_pk PRIMARY KEY (session_primary_id, attribute_name),
+    CONSTRAINT spring_session_attributes_fk FOREIGN KEY (session_primary_id)
+        REFERENCES spring_session (primary_id) ON DELETE CASCADE
+);
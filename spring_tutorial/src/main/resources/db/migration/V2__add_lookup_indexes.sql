@@ -0,0 +1,12 @@
+-- Indexes on hot lookup columns that ddl-auto never created.
+-- Built CONCURRENTLY so existing tables stay writable; see the .conf file.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_students_department_id ON students (department_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_teachers_department_id ON teachers (department_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_courses_department_id ON courses (department_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_role ON users (role);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_students_created_by ON students (created_by);
+
+-- The primary keys only cover (student_id, course_id) / (teacher_id, course_id)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_student_courses_course_id ON student_courses (course_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_teacher_courses_course_id ON teacher_courses (course_id);
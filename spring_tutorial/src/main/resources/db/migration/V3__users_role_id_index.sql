@@ -0,0 +1,6 @@
+-- Keyset pagination over users of one role (WHERE role = ? AND id > ? ORDER BY id)
+-- reads each page straight off this index. It also covers plain role lookups,
+-- so the single-column index from V2 is dropped.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_role_id ON users (role, id);
+DROP INDEX CONCURRENTLY IF EXISTS idx_users_role;
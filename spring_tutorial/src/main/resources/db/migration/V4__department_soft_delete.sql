@@ -0,0 +1,22 @@
+-- Deleting a department only sets deleted_at; DepartmentPurgeService removes the
+-- department and everything under it afterwards, in small batches.
+
+ALTER TABLE departments ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMP;
+
+-- Names and codes only have to be unique among live departments, so one waiting
+-- to be purged doesn't block creating a new department with the same name or code.
+-- The existing constraints have generated names (they differ between databases
+-- created by Flyway and by ddl-auto), so look them up.
+DO $$
+DECLARE
+    constraint_name TEXT;
+BEGIN
+    FOR constraint_name IN
+        SELECT conname FROM pg_constraint WHERE conrelid = 'departments'::regclass AND contype = 'u'
+    LOOP
+        EXECUTE format('ALTER TABLE departments DROP CONSTRAINT %I', constraint_name);
+    END LOOP;
+END $$;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_departments_code_live ON departments (code) WHERE deleted_at IS NULL;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_departments_name_live ON departments (name) WHERE deleted_at IS NULL;
@@ -0,0 +1,30 @@
+-- Graduated cohorts are moved out of students and student_courses into these
+-- archive tables by StudentArchiveService. Both are range-partitioned on
+-- enrollment_date, one partition per enrollment year (created by the job as
+-- needed), so a cohort lookup only touches that year's partition and a whole
+-- year can be detached or dropped without touching the rest.
+-- No foreign keys: archived rows outlive their departments and courses.
+
+CREATE TABLE IF NOT EXISTS students_archive (
+    id              BIGINT       NOT NULL,
+    created_by      VARCHAR(100),
+    date_of_birth   DATE,
+    email           VARCHAR(100) NOT NULL,
+    enrollment_date DATE         NOT NULL,
+    first_name      VARCHAR(50)  NOT NULL,
+    last_name       VARCHAR(50)  NOT NULL,
+    student_id      VARCHAR(20)  NOT NULL,
+    department_id   BIGINT,
+    archived_at     TIMESTAMP    NOT NULL DEFAULT now(),
+    PRIMARY KEY (id, enrollment_date)
+) PARTITION BY RANGE (enrollment_date);
+
+CREATE TABLE IF NOT EXISTS student_courses_archive (
+    student_id      BIGINT NOT NULL,
+    course_id       BIGINT NOT NULL,
+    enrollment_date DATE   NOT NULL,
+    PRIMARY KEY (student_id, course_id, enrollment_date)
+) PARTITION BY RANGE (enrollment_date);
+
+-- The archival job picks cohorts by enrollment date
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_students_enrollment_date ON students (enrollment_date);
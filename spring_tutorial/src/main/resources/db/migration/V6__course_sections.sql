@@ -0,0 +1,59 @@
+-- Weekly meeting times for courses. A course runs as one or more sections, each
+-- optionally held in a room, and each section meets in weekly time ranges.
+-- Enrolments (student_courses) and teaching assignments (teacher_courses) name the
+-- section they attend once one is assigned; TimetableService checks those for clashes.
+
+CREATE TABLE IF NOT EXISTS rooms (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    code     VARCHAR(20) NOT NULL UNIQUE,
+    capacity INTEGER
+);
+
+CREATE TABLE IF NOT EXISTS course_sections (
+    id        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    course_id BIGINT      NOT NULL REFERENCES courses (id) ON DELETE CASCADE,
+    code      VARCHAR(20) NOT NULL,
+    room_id   BIGINT REFERENCES rooms (id),
+    UNIQUE (course_id, code),
+    -- Target of the enrolment foreign keys, which pin a section to the enrolled course
+    UNIQUE (id, course_id)
+);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_course_sections_room ON course_sections (room_id);
+
+CREATE TABLE IF NOT EXISTS section_meetings (
+    section_id  BIGINT   NOT NULL REFERENCES course_sections (id) ON DELETE CASCADE,
+    day_of_week SMALLINT NOT NULL CHECK (day_of_week BETWEEN 1 AND 7),
+    start_time  TIME     NOT NULL,
+    end_time    TIME     NOT NULL,
+    CHECK (end_time > start_time)
+);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_section_meetings_section ON section_meetings (section_id);
+
+-- Nullable with no default, so adding the columns doesn't rewrite the tables.
+-- Dropping a section only clears it from the enrolments; the course enrolment stays.
+-- This script runs outside a transaction, so after a failure it is run again from the
+-- top: the constraints are only added if an earlier attempt hasn't already added them.
+ALTER TABLE student_courses ADD COLUMN IF NOT EXISTS section_id BIGINT;
+ALTER TABLE teacher_courses ADD COLUMN IF NOT EXISTS section_id BIGINT;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conrelid = 'student_courses'::regclass
+                   AND conname = 'fk_student_courses_section') THEN
+        ALTER TABLE student_courses ADD CONSTRAINT fk_student_courses_section FOREIGN KEY (section_id, course_id)
+            REFERENCES course_sections (id, course_id) ON DELETE SET NULL (section_id);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conrelid = 'teacher_courses'::regclass
+                   AND conname = 'fk_teacher_courses_section') THEN
+        ALTER TABLE teacher_courses ADD CONSTRAINT fk_teacher_courses_section FOREIGN KEY (section_id, course_id)
+            REFERENCES course_sections (id, course_id) ON DELETE SET NULL (section_id);
+    END IF;
+END $$;
+
+-- Deleting a section clears it from the enrolments, which looks them up by section
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_student_courses_section ON student_courses (section_id)
+    WHERE section_id IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_teacher_courses_section ON teacher_courses (section_id)
+    WHERE section_id IS NOT NULL;
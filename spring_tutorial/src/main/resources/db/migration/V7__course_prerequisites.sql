@@ -0,0 +1,18 @@
+-- Courses a student must have completed before enrolling in another. The edges form
+-- a DAG; PrerequisiteService rejects any edge that would close a cycle, and
+-- PrerequisiteIndex keeps the transitive closure in memory for eligibility checks.
+
+CREATE TABLE IF NOT EXISTS course_prerequisites (
+    course_id       BIGINT NOT NULL REFERENCES courses (id) ON DELETE CASCADE,
+    prerequisite_id BIGINT NOT NULL REFERENCES courses (id) ON DELETE CASCADE,
+    PRIMARY KEY (course_id, prerequisite_id),
+    CHECK (course_id <> prerequisite_id)
+);
+
+-- Deleting a course removes the edges that point at it
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_course_prerequisites_prerequisite
+    ON course_prerequisites (prerequisite_id);
+
+-- Set when the student finishes the course. Nullable with no default, so adding it
+-- doesn't rewrite the table.
+ALTER TABLE student_courses ADD COLUMN IF NOT EXISTS completed_on DATE;
@@ -0,0 +1,45 @@
+-- Grades recorded against enrolments, with running totals per student, course and
+-- department. GradeService updates the totals by the difference each write makes, so
+-- reading a GPA or a course average is a primary key lookup; a nightly reconcile
+-- recomputes them from student_courses.
+
+-- Points are hundredths of a grade point (A = 400). graded_credits is the course's credit
+-- count when the grade was recorded, so a later change to the course's credits can't
+-- leave the totals unable to take the grade back out. All nullable, so no table rewrite.
+ALTER TABLE student_courses
+    ADD COLUMN IF NOT EXISTS grade          VARCHAR(2),
+    ADD COLUMN IF NOT EXISTS grade_points   SMALLINT,
+    ADD COLUMN IF NOT EXISTS graded_credits SMALLINT;
+
+-- weighted_points is the sum of grade_points * graded_credits
+CREATE TABLE IF NOT EXISTS student_grade_stats (
+    student_id      BIGINT PRIMARY KEY REFERENCES students (id) ON DELETE CASCADE,
+    graded_count    INTEGER NOT NULL,
+    graded_credits  BIGINT  NOT NULL,
+    points_sum      BIGINT  NOT NULL,
+    weighted_points BIGINT  NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS course_grade_stats (
+    course_id       BIGINT PRIMARY KEY REFERENCES courses (id) ON DELETE CASCADE,
+    graded_count    INTEGER NOT NULL,
+    graded_credits  BIGINT  NOT NULL,
+    points_sum      BIGINT  NOT NULL,
+    weighted_points BIGINT  NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS department_grade_stats (
+    department_id   BIGINT PRIMARY KEY REFERENCES departments (id) ON DELETE CASCADE,
+    graded_count    INTEGER NOT NULL,
+    graded_credits  BIGINT  NOT NULL,
+    points_sum      BIGINT  NOT NULL,
+    weighted_points BIGINT  NOT NULL
+);
+
+-- How many students of a course hold each grade
+CREATE TABLE IF NOT EXISTS course_grade_distribution (
+    course_id BIGINT     NOT NULL REFERENCES courses (id) ON DELETE CASCADE,
+    grade     VARCHAR(2) NOT NULL,
+    students  INTEGER    NOT NULL,
+    PRIMARY KEY (course_id, grade)
+);
@@ -0,0 +1,14 @@
+-- One row per student per session of a section, written in batches by AttendanceService.
+-- A later scan for the same session replaces an earlier one.
+
+CREATE TABLE IF NOT EXISTS attendance (
+    section_id   BIGINT      NOT NULL REFERENCES course_sections (id) ON DELETE CASCADE,
+    session_date DATE        NOT NULL,
+    student_id   BIGINT      NOT NULL REFERENCES students (id) ON DELETE CASCADE,
+    status       VARCHAR(8)  NOT NULL,
+    recorded_at  TIMESTAMPTZ NOT NULL,
+    PRIMARY KEY (section_id, session_date, student_id)
+);
+
+-- A student's own record, and the cascade when a student is removed
+CREATE INDEX IF NOT EXISTS idx_attendance_student ON attendance (student_id, session_date);
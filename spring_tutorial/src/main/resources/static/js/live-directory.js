@@ -0,0 +1,80 @@
+// Applies live changes from /events/directory to a table body marked with data-live="student|teacher|course".
+// Rows are matched on data-key (email for people, id for courses).
+(function () {
+    var tbody = document.querySelector('tbody[data-live]');
+    if (!tbody || !window.EventSource) {
+        return;
+    }
+    var type = tbody.getAttribute('data-live');
+
+    var columns = {
+        student: function (d) { return [d.id, d.firstName + ' ' + d.lastName, d.email, 'Student']; },
+        teacher: function (d) { return [d.id, d.firstName + ' ' + d.lastName, d.email, 'Teacher']; },
+        course: function (d) { return [d.id, d.name, d.code, d.credits, d.department]; }
+    };
+
+    function findRow(key) {
+        var rows = tbody.querySelectorAll('tr[data-key]');
+        for (var i = 0; i < rows.length; i++) {
+            if (rows[i].getAttribute('data-key') === key) {
+                return rows[i];
+            }
+        }
+        return null;
+    }
+
+    function upsert(data) {
+        var values = columns[type](data);
+        var row = findRow(data.key);
+        if (!row) {
+            // The people pages list accounts; a profile change alone doesn't add a row
+            if (data.id === undefined || data.id === null) {
+                return;
+            }
+            row = document.createElement('tr');
+            row.setAttribute('data-key', data.key);
+            for (var i = 0; i < values.length; i++) {
+                row.appendChild(document.createElement('td'));
+            }
+            tbody.appendChild(row);
+        }
+        var cells = row.children;
+        for (var j = 0; j < values.length && j < cells.length; j++) {
+            // Profile changes don't carry the users id; keep what the page rendered
+            if (values[j] !== undefined && values[j] !== null) {
+                cells[j].textContent = values[j];
+            }
+        }
+        toggleEmpty();
+    }
+
+    function remove(key) {
+        var row = findRow(key);
+        if (row) {
+            row.parentNode.removeChild(row);
+        }
+        toggleEmpty();
+    }
+
+    function toggleEmpty() {
+        var empty = tbody.querySelector('tr[data-empty]');
+        if (empty) {
+            empty.style.display = tbody.querySelector('tr[data-key]') ? 'none' : '';
+        }
+    }
+
+    var source = new EventSource('/events/directory?types=' + encodeURIComponent(type));
+    source.addEventListener(type, function (e) {
+        var data = JSON.parse(e.data);
+        if (data.action === 'DELETED') {
+            remove(data.key);
+        } else if (data.action !== 'PROFILE_DELETED') {
+            upsert(data);
+        }
+    });
+    // Sent when this page fell too far behind to catch up from deltas
+    source.addEventListener('resync', function () {
+        source.close();
+        window.location.reload();
+    });
+})();
@@ -0,0 +1,80 @@
+package com.example.spring_tutorial;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Base of the tests that write to the database or run the scheduled jobs, which act on every
+ * row they find. They get a database of their own, created on a local PostgreSQL server when
+ * the first of them starts and dropped when the JVM exits, so they never touch real data.
+ * The tests of one run share it.
+ *
+ * Not part of the default build. Run with:
+ * <pre>
+ * ./mvnw test -Pdatabase-tests -Dit.database.url=jdbc:postgresql://localhost:5432/postgres \
+ *     -Dit.database.username=postgres -Dit.database.password=postgres
+ * </pre>
+ * The url names any database on the server; the user must be allowed to create databases.
+ */
+@SpringBootTest
+@Tag("database")
+public abstract class ScratchDatabaseTest {
+
+	/**
+	 * Sets this test's rows apart from those other tests of the run left behind.
+	 */
+	protected final String tag = Long.toString(System.nanoTime() % 1_000_000_000L, 36);
+
+	@DynamicPropertySource
+	static void scratchDatabase(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.url", ScratchDatabase::url);
+		registry.add("spring.datasource.username", () -> ScratchDatabase.USERNAME);
+		registry.add("spring.datasource.password", () -> ScratchDatabase.PASSWORD);
+	}
+
+	private static final class ScratchDatabase {
+
+		static final String SERVER_URL = System.getProperty("it.database.url", "jdbc:postgresql://localhost:5432/postgres");
+		static final String USERNAME = System.getProperty("it.database.username", "postgres");
+		static final String PASSWORD = System.getProperty("it.database.password", "postgres");
+
+		private static final String NAME = "spring_tutorial_it_" + ProcessHandle.current().pid()
+			+ "_" + Long.toString(System.currentTimeMillis(), 36);
+		private static String url;
+
+		static synchronized String url() {
+			if (url == null) {
+				execute("CREATE DATABASE " + NAME);
+				Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+					try {
+						// The application contexts may still hold connections to it
+						execute("DROP DATABASE IF EXISTS " + NAME + " WITH (FORCE)");
+					} catch (IllegalStateException e) {
+						System.err.println(e.getMessage());
+					}
+				}));
+				int query = SERVER_URL.indexOf('?');
+				String server = query < 0 ? SERVER_URL : SERVER_URL.substring(0, query);
+				url = server.substring(0, server.lastIndexOf('/') + 1) + NAME + (query < 0 ? "" : SERVER_URL.substring(query));
+			}
+			return url;
+		}
+
+		private static void execute(String sql) {
+			try (Connection connection = DriverManager.getConnection(SERVER_URL, USERNAME, PASSWORD);
+				 Statement statement = connection.createStatement()) {
+				statement.execute(sql);
+			} catch (SQLException e) {
+				throw new IllegalStateException("Cannot run " + sql + " on " + SERVER_URL, e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,175 @@
+package com.example.spring_tutorial.attendance;
+
+import com.example.spring_tutorial.dto.AttendanceEventDTO;
+import com.example.spring_tutorial.service.AttendanceService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput of attendance ingestion: the ring buffer on its own, and end to end from
+ * {@link AttendanceService#record} to rows in PostgreSQL.
+ *
+ * Not part of the default build. The end-to-end run needs a database holding students and
+ * course sections, such as the seeded query-plan database:
+ * <pre>
+ * ./mvnw test -Pbenchmarks -Dspring.datasource.url=jdbc:postgresql://localhost:5432/school_plans \
+ *     -Dspring.datasource.username=postgres -Dspring.datasource.password=postgres
+ * </pre>
+ * Results are written to target/benchmarks/attendance.md. Rows written by the run are deleted afterwards.
+ *
+ * A JUnit suite rather than JMH: JMH's annotation processor and forked harness aren't part of
+ * the build, and the end-to-end run needs a Spring context and a database, which every JMH
+ * fork would have to start again.
+ */
+@SpringBootTest
+@Tag("benchmark")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AttendanceBenchmarkTests {
+
+	private static final Path REPORT = Path.of("target", "benchmarks", "attendance.md");
+
+	private static final int PRODUCERS = 8;
+	private static final int REQUEST_SIZE = 500;
+
+	@Autowired
+	private AttendanceService attendanceService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<String> report = new ArrayList<>();
+	private final Timestamp startedAt = new Timestamp(System.currentTimeMillis());
+
+	@Test
+	void ringBufferOnly() throws Exception {
+		int events = 20_000_000;
+		int batch = 50;
+		AttendanceRingBuffer buffer = new AttendanceRingBuffer(65_536);
+		ExecutorService pool = Executors.newFixedThreadPool(PRODUCERS);
+		long start = System.nanoTime();
+		List<Future<?>> done = new ArrayList<>();
+		for (int p = 0; p < PRODUCERS; p++) {
+			done.add(pool.submit(() -> {
+				for (int b = 0; b < events / PRODUCERS / batch; b++) {
+					long sequence;
+					while ((sequence = buffer.claim(batch)) < 0) {
+						Thread.onSpinWait();
+					}
+					for (int i = 0; i < batch; i++) {
+						buffer.put(sequence + i, b, i, start, AttendanceStatus.PRESENT.code());
+					}
+				}
+			}));
+		}
+		long[] checksum = new long[1];
+		int drained = 0;
+		while (drained < events) {
+			drained += buffer.drain(5_000, (student, section, at, status) -> checksum[0] += section);
+		}
+		for (Future<?> future : done) {
+			future.get();
+		}
+		pool.shutdown();
+		long elapsed = System.nanoTime() - start;
+
+		assertThat(buffer.size()).isZero();
+		record("Ring buffer, " + PRODUCERS + " producers, batches of " + batch, events, elapsed);
+	}
+
+	@Test
+	void endToEnd() throws Exception {
+		List<Long> students = jdbcTemplate.queryForList("SELECT id FROM students ORDER BY id LIMIT 20000", Long.class);
+		List<Long> sections = jdbcTemplate.queryForList("SELECT id FROM course_sections ORDER BY id LIMIT 200", Long.class);
+		assertThat(students).as("seeded students").isNotEmpty();
+		assertThat(sections).as("seeded course sections").isNotEmpty();
+
+		int events = 1_000_000;
+		List<List<AttendanceEventDTO>> requests = new ArrayList<>();
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		AttendanceStatus[] statuses = AttendanceStatus.values();
+		for (int r = 0; r < events / REQUEST_SIZE; r++) {
+			List<AttendanceEventDTO> request = new ArrayList<>(REQUEST_SIZE);
+			for (int i = 0; i < REQUEST_SIZE; i++) {
+				AttendanceEventDTO event = new AttendanceEventDTO();
+				event.setStudentId(students.get(random.nextInt(students.size())));
+				event.setSectionId(sections.get(random.nextInt(sections.size())));
+				event.setStatus(statuses[random.nextInt(statuses.length)]);
+				request.add(event);
+			}
+			requests.add(request);
+		}
+
+		double writtenBefore = written();
+		AtomicLong refusals = new AtomicLong();
+		ExecutorService pool = Executors.newFixedThreadPool(PRODUCERS);
+		long start = System.nanoTime();
+		List<Future<?>> done = new ArrayList<>();
+		for (int p = 0; p < PRODUCERS; p++) {
+			int producer = p;
+			done.add(pool.submit(() -> {
+				for (int r = producer; r < requests.size(); r += PRODUCERS) {
+					while (!attendanceService.record(requests.get(r))) {
+						refusals.incrementAndGet();
+						Thread.sleep(5);
+					}
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : done) {
+			future.get();
+		}
+		long accepted = System.nanoTime() - start;
+		pool.shutdown();
+		while (written() - writtenBefore < events) {
+			Thread.sleep(10);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		record("Accepted by AttendanceService.record, " + PRODUCERS + " threads, requests of " + REQUEST_SIZE,
+			events, accepted);
+		record("Written to PostgreSQL", events, elapsed);
+		report.add("- Requests refused while the buffer was full: " + refusals.get());
+	}
+
+	@AfterAll
+	void writeReport() throws IOException {
+		jdbcTemplate.update("DELETE FROM attendance WHERE recorded_at >= ?", startedAt);
+		Files.createDirectories(REPORT.getParent());
+		Files.write(REPORT, report);
+		report.forEach(System.out::println);
+	}
+
+	private double written() {
+		return meterRegistry.get("attendance.events.written").counter().count()
+			+ meterRegistry.get("attendance.events.unknown").counter().count();
+	}
+
+	private void record(String what, int events, long nanos) {
+		report.add("- " + what + ": " + events + " events in "
+			+ nanos / 1_000_000 + " ms, " + Math.round(events * 1e9 / nanos) + " events/s");
+	}
+}
@@ -0,0 +1,108 @@
+package com.example.spring_tutorial.attendance;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AttendanceRingBufferTests {
+
+	@Test
+	void drainsInClaimOrderAndStopsAtTheFirstUnpublishedSlot() {
+		AttendanceRingBuffer buffer = new AttendanceRingBuffer(8);
+		long first = buffer.claim(2);
+		long second = buffer.claim(1);
+		buffer.put(first, 1, 10, 100, AttendanceStatus.PRESENT.code());
+		buffer.put(second, 3, 30, 300, AttendanceStatus.ABSENT.code());
+
+		List<Long> students = new ArrayList<>();
+		assertThat(buffer.drain(10, (student, section, at, status) -> students.add(student))).isEqualTo(1);
+		assertThat(students).containsExactly(1L);
+
+		buffer.put(first + 1, 2, 20, 200, AttendanceStatus.LATE.code());
+		List<AttendanceStatus> statuses = new ArrayList<>();
+		assertThat(buffer.drain(10, (student, section, at, status) -> statuses.add(AttendanceStatus.ofCode(status))))
+			.isEqualTo(2);
+		assertThat(statuses).containsExactly(AttendanceStatus.LATE, AttendanceStatus.ABSENT);
+		assertThat(buffer.size()).isZero();
+	}
+
+	@Test
+	void refusesClaimsThatDoNotFitUntilSlotsAreDrained() {
+		AttendanceRingBuffer buffer = new AttendanceRingBuffer(4);
+		long sequence = buffer.claim(3);
+		assertThat(buffer.claim(2)).isEqualTo(-1);
+		for (int i = 0; i < 3; i++) {
+			buffer.put(sequence + i, i, i, i, AttendanceStatus.PRESENT.code());
+		}
+		assertThat(buffer.drain(2, (student, section, at, status) -> { })).isEqualTo(2);
+
+		// Wraps around the end of the arrays
+		long next = buffer.claim(3);
+		assertThat(next).isEqualTo(3);
+		for (int i = 0; i < 3; i++) {
+			buffer.put(next + i, 100 + i, 0, 0, AttendanceStatus.PRESENT.code());
+		}
+		List<Long> students = new ArrayList<>();
+		buffer.drain(10, (student, section, at, status) -> students.add(student));
+		assertThat(students).containsExactly(2L, 100L, 101L, 102L);
+	}
+
+	@Test
+	void capacityMustBeAPowerOfTwo() {
+		assertThatThrownBy(() -> new AttendanceRingBuffer(1000)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new AttendanceRingBuffer(8).claim(9)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void concurrentProducersDeliverEveryEventExactlyOnce() throws Exception {
+		int producers = 4;
+		int batches = 2_000;
+		int batchSize = 5;
+		AttendanceRingBuffer buffer = new AttendanceRingBuffer(64);
+		ExecutorService pool = Executors.newFixedThreadPool(producers);
+		List<Future<?>> done = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			int producer = p;
+			done.add(pool.submit(() -> {
+				for (int b = 0; b < batches; b++) {
+					long sequence;
+					while ((sequence = buffer.claim(batchSize)) < 0) {
+						Thread.onSpinWait();
+					}
+					for (int i = 0; i < batchSize; i++) {
+						long id = ((long) producer * batches + b) * batchSize + i;
+						buffer.put(sequence + i, id, id, id, AttendanceStatus.PRESENT.code());
+					}
+				}
+			}));
+		}
+
+		int total = producers * batches * batchSize;
+		BitSet seen = new BitSet(total);
+		int[] duplicates = new int[1];
+		int drained = 0;
+		while (drained < total) {
+			drained += buffer.drain(16, (student, section, at, status) -> {
+				if (seen.get((int) student) || student != section) {
+					duplicates[0]++;
+				}
+				seen.set((int) student);
+			});
+		}
+		for (Future<?> future : done) {
+			future.get();
+		}
+		pool.shutdown();
+
+		assertThat(duplicates[0]).isZero();
+		assertThat(seen.cardinality()).isEqualTo(total);
+	}
+}
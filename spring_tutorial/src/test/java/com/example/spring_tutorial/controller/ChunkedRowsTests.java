@@ -0,0 +1,60 @@
+package com.example.spring_tutorial.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChunkedRowsTests {
+
+	private final List<Long> requestedAfter = new ArrayList<>();
+	private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+	@Test
+	void fetchesOnePageAtATimeAndFlushesBeforeEach() throws Exception {
+		ChunkedRows<Long> rows = rows(7, 3);
+		response.getWriter().write("<table>");
+
+		List<Long> seen = new ArrayList<>();
+		for (Long row : rows) {
+			if (seen.isEmpty()) {
+				assertThat(response.isCommitted()).isTrue();
+				assertThat(requestedAfter).containsExactly(0L);
+			}
+			seen.add(row);
+		}
+
+		assertThat(seen).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L);
+		assertThat(requestedAfter).containsExactly(0L, 3L, 6L);
+	}
+
+	@Test
+	void isEmptyReusesTheFirstPage() {
+		ChunkedRows<Long> rows = rows(2, 3);
+
+		assertThat(rows.isEmpty()).isFalse();
+		assertThat(rows).containsExactly(1L, 2L);
+		// The first page was short, so there was nothing more to ask for
+		assertThat(requestedAfter).containsExactly(0L);
+	}
+
+	@Test
+	void anExactMultipleEndsWithOneEmptyPage() {
+		ChunkedRows<Long> rows = rows(6, 3);
+
+		assertThat(rows).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+		assertThat(requestedAfter).containsExactly(0L, 3L, 6L);
+		assertThat(rows(0, 3).isEmpty()).isTrue();
+	}
+
+	private ChunkedRows<Long> rows(long total, int chunkSize) {
+		return new ChunkedRows<>(afterId -> {
+			requestedAfter.add(afterId);
+			return LongStream.rangeClosed(afterId + 1, Math.min(total, afterId + chunkSize)).boxed().toList();
+		}, id -> id, chunkSize, response);
+	}
+}
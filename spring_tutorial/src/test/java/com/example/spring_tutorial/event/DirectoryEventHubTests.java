@@ -0,0 +1,167 @@
+package com.example.spring_tutorial.event;
+
+import com.example.spring_tutorial.config.LiveUpdateProperties;
+import com.example.spring_tutorial.model.Student;
+import com.example.spring_tutorial.tenancy.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class DirectoryEventHubTests {
+
+	private final LiveUpdateProperties properties = new LiveUpdateProperties();
+
+	private final List<RecordingEmitter> opened = new CopyOnWriteArrayList<>();
+
+	private final DirectoryEventHub hub = new DirectoryEventHub(properties, timeout -> {
+		RecordingEmitter emitter = new RecordingEmitter();
+		opened.add(emitter);
+		return emitter;
+	});
+
+	@AfterEach
+	void shutdown() {
+		hub.shutdown();
+	}
+
+	@Test
+	void streamsOnlyCarryTheTypesTheyAskedFor() {
+		RecordingEmitter students = subscribe("student");
+		RecordingEmitter courses = subscribe("course");
+
+		hub.onDirectoryEvent(person("a@school.edu", DirectoryEvent.Action.UPDATED));
+		hub.onDirectoryEvent(new DirectoryEvent("course", "7", DirectoryEvent.Action.DELETED, Map.of()));
+
+		await().atMost(Duration.ofSeconds(5)).until(() -> students.sent.size() == 1 && courses.sent.size() == 1);
+		assertThat(students.sent.get(0)).startsWith("student ").contains("key=a@school.edu");
+		assertThat(courses.sent.get(0)).startsWith("course ").contains("action=DELETED");
+	}
+
+	@Test
+	void streamsOnlyCarryChangesOfTheirOwnSchool() {
+		RecordingEmitter north;
+		try (TenantContext.Binding ignored = TenantContext.bind("north")) {
+			north = subscribe("student");
+		}
+		RecordingEmitter home = subscribe("student");
+
+		hub.onDirectoryEvent(person("a@school.edu", DirectoryEvent.Action.UPDATED));
+
+		await().atMost(Duration.ofSeconds(5)).until(() -> home.sent.size() == 1);
+		assertThat(north.sent).isEmpty();
+	}
+
+	@Test
+	void deletingAProfileLeavesTheAccountRow() {
+		Student student = new Student();
+		student.setEmail("a@school.edu");
+		DirectoryEvent event = DirectoryEvent.of(student, DirectoryEvent.Action.PROFILE_DELETED);
+
+		assertThat(event.type()).isEqualTo("student");
+		assertThat(event.key()).isEqualTo("a@school.edu");
+		assertThat(event.action()).isEqualTo(DirectoryEvent.Action.PROFILE_DELETED);
+		assertThat(event.data()).isEmpty();
+	}
+
+	@Test
+	void changesToOneRowWhileASendIsBlockedCollapseToTheLatest() {
+		RecordingEmitter slow = subscribe("student");
+		slow.block();
+
+		hub.onDirectoryEvent(person("first@school.edu", DirectoryEvent.Action.UPDATED));
+		await().atMost(Duration.ofSeconds(5)).until(() -> slow.entered);
+		hub.onDirectoryEvent(person("a@school.edu", DirectoryEvent.Action.CREATED));
+		hub.onDirectoryEvent(person("a@school.edu", DirectoryEvent.Action.UPDATED));
+		slow.unblock();
+
+		await().atMost(Duration.ofSeconds(5)).until(() -> slow.sent.size() == 2);
+		assertThat(slow.sent.get(1)).contains("key=a@school.edu").contains("action=UPDATED");
+	}
+
+	@Test
+	void aClientThatFallsTooFarBehindIsToldToReload() {
+		properties.setBufferSize(2);
+		RecordingEmitter slow = subscribe("student");
+		slow.block();
+
+		hub.onDirectoryEvent(person("first@school.edu", DirectoryEvent.Action.UPDATED));
+		await().atMost(Duration.ofSeconds(5)).until(() -> slow.entered);
+		for (int i = 0; i < 3; i++) {
+			hub.onDirectoryEvent(person(i + "@school.edu", DirectoryEvent.Action.UPDATED));
+		}
+		slow.unblock();
+
+		await().atMost(Duration.ofSeconds(5)).until(() -> slow.sent.size() == 2);
+		assertThat(slow.sent.get(1)).startsWith("resync ");
+	}
+
+	@Test
+	void refusesSubscribersPastTheLimit() {
+		properties.setMaxSubscribers(1);
+
+		assertThat(hub.subscribe(Set.of("student"))).isNotNull();
+		assertThat(hub.subscribe(Set.of("student"))).isNull();
+	}
+
+	private RecordingEmitter subscribe(String type) {
+		hub.subscribe(Set.of(type));
+		return opened.get(opened.size() - 1);
+	}
+
+	private static DirectoryEvent person(String email, DirectoryEvent.Action action) {
+		Student student = new Student();
+		student.setEmail(email);
+		student.setFirstName("First");
+		student.setLastName("Last");
+		return DirectoryEvent.of(student, action);
+	}
+
+	/**
+	 * Records each event as "name data"; can be made to hold the first send, like a slow client.
+	 */
+	private static class RecordingEmitter extends SseEmitter {
+
+		private final List<String> sent = new CopyOnWriteArrayList<>();
+		private volatile CountDownLatch waiting = new CountDownLatch(0);
+		private volatile boolean entered;
+
+		void block() {
+			waiting = new CountDownLatch(1);
+		}
+
+		void unblock() {
+			waiting.countDown();
+		}
+
+		@Override
+		public void send(SseEventBuilder builder) {
+			entered = true;
+			try {
+				waiting.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			Set<DataWithMediaType> parts = builder.build();
+			String text = parts.stream().map(part -> String.valueOf(part.getData())).collect(Collectors.joining());
+			String name = text.startsWith("event:") ? text.substring(6, text.indexOf('\n')) : "comment";
+			String data = parts.stream()
+				.filter(part -> part.getMediaType() != null && !(part.getData() instanceof String))
+				.map(part -> String.valueOf(part.getData()))
+				.collect(Collectors.joining());
+			sent.add(name + " " + data);
+		}
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.example.spring_tutorial.grades;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GradeDeltasTests {
+
+	@Test
+	void firstGradeAddsToEveryLevel() {
+		GradeDeltas deltas = new GradeDeltas();
+		deltas.record(1, 10, 100L, null, 0, Grade.A_MINUS, 4);
+
+		GradeDeltas.Totals student = deltas.students().get(1L);
+		assertThat(student.count()).isEqualTo(1);
+		assertThat(student.credits()).isEqualTo(4);
+		assertThat(student.points()).isEqualTo(370);
+		assertThat(student.weightedPoints()).isEqualTo(1480);
+		assertThat(deltas.courses().get(10L).weightedPoints()).isEqualTo(1480);
+		assertThat(deltas.departments().get(100L).count()).isEqualTo(1);
+		assertThat(deltas.distributions().get(10L)[Grade.A_MINUS.ordinal()]).isEqualTo(1);
+	}
+
+	@Test
+	void regradeMovesTotalsByTheDifferenceOnly() {
+		GradeDeltas deltas = new GradeDeltas();
+		deltas.record(1, 10, 100L, Grade.B, 3, Grade.A, 3);
+
+		GradeDeltas.Totals course = deltas.courses().get(10L);
+		assertThat(course.count()).isZero();
+		assertThat(course.credits()).isZero();
+		assertThat(course.points()).isEqualTo(100);
+		assertThat(course.weightedPoints()).isEqualTo(300);
+		int[] distribution = deltas.distributions().get(10L);
+		assertThat(distribution[Grade.B.ordinal()]).isEqualTo(-1);
+		assertThat(distribution[Grade.A.ordinal()]).isEqualTo(1);
+	}
+
+	@Test
+	void previousCreditsAreTakenOutNotCurrentOnes() {
+		GradeDeltas deltas = new GradeDeltas();
+		deltas.record(1, 10, null, Grade.C, 2, Grade.C, 5);
+
+		GradeDeltas.Totals student = deltas.students().get(1L);
+		assertThat(student.credits()).isEqualTo(3);
+		assertThat(student.points()).isZero();
+		assertThat(student.weightedPoints()).isEqualTo(600);
+		assertThat(deltas.departments()).isEmpty();
+	}
+
+	@Test
+	void changesFoldTogetherPerKeyInIdOrder() {
+		GradeDeltas deltas = new GradeDeltas();
+		deltas.record(7, 20, 100L, null, 0, Grade.B, 4);
+		deltas.record(3, 20, 100L, null, 0, Grade.F, 4);
+		deltas.record(3, 10, 100L, Grade.D, 2, null, 0);
+
+		assertThat(deltas.students().keySet()).containsExactly(3L, 7L);
+		assertThat(deltas.courses().keySet()).containsExactly(10L, 20L);
+		GradeDeltas.Totals department = deltas.departments().get(100L);
+		assertThat(department.count()).isEqualTo(1);
+		assertThat(department.credits()).isEqualTo(6);
+		assertThat(department.points()).isEqualTo(200);
+		assertThat(deltas.students().get(3L).weightedPoints()).isEqualTo(-200);
+		assertThat(deltas.courses().get(20L).count()).isEqualTo(2);
+	}
+
+	@Test
+	void lettersParseLeniently() {
+		assertThat(Grade.ofLetter(" b+ ")).isEqualTo(Grade.B_PLUS);
+		assertThat(Grade.F.isPassing()).isFalse();
+		assertThat(Grade.D.isPassing()).isTrue();
+		assertThatThrownBy(() -> Grade.ofLetter("E")).isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,53 @@
+package com.example.spring_tutorial.mapper;
+
+import com.example.spring_tutorial.dto.StudentDTO;
+import com.example.spring_tutorial.model.Department;
+import com.example.spring_tutorial.model.Student;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StudentMapperTests {
+
+	private final StudentMapper mapper = new StudentMapperImpl();
+
+	@Test
+	void flattensTheDepartment() {
+		Department department = new Department();
+		department.setId(3L);
+		department.setName("Physics");
+		Student student = new Student();
+		student.setId(7L);
+		student.setEmail("ada@x.edu");
+		student.setDepartment(department);
+
+		StudentDTO dto = mapper.toDto(student);
+
+		assertThat(dto.getId()).isEqualTo(7L);
+		assertThat(dto.getEmail()).isEqualTo("ada@x.edu");
+		assertThat(dto.getDepartmentId()).isEqualTo(3L);
+		assertThat(dto.getDepartmentName()).isEqualTo("Physics");
+	}
+
+	@Test
+	void partialUpdateKeepsFieldsLeftNullAndProtectedFields() {
+		Student student = new Student();
+		student.setFirstName("Ada");
+		student.setLastName("Byron");
+		student.setEmail("ada@x.edu");
+		StudentDTO dto = new StudentDTO();
+		dto.setLastName("Lovelace");
+		dto.setEmail("other@x.edu");
+		dto.setDateOfBirth(LocalDate.of(1815, 12, 10));
+
+		mapper.updateStudent(dto, student);
+
+		assertThat(student.getFirstName()).isEqualTo("Ada");
+		assertThat(student.getLastName()).isEqualTo("Lovelace");
+		assertThat(student.getDateOfBirth()).isEqualTo(LocalDate.of(1815, 12, 10));
+		assertThat(student.getEmail()).isEqualTo("ada@x.edu");
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.example.spring_tutorial.monitoring;
+
+import com.example.spring_tutorial.ScratchDatabaseTest;
+import com.example.spring_tutorial.config.SqlMonitoringProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Calls the list endpoints through the query budget filter in strict mode, so a list that
+ * starts loading its rows one by one fails here instead of only logging a warning.
+ * A dozen rows of each kind are added.
+ */
+@SpringBootTest(properties = {
+	"app.sql.monitoring.budget.strict=true",
+	"app.sql.monitoring.budget.response-headers=true"
+})
+class QueryBudgetStrictModeTests extends ScratchDatabaseTest {
+
+	private static final int DEPARTMENTS = 12;
+
+	@Autowired
+	private WebApplicationContext context;
+
+	@Autowired
+	private FilterRegistrationBean<QueryBudgetFilter> queryBudgetFilter;
+
+	@Autowired
+	private SqlMonitoringProperties properties;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private MockMvc mvc;
+
+	@BeforeEach
+	void setUp() {
+		mvc = MockMvcBuilders.webAppContextSetup(context).addFilters(queryBudgetFilter.getFilter()).build();
+		SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+			"teacher@" + tag + ".budget.edu", null, AuthorityUtils.createAuthorityList("ROLE_TEACHER")));
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+		jdbcTemplate.update("DELETE FROM courses WHERE code LIKE ?", tag + "-C%");
+		jdbcTemplate.update("DELETE FROM students WHERE student_id LIKE ?", tag + "-S%");
+		jdbcTemplate.update("DELETE FROM teachers WHERE teacher_id LIKE ?", tag + "-T%");
+		jdbcTemplate.update("DELETE FROM departments WHERE code LIKE ?", "B" + tag + "%");
+	}
+
+	@Test
+	void peopleListsLoadTheirDepartmentsWithinTheBudget() throws Exception {
+		for (int d = 0; d < DEPARTMENTS; d++) {
+			long departmentId = insertDepartment(d);
+			jdbcTemplate.update("INSERT INTO students (email, first_name, last_name, student_id, department_id) "
+				+ "VALUES (?, 'Ada', 'Budget', ?, ?)", "student" + d + "@" + tag + ".budget.edu", tag + "-S" + d, departmentId);
+			jdbcTemplate.update("INSERT INTO teachers (email, first_name, last_name, teacher_id, department_id) "
+				+ "VALUES (?, 'Max', 'Budget', ?, ?)", "teacher" + d + "@" + tag + ".budget.edu", tag + "-T" + d, departmentId);
+		}
+
+		for (String list : new String[] {
+			"/api/students", "/api/students?fields=id,email,departmentName",
+			"/api/teachers?fields=id,email,departmentName", "/students.html", "/teachers.html"
+		}) {
+			mvc.perform(get(list))
+				.andExpect(status().isOk())
+				.andExpect(header().exists("X-SQL-Statements"));
+		}
+	}
+
+	/**
+	 * These lists serialize the entities themselves, lazy collections included. Their rows are
+	 * left unlinked, as a linked department, course or teacher would serialize its way back to itself.
+	 */
+	@Test
+	void entityListsLoadTheirCollectionsWithinTheBudget() throws Exception {
+		for (int d = 0; d < DEPARTMENTS; d++) {
+			insertDepartment(d);
+			jdbcTemplate.update("INSERT INTO teachers (email, first_name, last_name, teacher_id) "
+				+ "VALUES (?, 'Max', 'Budget', ?)", "teacher" + d + "@" + tag + ".budget.edu", tag + "-T" + d);
+			jdbcTemplate.update("INSERT INTO courses (name, code) VALUES ('Budget', ?)", tag + "-C" + d);
+		}
+
+		for (String list : new String[] {"/api/teachers", "/api/courses", "/api/departments"}) {
+			mvc.perform(get(list))
+				.andExpect(status().isOk())
+				.andExpect(header().exists("X-SQL-Statements"));
+		}
+	}
+
+	@Test
+	void anOverBudgetRequestFails() {
+		SqlMonitoringProperties.Budget tight = new SqlMonitoringProperties.Budget();
+		tight.setStrict(true);
+		tight.setMaxStatements(0);
+		MockMvc overBudget = MockMvcBuilders.webAppContextSetup(context)
+			.addFilters(new QueryBudgetFilter(tight, null))
+			.build();
+
+		assertThatIllegalStateException().isThrownBy(() -> overBudget.perform(get("/api/courses")))
+			.withMessageStartingWith("Query budget exceeded on GET /api/courses");
+	}
+
+	@Test
+	void anUnbatchedListFailsAsALikelyNPlusOne() {
+		SqlMonitoringProperties.Budget budget = properties.getBudget();
+		SqlMonitoringProperties.Budget perRow = new SqlMonitoringProperties.Budget();
+		perRow.setStrict(true);
+		perRow.setMaxStatements(budget.getMaxStatements());
+		perRow.setRepeatedStatementThreshold(budget.getRepeatedStatementThreshold());
+		MockMvc loadsEachRow = MockMvcBuilders.webAppContextSetup(context)
+			.addFilters(new QueryBudgetFilter(perRow, null), (request, response, chain) -> {
+				// Stands in for a list that fetches its departments one row at a time
+				for (int d = 0; d < DEPARTMENTS; d++) {
+					jdbcTemplate.queryForObject("SELECT count(*) FROM departments WHERE code = ?", Long.class, "B" + tag + d);
+				}
+				chain.doFilter(request, response);
+			})
+			.build();
+
+		assertThatIllegalStateException().isThrownBy(() -> loadsEachRow.perform(get("/api/departments")))
+			.withMessageStartingWith("Likely N+1 on GET /api/departments");
+	}
+
+	private long insertDepartment(int d) {
+		return jdbcTemplate.queryForObject("INSERT INTO departments (name, code) VALUES (?, ?) RETURNING id",
+			Long.class, "Budget " + tag + d, "B" + tag + d);
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.example.spring_tutorial.monitoring;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryBudgetTests {
+
+	@Test
+	void flagsStatementsRepeatedWithinOneRequest() {
+		QueryBudget budget = QueryBudget.open();
+		try {
+			QueryBudget.record("select * from courses", 1_000);
+			for (int i = 0; i < 12; i++) {
+				QueryBudget.record("select * from students where course_id=?", 1_000);
+			}
+		} finally {
+			budget.close();
+		}
+
+		assertThat(budget.statementCount()).isEqualTo(13);
+		assertThat(budget.jdbcNanos()).isEqualTo(13_000);
+		assertThat(budget.repeatedStatements(10)).containsOnlyKeys("select * from students where course_id=?");
+	}
+
+	@Test
+	void ignoresStatementsOutsideARequest() throws InterruptedException {
+		QueryBudget budget = QueryBudget.open();
+		budget.close();
+
+		QueryBudget.record("select 1", 1_000);
+		Thread thread = Thread.ofVirtual().start(() -> QueryBudget.record("select 1", 1_000));
+		thread.join();
+
+		assertThat(budget.statementCount()).isZero();
+	}
+
+}
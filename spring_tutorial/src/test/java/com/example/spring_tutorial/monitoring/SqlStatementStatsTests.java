@@ -0,0 +1,37 @@
+package com.example.spring_tutorial.monitoring;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlStatementStatsTests {
+
+	@Test
+	void ranksStatementsByTotalTime() {
+		SqlStatementStats stats = new SqlStatementStats(100);
+		stats.record("select 1", 1_000_000, true);
+		stats.record("select 1", 1_000_000, true);
+		stats.record("select 2", 5_000_000, false);
+
+		List<SqlStatementStats.StatementSummary> top = stats.top(10);
+
+		assertThat(top).extracting(SqlStatementStats.StatementSummary::sql).containsExactly("select 2", "select 1");
+		assertThat(top.get(0).errors()).isEqualTo(1);
+		assertThat(top.get(1).calls()).isEqualTo(2);
+		assertThat(top.get(1).meanMs()).isEqualTo(1.0);
+	}
+
+	@Test
+	void groupsStatementsBeyondTheLimit() {
+		SqlStatementStats stats = new SqlStatementStats(1);
+		stats.record("select 1", 1_000_000, true);
+		stats.record("select 2", 1_000_000, true);
+		stats.record("select 3", 1_000_000, true);
+
+		assertThat(stats.top(10)).extracting(SqlStatementStats.StatementSummary::sql)
+			.containsExactlyInAnyOrder("select 1", SqlStatementStats.OTHER);
+	}
+
+}
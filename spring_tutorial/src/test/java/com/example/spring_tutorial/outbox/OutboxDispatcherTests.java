@@ -0,0 +1,250 @@
+package com.example.spring_tutorial.outbox;
+
+import com.example.spring_tutorial.ScratchDatabaseTest;
+import com.example.spring_tutorial.config.OutboxProperties;
+import com.example.spring_tutorial.tenancy.TenantRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Claim, delivery and settling run with handlers that only want this test's event types.
+ * Other events due at the time are claimed too and, as no handler here accepts them, kept
+ * for later; the batch is big enough to take every event of the scratch database, so this
+ * test's are always among them. The scheduled poll is pushed out of the way.
+ */
+@SpringBootTest(properties = "app.outbox.poll-interval=1h")
+class OutboxDispatcherTests extends ScratchDatabaseTest {
+
+	private static final Duration INITIAL = Duration.ofSeconds(1);
+	private static final Duration MAX = Duration.ofMinutes(10);
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private JsonMapper jsonMapper;
+
+	@Autowired
+	private TenantRegistry tenants;
+
+	private final String type = "test." + tag;
+	private final OutboxProperties properties = new OutboxProperties();
+
+	@AfterEach
+	void removeEvents() {
+		jdbcTemplate.update("DELETE FROM outbox_events WHERE event_type LIKE ?", type + "%");
+	}
+
+	@Test
+	void backoffStartsAtTheInitialWait() {
+		assertThat(OutboxDispatcher.backoff(1, INITIAL, MAX)).isEqualTo(INITIAL);
+	}
+
+	@Test
+	void backoffDoublesWithEachAttempt() {
+		assertThat(OutboxDispatcher.backoff(2, INITIAL, MAX)).isEqualTo(Duration.ofSeconds(2));
+		assertThat(OutboxDispatcher.backoff(5, INITIAL, MAX)).isEqualTo(Duration.ofSeconds(16));
+	}
+
+	@Test
+	void backoffIsCappedWithoutOverflowing() {
+		assertThat(OutboxDispatcher.backoff(11, INITIAL, MAX)).isEqualTo(MAX);
+		assertThat(OutboxDispatcher.backoff(1_000, INITIAL, MAX)).isEqualTo(MAX);
+	}
+
+	@Test
+	void aDeliveredEventIsDeleted() {
+		Handler mailer = new Handler("mailer", 0);
+		Handler search = new Handler("search", 0);
+		long id = insertEvent(type);
+
+		dispatcher(mailer, search).dispatchBatch();
+
+		assertThat(mailer.received).containsExactly(id);
+		assertThat(search.received).containsExactly(id);
+		assertThat(event(id)).isNull();
+	}
+
+	@Test
+	void handlersRunAfterTheClaimHasCommitted() {
+		Queue<Boolean> leased = new ConcurrentLinkedQueue<>();
+		Handler checker = new Handler("checker", 0) {
+			@Override
+			public void handle(OutboxEvent event) {
+				// Fails if the claim still held the row lock
+				leased.add(jdbcTemplate.queryForObject(
+					"SELECT available_at > now() FROM outbox_events WHERE id = ? FOR UPDATE NOWAIT",
+					Boolean.class, event.id()));
+				super.handle(event);
+			}
+		};
+		long id = insertEvent(type);
+
+		dispatcher(checker).dispatchBatch();
+
+		assertThat(leased).containsExactly(true);
+		assertThat(event(id)).isNull();
+	}
+
+	@Test
+	void aFailedDeliveryIsRetriedForThatHandlerOnly() {
+		Handler mailer = new Handler("mailer", 0);
+		Handler search = new Handler("search", 1);
+		OutboxDispatcher dispatcher = dispatcher(mailer, search);
+		long id = insertEvent(type);
+
+		dispatcher.dispatchBatch();
+
+		Map<String, Object> retry = event(id);
+		assertThat(retry.get("attempts")).isEqualTo(1);
+		assertThat(retry.get("pending")).isEqualTo("{search}");
+		assertThat((String) retry.get("last_error")).startsWith("search: ");
+		assertThat((Boolean) retry.get("later")).isTrue();
+		assertThat(retry.get("failed_at")).isNull();
+
+		makeDue(id);
+		dispatcher.dispatchBatch();
+
+		assertThat(mailer.received).containsExactly(id);
+		assertThat(search.received).containsExactly(id, id);
+		assertThat(event(id)).isNull();
+	}
+
+	@Test
+	void anEventIsGivenUpOnAfterMaxAttempts() {
+		properties.setMaxAttempts(2);
+		OutboxDispatcher dispatcher = dispatcher(new Handler("search", Integer.MAX_VALUE));
+		long id = insertEvent(type);
+
+		dispatcher.dispatchBatch();
+		makeDue(id);
+		dispatcher.dispatchBatch();
+		makeDue(id);
+		dispatcher.dispatchBatch();
+
+		Map<String, Object> failed = event(id);
+		assertThat(failed.get("attempts")).isEqualTo(2);
+		assertThat(failed.get("failed_at")).isNotNull();
+	}
+
+	@Test
+	void anEventNoHandlerAcceptsIsKept() {
+		Handler mailer = new Handler("mailer", 0);
+		long id = insertEvent(type + ".other");
+
+		dispatcher(mailer).dispatchBatch();
+
+		Map<String, Object> kept = event(id);
+		assertThat(mailer.received).isEmpty();
+		assertThat(kept.get("attempts")).isEqualTo(0);
+		assertThat(kept.get("last_error")).isEqualTo("no handler accepts this event");
+		assertThat((Boolean) kept.get("later")).isTrue();
+		assertThat(kept.get("failed_at")).isNull();
+	}
+
+	@Test
+	void anEventNoHandlerAcceptsIsGivenUpOnOnceOlderThanTheUnhandledTimeout() {
+		properties.setUnhandledTimeout(Duration.ofMinutes(5));
+		OutboxDispatcher dispatcher = dispatcher(new Handler("mailer", 0));
+		long id = insertEvent(type + ".other");
+
+		dispatcher.dispatchBatch();
+		assertThat(event(id).get("failed_at")).isNull();
+
+		jdbcTemplate.update("UPDATE outbox_events SET created_at = now() - interval '6 minutes' WHERE id = ?", id);
+		makeDue(id);
+		dispatcher.dispatchBatch();
+
+		Map<String, Object> failed = event(id);
+		assertThat(failed.get("attempts")).isEqualTo(0);
+		assertThat(failed.get("last_error")).isEqualTo("no handler accepts this event");
+		assertThat(failed.get("failed_at")).isNotNull();
+	}
+
+	@Test
+	void theLeaseMustOutlastTheHandlerTimeout() {
+		properties.setLease(properties.getHandlerTimeout());
+
+		assertThatIllegalStateException().isThrownBy(this::dispatcher)
+			.withMessage("app.outbox.lease must be longer than app.outbox.handler-timeout");
+	}
+
+	private OutboxDispatcher dispatcher(OutboxHandler... handlers) {
+		properties.setBatchSize(1_000);
+		StaticListableBeanFactory beans = new StaticListableBeanFactory();
+		for (OutboxHandler handler : handlers) {
+			beans.addBean(handler.name(), handler);
+		}
+		return new OutboxDispatcher(properties, jdbcTemplate, transactionManager, jsonMapper,
+			beans.getBeanProvider(OutboxHandler.class), new SimpleMeterRegistry(), tenants);
+	}
+
+	private long insertEvent(String eventType) {
+		return jdbcTemplate.queryForObject("INSERT INTO outbox_events (event_type, aggregate_id, payload) "
+			+ "VALUES (?, '1', '{}'::jsonb) RETURNING id", Long.class, eventType);
+	}
+
+	private void makeDue(long id) {
+		jdbcTemplate.update("UPDATE outbox_events SET available_at = now() WHERE id = ?", id);
+	}
+
+	private Map<String, Object> event(long id) {
+		List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT attempts, pending_handlers::text AS pending, "
+			+ "last_error, available_at > now() AS later, failed_at FROM outbox_events WHERE id = ?", id);
+		return rows.isEmpty() ? null : rows.get(0);
+	}
+
+	/**
+	 * Takes this run's events and records them; fails the first few deliveries it gets.
+	 */
+	private class Handler implements OutboxHandler {
+
+		final Queue<Long> received = new ConcurrentLinkedQueue<>();
+		private final String name;
+		private final AtomicInteger failuresLeft;
+
+		Handler(String name, int failures) {
+			this.name = name;
+			this.failuresLeft = new AtomicInteger(failures);
+		}
+
+		@Override
+		public String name() {
+			return name;
+		}
+
+		@Override
+		public boolean handles(String eventType) {
+			return eventType.equals(type);
+		}
+
+		@Override
+		public void handle(OutboxEvent event) {
+			received.add(event.id());
+			if (failuresLeft.getAndDecrement() > 0) {
+				throw new IllegalStateException("unavailable");
+			}
+		}
+	}
+
+}
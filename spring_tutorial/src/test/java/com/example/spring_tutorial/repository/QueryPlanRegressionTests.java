@@ -0,0 +1,383 @@
+package com.example.spring_tutorial.repository;
+
+import com.example.spring_tutorial.dto.SectionDTO;
+import com.example.spring_tutorial.model.Department;
+import com.example.spring_tutorial.service.PeopleDirectory;
+import com.example.spring_tutorial.service.ProfileService;
+import com.example.spring_tutorial.service.TimetableService;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.ArrayNode;
+import tools.jackson.databind.node.ObjectNode;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query-plan regression suite for the repository queries.
+ *
+ * Runs EXPLAIN (ANALYZE, BUFFERS) for the SQL that each derived query and
+ * lazy association load produces, and for the statements the JDBC services
+ * send as recorded while they run, against a local PostgreSQL holding the
+ * seeded production-scale dataset, and fails when a hot query falls back to
+ * a sequential scan or exceeds its cost/row budget.
+ *
+ * Not part of the default build. Run with:
+ * <pre>
+ * ./mvnw test -Pquery-plans -Dspring.datasource.url=jdbc:postgresql://localhost:5432/school_plans \
+ *     -Dspring.datasource.username=postgres -Dspring.datasource.password=postgres
+ * </pre>
+ * Reports are written to target/query-plans (report.json is stable and meant to be diffed between releases).
+ */
+@SpringBootTest
+@Tag("query-plan")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanRegressionTests {
+
+	private static final Path REPORT_DIR = Path.of("target", "query-plans");
+
+	private static final String STUDENT_COLUMNS = "s1_0.id,s1_0.created_by,s1_0.date_of_birth,s1_0.department_id,"
+		+ "s1_0.email,s1_0.enrollment_date,s1_0.first_name,s1_0.last_name,s1_0.student_id";
+	private static final String TEACHER_COLUMNS = "t1_0.id,t1_0.date_of_birth,t1_0.department_id,t1_0.email,"
+		+ "t1_0.first_name,t1_0.hire_date,t1_0.last_name,t1_0.specialization,t1_0.teacher_id";
+	private static final String USER_COLUMNS = "u1_0.id,u1_0.created_at,u1_0.date_of_birth,u1_0.email,"
+		+ "u1_0.first_name,u1_0.last_name,u1_0.password,u1_0.role,u1_0.updated_at";
+	private static final String COURSE_COLUMNS = "c1_0.id,c1_0.code,c1_0.credits,c1_0.department_id,"
+		+ "c1_0.description,c1_0.name";
+	private static final String DEPARTMENT_COLUMNS = "d1_0.id,d1_0.code,d1_0.deleted_at,d1_0.description,"
+		+ "d1_0.established_date,d1_0.name";
+	// Students and teachers of a deleted department are hidden until it is purged
+	private static final String LIVE_S = live("s1_0");
+	private static final String LIVE_T = live("t1_0");
+	private static final String LIVE_C = live("c1_0");
+	// Multi-gets send IN lists padded to a power of two
+	private static final String ID_LIST = "?,".repeat(15) + "?";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private PeopleDirectory peopleDirectory;
+
+	private final JsonMapper jsonMapper = JsonMapper.builder().build();
+	private final ArrayNode report = JsonMapper.builder().build().createArrayNode();
+	private final List<String> markdown = new ArrayList<>();
+
+	@BeforeAll
+	void seedDataset() {
+		Long students = jdbcTemplate.queryForObject("SELECT count(*) FROM students", Long.class);
+		if (students == null || students < 10_000) {
+			new ResourceDatabasePopulator(new ClassPathResource("db/seed-dataset.sql")).execute(dataSource);
+		}
+		markdown.add("| Query | Plan | Cost | Rows | Buffers (hit/read) | Time (ms) |");
+		markdown.add("|---|---|---|---|---|---|");
+	}
+
+	@AfterAll
+	void writeReport() throws IOException {
+		Files.createDirectories(REPORT_DIR);
+		Files.writeString(REPORT_DIR.resolve("report.json"),
+			jsonMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+		Files.write(REPORT_DIR.resolve("report.md"), markdown);
+	}
+
+	@TestFactory
+	Stream<DynamicTest> repositoryQueriesStayWithinBudget() {
+		return queries().stream()
+			.map(query -> DynamicTest.dynamicTest(query.name(), () -> check(query)));
+	}
+
+	private List<PlannedQuery> queries() {
+		List<PlannedQuery> queries = new ArrayList<>();
+
+		// UserRepository
+		queries.add(indexed("UserRepository.findByEmail", "users", 20, 1,
+			"select " + USER_COLUMNS + " from users u1_0 where u1_0.email=?", "user4242@seed.edu"));
+		queries.add(indexed("UserRepository.existsByEmail", "users", 20, 1,
+			"select u1_0.id from users u1_0 where u1_0.email=? fetch first ? rows only", "user4242@seed.edu", 1));
+		queries.add(indexed("UserRepository.findByRole(TEACHER)", "users", 3_000, 5_000,
+			"select " + USER_COLUMNS + " from users u1_0 where u1_0.role=?", "TEACHER"));
+		queries.add(indexed("UserRepository.findPageByRoleAfterId(STUDENT)", "users", 200, 500,
+			"select u1_0.id,u1_0.first_name,u1_0.last_name,u1_0.email from users u1_0 "
+				+ "where u1_0.role=? and u1_0.id>? order by u1_0.id fetch first ? rows only", "STUDENT", 50_000L, 500));
+		queries.add(indexed("UserRepository.countByRole(TEACHER)", "users", 3_000, 1,
+			"select count(u1_0.id) from users u1_0 where u1_0.role=?", "TEACHER"));
+		// Nearly every row matches, so a sequential scan is the right plan here
+		queries.add(scanAllowed("UserRepository.findByRole(STUDENT)", 5_000, 120_000,
+			"select " + USER_COLUMNS + " from users u1_0 where u1_0.role=?", "STUDENT"));
+
+		// StudentRepository
+		queries.add(indexed("StudentRepository.findById", "students", 20, 1,
+			"select " + STUDENT_COLUMNS + " from students s1_0 where s1_0.id=? and " + LIVE_S, 4242L));
+		queries.add(indexed("StudentRepository.findByEmail", "students", 20, 1,
+			"select " + STUDENT_COLUMNS + " from students s1_0 where " + LIVE_S + " and s1_0.email=?", "student4242@seed.edu"));
+		queries.add(indexed("StudentRepository.findByStudentId", "students", 20, 1,
+			"select " + STUDENT_COLUMNS + " from students s1_0 where " + LIVE_S + " and s1_0.student_id=?", "S4242"));
+		queries.add(indexed("StudentRepository.existsByEmail", "students", 20, 1,
+			"select s1_0.id from students s1_0 where " + LIVE_S + " and s1_0.email=? fetch first ? rows only", "student4242@seed.edu", 1));
+		queries.add(indexed("StudentRepository.existsByStudentId", "students", 20, 1,
+			"select s1_0.id from students s1_0 where " + LIVE_S + " and s1_0.student_id=? fetch first ? rows only", "S4242", 1));
+		queries.add(indexed("Student by created_by", "students", 500, 200,
+			"select " + STUDENT_COLUMNS + " from students s1_0 where " + LIVE_S + " and s1_0.created_by=?", "teacher42@seed.edu"));
+		queries.add(indexed("StudentRepository.findAllWithDepartmentByIdIn", "students", 300, 16,
+			"select " + STUDENT_COLUMNS + "," + DEPARTMENT_COLUMNS + " from students s1_0"
+				+ " left join departments d1_0 on d1_0.id=s1_0.department_id and (d1_0.deleted_at IS NULL)"
+				+ " where " + LIVE_S + " and s1_0.id in (" + ID_LIST + ")",
+			ids(4242L, 16)));
+
+		// TeacherRepository
+		queries.add(indexed("TeacherRepository.findByEmail", "teachers", 20, 1,
+			"select " + TEACHER_COLUMNS + " from teachers t1_0 where " + LIVE_T + " and t1_0.email=?", "teacher42@seed.edu"));
+		queries.add(indexed("TeacherRepository.findByTeacherId", "teachers", 20, 1,
+			"select " + TEACHER_COLUMNS + " from teachers t1_0 where " + LIVE_T + " and t1_0.teacher_id=?", "T42"));
+		queries.add(indexed("TeacherRepository.existsByEmail", "teachers", 20, 1,
+			"select t1_0.id from teachers t1_0 where " + LIVE_T + " and t1_0.email=? fetch first ? rows only", "teacher42@seed.edu", 1));
+		queries.add(indexed("TeacherRepository.existsByTeacherId", "teachers", 20, 1,
+			"select t1_0.id from teachers t1_0 where " + LIVE_T + " and t1_0.teacher_id=? fetch first ? rows only", "T42", 1));
+		queries.add(indexed("TeacherRepository.findAllById", "teachers", 200, 16,
+			"select " + TEACHER_COLUMNS + " from teachers t1_0 where " + LIVE_T + " and t1_0.id in (" + ID_LIST + ")", ids(42L, 16)));
+
+		// CourseRepository
+		queries.add(indexed("CourseRepository.findByCode", "courses", 20, 1,
+			"select " + COURSE_COLUMNS + " from courses c1_0 where " + LIVE_C + " and c1_0.code=?", "C42"));
+		queries.add(indexed("CourseRepository.existsByCode", "courses", 20, 1,
+			"select c1_0.id from courses c1_0 where " + LIVE_C + " and c1_0.code=? fetch first ? rows only", "C42", 1));
+		queries.add(indexed("CourseRepository.findAllById", "courses", 200, 16,
+			"select " + COURSE_COLUMNS + " from courses c1_0 where " + LIVE_C + " and c1_0.id in (" + ID_LIST + ")",
+			ids(42L, 16)));
+
+		// DepartmentRepository: a handful of rows on one page, so a sequential scan is fine
+		queries.add(scanAllowed("DepartmentRepository.findByName", 20, 1,
+			"select " + DEPARTMENT_COLUMNS + " from departments d1_0 where d1_0.name=? and (d1_0.deleted_at IS NULL)",
+			"Department 7"));
+		queries.add(scanAllowed("DepartmentRepository.findByCode", 20, 1,
+			"select " + DEPARTMENT_COLUMNS + " from departments d1_0 where d1_0.code=? and (d1_0.deleted_at IS NULL)", "D7"));
+		queries.add(scanAllowed("DepartmentRepository.existsByName", 20, 1,
+			"select d1_0.id from departments d1_0 where d1_0.name=? and (d1_0.deleted_at IS NULL) fetch first ? rows only",
+			"Department 7", 1));
+		queries.add(scanAllowed("DepartmentRepository.existsByCode", 20, 1,
+			"select d1_0.id from departments d1_0 where d1_0.code=? and (d1_0.deleted_at IS NULL) fetch first ? rows only",
+			"D7", 1));
+
+		// Lazy association loads
+		queries.add(indexed("Department.students", "students", 3_000, 2_500,
+			"select " + STUDENT_COLUMNS + " from students s1_0 where s1_0.department_id=? and " + LIVE_S, departmentId()));
+		queries.add(indexed("Department.teachers", "teachers", 200, 100,
+			"select " + TEACHER_COLUMNS + " from teachers t1_0 where t1_0.department_id=? and " + LIVE_T, departmentId()));
+		queries.add(indexed("Department.courses", "courses", 200, 100,
+			"select " + COURSE_COLUMNS + " from courses c1_0 where c1_0.department_id=? and " + LIVE_C, departmentId()));
+		// Includes the hashed lookup of deleted departments for each enrolled student
+		queries.add(indexed("Course.students", "student_courses", 2_500, 500,
+			"select s1_0.course_id,s1_1.id,s1_1.email from student_courses s1_0 "
+				+ "join students s1_1 on s1_1.id=s1_0.student_id where s1_0.course_id=? and " + live("s1_1"), courseId()));
+		queries.add(indexed("Course.teachers", "teacher_courses", 200, 50,
+			"select t1_0.course_id,t1_1.id,t1_1.email from teacher_courses t1_0 "
+				+ "join teachers t1_1 on t1_1.id=t1_0.teacher_id where t1_0.course_id=? and " + live("t1_1"), courseId()));
+		queries.add(indexed("Student.courses", "student_courses", 100, 10,
+			"select c1_0.student_id,c1_1.id,c1_1.code from student_courses c1_0 "
+				+ "join courses c1_1 on c1_1.id=c1_0.course_id where c1_0.student_id=? and " + live("c1_1"), 4242L));
+
+		// ProfileService and TimetableService: the statements they actually send, with their parameters
+		List<Captured> profile = captured(jdbc -> profileService(jdbc).loadProfile("student4242@seed.edu"));
+		queries.add(indexed("ProfileService courses", "student_courses", 200, 20,
+			statement(profile, "student_courses")));
+		queries.add(scanAllowed("ProfileService department", 50, 1, statement(profile, "departments")));
+
+		List<Captured> clashes = captured(jdbc -> new TimetableService(jdbc).findStudentClashes(4242L));
+		queries.add(indexed("TimetableService student sections", "student_courses", 200, 20,
+			statement(clashes, "course_sections")));
+		List<Captured> booking = captured(jdbc -> rolledBack(jdbc,
+			() -> new TimetableService(jdbc).createSection(courseId(), earlySundaySection(roomId()))));
+		queries.add(indexed("TimetableService room sections", "course_sections", 500, 100,
+			statement(booking, "section_meetings m")));
+
+		return queries;
+	}
+
+	private void check(PlannedQuery query) throws IOException {
+		String json = jdbcTemplate.query(
+			"EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) " + query.sql(),
+			ps -> {
+				for (int i = 0; i < query.params().length; i++) {
+					ps.setObject(i + 1, query.params()[i]);
+				}
+			},
+			rs -> rs.next() ? rs.getString(1) : null);
+		JsonNode root = jsonMapper.readTree(json).get(0);
+		JsonNode plan = root.get("Plan");
+
+		Set<String> nodes = new TreeSet<>();
+		Set<String> seqScans = new TreeSet<>();
+		Set<String> indexes = new TreeSet<>();
+		walk(plan, nodes, seqScans, indexes);
+
+		double cost = plan.get("Total Cost").asDouble();
+		long rows = plan.get("Actual Rows").asLong();
+		long hit = plan.path("Shared Hit Blocks").asLong();
+		long read = plan.path("Shared Read Blocks").asLong();
+		double time = root.get("Execution Time").asDouble();
+
+		ObjectNode entry = report.addObject();
+		entry.put("query", query.name());
+		entry.put("totalCost", Math.round(cost));
+		entry.put("actualRows", rows);
+		nodes.forEach(entry.putArray("nodes")::add);
+		seqScans.forEach(entry.putArray("seqScans")::add);
+		indexes.forEach(entry.putArray("indexes")::add);
+		markdown.add(String.format("| %s | %s | %.1f | %d | %d/%d | %.3f |",
+			query.name(), String.join(", ", nodes), cost, rows, hit, read, time));
+
+		if (query.forbiddenSeqScan() != null) {
+			assertThat(seqScans).as("%s must not scan %s sequentially", query.name(), query.forbiddenSeqScan())
+				.doesNotContain(query.forbiddenSeqScan());
+		}
+		assertThat(cost).as("%s total cost", query.name()).isLessThanOrEqualTo(query.maxCost());
+		assertThat(rows).as("%s rows", query.name()).isLessThanOrEqualTo(query.maxRows());
+	}
+
+	private static void walk(JsonNode node, Set<String> nodes, Set<String> seqScans, Set<String> indexes) {
+		String type = node.get("Node Type").asString();
+		nodes.add(type);
+		if ("Seq Scan".equals(type)) {
+			seqScans.add(node.get("Relation Name").asString());
+		}
+		if (node.has("Index Name")) {
+			indexes.add(node.get("Index Name").asString());
+		}
+		JsonNode children = node.get("Plans");
+		if (children != null) {
+			children.forEach(child -> walk(child, nodes, seqScans, indexes));
+		}
+	}
+
+	private Long departmentId() {
+		return jdbcTemplate.queryForObject("SELECT min(id) FROM departments", Long.class);
+	}
+
+	private Long courseId() {
+		return jdbcTemplate.queryForObject("SELECT min(id) FROM courses", Long.class);
+	}
+
+	private Long roomId() {
+		return jdbcTemplate.queryForObject("SELECT min(id) + 16 FROM rooms", Long.class);
+	}
+
+	private static PlannedQuery indexed(String name, String table, double maxCost, long maxRows,
+										String sql, Object... params) {
+		return new PlannedQuery(name, sql, params, table, maxCost, maxRows);
+	}
+
+	private static PlannedQuery indexed(String name, String table, double maxCost, long maxRows, Captured statement) {
+		return indexed(name, table, maxCost, maxRows, statement.sql(), statement.params());
+	}
+
+	private static PlannedQuery scanAllowed(String name, double maxCost, long maxRows, Captured statement) {
+		return scanAllowed(name, maxCost, maxRows, statement.sql(), statement.params());
+	}
+
+	/**
+	 * Statements run by a service call against a JdbcTemplate that records them.
+	 */
+	private List<Captured> captured(Consumer<JdbcTemplate> call) {
+		List<Captured> statements = new CopyOnWriteArrayList<>();
+		DataSource recording = ProxyDataSourceBuilder.create(dataSource)
+			.afterQuery((execution, queries) -> queries.forEach(query -> {
+				List<ParameterSetOperation> parameters = query.getParametersList().isEmpty()
+					? List.of() : query.getParametersList().get(0);
+				Object[] params = parameters.stream()
+					.sorted(Comparator.comparingInt(p -> (Integer) p.getArgs()[0]))
+					.map(p -> p.getArgs()[1])
+					.toArray();
+				statements.add(new Captured(query.getQuery(), params));
+			}))
+			.build();
+		call.accept(new JdbcTemplate(recording));
+		return statements;
+	}
+
+	private static Captured statement(List<Captured> statements, String fragment) {
+		return statements.stream()
+			.filter(statement -> statement.sql().contains(fragment))
+			.findFirst()
+			.orElseThrow(() -> new AssertionError("No statement with " + fragment + " among " + statements));
+	}
+
+	/**
+	 * Runs a write in a transaction on the recording DataSource and rolls it back.
+	 */
+	private static void rolledBack(JdbcTemplate jdbc, Runnable work) {
+		new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource())).executeWithoutResult(status -> {
+			work.run();
+			status.setRollbackOnly();
+		});
+	}
+
+	private static SectionDTO earlySundaySection(Long roomId) {
+		SectionDTO section = new SectionDTO();
+		section.setCode("PLAN");
+		section.setRoomId(roomId);
+		section.getMeetings().add(new SectionDTO.Meeting(DayOfWeek.SUNDAY, LocalTime.of(6, 0), LocalTime.of(6, 30)));
+		return section;
+	}
+
+	private ProfileService profileService(JdbcTemplate jdbc) {
+		ProfileService service = new ProfileService(peopleDirectory, jdbc);
+		ReflectionTestUtils.setField(service, "deadline", Duration.ofSeconds(30));
+		return service;
+	}
+
+	private static String live(String alias) {
+		return "(" + Department.IN_LIVE_DEPARTMENT.replace("department_id", alias + ".department_id") + ")";
+	}
+
+	private static Object[] ids(long first, int count) {
+		return LongStream.range(first, first + count).boxed().toArray();
+	}
+
+	private static PlannedQuery scanAllowed(String name, double maxCost, long maxRows, String sql, Object... params) {
+		return new PlannedQuery(name, sql, params, null, maxCost, maxRows);
+	}
+
+	private record Captured(String sql, Object[] params) {
+	}
+
+	private record PlannedQuery(String name, String sql, Object[] params, String forbiddenSeqScan,
+								double maxCost, long maxRows) {
+	}
+
+}
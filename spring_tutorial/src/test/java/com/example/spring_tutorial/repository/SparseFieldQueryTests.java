@@ -0,0 +1,100 @@
+package com.example.spring_tutorial.repository;
+
+import com.example.spring_tutorial.model.Department;
+import com.example.spring_tutorial.model.Student;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Runs against the configured database; each test rolls back what it inserts.
+ */
+@SpringBootTest
+@Transactional
+class SparseFieldQueryTests {
+
+	private static final Map<String, String> FIELDS = Map.of(
+		"id", "id",
+		"email", "email",
+		"enrollmentDate", "enrollmentDate",
+		"departmentId", "department.id",
+		"departmentName", "department.name");
+
+	@Autowired
+	private SparseFieldQuery sparseFieldQuery;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private Department department;
+
+	@BeforeEach
+	void insertStudents() {
+		department = new Department();
+		department.setName("Sparse Fields");
+		department.setCode("SPF");
+		entityManager.persist(department);
+		entityManager.persist(student("sparse-a@school.edu", "SPF-A", department));
+		entityManager.persist(student("sparse-b@school.edu", "SPF-B", null));
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void returnsOnlyTheRequestedFieldsInRequestOrder() {
+		List<Map<String, Object>> rows = ours(sparseFieldQuery.findAll(Student.class, FIELDS,
+			List.of("email", " enrollmentDate", "departmentName", "", "email")));
+
+		assertThat(rows).hasSize(2);
+		assertThat(rows.get(0)).containsExactly(
+			Map.entry("email", "sparse-a@school.edu"),
+			Map.entry("enrollmentDate", LocalDate.of(2024, 9, 1)),
+			Map.entry("departmentName", "Sparse Fields"));
+		// The association is outer-joined, so a student without a department is still listed
+		assertThat(rows.get(1)).containsEntry("departmentName", null).hasSize(3);
+	}
+
+	@Test
+	void readsAnAssociationIdWithoutJoining() {
+		List<Map<String, Object>> rows = ours(sparseFieldQuery.findAll(Student.class, FIELDS,
+			List.of("email", "departmentId")));
+
+		assertThat(rows).extracting(row -> row.get("departmentId")).containsExactly(department.getId(), null);
+	}
+
+	@Test
+	void rejectsUnknownOrMissingFields() {
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> sparseFieldQuery.findAll(Student.class, FIELDS, List.of("email", "password")))
+			.withMessage("Unknown field: password. Allowed fields: departmentId, departmentName, email, "
+				+ "enrollmentDate, id");
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> sparseFieldQuery.findAll(Student.class, FIELDS, List.of(" ")))
+			.withMessage("At least one field is required");
+	}
+
+	private static List<Map<String, Object>> ours(List<Map<String, Object>> rows) {
+		return rows.stream().filter(row -> ((String) row.get("email")).startsWith("sparse-")).toList();
+	}
+
+	private static Student student(String email, String studentId, Department department) {
+		Student student = new Student();
+		student.setFirstName("Sparse");
+		student.setLastName("Fields");
+		student.setEmail(email);
+		student.setStudentId(studentId);
+		student.setEnrollmentDate(LocalDate.of(2024, 9, 1));
+		student.setDepartment(department);
+		return student;
+	}
+}
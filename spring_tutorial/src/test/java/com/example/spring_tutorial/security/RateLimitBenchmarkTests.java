@@ -0,0 +1,142 @@
+package com.example.spring_tutorial.security;
+
+import com.example.spring_tutorial.config.RateLimitProperties;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Cost of {@link RateLimitFilter} per login request, against the 50k requests/s the
+ * authentication endpoints have to sustain. Clients come from a pool larger than the
+ * bucket table, so buckets are shared and evicted as they would be under attack.
+ *
+ * Not part of the default build: mvn -Pbenchmarks test. Results are written to
+ * target/benchmarks/rate-limit.md.
+ */
+@Tag("benchmark")
+class RateLimitBenchmarkTests {
+
+	private static final Path REPORT = Path.of("target", "benchmarks", "rate-limit.md");
+
+	private static final int THREADS = 8;
+	private static final int REQUESTS_PER_THREAD = 2_000_000;
+	private static final int CLIENTS = 100_000;
+	private static final int TARGET_RATE = 50_000;
+
+	@Test
+	void filterOverheadAtTargetRate() throws Exception {
+		RateLimitProperties disabled = properties(30);
+		disabled.setEnabled(false);
+		RateLimitFilter passThrough = new RateLimitFilter(new AuthRateLimiter(disabled));
+		// Nobody runs out of tokens: the cost of the bucket lookup alone
+		RateLimitProperties generous = properties(TokenBucketTable.MAX_CAPACITY);
+		generous.setTableSize(1 << 16);
+		RateLimitFilter allowing = new RateLimitFilter(new AuthRateLimiter(generous));
+		// The production limit: nearly every request is answered with 429
+		RateLimitFilter rejecting = new RateLimitFilter(new AuthRateLimiter(properties(30)));
+		FilterChain chain = (request, response) -> { };
+
+		run(passThrough, chain, REQUESTS_PER_THREAD / 4, new AtomicLong());
+		run(allowing, chain, REQUESTS_PER_THREAD / 4, new AtomicLong());
+		run(rejecting, chain, REQUESTS_PER_THREAD / 4, new AtomicLong());
+		long baseline = run(passThrough, chain, REQUESTS_PER_THREAD, new AtomicLong());
+
+		List<String> report = new ArrayList<>();
+		report.add("- " + THREADS + " threads on " + cores() + " cores, " + (long) THREADS * REQUESTS_PER_THREAD
+			+ " login requests from " + CLIENTS + " clients; limiting off: " + baseline / 1_000_000 + " ms");
+		double allowedOverhead = measure("All allowed", allowing, chain, baseline, report);
+		double rejectedOverhead = measure("Under attack", rejecting, chain, baseline, report);
+		Files.createDirectories(REPORT.getParent());
+		Files.write(REPORT, report);
+		report.forEach(System.out::println);
+
+		// Negligible next to the BCrypt check it guards, which costs tens of milliseconds per login
+		assertThat(allowedOverhead).isLessThan(0.05);
+		assertThat(rejectedOverhead).isLessThan(0.25);
+	}
+
+	/**
+	 * @return cores the filter adds at the target rate
+	 */
+	private static double measure(String scenario, RateLimitFilter filter, FilterChain chain, long baseline,
+								  List<String> report) throws Exception {
+		AtomicLong rejected = new AtomicLong();
+		long elapsed = run(filter, chain, REQUESTS_PER_THREAD, rejected);
+		long requests = (long) THREADS * REQUESTS_PER_THREAD;
+		double perSecond = requests * 1e9 / elapsed;
+		double overheadNanos = (double) Math.max(0, elapsed - baseline) * cores() / requests;
+		double coresAtTarget = TARGET_RATE * overheadNanos / 1e9;
+		report.add(String.format("- %s: %d ms, %d requests/s, %d rejected; limiting adds about %.0f ns of CPU "
+				+ "per request, %.3f of one core at %d requests/s",
+			scenario, elapsed / 1_000_000, Math.round(perSecond), rejected.get(), overheadNanos, coresAtTarget,
+			TARGET_RATE));
+		assertThat(perSecond).as(scenario).isGreaterThan(TARGET_RATE);
+		return coresAtTarget;
+	}
+
+	private static int cores() {
+		return Math.min(THREADS, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @return elapsed nanoseconds
+	 */
+	private static long run(RateLimitFilter filter, FilterChain chain, int perThread, AtomicLong rejected)
+			throws Exception {
+		long start = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> done = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			done.add(pool.submit(() -> {
+				MockHttpServletRequest[] requests = new MockHttpServletRequest[8192];
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i = 0; i < requests.length; i++) {
+					requests[i] = new MockHttpServletRequest("POST", "/api/auth/login");
+					requests[i].setServletPath("/api/auth/login");
+					int client = random.nextInt(CLIENTS);
+					requests[i].setRemoteAddr("10." + (client >> 16) + "." + (client >> 8 & 255) + "." + (client & 255));
+				}
+				long refused = 0;
+				for (int i = 0; i < perThread; i++) {
+					MockHttpServletResponse response = new MockHttpServletResponse();
+					filter.doFilter(requests[i & 8191], response, chain);
+					if (response.getStatus() == 429) {
+						refused++;
+					}
+				}
+				rejected.addAndGet(refused);
+				return null;
+			}));
+		}
+		for (Future<?> future : done) {
+			future.get();
+		}
+		pool.shutdown();
+		return System.nanoTime() - start;
+	}
+
+	private static RateLimitProperties properties(int capacity) {
+		RateLimitProperties.Endpoint login = new RateLimitProperties.Endpoint();
+		login.setPaths(List.of("/login", "/api/auth/login"));
+		login.getPerIp().setCapacity(capacity);
+		login.getPerIp().setRefillPerMinute(capacity);
+		RateLimitProperties properties = new RateLimitProperties();
+		properties.getEndpoints().put("login", login);
+		return properties;
+	}
+
+}
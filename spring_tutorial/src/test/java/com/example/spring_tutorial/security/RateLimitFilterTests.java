@@ -0,0 +1,84 @@
+package com.example.spring_tutorial.security;
+
+import com.example.spring_tutorial.config.RateLimitProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitFilterTests {
+
+	private final RateLimitFilter filter = new RateLimitFilter(new AuthRateLimiter(properties()));
+
+	@Test
+	void rejectsWith429OnceTheClientIsOutOfTokens() throws Exception {
+		assertThat(login("203.0.113.1").getStatus()).isEqualTo(200);
+		assertThat(login("203.0.113.1").getStatus()).isEqualTo(200);
+
+		MockHttpServletResponse rejected = login("203.0.113.1");
+		assertThat(rejected.getStatus()).isEqualTo(429);
+		assertThat(Long.parseLong(rejected.getHeader(HttpHeaders.RETRY_AFTER))).isBetween(1L, 60L);
+		assertThat(rejected.getContentAsString()).contains("Too many requests");
+
+		assertThat(login("203.0.113.2").getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	void formLoginsAreAlsoLimitedPerAccount() throws Exception {
+		assertThat(formLogin("203.0.113.10", "Someone@school.edu").getStatus()).isEqualTo(200);
+		assertThat(formLogin("203.0.113.11", "someone@school.edu").getStatus()).isEqualTo(429);
+		assertThat(formLogin("203.0.113.12", "other@school.edu").getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	void otherEndpointsAreNotLimited() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/students");
+			request.setServletPath("/api/students");
+			request.setRemoteAddr("203.0.113.20");
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			filter.doFilter(request, response, new MockFilterChain());
+			assertThat(response.getStatus()).isEqualTo(200);
+		}
+	}
+
+	private MockHttpServletResponse login(String remoteAddr) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+		request.setServletPath("/api/auth/login");
+		request.setRemoteAddr(remoteAddr);
+		request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, new MockFilterChain());
+		return response;
+	}
+
+	private MockHttpServletResponse formLogin(String remoteAddr, String email) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+		request.setServletPath("/login");
+		request.setRemoteAddr(remoteAddr);
+		request.setContentType(MediaType.APPLICATION_FORM_URLENCODED_VALUE);
+		request.setParameter("email", email);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, new MockFilterChain());
+		return response;
+	}
+
+	private static RateLimitProperties properties() {
+		RateLimitProperties.Endpoint login = new RateLimitProperties.Endpoint();
+		login.setPaths(List.of("/login", "/api/auth/login"));
+		login.getPerIp().setCapacity(2);
+		login.getPerIp().setRefillPerMinute(2);
+		login.getPerAccount().setCapacity(1);
+		login.getPerAccount().setRefillPerMinute(1);
+		RateLimitProperties properties = new RateLimitProperties();
+		properties.getEndpoints().put("login", login);
+		return properties;
+	}
+
+}
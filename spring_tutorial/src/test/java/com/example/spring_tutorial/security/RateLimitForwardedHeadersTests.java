@@ -0,0 +1,49 @@
+package com.example.spring_tutorial.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Behind the load balancer every request comes from the proxy's address; the per-IP
+ * buckets have to be keyed by the client address it forwards.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+	"app.rate-limit.endpoints.login.per-ip.capacity=2",
+	"app.rate-limit.endpoints.login.per-ip.refill-per-minute=1"
+})
+class RateLimitForwardedHeadersTests {
+
+	@LocalServerPort
+	private int port;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	void clientsBehindTheProxyGetBucketsOfTheirOwn() throws Exception {
+		assertThat(login("198.51.100.1", 1)).isNotEqualTo(429);
+		assertThat(login("198.51.100.1", 2)).isNotEqualTo(429);
+		assertThat(login("198.51.100.1", 3)).isEqualTo(429);
+
+		assertThat(login("198.51.100.2", 4)).isNotEqualTo(429);
+		assertThat(login("198.51.100.3, 198.51.100.2", 5)).isNotEqualTo(429);
+	}
+
+	private int login(String forwardedFor, int attempt) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/login"))
+			.header("Content-Type", "application/json")
+			.header("X-Forwarded-For", forwardedFor)
+			.POST(HttpRequest.BodyPublishers.ofString(
+				"{\"email\":\"nobody" + attempt + "@forwarded.test\",\"password\":\"wrong-password\"}"))
+			.build();
+		return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+	}
+
+}
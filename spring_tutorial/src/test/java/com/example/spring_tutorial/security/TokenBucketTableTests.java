@@ -0,0 +1,27 @@
+package com.example.spring_tutorial.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTableTests {
+
+	@Test
+	void allowsBurstUpToCapacityThenRejects() {
+		TokenBucketTable table = new TokenBucketTable(1024, 3, 1);
+
+		assertThat(table.tryAcquire("10.0.0.1")).isZero();
+		assertThat(table.tryAcquire("10.0.0.1")).isZero();
+		assertThat(table.tryAcquire("10.0.0.1")).isZero();
+		assertThat(table.tryAcquire("10.0.0.1")).isPositive();
+	}
+
+	@Test
+	void reportsRetryDelayFromRefillRate() {
+		TokenBucketTable table = new TokenBucketTable(1024, 1, 60);
+
+		assertThat(table.tryAcquire("user@school.edu")).isZero();
+		assertThat(table.tryAcquire("user@school.edu")).isBetween(1L, 1000L);
+	}
+
+}
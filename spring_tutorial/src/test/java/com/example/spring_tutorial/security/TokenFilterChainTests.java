@@ -0,0 +1,70 @@
+package com.example.spring_tutorial.security;
+
+import com.example.spring_tutorial.ScratchDatabaseTest;
+import com.example.spring_tutorial.config.TokenProperties;
+import com.example.spring_tutorial.model.User;
+import com.example.spring_tutorial.service.TokenService;
+import jakarta.servlet.Filter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The token chain is switched by app.security.token.enabled as the application runs, not by
+ * a bean condition, which an AOT-processed build would have settled at build time.
+ */
+class TokenFilterChainTests extends ScratchDatabaseTest {
+
+	@Autowired
+	private WebApplicationContext context;
+
+	@Autowired
+	private TokenProperties tokenProperties;
+
+	@Autowired
+	private TokenService tokenService;
+
+	private MockMvc mvc;
+
+	@BeforeEach
+	void setUp() {
+		mvc = MockMvcBuilders.webAppContextSetup(context)
+			.addFilters(context.getBean("springSecurityFilterChain", Filter.class))
+			.build();
+	}
+
+	@AfterEach
+	void switchTokensOff() {
+		tokenProperties.setEnabled(false);
+	}
+
+	@Test
+	void withTokensOffTheApiIsPartOfTheSessionLogin() throws Exception {
+		mvc.perform(get("/api/departments")).andExpect(status().is3xxRedirection());
+	}
+
+	@Test
+	void withTokensOnTheApiTakesBearerTokensOnly() throws Exception {
+		tokenProperties.setEnabled(true);
+
+		mvc.perform(get("/api/departments")).andExpect(status().isUnauthorized());
+		mvc.perform(get("/api/departments").header("Authorization", "Bearer " + tokenService.issue(teacher())))
+			.andExpect(status().isOk());
+	}
+
+	private static User teacher() {
+		User user = new User();
+		user.setId(7L);
+		user.setEmail("teacher@school.edu");
+		user.setRole(User.Role.TEACHER);
+		return user;
+	}
+
+}
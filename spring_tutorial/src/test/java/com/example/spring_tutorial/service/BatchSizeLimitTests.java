@@ -0,0 +1,65 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.controller.CourseController;
+import com.example.spring_tutorial.model.Course;
+import com.example.spring_tutorial.repository.CourseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BatchSizeLimitTests {
+
+	private final BatchSizeLimit limit = new BatchSizeLimit(3);
+
+	private final CourseRepository courseRepository = mock(CourseRepository.class);
+	private final CourseService courseService = new CourseService(courseRepository, null, null, null, limit);
+	private final MockMvc mvc = MockMvcBuilders.standaloneSetup(new CourseController(courseService, null, null)).build();
+
+	@Test
+	void allowsUpToTheLimitCountingDuplicates() {
+		limit.check(List.of(1L, 2L, 3L));
+		limit.check(List.of());
+
+		assertThatIllegalArgumentException().isThrownBy(() -> limit.check(List.of(1L, 1L, 1L, 1L)))
+			.withMessage("At most 3 ids can be requested at once");
+	}
+
+	@Test
+	void anOverLimitMultiGetIsRejectedBeforeQuerying() throws Exception {
+		mvc.perform(get("/api/courses").param("ids", "1,2,3,4"))
+			.andExpect(status().isBadRequest())
+			.andExpect(jsonPath("$.error").value("At most 3 ids can be requested at once"));
+
+		verifyNoInteractions(courseRepository);
+	}
+
+	@Test
+	void aMultiGetWithinTheLimitAnswersInRequestOrder() throws Exception {
+		Course course = new Course();
+		course.setId(2L);
+		course.setCode("CS102");
+		when(courseRepository.findAllById(any())).thenReturn(List.of(course));
+
+		mvc.perform(get("/api/courses").param("ids", "2,9,2"))
+			.andExpect(status().isOk())
+			.andExpect(jsonPath("$[0].found").value(true))
+			.andExpect(jsonPath("$[0].data.code").value("CS102"))
+			.andExpect(jsonPath("$[1].id").value(9))
+			.andExpect(jsonPath("$[1].found").value(false))
+			.andExpect(jsonPath("$[2].id").value(2));
+		assertThat(courseService.getCoursesByIds(List.of(9L))).singleElement()
+			.satisfies(item -> assertThat(item.isFound()).isFalse());
+	}
+}
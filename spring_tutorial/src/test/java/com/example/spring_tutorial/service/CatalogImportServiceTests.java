@@ -0,0 +1,121 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.ScratchDatabaseTest;
+import com.example.spring_tutorial.dto.CatalogImportDTO;
+import com.example.spring_tutorial.dto.CatalogImportResultDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * The imported departments and courses are removed afterwards, with the outbox events their
+ * courses recorded. The outbox poll is pushed out of the way so those events stay to be counted.
+ */
+@SpringBootTest(properties = "app.outbox.poll-interval=1h")
+class CatalogImportServiceTests extends ScratchDatabaseTest {
+
+	@Autowired
+	private CatalogImportService importService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+
+	@AfterEach
+	void removeImportedRows() {
+		jdbcTemplate.update("DELETE FROM outbox_events WHERE event_type LIKE 'course.%' AND aggregate_id IN "
+			+ "(SELECT id::text FROM courses WHERE code LIKE ?)", tag + "-%");
+		jdbcTemplate.update("DELETE FROM courses WHERE code LIKE ?", tag + "-%");
+		jdbcTemplate.update("DELETE FROM departments WHERE code LIKE ?", "I" + tag + "%");
+	}
+
+	@Test
+	void csvLinesQuoteEveryValueAndLeaveNullsEmpty() {
+		StringBuilder line = new StringBuilder();
+		CatalogImportService.appendCsvLine(line, new Object[] {"CS101", null, 3, "say \"hi\", then\nleave", ""});
+		CatalogImportService.appendCsvLine(line, new Object[] {null});
+
+		assertThat(line).hasToString("\"CS101\",,\"3\",\"say \"\"hi\"\", then\nleave\",\"\"\n\n");
+	}
+
+	@Test
+	void repeatedCodesAreRejected() {
+		CatalogImportService.requireUniqueCodes(List.of("A", "B"), code -> code, "course");
+
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> CatalogImportService.requireUniqueCodes(List.of("A", "B", "A"), code -> code, "course"))
+			.withMessage("Duplicate course code in import: A");
+	}
+
+	@Test
+	void valuesRoundTripThroughCopy() {
+		CatalogImportDTO catalog = new CatalogImportDTO();
+		catalog.getCourses().add(course("1", null, "Quotes \"here\", commas, and a\nsecond line"));
+		catalog.getCourses().add(course("2", 4, ""));
+
+		importService.importCatalog(catalog);
+
+		Map<String, Object> first = jdbcTemplate.queryForMap(
+			"SELECT credits, description, department_id FROM courses WHERE code = ?", tag + "-1");
+		assertThat(first.get("credits")).isNull();
+		assertThat(first.get("description")).isEqualTo("Quotes \"here\", commas, and a\nsecond line");
+		assertThat(first.get("department_id")).isNull();
+		// A quoted empty value stays an empty string, only a missing one is NULL
+		assertThat(jdbcTemplate.queryForObject("SELECT description FROM courses WHERE code = ?", String.class, tag + "-2"))
+			.isEmpty();
+	}
+
+	@Test
+	void countsTellInsertsFromUpdatesAndUnchangedRows() {
+		CatalogImportDTO catalog = new CatalogImportDTO();
+		catalog.getDepartments().add(department("A", "Algebra"));
+		catalog.getDepartments().add(department("B", "Biology"));
+		catalog.getCourses().add(course("1", 3, "First"));
+		catalog.getCourses().add(course("2", 3, "Second"));
+		catalog.getCourses().add(course("3", 3, "Third"));
+
+		CatalogImportResultDTO first = importService.importCatalog(catalog);
+
+		assertThat(first.getDepartments()).isEqualTo(new CatalogImportResultDTO.Counts(2, 0, 0));
+		assertThat(first.getCourses()).isEqualTo(new CatalogImportResultDTO.Counts(3, 0, 0));
+
+		catalog.getDepartments().get(1).setName("Botany " + tag);
+		catalog.getCourses().get(0).setCredits(4);
+		catalog.getCourses().get(2).setDepartmentCode("I" + tag + "A");
+
+		CatalogImportResultDTO second = importService.importCatalog(catalog);
+
+		assertThat(second.getDepartments()).isEqualTo(new CatalogImportResultDTO.Counts(0, 1, 1));
+		assertThat(second.getCourses()).isEqualTo(new CatalogImportResultDTO.Counts(0, 2, 1));
+		assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM outbox_events WHERE event_type = 'course.updated' "
+			+ "AND aggregate_id IN (SELECT id::text FROM courses WHERE code LIKE ?)", Long.class, tag + "-%"))
+			.isEqualTo(2);
+	}
+
+	private CatalogImportDTO.DepartmentRow department(String suffix, String name) {
+		CatalogImportDTO.DepartmentRow row = new CatalogImportDTO.DepartmentRow();
+		row.setCode("I" + tag + suffix);
+		row.setName(name + " " + tag);
+		row.setEstablishedDate(LocalDate.of(1990, 9, 1));
+		return row;
+	}
+
+	private CatalogImportDTO.CourseRow course(String suffix, Integer credits, String description) {
+		CatalogImportDTO.CourseRow row = new CatalogImportDTO.CourseRow();
+		row.setCode(tag + "-" + suffix);
+		row.setName("Imported " + suffix);
+		row.setCredits(credits);
+		row.setDescription(description);
+		return row;
+	}
+
+}
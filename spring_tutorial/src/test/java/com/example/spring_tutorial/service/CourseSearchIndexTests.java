@@ -0,0 +1,73 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.ScratchDatabaseTest;
+import com.example.spring_tutorial.dto.CourseSummaryDTO;
+import com.example.spring_tutorial.outbox.OutboxEvent;
+import com.example.spring_tutorial.tenancy.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Events are handed to the index directly, in the orders the outbox may deliver them in.
+ */
+class CourseSearchIndexTests extends ScratchDatabaseTest {
+
+	@Autowired
+	private CourseSearchIndex index;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private JsonMapper jsonMapper;
+
+	// Well clear of the courses' own ids
+	private final long courseId = 1_000_000_000L + Long.parseLong(tag, 36) % 1_000_000_000L;
+
+	@AfterEach
+	void removeRow() {
+		jdbcTemplate.update("DELETE FROM course_search WHERE course_id = ?", courseId);
+	}
+
+	@Test
+	void aCreatedCourseIsFoundByItsWords() {
+		index.handle(event(1, OutboxEvent.COURSE_CREATED, "Linear Algebra " + tag));
+
+		assertThat(index.search("algebra " + tag, 10)).extracting(CourseSummaryDTO::getId).containsExactly(courseId);
+		assertThat(index.search("calculus " + tag, 10)).isEmpty();
+	}
+
+	@Test
+	void anOlderEventDeliveredLateIsIgnored() {
+		index.handle(event(2, OutboxEvent.COURSE_UPDATED, "Topology " + tag));
+		index.handle(event(1, OutboxEvent.COURSE_CREATED, "Geometry " + tag));
+
+		assertThat(index.search(tag, 10)).extracting(CourseSummaryDTO::getName).containsExactly("Topology " + tag);
+	}
+
+	@Test
+	void aDeletedCourseStaysDeletedWhenAnEarlierUpdateIsRedelivered() {
+		index.handle(event(1, OutboxEvent.COURSE_CREATED, "Logic " + tag));
+		index.handle(event(3, OutboxEvent.COURSE_DELETED, null));
+		index.handle(event(2, OutboxEvent.COURSE_UPDATED, "Logic II " + tag));
+
+		assertThat(index.search(tag, 10)).isEmpty();
+	}
+
+	private OutboxEvent event(long id, String type, String name) {
+		Map<String, Object> payload = name == null
+			? Map.of("id", courseId, "code", "X" + tag)
+			: Map.of("id", courseId, "code", "X" + tag, "name", name, "credits", 3);
+		return new OutboxEvent(TenantContext.DEFAULT, id, type, Long.toString(courseId),
+			jsonMapper.valueToTree(payload), Instant.now(), 1);
+	}
+
+}
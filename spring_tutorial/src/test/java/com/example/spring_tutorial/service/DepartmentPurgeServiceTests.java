@@ -0,0 +1,156 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.ScratchDatabaseTest;
+import com.example.spring_tutorial.dto.PersonDTO;
+import com.example.spring_tutorial.exception.ResourceNotFoundException;
+import com.example.spring_tutorial.model.Course;
+import com.example.spring_tutorial.repository.StudentRepository;
+import com.example.spring_tutorial.repository.TeacherRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The scheduled purge is pushed out of the way so only the test runs it; whatever a test
+ * leaves behind is purged afterwards.
+ */
+@SpringBootTest(properties = "app.departments.purge-interval=1h")
+class DepartmentPurgeServiceTests extends ScratchDatabaseTest {
+
+	@Autowired
+	private DepartmentPurgeService purgeService;
+
+	@Autowired
+	private DepartmentService departmentService;
+
+	@Autowired
+	private StudentRepository studentRepository;
+
+	@Autowired
+	private TeacherRepository teacherRepository;
+
+	@Autowired
+	private CourseService courseService;
+
+	@Autowired
+	private PeopleDirectory peopleDirectory;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private DataSource dataSource;
+
+	private long departmentId;
+
+	@BeforeEach
+	void insertDepartment() {
+		departmentId = jdbcTemplate.queryForObject(
+			"INSERT INTO departments (name, code) VALUES (?, ?) RETURNING id", Long.class, "Purge " + tag, "P" + tag);
+		jdbcTemplate.update("INSERT INTO users (email, first_name, last_name, password, role) "
+			+ "VALUES (?, 'Ada', 'Purge', 'x', 'STUDENT')", email("student0"));
+		for (int i = 0; i < 5; i++) {
+			jdbcTemplate.update("INSERT INTO students (email, first_name, last_name, student_id, department_id) "
+				+ "VALUES (?, 'Ada', 'Purge', ?, ?)", email("student" + i), tag + "-S" + i, departmentId);
+		}
+		jdbcTemplate.update("INSERT INTO teachers (email, first_name, last_name, teacher_id, department_id) "
+			+ "VALUES (?, 'Max', 'Purge', ?, ?)", email("teacher"), tag + "-T", departmentId);
+		for (int i = 0; i < 3; i++) {
+			jdbcTemplate.update("INSERT INTO courses (name, code, department_id) VALUES ('Purge', ?, ?)",
+				tag + "-C" + i, departmentId);
+		}
+		jdbcTemplate.update("INSERT INTO student_courses (student_id, course_id) SELECT s.id, c.id "
+			+ "FROM students s, courses c WHERE s.department_id = ? AND c.department_id = ?", departmentId, departmentId);
+		jdbcTemplate.update("INSERT INTO teacher_courses (teacher_id, course_id) SELECT t.id, c.id "
+			+ "FROM teachers t, courses c WHERE t.department_id = ? AND c.department_id = ?", departmentId, departmentId);
+		peopleDirectory.rebuild();
+		ReflectionTestUtils.setField(purgeService, "chunkSize", 2);
+	}
+
+	@AfterEach
+	void purgeLeftovers() {
+		jdbcTemplate.update("UPDATE departments SET deleted_at = now() WHERE id = ?", departmentId);
+		purgeService.purgeDeletedDepartments();
+		jdbcTemplate.update("DELETE FROM users WHERE email LIKE ?", "%@" + tag + ".purge.edu");
+	}
+
+	@Test
+	void peopleAreHiddenAtOnceAndPurgedInChunks() {
+		assertThat(studentRepository.findByEmail(email("student1"))).isPresent();
+		assertThat(peopleDirectory.findByEmail(email("student1"))).isPresent();
+
+		departmentService.deleteDepartment(departmentId);
+
+		assertThat(studentRepository.findByEmail(email("student1"))).isEmpty();
+		assertThat(teacherRepository.findByEmail(email("teacher"))).isEmpty();
+		assertThat(peopleDirectory.findByEmail(email("student1"))).isEmpty();
+		// The account stays, without its profile
+		PersonDTO account = peopleDirectory.findByEmail(email("student0")).orElseThrow();
+		assertThat(account.getId()).isNotNull();
+		assertThat(account.getProfileId()).isNull();
+		// A rebuild before the purge leaves them out as well
+		peopleDirectory.rebuild();
+		assertThat(peopleDirectory.findByEmail(email("teacher"))).isEmpty();
+
+		purgeService.purgeDeletedDepartments();
+
+		assertThat(count("SELECT count(*) FROM departments WHERE id = ?")).isZero();
+		assertThat(count("SELECT count(*) FROM students WHERE department_id = ?")).isZero();
+		assertThat(count("SELECT count(*) FROM courses WHERE department_id = ?")).isZero();
+		assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM users WHERE email = ?", Long.class,
+			email("student0"))).isOne();
+	}
+
+	@Test
+	void coursesAreHiddenWithTheirDepartment() {
+		long courseId = jdbcTemplate.queryForObject("SELECT id FROM courses WHERE code = ?", Long.class, tag + "-C0");
+		assertThat(courseService.getCourseById(courseId).getCode()).isEqualTo(tag + "-C0");
+
+		departmentService.deleteDepartment(departmentId);
+
+		assertThat(courseService.getAllCourses()).extracting(Course::getCode).doesNotContain(tag + "-C0");
+		assertThatThrownBy(() -> courseService.getCourseById(courseId)).isInstanceOf(ResourceNotFoundException.class);
+	}
+
+	@Test
+	void onlyOneNodePurgesASchoolAtATime() throws Exception {
+		departmentService.deleteDepartment(departmentId);
+
+		try (Connection otherNode = dataSource.getConnection()) {
+			lock(otherNode, "pg_advisory_lock");
+			purgeService.purgeDeletedDepartments();
+			assertThat(count("SELECT count(*) FROM departments WHERE id = ?")).isOne();
+			assertThat(count("SELECT count(*) FROM students WHERE department_id = ?")).isEqualTo(5);
+			lock(otherNode, "pg_advisory_unlock");
+		}
+
+		purgeService.purgeDeletedDepartments();
+		assertThat(count("SELECT count(*) FROM departments WHERE id = ?")).isZero();
+	}
+
+	private static void lock(Connection connection, String function) throws Exception {
+		try (PreparedStatement statement = connection.prepareStatement(
+				"SELECT " + function + "(hashtext('department-purge@' || current_schema()))")) {
+			statement.execute();
+		}
+	}
+
+	private long count(String sql) {
+		return jdbcTemplate.queryForObject(sql, Long.class, departmentId);
+	}
+
+	private String email(String name) {
+		return name + "@" + tag + ".purge.edu";
+	}
+}
@@ -0,0 +1,193 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.dto.PersonDTO;
+import com.example.spring_tutorial.event.DirectoryEvent;
+import com.example.spring_tutorial.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class PeopleDirectoryTests {
+
+	// Rows standing in for the users, students, teachers and departments tables, in column order
+	private final List<Object[]> users = new ArrayList<>();
+	private final List<Object[]> students = new ArrayList<>();
+	private final List<Object[]> teachers = new ArrayList<>();
+	private final List<Object[]> departments = new ArrayList<>();
+
+	private final PeopleTables tables = new PeopleTables();
+	private final PeopleDirectory directory = new PeopleDirectory(tables);
+
+	@Test
+	void servesPeopleWithTheirProfileAndDepartment() {
+		departments.add(new Object[] {7L, "Physics"});
+		users.add(user(1, "ada@school.edu", "Ada", "STUDENT"));
+		students.add(new Object[] {11L, "ada@school.edu", "Ada", "Lovelace", "S-1", null, null, "admin", 7L});
+		users.add(user(2, "max@school.edu", "Max", "TEACHER"));
+
+		PersonDTO ada = directory.findByEmail("ada@school.edu").orElseThrow();
+		assertThat(ada.getRole()).isEqualTo(User.Role.STUDENT);
+		assertThat(ada.getCode()).isEqualTo("S-1");
+		assertThat(ada.getDepartmentName()).isEqualTo("Physics");
+		assertThat(directory.page(User.Role.TEACHER, 0, 10)).extracting("email").containsExactly("max@school.edu");
+		assertThat(directory.count(User.Role.STUDENT)).isEqualTo(1);
+	}
+
+	@Test
+	void aPersonTheDirectoryDoesNotKnowYetIsReadFromTheDatabase() {
+		users.add(user(1, "ada@school.edu", "Ada", "STUDENT"));
+		directory.findByEmail("ada@school.edu");
+
+		// Added on another node, so no event reached this one
+		users.add(user(2, "bob@school.edu", "Bob", "STUDENT"));
+		assertThat(directory.findByEmail("bob@school.edu")).map(PersonDTO::getFirstName).contains("Bob");
+		assertThat(directory.page(User.Role.STUDENT, 0, 10)).extracting("email")
+			.containsExactly("ada@school.edu", "bob@school.edu");
+
+		int lookups = tables.emailLookups.get();
+		assertThat(directory.findByEmail("bob@school.edu")).isPresent();
+		assertThat(tables.emailLookups.get()).isEqualTo(lookups);
+
+		assertThat(directory.findByEmail("nobody@school.edu")).isEmpty();
+	}
+
+	@Test
+	void changesDuringTheFirstLoadAreReplayedAfterIt() {
+		users.add(user(1, "ada@school.edu", "Ada", "STUDENT"));
+		tables.whileLoadingUsers = () -> {
+			// Commits after the load read the users table
+			users.set(0, user(1, "ada@school.edu", "Adele", "STUDENT"));
+			directory.onDirectoryEvent(new DirectoryEvent("student", "ada@school.edu",
+				DirectoryEvent.Action.UPDATED, Map.of()));
+			departments.add(new Object[] {7L, "Physics"});
+			directory.onDirectoryEvent(new DirectoryEvent("department", "7",
+				DirectoryEvent.Action.CREATED, Map.of("name", "Physics")));
+		};
+		directory.loadOnStartup();
+
+		assertThat(directory.findByEmail("ada@school.edu")).map(PersonDTO::getFirstName).contains("Adele");
+
+		students.add(new Object[] {11L, "ada@school.edu", "Ada", "Lovelace", "S-1", null, null, "admin", 7L});
+		directory.onDirectoryEvent(new DirectoryEvent("student", "ada@school.edu",
+			DirectoryEvent.Action.CREATED, Map.of()));
+		assertThat(directory.findByEmail("ada@school.edu")).map(PersonDTO::getDepartmentName).contains("Physics");
+	}
+
+	@Test
+	void anEarlierReadNeverOverwritesALaterOne() throws Exception {
+		users.add(user(1, "ada@school.edu", "Ada", "STUDENT"));
+		directory.findByEmail("ada@school.edu");
+
+		CountDownLatch read = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		users.set(0, user(1, "ada@school.edu", "Adele", "STUDENT"));
+		tables.afterUserLookup = () -> {
+			tables.afterUserLookup = null;
+			read.countDown();
+			await(release);
+		};
+		CompletableFuture<Void> first = CompletableFuture.runAsync(() -> directory.onDirectoryEvent(
+			new DirectoryEvent("student", "ada@school.edu", DirectoryEvent.Action.UPDATED, Map.of())));
+		await(read);
+
+		users.set(0, user(1, "ada@school.edu", "Ada Augusta", "STUDENT"));
+		CompletableFuture<Void> second = CompletableFuture.runAsync(() -> directory.onDirectoryEvent(
+			new DirectoryEvent("student", "ada@school.edu", DirectoryEvent.Action.UPDATED, Map.of())));
+		Thread.sleep(50);
+		release.countDown();
+		CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+		assertThat(directory.findByEmail("ada@school.edu")).map(PersonDTO::getFirstName).contains("Ada Augusta");
+	}
+
+	private static Object[] user(long id, String email, String firstName, String role) {
+		return new Object[] {id, email, firstName, "Lovelace", role, null, Date.valueOf("2024-09-01")};
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static ResultSet row(Object[] values) {
+		return mock(ResultSet.class, invocation -> {
+			if (invocation.getMethod().getName().equals("wasNull")) {
+				return false;
+			}
+			Object value = values[(Integer) invocation.getArgument(0) - 1];
+			return value == null && invocation.getMethod().getName().equals("getLong") ? 0L : value;
+		});
+	}
+
+	private class PeopleTables extends JdbcTemplate {
+
+		private final AtomicInteger emailLookups = new AtomicInteger();
+		private volatile Runnable whileLoadingUsers;
+		private volatile Runnable afterUserLookup;
+
+		@Override
+		public void query(String sql, RowCallbackHandler handler) {
+			List<Object[]> rows = List.copyOf(table(sql));
+			if (sql.contains("FROM users") && whileLoadingUsers != null) {
+				whileLoadingUsers.run();
+				whileLoadingUsers = null;
+			}
+			try {
+				for (Object[] values : rows) {
+					handler.processRow(row(values));
+				}
+			} catch (SQLException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		public <T> List<T> query(String sql, RowMapper<T> mapper, Object... args) {
+			emailLookups.incrementAndGet();
+			List<T> found = new ArrayList<>();
+			try {
+				for (Object[] values : List.copyOf(table(sql))) {
+					if (values[1].equals(args[0])) {
+						found.add(mapper.mapRow(row(values), found.size()));
+					}
+				}
+			} catch (SQLException e) {
+				throw new IllegalStateException(e);
+			}
+			Runnable hook = afterUserLookup;
+			if (sql.contains("FROM users") && hook != null) {
+				hook.run();
+			}
+			return found;
+		}
+
+		private List<Object[]> table(String sql) {
+			if (sql.contains("FROM users")) {
+				return users;
+			}
+			if (sql.contains("FROM students")) {
+				return students;
+			}
+			return sql.contains("FROM teachers") ? teachers : departments;
+		}
+	}
+
+}
@@ -0,0 +1,165 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.event.DirectoryEvent;
+import com.example.spring_tutorial.event.PrerequisitesChanged;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PrerequisiteIndexTests {
+
+	/**
+	 * (course, prerequisite) rows standing in for the course_prerequisites table.
+	 */
+	private final List<long[]> edges = new CopyOnWriteArrayList<>();
+
+	private final EdgeTable table = new EdgeTable();
+	private final PrerequisiteIndex index = new PrerequisiteIndex(table);
+
+	@Test
+	void requiresTheWholeChain() {
+		edges.add(new long[] {3, 2});
+		edges.add(new long[] {2, 1});
+
+		assertThat(index.missingPrerequisites(3, List.of())).containsExactlyInAnyOrder(2L, 1L);
+		assertThat(index.missingPrerequisites(3, List.of(2L))).containsExactly(1L);
+		assertThat(index.missingPrerequisites(3, List.of(1L, 2L))).isEmpty();
+		assertThat(index.missingPrerequisites(1, List.of())).isEmpty();
+	}
+
+	@Test
+	void changesReachEveryDependentCourse() {
+		edges.add(new long[] {3, 2});
+		edges.add(new long[] {4, 3});
+		index.missingPrerequisites(4, List.of());
+
+		edges.add(new long[] {2, 1});
+		index.onPrerequisitesChanged(new PrerequisitesChanged(2));
+		assertThat(index.missingPrerequisites(4, List.of())).containsExactlyInAnyOrder(3L, 2L, 1L);
+
+		edges.removeIf(edge -> edge[0] == 3 && edge[1] == 2);
+		edges.add(new long[] {3, 5});
+		index.onPrerequisitesChanged(new PrerequisitesChanged(3));
+		assertThat(index.missingPrerequisites(4, List.of())).containsExactlyInAnyOrder(3L, 5L);
+		assertThat(index.missingPrerequisites(2, List.of())).containsExactly(1L);
+	}
+
+	@Test
+	void deletedCourseNoLongerRequired() {
+		edges.add(new long[] {3, 2});
+		edges.add(new long[] {2, 1});
+		edges.add(new long[] {3, 4});
+		index.missingPrerequisites(3, List.of());
+
+		edges.removeIf(edge -> edge[0] == 2 || edge[1] == 2);
+		index.onDirectoryEvent(new DirectoryEvent("course", "2", DirectoryEvent.Action.DELETED, Map.of()));
+
+		assertThat(index.missingPrerequisites(3, List.of())).containsExactly(4L);
+	}
+
+	@Test
+	void changesDuringTheFirstLoadAreReplayedAfterIt() {
+		edges.add(new long[] {3, 2});
+		table.afterLoadingEdges = () -> {
+			// Commits after the load read the table
+			edges.add(new long[] {2, 1});
+			index.onPrerequisitesChanged(new PrerequisitesChanged(2));
+		};
+		index.loadOnStartup();
+
+		assertThat(index.missingPrerequisites(3, List.of())).containsExactlyInAnyOrder(2L, 1L);
+	}
+
+	@Test
+	void anEarlierReadNeverOverwritesALaterOne() throws Exception {
+		edges.add(new long[] {3, 2});
+		index.missingPrerequisites(3, List.of());
+
+		CountDownLatch read = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		edges.set(0, new long[] {3, 1});
+		table.afterPrerequisiteLookup = () -> {
+			table.afterPrerequisiteLookup = null;
+			read.countDown();
+			await(release);
+		};
+		CompletableFuture<Void> first = CompletableFuture.runAsync(
+			() -> index.onPrerequisitesChanged(new PrerequisitesChanged(3)));
+		await(read);
+
+		edges.set(0, new long[] {3, 5});
+		CompletableFuture<Void> second = CompletableFuture.runAsync(
+			() -> index.onPrerequisitesChanged(new PrerequisitesChanged(3)));
+		Thread.sleep(50);
+		release.countDown();
+		CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+		assertThat(index.missingPrerequisites(3, List.of())).containsExactly(5L);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private class EdgeTable extends JdbcTemplate {
+
+		private volatile Runnable afterLoadingEdges;
+		private volatile Runnable afterPrerequisiteLookup;
+
+		@Override
+		public void query(String sql, RowCallbackHandler handler) {
+			try {
+				for (long[] edge : edges) {
+					ResultSet row = mock(ResultSet.class);
+					when(row.getLong(1)).thenReturn(edge[0]);
+					when(row.getLong(2)).thenReturn(edge[1]);
+					handler.processRow(row);
+				}
+			} catch (SQLException e) {
+				throw new IllegalStateException(e);
+			}
+			Runnable hook = afterLoadingEdges;
+			if (hook != null) {
+				afterLoadingEdges = null;
+				hook.run();
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+			long course = (Long) args[0];
+			boolean prerequisitesOf = sql.startsWith("SELECT prerequisite_id");
+			List<T> ids = new ArrayList<>();
+			for (long[] edge : edges) {
+				if (edge[prerequisitesOf ? 0 : 1] == course) {
+					ids.add((T) Long.valueOf(edge[prerequisitesOf ? 1 : 0]));
+				}
+			}
+			Runnable hook = afterPrerequisiteLookup;
+			if (prerequisitesOf && hook != null) {
+				hook.run();
+			}
+			return ids;
+		}
+	}
+
+}
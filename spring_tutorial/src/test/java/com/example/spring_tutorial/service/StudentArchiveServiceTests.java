@@ -0,0 +1,152 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.ScratchDatabaseTest;
+import com.example.spring_tutorial.dto.StudentDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Archives a cohort from long before any other the tests insert.
+ */
+class StudentArchiveServiceTests extends ScratchDatabaseTest {
+
+	private static final int YEAR = 1990;
+
+	@Autowired
+	private StudentArchiveService archiveService;
+
+	@Autowired
+	private GradeService gradeService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private DataSource dataSource;
+
+	private final List<Long> studentIds = new ArrayList<>();
+	private final List<Long> courseIds = new ArrayList<>();
+
+	@BeforeEach
+	void insertCohort() {
+		for (int i = 0; i < 2; i++) {
+			courseIds.add(jdbcTemplate.queryForObject("INSERT INTO courses (name, code) VALUES ('Archive', ?) "
+				+ "RETURNING id", Long.class, tag + "-C" + i));
+		}
+		for (int i = 0; i < 5; i++) {
+			long id = jdbcTemplate.queryForObject("INSERT INTO students (email, first_name, last_name, student_id, "
+				+ "enrollment_date, created_by) VALUES (?, 'Ada', 'Archive', ?, ?, 'teacher@school.edu') RETURNING id",
+				Long.class, "a" + i + "@" + tag + ".archive.edu", tag + "-S" + i, LocalDate.of(YEAR, 9, 1 + i));
+			studentIds.add(id);
+			for (long courseId : courseIds) {
+				jdbcTemplate.update("INSERT INTO student_courses (student_id, course_id) VALUES (?, ?)", id, courseId);
+			}
+		}
+		jdbcTemplate.update("UPDATE student_courses SET grade = 'A', grade_points = 400, graded_credits = 3, "
+			+ "completed_on = ? WHERE student_id = ? AND course_id = ?",
+			LocalDate.of(YEAR + 4, 6, 30), studentIds.get(0), courseIds.get(0));
+		// Enrolled this year, so it stays
+		studentIds.add(jdbcTemplate.queryForObject("INSERT INTO students (email, first_name, last_name, student_id, "
+			+ "enrollment_date) VALUES (?, 'Bob', 'Current', ?, current_date) RETURNING id",
+			Long.class, "current@" + tag + ".archive.edu", tag + "-S9"));
+		ReflectionTestUtils.setField(archiveService, "chunkSize", 2);
+	}
+
+	@AfterEach
+	void removeCohort() {
+		for (long id : studentIds) {
+			jdbcTemplate.update("DELETE FROM student_courses WHERE student_id = ?", id);
+			jdbcTemplate.update("DELETE FROM students WHERE id = ?", id);
+			jdbcTemplate.update("DELETE FROM student_courses_archive WHERE student_id = ?", id);
+			jdbcTemplate.update("DELETE FROM students_archive WHERE id = ?", id);
+		}
+		courseIds.forEach(id -> jdbcTemplate.update("DELETE FROM courses WHERE id = ?", id));
+		jdbcTemplate.execute("DROP TABLE IF EXISTS students_archive_" + YEAR);
+		jdbcTemplate.execute("DROP TABLE IF EXISTS student_courses_archive_" + YEAR);
+	}
+
+	@Test
+	void movesACohortWithItsEnrolmentsAcrossChunks() {
+		assertThat(archiveService.archiveCohort(YEAR)).isTrue();
+
+		assertThat(count("SELECT count(*) FROM students WHERE email LIKE ?")).isOne();
+		List<StudentDTO> cohort = archiveService.findArchivedCohort(YEAR);
+		assertThat(cohort).extracting(StudentDTO::getId).containsExactlyElementsOf(studentIds.subList(0, 5));
+		assertThat(cohort.get(0).getEnrollmentDate()).isEqualTo(LocalDate.of(YEAR, 9, 1));
+		assertThat(cohort.get(0).getCreatedBy()).isEqualTo("teacher@school.edu");
+		assertThat(cohort).allMatch(StudentDTO::isArchived);
+
+		// Every enrolment went with its student, into the same year's partition
+		assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM student_courses_archive_" + YEAR
+			+ " WHERE student_id = ANY (?)", Long.class, (Object) studentIds.toArray(Long[]::new))).isEqualTo(10);
+		assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM student_courses WHERE student_id = ANY (?)",
+			Long.class, (Object) studentIds.toArray(Long[]::new))).isZero();
+		assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM students_archive_" + YEAR
+			+ " WHERE email LIKE ?", Long.class, "%@" + tag + ".archive.edu")).isEqualTo(5);
+	}
+
+	@Test
+	void archivedEnrolmentsKeepTheirGradesAndStillCountForTheirCourse() {
+		archiveService.archiveCohort(YEAR);
+
+		Map<String, Object> graded = jdbcTemplate.queryForMap("SELECT grade, grade_points, graded_credits, completed_on "
+			+ "FROM student_courses_archive WHERE student_id = ? AND course_id = ?", studentIds.get(0), courseIds.get(0));
+		assertThat(graded).containsEntry("grade", "A").containsEntry("grade_points", 400)
+			.containsEntry("graded_credits", 3)
+			.containsEntry("completed_on", Date.valueOf(LocalDate.of(YEAR + 4, 6, 30)));
+
+		gradeService.reconcile();
+		assertThat(gradeService.getCourseStats(courseIds.get(0)).getGraded()).isOne();
+	}
+
+	/**
+	 * Archives every old cohort in the database, which is only ever the scratch one.
+	 */
+	@Test
+	void theNightlyRunLeavesCohortsWithinTheRetentionPeriod() {
+		archiveService.archiveGraduatedCohorts();
+
+		assertThat(archiveService.findArchivedCohort(YEAR)).hasSize(5);
+		assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM students WHERE id = ?", Long.class,
+			studentIds.get(5))).isOne();
+	}
+
+	@Test
+	void onlyOneNodeArchivesASchoolAtATime() throws Exception {
+		try (Connection otherNode = dataSource.getConnection()) {
+			lock(otherNode, "pg_advisory_lock");
+			assertThat(archiveService.archiveCohort(YEAR)).isFalse();
+			assertThat(count("SELECT count(*) FROM students WHERE email LIKE ?")).isEqualTo(6);
+			lock(otherNode, "pg_advisory_unlock");
+		}
+
+		assertThat(archiveService.archiveCohort(YEAR)).isTrue();
+		assertThat(count("SELECT count(*) FROM students WHERE email LIKE ?")).isOne();
+	}
+
+	private static void lock(Connection connection, String function) throws Exception {
+		try (PreparedStatement statement = connection.prepareStatement(
+				"SELECT " + function + "(hashtext('student-archive@' || current_schema()))")) {
+			statement.execute();
+		}
+	}
+
+	private long count(String sql) {
+		return jdbcTemplate.queryForObject(sql, Long.class, "%@" + tag + ".archive.edu");
+	}
+}
@@ -0,0 +1,156 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.ScratchDatabaseTest;
+import com.example.spring_tutorial.dto.ClashDTO;
+import com.example.spring_tutorial.dto.RoomDTO;
+import com.example.spring_tutorial.dto.SectionDTO;
+import com.example.spring_tutorial.dto.TimetableReportDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Two courses taken by one student and taught by one teacher, a third course neither of them
+ * takes, and two rooms; all removed afterwards.
+ */
+class TimetableServiceTests extends ScratchDatabaseTest {
+
+	@Autowired
+	private TimetableService timetableService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final long[] courseIds = new long[3];
+	private long studentId;
+	private long teacherId;
+	private RoomDTO bigRoom;
+	private RoomDTO smallRoom;
+
+	@BeforeEach
+	void insertCoursesAndPeople() {
+		for (int i = 0; i < courseIds.length; i++) {
+			courseIds[i] = jdbcTemplate.queryForObject("INSERT INTO courses (name, code) VALUES ('Timetable', ?) RETURNING id",
+				Long.class, tag + "-" + i);
+		}
+		studentId = jdbcTemplate.queryForObject("INSERT INTO students (email, first_name, last_name, student_id) "
+			+ "VALUES (?, 'Ada', 'Timetable', ?) RETURNING id", Long.class, "student@" + tag + ".timetable.edu", tag + "-S");
+		teacherId = jdbcTemplate.queryForObject("INSERT INTO teachers (email, first_name, last_name, teacher_id) "
+			+ "VALUES (?, 'Max', 'Timetable', ?) RETURNING id", Long.class, "teacher@" + tag + ".timetable.edu", tag + "-T");
+		for (int i = 0; i < 2; i++) {
+			jdbcTemplate.update("INSERT INTO student_courses (student_id, course_id) VALUES (?, ?)", studentId, courseIds[i]);
+			jdbcTemplate.update("INSERT INTO teacher_courses (teacher_id, course_id) VALUES (?, ?)", teacherId, courseIds[i]);
+		}
+		bigRoom = timetableService.createRoom(new RoomDTO(null, "B" + tag, 30));
+		smallRoom = timetableService.createRoom(new RoomDTO(null, "S" + tag, 10));
+	}
+
+	@AfterEach
+	void removeThem() {
+		jdbcTemplate.update("DELETE FROM student_courses WHERE student_id = ?", studentId);
+		jdbcTemplate.update("DELETE FROM teacher_courses WHERE teacher_id = ?", teacherId);
+		jdbcTemplate.update("DELETE FROM courses WHERE code LIKE ?", tag + "-%");
+		jdbcTemplate.update("DELETE FROM students WHERE id = ?", studentId);
+		jdbcTemplate.update("DELETE FROM teachers WHERE id = ?", teacherId);
+		jdbcTemplate.update("DELETE FROM rooms WHERE code IN (?, ?)", bigRoom.getCode(), smallRoom.getCode());
+	}
+
+	@Test
+	void aRoomCannotBeBookedTwiceAtOnce() {
+		timetableService.createSection(courseIds[0], section("A", bigRoom.getId(), "09:00", "10:30"));
+
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> timetableService.createSection(courseIds[1], section("A", bigRoom.getId(), "10:00", "11:00")))
+			.withMessage("Room B" + tag + " is taken by " + tag + "-0/A on MONDAY at 10:00");
+
+		SectionDTO after = timetableService.createSection(courseIds[1], section("A", bigRoom.getId(), "10:30", "11:30"));
+		assertThat(after.getCourseCode()).isEqualTo(tag + "-1");
+	}
+
+	@Test
+	void aSectionCodeIsUniqueWithinItsCourse() {
+		timetableService.createSection(courseIds[0], section("A", null, "09:00", "10:00"));
+
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> timetableService.createSection(courseIds[0], section("A", null, "14:00", "15:00")))
+			.withMessage("Section A already exists for this course");
+	}
+
+	@Test
+	void aStudentIsOnlyPutIntoSectionsThatFitTheirWeek() {
+		long first = timetableService.createSection(courseIds[0], section("A", null, "09:00", "10:30")).getId();
+		long clashing = timetableService.createSection(courseIds[1], section("A", null, "10:00", "11:00")).getId();
+		long later = timetableService.createSection(courseIds[1], section("B", null, "10:30", "11:30")).getId();
+		long notTaken = timetableService.createSection(courseIds[2], section("A", null, "14:00", "15:00")).getId();
+
+		timetableService.assignStudentSection(studentId, first);
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> timetableService.assignStudentSection(studentId, clashing))
+			.withMessage(tag + "-1/A clashes with " + tag + "-0/A on MONDAY at 10:00");
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> timetableService.assignStudentSection(studentId, notTaken))
+			.withMessage("Student " + studentId + " does not take the course of " + tag + "-2/A");
+		timetableService.assignStudentSection(studentId, later);
+
+		assertThat(jdbcTemplate.queryForList("SELECT section_id FROM student_courses WHERE student_id = ? ORDER BY course_id",
+			Long.class, studentId)).containsExactly(first, later);
+		assertThat(timetableService.findStudentClashes(studentId)).isEmpty();
+	}
+
+	@Test
+	void clashesAlreadyStoredAreFoundForThePersonAndTheTerm() {
+		long first = timetableService.createSection(courseIds[0], section("A", null, "09:00", "10:30")).getId();
+		long second = timetableService.createSection(courseIds[1], section("A", null, "10:00", "11:00")).getId();
+		// As left by a meeting time changed after the assignments were made
+		jdbcTemplate.update("UPDATE teacher_courses SET section_id = CASE course_id WHEN ? THEN ? ELSE ? END "
+			+ "WHERE teacher_id = ?", courseIds[0], first, second, teacherId);
+
+		List<ClashDTO> clashes = timetableService.findTeacherClashes(teacherId);
+		assertThat(clashes).singleElement().satisfies(this::isTheTeachersClash);
+
+		TimetableReportDTO report = timetableService.validateTerm();
+		assertThat(report.getTeacherClashes()).isPositive();
+		assertThat(report.getClashes()).anySatisfy(this::isTheTeachersClash);
+	}
+
+	/**
+	 * The two sections of a clash come in no particular order.
+	 */
+	private void isTheTeachersClash(ClashDTO clash) {
+		assertThat(clash.getType()).isEqualTo("teacher");
+		assertThat(clash.getOwnerId()).isEqualTo(teacherId);
+		assertThat(List.of(clash.getFirstSection(), clash.getSecondSection()))
+			.containsExactlyInAnyOrder(tag + "-0/A", tag + "-1/A");
+		assertThat(clash.getDay()).isEqualTo(DayOfWeek.MONDAY);
+		assertThat(clash.getTime()).isEqualTo(LocalTime.of(10, 0));
+	}
+
+	@Test
+	void freeRoomsLeaveOutTheBookedOnesAndTheTooSmall() {
+		timetableService.createSection(courseIds[0], section("A", bigRoom.getId(), "09:00", "10:30"));
+
+		List<RoomDTO> mondayMorning = timetableService.findFreeRooms(DayOfWeek.MONDAY, LocalTime.of(10, 0), LocalTime.of(11, 0), 0);
+		assertThat(mondayMorning).contains(smallRoom).doesNotContain(bigRoom);
+
+		List<RoomDTO> mondayNoon = timetableService.findFreeRooms(DayOfWeek.MONDAY, LocalTime.of(10, 30), LocalTime.of(12, 0), 20);
+		assertThat(mondayNoon).contains(bigRoom).doesNotContain(smallRoom);
+	}
+
+	private static SectionDTO section(String code, Long roomId, String start, String end) {
+		SectionDTO section = new SectionDTO();
+		section.setCode(code);
+		section.setRoomId(roomId);
+		section.getMeetings().add(new SectionDTO.Meeting(DayOfWeek.MONDAY, LocalTime.parse(start), LocalTime.parse(end)));
+		return section;
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.example.spring_tutorial.service;
+
+import com.example.spring_tutorial.config.TokenProperties;
+import com.example.spring_tutorial.model.User;
+import com.example.spring_tutorial.security.TokenClaims;
+import com.example.spring_tutorial.tenancy.TenantContext;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenServiceTests {
+
+	private final TokenService tokenService = new TokenService(properties(), JsonMapper.builder().build());
+
+	@Test
+	void issuedTokenVerifiesWithClaims() {
+		String token = tokenService.issue(teacher());
+
+		TokenClaims claims = tokenService.verify(token).orElseThrow();
+
+		assertThat(claims.userId()).isEqualTo(7L);
+		assertThat(claims.email()).isEqualTo("teacher@school.edu");
+		assertThat(claims.role()).isEqualTo(User.Role.TEACHER);
+		assertThat(claims.tenant()).isEqualTo(TenantContext.DEFAULT);
+	}
+
+	@Test
+	void tokenIsMarkedWithTheSchoolThatIssuedIt() {
+		String token;
+		try (TenantContext.Binding ignored = TenantContext.bind("north")) {
+			token = tokenService.issue(teacher());
+		}
+
+		assertThat(tokenService.verify(token).orElseThrow().tenant()).isEqualTo("north");
+	}
+
+	@Test
+	void tamperedTokenIsRejected() {
+		String token = tokenService.issue(teacher());
+		String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+		assertThat(tokenService.verify(tampered)).isEmpty();
+		assertThat(tokenService.verify("not-a-token")).isEmpty();
+	}
+
+	private static TokenProperties properties() {
+		TokenProperties properties = new TokenProperties();
+		properties.setSecret("test-secret");
+		return properties;
+	}
+
+	private static User teacher() {
+		User user = new User();
+		user.setId(7L);
+		user.setEmail("teacher@school.edu");
+		user.setRole(User.Role.TEACHER);
+		return user;
+	}
+
+}
@@ -0,0 +1,178 @@
+package com.example.spring_tutorial.session;
+
+import com.example.spring_tutorial.config.SessionStoreProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.session.FindByIndexNameSessionRepository;
+import org.springframework.session.MapSession;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NearCachedSessionRepositoryTests {
+
+	private final SessionTable table = new SessionTable();
+
+	@Test
+	void servesCachedSessionsWithoutReadingTheStore() {
+		NearCachedSessionRepository node = node(Duration.ofMinutes(1));
+		NearCachedSessionRepository.CachedSession created = node.createSession();
+		created.setAttribute("user", "a@school.edu");
+		node.save(created);
+
+		NearCachedSessionRepository.CachedSession first = node.findById(created.getId());
+		NearCachedSessionRepository.CachedSession second = node.findById(created.getId());
+
+		assertThat(table.reads).isZero();
+		assertThat(first).isNotSameAs(second);
+		assertThat((String) second.getAttribute("user")).isEqualTo("a@school.edu");
+	}
+
+	@Test
+	void concurrentRequestsKeepTheirUnsavedChangesToThemselves() {
+		NearCachedSessionRepository node = node(Duration.ofMinutes(1));
+		String id = saved(node, "cart", "1");
+		NearCachedSessionRepository.CachedSession a = node.findById(id);
+		NearCachedSessionRepository.CachedSession b = node.findById(id);
+
+		a.setAttribute("cart", "2");
+		a.setAttribute("flash", "saved");
+		assertThat((String) b.getAttribute("cart")).isEqualTo("1");
+		assertThat(b.getAttributeNames()).containsExactly("cart");
+
+		b.setAttribute("theme", "dark");
+		node.save(b);
+		assertThat(table.stored(id).<String>getAttribute("cart")).isEqualTo("1");
+		assertThat(table.stored(id).<String>getAttribute("theme")).isEqualTo("dark");
+
+		node.save(a);
+		assertThat(table.stored(id).getAttributeNames()).containsExactlyInAnyOrder("cart", "flash", "theme");
+		assertThat((String) node.findById(id).getAttribute("cart")).isEqualTo("2");
+	}
+
+	@Test
+	void picksUpWritesFromOtherNodesOnceTheTtlRunsOut() throws InterruptedException {
+		NearCachedSessionRepository node = node(Duration.ofMillis(50));
+		NearCachedSessionRepository other = node(Duration.ofMillis(50));
+		String id = saved(node, "role", "STUDENT");
+		assertThat((String) node.findById(id).getAttribute("role")).isEqualTo("STUDENT");
+
+		NearCachedSessionRepository.CachedSession elsewhere = other.findById(id);
+		elsewhere.setAttribute("role", "TEACHER");
+		other.save(elsewhere);
+		assertThat((String) node.findById(id).getAttribute("role")).isEqualTo("STUDENT");
+
+		Thread.sleep(100);
+		assertThat((String) node.findById(id).getAttribute("role")).isEqualTo("TEACHER");
+
+		other.deleteById(id);
+		Thread.sleep(100);
+		assertThat(node.findById(id)).isNull();
+	}
+
+	@Test
+	void expiredSessionsAreNotServedFromTheCache() throws InterruptedException {
+		NearCachedSessionRepository node = node(Duration.ofMinutes(1));
+		NearCachedSessionRepository.CachedSession session = node.createSession();
+		session.setMaxInactiveInterval(Duration.ofMillis(50));
+		node.save(session);
+		assertThat(node.findById(session.getId())).isNotNull();
+
+		Thread.sleep(100);
+
+		assertThat(node.findById(session.getId())).isNull();
+		assertThat(table.reads).isEqualTo(1);
+	}
+
+	@Test
+	void lastAccessIsOnlyWrittenOncePerInterval() {
+		NearCachedSessionRepository node = node(Duration.ofMinutes(1));
+		String id = saved(node, "user", "a@school.edu");
+		Instant persisted = table.stored(id).getLastAccessedTime();
+
+		NearCachedSessionRepository.CachedSession soon = node.findById(id);
+		soon.setLastAccessedTime(persisted.plusSeconds(30));
+		node.save(soon);
+		assertThat(table.stored(id).getLastAccessedTime()).isEqualTo(persisted);
+		assertThat(node.findById(id).getLastAccessedTime()).isEqualTo(persisted.plusSeconds(30));
+
+		NearCachedSessionRepository.CachedSession later = node.findById(id);
+		later.setLastAccessedTime(persisted.plusSeconds(90));
+		node.save(later);
+		assertThat(table.stored(id).getLastAccessedTime()).isEqualTo(persisted.plusSeconds(90));
+	}
+
+	@Test
+	void changedIdReplacesTheOldOne() {
+		NearCachedSessionRepository node = node(Duration.ofMinutes(1));
+		String id = saved(node, "user", "a@school.edu");
+
+		NearCachedSessionRepository.CachedSession login = node.findById(id);
+		String newId = login.changeSessionId();
+		node.save(login);
+
+		assertThat(newId).isNotEqualTo(id);
+		assertThat(node.findById(id)).isNull();
+		assertThat((String) node.findById(newId).getAttribute("user")).isEqualTo("a@school.edu");
+	}
+
+	private NearCachedSessionRepository node(Duration ttl) {
+		SessionStoreProperties properties = new SessionStoreProperties();
+		properties.setTtl(ttl);
+		return new NearCachedSessionRepository(table, properties);
+	}
+
+	private static String saved(NearCachedSessionRepository node, String name, String value) {
+		NearCachedSessionRepository.CachedSession session = node.createSession();
+		session.setAttribute(name, value);
+		node.save(session);
+		return session.getId();
+	}
+
+	/**
+	 * Stands in for the shared session table: every read and write copies, as a database would.
+	 */
+	private static class SessionTable implements FindByIndexNameSessionRepository<MapSession> {
+
+		private final Map<String, MapSession> rows = new ConcurrentHashMap<>();
+		private int reads;
+
+		@Override
+		public MapSession createSession() {
+			return new MapSession();
+		}
+
+		@Override
+		public void save(MapSession session) {
+			if (!session.getId().equals(session.getOriginalId())) {
+				rows.remove(session.getOriginalId());
+			}
+			rows.put(session.getId(), new MapSession(session));
+		}
+
+		@Override
+		public MapSession findById(String id) {
+			reads++;
+			MapSession row = rows.get(id);
+			return row == null || row.isExpired() ? null : new MapSession(row);
+		}
+
+		@Override
+		public void deleteById(String id) {
+			rows.remove(id);
+		}
+
+		@Override
+		public Map<String, MapSession> findByIndexNameAndIndexValue(String indexName, String indexValue) {
+			return Map.of();
+		}
+
+		MapSession stored(String id) {
+			return rows.get(id);
+		}
+	}
+
+}
@@ -0,0 +1,234 @@
+package com.example.spring_tutorial.tenancy;
+
+import com.example.spring_tutorial.ScratchDatabaseTest;
+import com.example.spring_tutorial.config.TenancyProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Connects through small pools of its own, for the default school and a "north" school whose
+ * schema is created for the test and dropped afterwards.
+ */
+class TenantDataSourceTests extends ScratchDatabaseTest {
+
+	private static final Duration TIMEOUT = Duration.ofMillis(200);
+
+	@Autowired
+	private DataSource applicationDataSource;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final String schema = "tds_" + tag;
+	// Threads that start out holding nothing, as other requests would
+	private final ExecutorService elsewhere = Executors.newThreadPerTaskExecutor(
+		Thread.ofPlatform().inheritInheritableThreadLocals(false).factory());
+	private final List<Connection> opened = new CopyOnWriteArrayList<>();
+	private final List<HikariDataSource> pools = new ArrayList<>();
+
+	@BeforeEach
+	void createSchema() {
+		jdbcTemplate.execute("CREATE SCHEMA " + schema);
+	}
+
+	@AfterEach
+	void closeEverything() throws SQLException {
+		for (Connection connection : opened) {
+			connection.close();
+		}
+		pools.forEach(HikariDataSource::close);
+		elsewhere.shutdownNow();
+		jdbcTemplate.execute("DROP SCHEMA " + schema);
+	}
+
+	@Test
+	void aSchoolAtItsLimitWaitsForItsOwnConnections() throws Exception {
+		TenantDataSource dataSource = new TenantDataSource(pool(4), registry(2), TIMEOUT);
+
+		openElsewhere(dataSource, "north");
+		Connection second = openElsewhere(dataSource, "north");
+
+		assertThatThrownBy(() -> openElsewhere(dataSource, "north"))
+			.isInstanceOf(SQLTransientConnectionException.class)
+			.hasMessage("School north already holds its 2 connections");
+		assertThat(openElsewhere(dataSource, TenantContext.DEFAULT)).isNotNull();
+
+		second.close();
+		assertThat(openElsewhere(dataSource, "north")).isNotNull();
+	}
+
+	@Test
+	void workHoldingAConnectionIsNotKeptWaitingForAnother() throws Exception {
+		TenantDataSource dataSource = new TenantDataSource(pool(4), registry(1), TIMEOUT);
+		SimpleMeterRegistry meters = new SimpleMeterRegistry();
+		dataSource.bindTo(meters);
+
+		TenantContext.Binding binding = TenantContext.bind("north");
+		try {
+			Connection held = open(dataSource);
+			// As ProfileService's loads do while the request keeps its session's connection
+			try (ExecutorService loads = Executors.newVirtualThreadPerTaskExecutor()) {
+				Connection nested = loads.submit(() -> open(dataSource)).get();
+				assertThatThrownBy(() -> openElsewhere(dataSource, "north"))
+					.isInstanceOf(SQLTransientConnectionException.class);
+				nested.close();
+			}
+			held.close();
+		} finally {
+			binding.close();
+		}
+
+		assertThat(meters.get("tenant.connections.borrowed").tag("tenant", "north").counter().count()).isEqualTo(1);
+		assertThat(meters.get("tenant.connections.active").tag("tenant", "north").gauge().value()).isZero();
+		// The borrowed connection gave back no permit of its own
+		openElsewhere(dataSource, "north");
+		assertThatThrownBy(() -> openElsewhere(dataSource, "north"))
+			.isInstanceOf(SQLTransientConnectionException.class);
+	}
+
+	@Test
+	void aConnectionIsSwitchedToTheSchemaOfEachSchoolItServes() throws Exception {
+		// One connection, so every school gets the one the previous school gave back
+		TenantDataSource dataSource = new TenantDataSource(pool(1), registry(1), TIMEOUT);
+
+		assertThat(schemaSeenBy(dataSource, TenantContext.DEFAULT)).isEqualTo("public");
+		assertThat(schemaSeenBy(dataSource, "north")).isEqualTo(schema);
+		assertThat(schemaSeenBy(dataSource, TenantContext.DEFAULT)).isEqualTo("public");
+		assertThat(schemaSeenBy(dataSource, "north")).isEqualTo(schema);
+	}
+
+	@Test
+	void aSchoolGettingItsOwnConnectionBackIsNotSwitchedAgain() throws Exception {
+		TenantDataSource dataSource = new TenantDataSource(pool(1), registry(1), TIMEOUT);
+
+		TenantContext.Binding binding = TenantContext.bind("north");
+		try {
+			try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+				// Left behind as a marker that switching the schema again would wipe out
+				statement.execute("SELECT set_config('search_path', '" + schema + ", public', false)");
+			}
+			try (Connection connection = dataSource.getConnection()) {
+				assertThat(query(connection, "SHOW search_path")).isEqualTo(schema + ", public");
+			}
+		} finally {
+			binding.close();
+		}
+		assertThat(schemaSeenBy(dataSource, TenantContext.DEFAULT)).isEqualTo("public");
+	}
+
+	@Test
+	void theSchoolsLimitsMustFitInThePool() throws SQLException {
+		TenancyProperties properties = properties(2);
+		properties.setMaxConnections(5);
+		TenantRegistry registry = new TenantRegistry(properties);
+		HikariDataSource tooSmall = unstartedPool(6);
+
+		assertThatIllegalStateException().isThrownBy(() -> new TenantDataSource(tooSmall, registry, TIMEOUT))
+			.withMessage("The schools' max-connections add up to 7, more than the pool's maximum-pool-size of 6");
+		new TenantDataSource(unstartedPool(7), registry, TIMEOUT);
+	}
+
+	private TenantRegistry registry(int northConnections) {
+		return new TenantRegistry(properties(northConnections));
+	}
+
+	/**
+	 * Only north is limited, so the pools can stay small.
+	 */
+	private TenancyProperties properties(int northConnections) {
+		TenancyProperties properties = new TenancyProperties();
+		properties.setEnabled(true);
+		properties.setMaxConnections(0);
+		TenancyProperties.Tenant north = new TenancyProperties.Tenant();
+		north.setSchema(schema);
+		north.setMaxConnections(northConnections);
+		properties.getTenants().put("north", north);
+		return properties;
+	}
+
+	private HikariDataSource pool(int size) throws SQLException {
+		HikariDataSource pool = unstartedPool(size);
+		pools.add(pool);
+		return pool;
+	}
+
+	private HikariDataSource unstartedPool(int size) throws SQLException {
+		HikariDataSource application = applicationDataSource.unwrap(HikariDataSource.class);
+		HikariDataSource pool = new HikariDataSource();
+		pool.setJdbcUrl(application.getJdbcUrl());
+		pool.setUsername(application.getUsername());
+		pool.setPassword(application.getPassword());
+		pool.setMaximumPoolSize(size);
+		return pool;
+	}
+
+	private Connection open(DataSource dataSource) throws SQLException {
+		Connection connection = dataSource.getConnection();
+		opened.add(connection);
+		return connection;
+	}
+
+	private Connection openElsewhere(DataSource dataSource, String tenant) throws Exception {
+		return elsewhere(() -> {
+			TenantContext.Binding binding = TenantContext.bind(tenant);
+			try {
+				return open(dataSource);
+			} finally {
+				binding.close();
+			}
+		});
+	}
+
+	private String schemaSeenBy(DataSource dataSource, String tenant) throws Exception {
+		return elsewhere(() -> {
+			TenantContext.Binding binding = TenantContext.bind(tenant);
+			try (Connection connection = dataSource.getConnection()) {
+				return query(connection, "SELECT current_schema()");
+			} finally {
+				binding.close();
+			}
+		});
+	}
+
+	private <T> T elsewhere(Callable<T> task) throws Exception {
+		Future<T> result = elsewhere.submit(task);
+		try {
+			return result.get();
+		} catch (ExecutionException e) {
+			throw (Exception) e.getCause();
+		}
+	}
+
+	private static String query(Connection connection, String sql) throws SQLException {
+		try (Statement statement = connection.createStatement(); ResultSet rows = statement.executeQuery(sql)) {
+			rows.next();
+			return rows.getString(1);
+		}
+	}
+
+}
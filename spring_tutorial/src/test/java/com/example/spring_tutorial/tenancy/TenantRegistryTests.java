@@ -0,0 +1,114 @@
+package com.example.spring_tutorial.tenancy;
+
+import com.example.spring_tutorial.config.TenancyProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TenantRegistryTests {
+
+	@Test
+	void withoutTenancyEveryRequestIsForTheDefaultSchool() {
+		TenancyProperties properties = properties();
+		properties.setEnabled(false);
+		TenantRegistry registry = new TenantRegistry(properties);
+
+		MockHttpServletRequest request = request("north.example.edu");
+		request.addHeader("X-Tenant-ID", "north");
+
+		assertThat(registry.all()).extracting(Tenant::id).containsExactly(TenantContext.DEFAULT);
+		assertThat(registry.resolve(request).schema()).isEqualTo(TenantRegistry.PUBLIC_SCHEMA);
+		assertThat(registry.current().maxConnections()).isZero();
+	}
+
+	@Test
+	void schoolIsFoundByHost() {
+		TenantRegistry registry = new TenantRegistry(properties());
+
+		MockHttpServletRequest named = request("unknown.example.edu");
+		named.addHeader("X-Tenant-ID", "south-campus");
+
+		assertThat(registry.resolve(request("North.Example.edu")).id()).isEqualTo("north");
+		assertThat(registry.resolve(request("unknown.example.edu"))).isNull();
+		// No header is read unless one is configured
+		assertThat(registry.resolve(named)).isNull();
+	}
+
+	@Test
+	void aConfiguredHeaderNamesTheSchoolOnlyWhereTheHostDoesNot() {
+		TenancyProperties properties = properties();
+		properties.setHeader("X-Tenant-ID");
+		TenantRegistry registry = new TenantRegistry(properties);
+
+		MockHttpServletRequest viaGateway = request("gateway.internal");
+		viaGateway.addHeader("X-Tenant-ID", "south-campus");
+		MockHttpServletRequest onNorthsHost = request("north.example.edu");
+		onNorthsHost.addHeader("X-Tenant-ID", "south-campus");
+
+		assertThat(registry.resolve(viaGateway).schema()).isEqualTo("south_campus");
+		assertThat(registry.resolve(onNorthsHost).id()).isEqualTo("north");
+	}
+
+	@Test
+	void schoolsGetTheDefaultConnectionLimitUnlessTheySetTheirOwn() {
+		TenantRegistry registry = new TenantRegistry(properties());
+
+		assertThat(registry.get("north").maxConnections()).isEqualTo(8);
+		assertThat(registry.get("south-campus").maxConnections()).isEqualTo(5);
+		assertThat(registry.get(TenantContext.DEFAULT).schema()).isEqualTo(TenantRegistry.PUBLIC_SCHEMA);
+	}
+
+	@Test
+	void schemasAndHostsCannotBeShared() {
+		TenancyProperties sharedSchema = properties();
+		sharedSchema.getTenants().get("south-campus").setSchema("north");
+		assertThatThrownBy(() -> new TenantRegistry(sharedSchema)).isInstanceOf(IllegalStateException.class);
+
+		TenancyProperties sharedHost = properties();
+		sharedHost.getTenants().get("south-campus").setHosts(List.of("north.example.edu"));
+		assertThatThrownBy(() -> new TenantRegistry(sharedHost)).isInstanceOf(IllegalStateException.class);
+
+		TenancyProperties badSchema = properties();
+		badSchema.getTenants().get("north").setSchema("north; DROP TABLE users");
+		assertThatThrownBy(() -> new TenantRegistry(badSchema)).isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	void scheduledWorkRunsOncePerSchoolAndSurvivesFailures() {
+		TenantRegistry registry = new TenantRegistry(properties());
+		List<String> visited = new ArrayList<>();
+
+		registry.forEach(() -> {
+			visited.add(TenantContext.current());
+			if (visited.size() == 1) {
+				throw new IllegalStateException("first school fails");
+			}
+		});
+
+		assertThat(visited).containsExactly(TenantContext.DEFAULT, "north", "south-campus");
+		assertThat(TenantContext.current()).isEqualTo(TenantContext.DEFAULT);
+	}
+
+	private static TenancyProperties properties() {
+		TenancyProperties properties = new TenancyProperties();
+		properties.setEnabled(true);
+		TenancyProperties.Tenant north = new TenancyProperties.Tenant();
+		north.setSchema("north");
+		north.setHosts(List.of("north.example.edu"));
+		north.setMaxConnections(8);
+		properties.getTenants().put("north", north);
+		properties.getTenants().put("south-campus", new TenancyProperties.Tenant());
+		return properties;
+	}
+
+	private static MockHttpServletRequest request(String host) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setServerName(host);
+		return request;
+	}
+}
@@ -0,0 +1,53 @@
+package com.example.spring_tutorial.timetable;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WeekMaskTests {
+
+	@Test
+	void backToBackMeetingsDoNotOverlap() {
+		WeekMask first = WeekMask.of(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(10, 0));
+		WeekMask second = WeekMask.of(DayOfWeek.MONDAY, LocalTime.of(10, 0), LocalTime.of(11, 0));
+		WeekMask otherDay = WeekMask.of(DayOfWeek.TUESDAY, LocalTime.of(9, 0), LocalTime.of(10, 0));
+
+		assertThat(first.intersects(second)).isFalse();
+		assertThat(first.intersects(otherDay)).isFalse();
+	}
+
+	@Test
+	void reportsWhereOverlapsStartRoundedToWholeSlots() {
+		WeekMask busy = WeekMask.empty()
+			.addMeeting(DayOfWeek.MONDAY, LocalTime.of(9, 0), LocalTime.of(10, 0))
+			.addMeeting(DayOfWeek.SUNDAY, LocalTime.of(22, 0), LocalTime.of(23, 59));
+		WeekMask late = WeekMask.of(DayOfWeek.SUNDAY, LocalTime.of(23, 50), LocalTime.of(23, 55));
+		WeekMask early = WeekMask.of(DayOfWeek.MONDAY, LocalTime.of(8, 0), LocalTime.of(9, 5));
+
+		int slot = busy.firstCommonSlot(late);
+		assertThat(WeekMask.dayOf(slot)).isEqualTo(DayOfWeek.SUNDAY);
+		assertThat(WeekMask.timeOf(slot)).isEqualTo(LocalTime.of(23, 45));
+		assertThat(WeekMask.timeOf(busy.firstCommonSlot(early))).isEqualTo(LocalTime.of(9, 0));
+	}
+
+	@Test
+	void meetingsSpanningWordBoundariesAreFullyCovered() {
+		WeekMask day = WeekMask.of(DayOfWeek.WEDNESDAY, LocalTime.MIN, LocalTime.of(23, 45));
+		for (int hour = 0; hour < 24; hour++) {
+			WeekMask quarter = WeekMask.of(DayOfWeek.WEDNESDAY, LocalTime.of(hour, 30), LocalTime.of(hour, 45));
+			assertThat(day.intersects(quarter)).isTrue();
+		}
+		assertThat(day.intersects(WeekMask.of(DayOfWeek.WEDNESDAY, LocalTime.of(23, 45), LocalTime.of(23, 59)))).isFalse();
+	}
+
+	@Test
+	void rejectsMeetingsThatEndBeforeTheyStart() {
+		assertThatThrownBy(() -> WeekMask.of(DayOfWeek.MONDAY, LocalTime.of(10, 0), LocalTime.of(9, 0)))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
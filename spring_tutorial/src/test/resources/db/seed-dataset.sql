@@ -0,0 +1,68 @@
+-- Production-scale dataset for the query-plan regression suite.
+-- Only loaded into an empty database; see QueryPlanRegressionTests.
+
+INSERT INTO departments (code, name, description, established_date)
+SELECT 'D' || g, 'Department ' || g, 'Seeded department ' || g, DATE '1950-01-01' + g * 200
+FROM generate_series(1, 60) g;
+
+INSERT INTO users (email, first_name, last_name, password, role, date_of_birth, created_at, updated_at)
+SELECT 'user' || g || '@seed.edu', 'First' || g, 'Last' || g,
+       '$2a$10$7EqJtq98hPqEX7fNZaFWoO5zE5i3bYp6r0Q5eS9M1n7M6D2LxSx5e',
+       CASE WHEN g % 50 = 0 THEN 'TEACHER' ELSE 'STUDENT' END,
+       DATE '1980-01-01' + (g % 9000), CURRENT_DATE - (g % 2000), CURRENT_DATE - (g % 1000)
+FROM generate_series(1, 100000) g;
+
+INSERT INTO teachers (email, first_name, last_name, teacher_id, date_of_birth, hire_date, specialization, department_id)
+SELECT 'teacher' || g || '@seed.edu', 'Teacher' || g, 'Last' || g, 'T' || g,
+       DATE '1960-01-01' + (g % 12000), DATE '2000-01-01' + (g % 8000), 'Specialization ' || (g % 40),
+       d.ids[1 + g % d.n]
+FROM generate_series(1, 2000) g,
+     (SELECT array_agg(id ORDER BY id) AS ids, count(*) AS n FROM departments) d;
+
+INSERT INTO students (email, first_name, last_name, student_id, date_of_birth, enrollment_date, created_by, department_id)
+SELECT 'student' || g || '@seed.edu', 'Student' || g, 'Last' || g, 'S' || g,
+       DATE '1995-01-01' + (g % 5000), DATE '2010-09-01' + (g % 15) * 365 + (g % 30),
+       'teacher' || (1 + g % 2000) || '@seed.edu', d.ids[1 + g % d.n]
+FROM generate_series(1, 100000) g,
+     (SELECT array_agg(id ORDER BY id) AS ids, count(*) AS n FROM departments) d;
+
+INSERT INTO courses (code, name, credits, description, department_id)
+SELECT 'C' || g, 'Course ' || g, 1 + g % 5, 'Seeded course ' || g, d.ids[1 + g % d.n]
+FROM generate_series(1, 3000) g,
+     (SELECT array_agg(id ORDER BY id) AS ids, count(*) AS n FROM departments) d;
+
+-- Five distinct courses per student
+INSERT INTO student_courses (student_id, course_id)
+SELECT s.id, c.ids[1 + (s.id * 5 + k) % c.n]
+FROM students s,
+     generate_series(0, 4) k,
+     (SELECT array_agg(id ORDER BY id) AS ids, count(*) AS n FROM courses) c
+ON CONFLICT DO NOTHING;
+
+-- Three distinct courses per teacher
+INSERT INTO teacher_courses (teacher_id, course_id)
+SELECT t.id, c.ids[1 + (t.id * 3 + k) % c.n]
+FROM teachers t,
+     generate_series(0, 2) k,
+     (SELECT array_agg(id ORDER BY id) AS ids, count(*) AS n FROM courses) c
+ON CONFLICT DO NOTHING;
+
+-- One section per course, meeting twice a week for 90 minutes, spread over 200 rooms;
+-- every enrolment and teaching assignment is in its course's section
+INSERT INTO rooms (code, capacity)
+SELECT 'R' || g, 20 + (g % 10) * 20
+FROM generate_series(1, 200) g;
+
+INSERT INTO course_sections (course_id, code, room_id)
+SELECT c.id, 'A', 1 + c.id % 200
+FROM courses c;
+
+INSERT INTO section_meetings (section_id, day_of_week, start_time, end_time)
+SELECT cs.id, 1 + (cs.course_id + k * 2) % 5, TIME '08:00' + (cs.course_id % 9) * INTERVAL '1 hour',
+       TIME '09:30' + (cs.course_id % 9) * INTERVAL '1 hour'
+FROM course_sections cs, generate_series(0, 1) k;
+
+UPDATE student_courses sc SET section_id = cs.id FROM course_sections cs WHERE cs.course_id = sc.course_id;
+UPDATE teacher_courses tc SET section_id = cs.id FROM course_sections cs WHERE cs.course_id = tc.course_id;
+
+ANALYZE;